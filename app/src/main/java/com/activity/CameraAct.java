@@ -3,16 +3,16 @@ package com.activity;
 import android.Manifest;
 import android.app.Activity;
 import android.content.Context;
+import android.content.Intent;
+import android.content.IntentFilter;
+import android.content.SharedPreferences;
 import android.content.pm.PackageManager;
 import android.graphics.Bitmap;
-import android.graphics.BitmapFactory;
-import android.graphics.ImageFormat;
+import android.graphics.Canvas;
 import android.graphics.Matrix;
-import android.graphics.Rect;
 import android.graphics.SurfaceTexture;
-import android.graphics.YuvImage;
-import android.hardware.Camera;
 import android.media.FaceDetector;
+import android.os.BatteryManager;
 import android.os.Build;
 import android.os.Bundle;
 import android.os.Handler;
@@ -35,17 +35,50 @@ import android.widget.Toast;
 import com.example.administrator.democaream.R;
 import com.orhanobut.logger.Logger;
 import com.util.AutoFitTextureView;
+import com.util.Camera2Source;
+import com.util.CameraController;
+import com.util.CameraFrame;
+import com.util.CameraSource;
+import com.util.FaceBox;
+import com.util.FaceGeometry;
 import com.util.FaceHelper;
+import com.util.FaceIdAssigner;
+import com.util.FaceOverlayView;
+import com.util.FaceResultStore;
+import com.util.FaceThumbnailer;
+import com.util.FaceTracker;
+import com.util.FrameBufferPool;
+import com.util.FrameRecorder;
+import com.util.FramePipeline;
+import com.util.FrameScheduler;
+import com.util.FrameTransform;
+import com.util.HaarCascade;
+import com.util.HardwareFaceArbiter;
+import com.util.LegacyCameraSource;
+import com.util.MotionGate;
+import com.util.Nv21FrameFile;
+import com.util.Nv21Rotator;
+import com.util.PipelineMetrics;
+import com.util.PreviewSizeTuner;
+import com.util.QualityGovernor;
+import com.util.YuvConverter;
 
-import java.io.ByteArrayOutputStream;
+import java.io.File;
 import java.io.IOException;
-import java.util.List;
+import java.io.InputStream;
+import java.util.Locale;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
 
 /**
  * Created by Administrator on 2017/11/8.
  */
 
-public class CameraAct extends AppCompatActivity implements Camera.PreviewCallback,View.OnClickListener{
+public class CameraAct extends AppCompatActivity implements View.OnClickListener{
     @Override
     protected void onCreate(@Nullable Bundle savedInstanceState) {
         super.onCreate(savedInstanceState);
@@ -54,10 +87,57 @@ public class CameraAct extends AppCompatActivity implements Camera.PreviewCallba
         initView();
         mFaceHelper = FaceHelper.getInstance();
         mFaceHelper.setZoom(1);
-        mFaceHelper.setRectFlagOffset(2.0f);
+        mFaceHelper.setRectFlagOffset(RECT_FLAG_OFFSET);
         mFaceHandleThread = new HandlerThread("face");
         mFaceHandleThread.start();
         mFaceHandle = new Handler(mFaceHandleThread.getLooper());
+        initPipeline();
+        //训练好的级联较大，解析放到后台，读完之前级联后端用内置示例
+        new Thread("cascade-loader") {
+            @Override
+            public void run() {
+                mCascade = loadCascade();
+                if (mCascade != null) {
+                    //每像素耗时按级联区分缓存
+                    mHandler.post(mRetune);
+                }
+            }
+        }.start();
+        //人脸状态只在去抖后切换时才发到主线程
+        mFaceResults.setPresenceListener(new FaceResultStore.PresenceListener() {
+            @Override
+            public void onPresenceChanged(boolean present, int faceCount, long timeNanos) {
+                mHandler.obtainMessage(1, present ? 1 : 0, 0).sendToTarget();
+                //录制时把状态变化后的下一帧也录下来，便于复现误检
+                mRecordStateChange = true;
+            }
+        });
+        mCameraController = new CameraController(new CameraController.Factory() {
+            @Override
+            public CameraSource open(boolean front) {
+                return openCameraSource(front);
+            }
+        }, mCameraListener, mMetrics);
+        //face 线程上只保留最新一帧，放行间隔跟随准备+等待空闲检测线程的耗时
+        mScheduler = new FrameScheduler<>(new Executor() {
+            @Override
+            public void execute(Runnable command) {
+                mFaceHandle.post(command);
+            }
+        }, new FrameScheduler.Callback<FaceThread>() {
+            @Override
+            public void onProcess(FaceThread frame) {
+                frame.run();
+            }
+
+            @Override
+            public void onDrop(FaceThread frame) {
+                mMetrics.onFrameDropped();
+                frame.releaseData();
+            }
+        });
+        applyQuality();
+        mHandler.postDelayed(mMetricsReport, METRICS_INTERVAL);
         if (ContextCompat.checkSelfPermission(mContext, Manifest.permission.WRITE_EXTERNAL_STORAGE) != PackageManager.PERMISSION_GRANTED) {
             ActivityCompat.requestPermissions(this,new String[]{Manifest.permission.CAMERA}, 1);
         }
@@ -113,46 +193,140 @@ public class CameraAct extends AppCompatActivity implements Camera.PreviewCallba
 
     }
 
+    /**
+     * 旋转按钮只改显示方向和检测旋转角度，相机不重开；value 为 -1（启动按钮）时按当前序号重启相机。
+     */
     private void setCameraOrien(int value){
-        if(value>=0){
-            mOrienta=value;
-        }
         rotation.setText("相机旋转角度："+value);
-        stopCamera();
-        try {
-            Thread.sleep(3000);
-        } catch (InterruptedException e) {
-            e.printStackTrace();
+        if(value<0){
+            mCameraController.restart();
+            return;
         }
-        initCarema();
+        mOrientaOverride=value;
+        mOrienta=value;
+        applyDisplayOrientation(value);
+        //检测画面的方向变了，旧模板和参考帧作废；之后入队的帧按新角度旋转
+        resetTracking();
     }
 
-    private void stopCamera(){
-        Logger.e(TAG+"相机关闭："+mCamera);
-        if (mCamera != null) {
-            //mPreview.setCamera(null);
-            mCamera.stopPreview();
-            mCamera.setPreviewCallback(null);
-            mCamera.release();
-            mCamera = null;
-            xzzd = false;
-        }
+    private void resetTracking(){
+        mScheduler.clear();
+        mTracker.stop();
+        mMotionGate.reset();
+        mFaceArbiter.reset();
+        mOverlay.clearFaces();
+        mFaceResults.reset();
+        mFaceIds.reset();
+        faceStatus.setText("没有识别到人脸");
     }
 
-    @Override
-    public void onPreviewFrame(byte[] data, Camera camera) {
-        Logger.i(TAG+"收到相机回调：onpreviewframe()"+index);
-        if(data!=null&&data.length>0&&System.currentTimeMillis()-time>200){
-            time=System.currentTimeMillis();
-            mFaceHandle.post(new FaceThread(data,camera,(++index)));
+    private void toggleRecording(){
+        FrameRecorder recorder = mRecorder;
+        if(recorder!=null){
+            mRecorder = null;
+            //写线程写完积压的帧后自行退出，不在主线程上等待
+            recorder.stop();
+            Toast.makeText(mContext, "停止录制，已录 "+recorder.getRecordedCount()+" 帧", Toast.LENGTH_SHORT).show();
+            return;
         }
+        File dir = getExternalFilesDir("recordings");
+        if(dir==null||mPreviewWidth==0){
+            Toast.makeText(mContext, "无法录制", Toast.LENGTH_SHORT).show();
+            return;
+        }
+        //缓冲按当前预览尺寸分配，之后换成更大的尺寸时那些帧计入丢帧
+        recorder = new FrameRecorder(dir, "frames-"+System.currentTimeMillis(), RECORD_SLOTS,
+                Nv21FrameFile.frameSize(mPreviewWidth, mPreviewHeight), RECORD_FILE_BYTES, RECORD_FILES);
+        recorder.start();
+        mRecorder = recorder;
+        Toast.makeText(mContext, "开始录制："+dir, Toast.LENGTH_SHORT).show();
     }
 
+    /**
+     * 相机状态变化都在主线程上回调；打开、启动、关闭本身在 mCameraController 的 camera 线程上执行。
+     */
+    private final CameraController.Listener mCameraListener = new CameraController.Listener() {
+        @Override
+        public void onOpened(CameraSource source, int[] previewSizes) {
+            mCameraSource = source;
+            onCameraOpened(source, previewSizes);
+        }
+
+        @Override
+        public void onPreviewStarted(int width, int height) {
+            Logger.e(TAG+"相机启动："+width+"x"+height);
+        }
+
+        @Override
+        public void onClosed() {
+            Logger.e(TAG+"相机关闭："+mCameraSource);
+            mCameraSource = null;
+            //检测线程手里的帧仍可读取，release 时各后端自行判断是否还给相机；预览尺寸可能变化，旧模板作废
+            resetTracking();
+            xzzd = false;
+        }
+
+        @Override
+        public void onError(String message) {
+            Toast.makeText(mContext, message, Toast.LENGTH_SHORT).show();
+        }
+    };
+
+    /**
+     * camera 线程上调用（Camera2 为其内部线程）。
+     */
+    private final CameraSource.FrameCallback mFrameCallback = new CameraSource.FrameCallback() {
+        @Override
+        public void onFrame(CameraFrame frame) {
+            mMetrics.onFrameReceived();
+            FrameRecorder recorder = mRecorder;
+            if(recorder!=null&&recorder.offer(frame,detectionRotation(),mRecordStateChange)){
+                mRecordStateChange = false;
+            }
+            //画面静止时不检测，无人时几乎不耗电；直接在相机平面上采样，不拷贝。
+            //硬件人脸结果有效时，软件检测只偶尔跑一次做核对
+            long time = frame.getTimestamp();
+            if(mScheduler.admit()&&mMotionGate.check(frame,time)
+                    &&(!mUseHardwareFaces||mFaceArbiter.shouldRunSoftware(time))){
+                mScheduler.submit(new FaceThread(frame,(++index)));
+            }else{
+                mMetrics.onFrameDropped();
+                frame.release();
+            }
+        }
+    };
+
     private  void initView(){
         textureView = (AutoFitTextureView) findViewById(R.id.mCamera);
         textureView.setScaleX(-1);
         faceStatus = (TextView) findViewById(R.id.faceStatus);
+        //长按切换检测后端，对比精度和耗时
+        faceStatus.setOnLongClickListener(new View.OnLongClickListener() {
+            @Override
+            public boolean onLongClick(View v) {
+                mDetectorBackend = mDetectorBackend == FaceHelper.DETECTOR_ANDROID
+                        ? FaceHelper.DETECTOR_CASCADE : FaceHelper.DETECTOR_ANDROID;
+                mMetrics.reset();
+                //计数清零，旧快照作废，否则下一次报告的帧率为负
+                mLastSnapshot = null;
+                //新后端的每像素耗时不同，按缓存或重新校准选尺寸
+                mHandler.post(mRetune);
+                Toast.makeText(mContext, "检测后端：" + backendName(mDetectorBackend), Toast.LENGTH_SHORT).show();
+                return true;
+            }
+        });
         log = (TextView) findViewById(R.id.log);
+        //长按切换是否采用相机硬件人脸检测，关闭后每帧都走软件检测
+        log.setOnLongClickListener(new View.OnLongClickListener() {
+            @Override
+            public boolean onLongClick(View v) {
+                mUseHardwareFaces = !mUseHardwareFaces;
+                mFaceArbiter.reset();
+                Toast.makeText(mContext, "硬件人脸检测：" + (!mHardwareFacesSupported ? "不支持"
+                        : mUseHardwareFaces ? "开" : "关"), Toast.LENGTH_SHORT).show();
+                return true;
+            }
+        });
         xz0 = (Button) findViewById(R.id.xz0);
         xz0.setOnClickListener(this);
         xz90 = (Button) findViewById(R.id.xz90);
@@ -162,7 +336,37 @@ public class CameraAct extends AppCompatActivity implements Camera.PreviewCallba
         xz270 = (Button) findViewById(R.id.xz270);
         xz270.setOnClickListener(this);
         rotation = (TextView) findViewById(R.id.rotation);
+        //长按开始/停止录制预览帧，录下的文件可用 tools 模块的 BatchRunner 离线复现
+        rotation.setOnLongClickListener(new View.OnLongClickListener() {
+            @Override
+            public boolean onLongClick(View v) {
+                toggleRecording();
+                return true;
+            }
+        });
         mImg = (ImageView) findViewById(R.id.mImg);
+        //调试图默认关闭，点击切换；人脸框由覆盖层绘制，不再依赖整帧 Bitmap
+        mImg.setOnClickListener(new View.OnClickListener() {
+            @Override
+            public void onClick(View v) {
+                mShowDebugBitmap = !mShowDebugBitmap;
+                if (!mShowDebugBitmap) {
+                    mImg.setImageBitmap(null);
+                }
+            }
+        });
+        //长按切换亮度检测前是否做直方图均衡，逆光场景下对比检出率
+        mImg.setOnLongClickListener(new View.OnLongClickListener() {
+            @Override
+            public boolean onLongClick(View v) {
+                mEqualizeLuma = !mEqualizeLuma;
+                Toast.makeText(mContext, "直方图均衡：" + (mEqualizeLuma ? "开" : "关"), Toast.LENGTH_SHORT).show();
+                return true;
+            }
+        });
+        mOverlay = (FaceOverlayView) findViewById(R.id.faceOverlay);
+        //检测画面已按 mMirror 做过镜像，框坐标与用户看到的画面一致，覆盖层无需再翻转
+        mOverlay.setMirror(false);
         sizeIndex = (EditText) findViewById(R.id.sizeIndex);
         startCaream = (Button) findViewById(R.id.startCaream);
         startCaream.setOnClickListener(this);
@@ -179,6 +383,7 @@ public class CameraAct extends AppCompatActivity implements Camera.PreviewCallba
 
             @Override
             public void onSurfaceTextureSizeChanged(SurfaceTexture surface, int width, int height) {
+                applyPreviewTransform();
             }
 
             @Override
@@ -194,59 +399,193 @@ public class CameraAct extends AppCompatActivity implements Camera.PreviewCallba
     }
 
     private void initCarema(){
-        try {
-            mCamera = Camera.open(1);//可以根据ID使用不同的摄像头
-            mCamera.setPreviewTexture(mSurface);
-        } catch (Exception e) {
-            e.printStackTrace();
-        }
-        Logger.e(TAG+"相机启动："+mCamera+","+mSurface);
-        if(mCamera!=null){
-            setCameraDisplayOrientation(CameraAct.this,1,mCamera);
-            mCamera.setPreviewCallback(this);
-            Camera.Parameters parameters = mCamera.getParameters();
-            // parameters.setPreviewFrameRate(3);//设置每秒3帧,没有效果
-            List<Camera.Size> previewSizes = parameters.getSupportedPreviewSizes();//获得相机预览所支持的大小。
-            if(isFirst){
-                isFirst = false;
-                StringBuffer sb = new StringBuffer();
-                int index=0;
-                for(Camera.Size cs:previewSizes){
-                    sb.append((index++)+"=:");
-                    sb.append(cs.width+","+cs.height).append("  ");
-                }
-                caremaSizeText.setText(sb.toString());
-            }else{
-                Camera.Size size1 = previewSizes.get(Integer.parseInt(sizeIndex.getText().toString()));//default 2,4
-                parameters.setPreviewSize(size1.width, size1.height);
-                mCamera.setParameters(parameters);
-                mCamera.startPreview();
+        if(mSurface==null){
+            //预览控件还没准备好，等 onSurfaceTextureAvailable 再打开
+            return;
+        }
+        //已打开时忽略；打开后在 onCameraOpened 里选尺寸并启动预览
+        mCameraController.open(true);//前置摄像头
+    }
+
+    private void onCameraOpened(CameraSource source, int[] previewSizes){
+        Logger.e(TAG+"相机打开："+source+","+mSurface);
+        setCameraDisplayOrientation(CameraAct.this,source);
+        mSupportedSizes = previewSizes;
+        String manual = sizeIndex.getText().toString().trim();
+        if(isFirst){
+            isFirst = false;
+            StringBuffer sb = new StringBuffer();
+            for(int i=0;i<previewSizes.length/2;i++){
+                sb.append(i+"=:");
+                sb.append(previewSizes[i*2]+","+previewSizes[i*2+1]).append("  ");
+            }
+            caremaSizeText.setText(sb.toString());
+            //手动选尺寸时等用户点启动
+            if(!manual.isEmpty()){
+                return;
             }
         }
+        //序号留空时按检测耗时预算自动选尺寸和缩小倍数，填了序号则按序号
+        mAutoSize = manual.isEmpty();
+        if(mAutoSize){
+            restoreTunerCost();
+            mSizeTuner.select(previewSizes);
+            mPreviewWidth = mSizeTuner.getWidth();
+            mPreviewHeight = mSizeTuner.getHeight();
+            mLumaScale = mSizeTuner.getScale();
+        }else{
+            int i = Integer.parseInt(manual);
+            mPreviewWidth = previewSizes[i*2];
+            mPreviewHeight = previewSizes[i*2+1];
+        }
+        //相机能自己检测人脸时总是开着，是否采用由 mUseHardwareFaces 决定，可随时切换
+        mHardwareFacesSupported = mCameraController.isFaceDetectionSupported();
+        mCameraController.startPreview(mSurface, mPreviewWidth, mPreviewHeight, mFrameCallback,
+                mHardwareFacesSupported ? mHardwareFaceCallback : null);
+    }
+
+    /**
+     * 每像素检测耗时按机型和检测后端缓存，换了后端时读取对应的缓存，没有则重新校准。
+     */
+    private void restoreTunerCost(){
+        String key = Build.MODEL + "/" + backendName(mDetectorBackend);
+        if(key.equals(mTunerKey)){
+            return;
+        }
+        mTunerKey = key;
+        float cost = getSharedPreferences(TUNER_PREFS, MODE_PRIVATE).getFloat(key, 0);
+        if(cost > 0){
+            mSizeTuner.setCostPerPixel(cost);
+        }else{
+            mSizeTuner.reset();
+        }
+    }
+
+    /**
+     * 校准完成或耗时漂移后在主线程上重新选尺寸：只是缩小倍数变了就直接换，预览尺寸变了才重启相机。
+     */
+    private final Runnable mRetune = new Runnable() {
+        @Override
+        public void run() {
+            if(!mAutoSize||mCameraSource==null){
+                return;
+            }
+            restoreTunerCost();
+            if(mSizeTuner.isCalibrated()){
+                getSharedPreferences(TUNER_PREFS, MODE_PRIVATE).edit()
+                        .putFloat(mTunerKey, mSizeTuner.getCostPerPixel()).apply();
+            }
+            mSizeTuner.select(mSupportedSizes);
+            mLumaScale = mSizeTuner.getScale();
+            if(mSizeTuner.getWidth()!=mPreviewWidth||mSizeTuner.getHeight()!=mPreviewHeight){
+                Logger.i(TAG+"预览尺寸调整为："+mSizeTuner.getWidth()+"x"+mSizeTuner.getHeight()+"/"+mLumaScale);
+                mCameraController.restart();
+            }
+        }
+    };
+
+    /**
+     * 优先用 Camera2（ImageReader 直接交出平面缓冲，队列有界），不可用或打开失败时退回旧版相机。
+     */
+    private CameraSource openCameraSource(boolean front){
+        if (Camera2Source.isSupported(this, front)) {
+            CameraSource source = new Camera2Source(this);
+            if (source.open(front)) {
+                return source;
+            }
+        }
+        CameraSource source = new LegacyCameraSource();
+        return source.open(front) ? source : null;
     }
 
     private Handler mHandler = new Handler(){
         @Override
         public void handleMessage(Message msg) {
             super.handleMessage(msg);
-            Bundle bun = msg.getData();
             switch (msg.what){
                 case 1:
-                    int type = bun.getInt("type");
+                    int type = msg.arg1;
                     if(type==1){
                         faceStatus.setText("识别到人脸");
                     }else{
                         faceStatus.setText("没有识别到人脸");
                     }
-                    log.setText(bun.getString("msg")+",act_in:"+index);
                     break;
             }
         }
     };
+    /**
+     * 定期把统计快照显示到日志区域，代替每帧拼接日志字符串。
+     */
+    private final Runnable mMetricsReport = new Runnable() {
+        @Override
+        public void run() {
+            PipelineMetrics.Snapshot snapshot = mMetrics.snapshot();
+            //每个统计周期作为调节器的一个窗口
+            if (mGovernor.evaluate(snapshot.getTimeNanos(), thermalStatus())) {
+                applyQuality();
+            }
+            StringBuilder sb = new StringBuilder();
+            if (mLastSnapshot != null) {
+                sb.append("处理帧率:").append(String.format(Locale.US, "%.1f", snapshot.processedPerSecond(mLastSnapshot))).append('\n');
+            }
+            sb.append(snapshot);
+            CameraSource source = mCameraSource;
+            if (source != null) {
+                sb.append("\n缓冲占用:").append(source.getInUseCount()).append(",缓冲耗尽:").append(source.getStarvationCount())
+                        .append(",相机:").append(source instanceof Camera2Source ? "camera2" : "legacy");
+            }
+            sb.append("\n静止跳过:").append(mMotionGate.getSkippedCount()).append(",变化放行:").append(mMotionGate.getPassedCount())
+                    .append(",强制刷新:").append(mMotionGate.getRefreshCount());
+            sb.append("\n硬件检测:").append(!mHardwareFacesSupported ? "不支持" : mUseHardwareFaces ? "开" : "关")
+                    .append(",硬件结果:").append(mFaceArbiter.getHardwareCount()).append(",核对:").append(mFaceArbiter.getConfirmCount())
+                    .append(",回退:").append(mFaceArbiter.getFallbackCount()).append(",省掉:").append(mFaceArbiter.getSkippedCount())
+                    .append("\n一致:").append(mFaceArbiter.getAgreeCount()).append(",硬件漏检:").append(mFaceArbiter.getHardwareMissCount())
+                    .append(",软件漏检:").append(mFaceArbiter.getSoftwareMissCount());
+            if (mAutoSize) {
+                sb.append("\n自动尺寸:").append(mPreviewWidth).append('x').append(mPreviewHeight).append('/').append(mLumaScale)
+                        .append(mSizeTuner.isCalibrated() ? ",每像素:" + String.format(Locale.US, "%.1fns", mSizeTuner.getCostPerPixel()) : ",校准中")
+                        .append(",重新调整:").append(mSizeTuner.getRetuneCount());
+            }
+            sb.append("\n人脸:").append(mFaceResults.isPresent() ? "在" : "无").append(",进入:").append(mFaceResults.getEnterCount())
+                    .append(",离开:").append(mFaceResults.getLeaveCount()).append(",抖动抑制:").append(mFaceResults.getSuppressedCount());
+            if (mFaceResults.getLatest(mLatestResult)) {
+                sb.append(",最新结果:").append((snapshot.getTimeNanos() - mLatestResult.getTimeNanos()) / 1000000).append("ms前")
+                        .append(mLatestResult.isHardware() ? "(硬件)" : "");
+            }
+            FrameRecorder recorder = mRecorder;
+            if (recorder != null) {
+                sb.append("\n录制:").append(recorder.getRecordedCount()).append(",录制丢帧:").append(recorder.getDroppedCount())
+                        .append(recorder.getError() != null ? ",出错:" + recorder.getError().getMessage() : "");
+            }
+            sb.append("\n缩略图:").append(mThumbnailCount.get()).append(",编号:").append(mFaceIds.getCreatedCount())
+                    .append(",轨迹:").append(mFaceIds.getTrackCount());
+            sb.append("\n检测:").append(mTracker.getDetectCount()).append(",跟踪:").append(mTracker.getTrackCount())
+                    .append(",跟丢:").append(mTracker.getLostCount());
+            sb.append("\n质量:").append(mGovernor.getLevelIndex()).append('/').append(mGovernor.getLevelCount())
+                    .append('(').append(mGovernor.getLevel()).append(')')
+                    .append(",平均耗时:").append(mGovernor.getLatencyNanos() / 1000000).append("ms")
+                    .append(",排队:").append(String.format(Locale.US, "%.2f", mGovernor.getQueueDepth()))
+                    .append(",温度:").append(thermalName(mGovernor.getThermal()))
+                    .append(",降级:").append(mGovernor.getDownCount()).append(",升级:").append(mGovernor.getUpCount());
+            if (mGovernor.getTransition(0, mLastTransition)) {
+                sb.append(",最近:").append(mLastTransition).append(' ')
+                        .append((snapshot.getTimeNanos() - mLastTransition.getTimeNanos()) / 1000000000).append("s前");
+            }
+            sb.append("\n限流:").append(mScheduler.getThrottledCount()).append(",覆盖:").append(mScheduler.getReplacedCount())
+                    .append(",检测线程:").append(mPipeline.getWorkerCount())
+                    .append(",后端:").append(backendName(mDetectorBackend)).append(mEqualizeLuma ? "+均衡" : "").append(",mOrienta:").append(mOrienta);
+            String text = sb.toString();
+            log.setText(text);
+            Logger.i(TAG+text);
+            mLastSnapshot = snapshot;
+            mHandler.postDelayed(this, METRICS_INTERVAL);
+        }
+    };
     int degrees = 0;
-    public   void setCameraDisplayOrientation (Activity activity, int cameraId, android.hardware.Camera camera) {
-        android.hardware.Camera.CameraInfo info = new android.hardware.Camera.CameraInfo();
-        android.hardware.Camera.getCameraInfo (cameraId , info);
+    public   void setCameraDisplayOrientation (Activity activity, CameraSource source) {
+        int orientation = source.getSensorOrientation();
+        boolean front = source.isFrontFacing();
         int rotation = activity.getWindowManager ().getDefaultDisplay ().getRotation ();
         int degrees = 0;
         switch (rotation) {
@@ -264,121 +603,632 @@ public class CameraAct extends AppCompatActivity implements Camera.PreviewCallba
                 break;
         }
         int result;
-        if (info.facing == Camera.CameraInfo.CAMERA_FACING_FRONT) {
-            result = (info.orientation + degrees) % 360;
-            result = (360 - result) % 360;   // compensate the mirror
+        if (mOrientaOverride >= 0) {
+            //用户手动选过角度
+            result = mOrientaOverride;
         } else {
-            // back-facing
-            result = ( info.orientation - degrees + 360) % 360;
+            result = autoOrientation(orientation, front, degrees);
         }
         mOrienta = result;
-        camera.setDisplayOrientation (result);
+        //前置摄像头预览由系统做了镜像，textureView.setScaleX(-1) 又翻了回来，两者抵消时检测画面无需镜像
+        mMirror = front ^ (textureView.getScaleX() < 0);
+        applyDisplayOrientation(result);
+    }
+
+    private static int autoOrientation(int sensorOrientation, boolean front, int displayDegrees) {
+        if (front) {
+            int result = (sensorOrientation + displayDegrees) % 360;
+            return (360 - result) % 360;   // compensate the mirror
+        }
+        // back-facing
+        return (sensorOrientation - displayDegrees + 360) % 360;
+    }
+
+    /**
+     * 旧 API 由相机旋转预览；Camera2 忽略 setDisplayOrientation，系统已按自然方向摆正画面，
+     * 这里把与自然方向下自动角度的差值作为 TextureView 变换补上，旋转按钮在两种后端下效果一致。
+     */
+    private void applyDisplayOrientation(int degrees) {
+        mCameraController.setDisplayOrientation(degrees);
+        CameraSource source = mCameraSource;
+        if (source instanceof Camera2Source) {
+            int natural = autoOrientation(source.getSensorOrientation(), source.isFrontFacing(), 0);
+            //前置画面先镜像再旋转，方向相反
+            mPreviewRotation = source.isFrontFacing() ? (natural - degrees + 360) % 360 : (degrees - natural + 360) % 360;
+        } else {
+            mPreviewRotation = 0;
+        }
+        applyPreviewTransform();
+    }
+
+    /**
+     * 绕中心旋转 mPreviewRotation 度，转 90/270 度时等比缩小到放得下，不拉伸。
+     */
+    private void applyPreviewTransform() {
+        int width = textureView.getWidth();
+        int height = textureView.getHeight();
+        if (mPreviewRotation == 0 || width == 0 || height == 0) {
+            textureView.setTransform(null);
+            return;
+        }
+        Matrix matrix = new Matrix();
+        float cx = width / 2f, cy = height / 2f;
+        matrix.postRotate(mPreviewRotation, cx, cy);
+        if (mPreviewRotation % 180 != 0) {
+            float scale = Math.min((float) width / height, (float) height / width);
+            matrix.postScale(scale, scale, cx, cy);
+        }
+        textureView.setTransform(matrix);
     }
 
+    /**
+     * 亮度检测模式的缩小倍数（1、2 或 4，自动选尺寸时由 mSizeTuner 决定），0 表示按原图彩色检测。
+     */
+    private volatile int mLumaScale = 2;
+    /**
+     * 自动选尺寸：单帧检测耗时预算 40ms，人脸至少占画面短边 1/5，检测图上的人脸至少 40 像素。
+     */
+    private final PreviewSizeTuner mSizeTuner = new PreviewSizeTuner(40, TimeUnit.MILLISECONDS, 0.2f, 40);
+    /**
+     * 质量档位，从高到低依次为：检测图再缩小倍数 / 最小处理间隔 / 跟踪时完整检测的间隔。
+     * 第 0 档与不做调节时一致。
+     */
+    private static final QualityGovernor.Level[] QUALITY_LADDER = {
+            new QualityGovernor.Level(1, 0, 300, TimeUnit.MILLISECONDS),
+            new QualityGovernor.Level(1, 66, 500, TimeUnit.MILLISECONDS),
+            new QualityGovernor.Level(2, 100, 700, TimeUnit.MILLISECONDS),
+            new QualityGovernor.Level(2, 200, 1000, TimeUnit.MILLISECONDS),
+    };
+    /**
+     * 从收到帧到发布结果的耗时目标。
+     */
+    private static final long TARGET_LATENCY_MS = 120;
+    /**
+     * 电池温度（0.1℃）达到该值算偏高 / 过高，没有系统温度状态接口时用它近似机身温度。
+     */
+    private static final int BATTERY_WARM = 400, BATTERY_HOT = 440;
+    private final QualityGovernor mGovernor = new QualityGovernor(QUALITY_LADDER, TARGET_LATENCY_MS, TimeUnit.MILLISECONDS, 16);
+    private final QualityGovernor.Transition mLastTransition = new QualityGovernor.Transition();
+    /**
+     * 当前档位的检测图再缩小倍数，乘在 mLumaScale 上。
+     */
+    private volatile int mQualityScale = 1;
+    private static final String TUNER_PREFS = "preview_tuner";
+    private String mTunerKey;
+    private volatile boolean mAutoSize;
+    private int[] mSupportedSizes;
+    private final FaceTracker mTracker = new FaceTracker();
+    private final MotionGate mMotionGate = new MotionGate();
+    private volatile int mDetectorBackend = FaceHelper.DETECTOR_ANDROID;
+    private volatile boolean mEqualizeLuma;
+    /**
+     * OpenCV 格式的训练级联，放在 assets 里即可替换内置的示例级联，见 {@link HaarCascade#load}。
+     */
+    private static final String CASCADE_ASSET = "haarcascade_frontalface_default.xml";
+    //null 表示没有训练级联，级联后端用内置示例
+    private volatile HaarCascade mCascade;
+    private volatile boolean mShowDebugBitmap;
+    //调试图双缓冲：界面显示一张，发布线程写另一张
+    private final Bitmap[] mDebugBitmaps = new Bitmap[2];
+    private final Canvas[] mDebugCanvases = new Canvas[2];
+    private int mDebugBitmapIndex;
+    private final AtomicBoolean mDebugBitmapPending = new AtomicBoolean();
+    private FaceOverlayView mOverlay;
+    private final FrameTransform mTrackTransform = new FrameTransform();
+    //track 成功时的中心 x、y 和边长，只在 face 线程上读写
+    private final float[] mTrackState = new float[3];
+    /**
+     * 识别用人脸缩略图的边长。
+     */
+    private static final int THUMBNAIL_SIZE = 112;
+    private static final int THUMBNAIL_PYRAMID_LEVELS = 3;
+    //各检测线程共用，一帧有多个人脸时并行生成缩略图
+    private final ExecutorService mThumbnailExecutor = Executors.newFixedThreadPool(2);
+    private final AtomicLong mThumbnailCount = new AtomicLong();
+    /**
+     * 缩略图的下游（识别）接在这里，检测线程上调用，返回后缓冲即被复用。
+     */
+    private final FaceThumbnailer.Consumer mThumbnailConsumer = new FaceThumbnailer.Consumer() {
+        @Override
+        public void onThumbnail(FaceThumbnailer.Thumbnail thumbnail) {
+            mThumbnailCount.incrementAndGet();
+        }
+    };
+    /**
+     * 录制：积压 4 帧，单个文件 64MB，最多保留 8 个。
+     */
+    private static final int RECORD_SLOTS = 4;
+    private static final long RECORD_FILE_BYTES = 64L * 1024 * 1024;
+    private static final int RECORD_FILES = 8;
+    private volatile FrameRecorder mRecorder;
+    private volatile boolean mRecordStateChange;
+    //最近的人脸结果和去抖后的有无人脸状态，检测线程和相机回调线程写入
+    private final FaceResultStore mFaceResults = new FaceResultStore(8, FaceOverlayView.MAX_FACES);
+    //只在主线程（统计显示）上使用
+    private final FaceResultStore.Result mLatestResult = mFaceResults.newResult();
+    private final HardwareFaceArbiter mFaceArbiter = new HardwareFaceArbiter();
+    //支持时优先采用相机硬件检测的人脸
+    private volatile boolean mUseHardwareFaces = true;
+    private volatile boolean mHardwareFacesSupported;
+    //硬件人脸回调线程上使用
+    private final FrameTransform mHardwareTransform = new FrameTransform();
+    private final float[] mHardwareRect = new float[4];
+    private final int[] mHardwareBounds = new int[FaceOverlayView.MAX_FACES * 4];
+    private final int[] mHardwareIds = new int[FaceOverlayView.MAX_FACES];
+    /**
+     * 每帧最多检测的人脸数。
+     */
+    private static final int MAX_FACES = FaceOverlayView.MAX_FACES;
+    //软件和硬件结果共用，编号跟着人走
+    private final FaceIdAssigner mFaceIds = new FaceIdAssigner(MAX_FACES);
+    /**
+     * 人脸框半边长 = 眼距 * RECT_FLAG_OFFSET。
+     */
+    private static final float RECT_FLAG_OFFSET = 2.0f;
+    /**
+     * 跟踪模板边长 = 眼距 * TRACK_SIZE_FACTOR，约为脸宽。
+     */
+    private static final float TRACK_SIZE_FACTOR = 2f;
+
     private class FaceThread implements Runnable {
-        private byte[] mData;
-        private ByteArrayOutputStream mBitmapOutput;//mUploadOutp1ut
-        private Matrix mMatrix;
-        private Message mMessage;
-        private Camera mtCamera;
+        private CameraFrame mData;
+        private int mRotate;
+        private boolean mMirror;
+        private int mWidth, mHeight;
         private int index;
-        public FaceThread(byte[] data,Camera camera,int index) {
+        private long mReceiveTime;
+        public FaceThread(CameraFrame data,int index) {
             mData = data;
-            mBitmapOutput = new ByteArrayOutputStream();
-            mMessage = mHandler.obtainMessage();
-            mMatrix = new Matrix();
-                switch (mOrienta){
-                    case  90:
-                        mMatrix.postRotate(270);
-                        break;
-                    case 270:
-                        mMatrix.postRotate(90);
-                        break;
-                    default:
-                        mMatrix.postRotate(mOrienta);
-                        break;
-                }
-           // mMatrix.postScale(-1, 1);//水平
-            mtCamera = camera;
+            mReceiveTime = data.getTimestamp();
+            //相机重启后尺寸可能变化，以帧自身的尺寸为准
+            mWidth = data.getWidth();
+            mHeight = data.getHeight();
+            mMirror = CameraAct.this.mMirror;
+            mRotate = detectionRotation();
             this.index = index;
         }
+        /**
+         * 在 face 线程上执行，即流水线的准备阶段；检测和发布在检测线程上完成。
+         */
         @Override
         public void run() {
-            Bitmap bitmap =null;
-            Bitmap mFaceBitmap=null;
-            long startTime =System.currentTimeMillis(),endTime = 0;
-            String logMsg = " ";
-            int type = -1;
             try{
-                Camera.Size size = mtCamera.getParameters().getPreviewSize();
-                YuvImage yuvImage = new YuvImage(mData, ImageFormat.NV21, size.width, size.height, null);
+                if(!mPipeline.process(index, this)){
+                    mMetrics.onFrameDropped();
+                }
+            }catch (InterruptedException e){
+                Thread.currentThread().interrupt();
+            }catch (Exception e){
+                e.printStackTrace();
+            }finally{
+                releaseData();
+            }
+        }
+
+        private void releaseData() {
+            if (mData != null) {
+                mData.release();
                 mData = null;
-                yuvImage.compressToJpeg(new Rect(0, 0, size.width, size.height), 100, mBitmapOutput);
-                BitmapFactory.Options options = new BitmapFactory.Options();
-//               options.inSampleSize =2;
-                options.inPreferredConfig = Bitmap.Config.RGB_565;//必须设置为565，否则无法检测
-                // 转换成图片
-                bitmap = BitmapFactory.decodeByteArray(mBitmapOutput.toByteArray(), 0, mBitmapOutput.toByteArray().length, options);
-                if(bitmap!=null){
-                    mBitmapOutput.reset();
-                    bitmap = Bitmap.createBitmap(bitmap, 0, 0, bitmap.getWidth(), bitmap.getHeight(), mMatrix, false);
-                    final Bitmap mBitmap=bitmap;
-                    runOnUiThread(new Runnable() {
-                        @Override
-                        public void run() {
-                            mImg.setImageBitmap(mBitmap);
+            }
+        }
+    }
+
+    /**
+     * 流水线中流转的帧，旋转后的 NV21 和 Bitmap 都跟着帧对象复用。
+     */
+    private static class FaceFrame {
+        byte[] nv21;
+        int width, height;
+        //亮度模式下 nv21 只存未旋转的 Y 平面，旋转和缩小在检测线程上一次完成
+        int lumaScale, rotate;
+        boolean mirror;
+        //本帧靠跟踪出结果，没有经过检测
+        boolean tracked;
+        //人脸框，预览画面（旋转后全分辨率）坐标，交给覆盖层绘制
+        final int[] faceBounds = new int[FaceOverlayView.MAX_FACES * 4];
+        final int[] faceIds = new int[FaceOverlayView.MAX_FACES];
+        int faceCount;
+        int previewWidth, previewHeight;
+        //检测到的人脸在原始（未旋转）预览帧上的中心和跟踪模板边长，faceSize 为 0 表示没有人脸
+        float faceX, faceY, faceSize;
+        Bitmap bitmap;
+        int type;
+        long receiveTime;
+        //准备时排在它前面、占着检测线程的帧数，超出检测线程数的部分即排队
+        int queueDepth;
+    }
+
+    private void initPipeline(){
+        int workers = FramePipeline.defaultWorkerCount();
+        mPipeline = new FramePipeline<>(workers, workers + 1,
+                new FramePipeline.Preparer<FaceThread, FaceFrame>() {
+                    @Override
+                    public void prepare(long index, FaceThread input, FaceFrame frame) {
+                        long start = System.nanoTime();
+                        frame.receiveTime = input.mReceiveTime;
+                        frame.type = -1;
+                        frame.width = 0;
+                        frame.tracked = false;
+                        frame.faceSize = 0;
+                        frame.faceCount = 0;
+                        if (input.mData == null) {
+                            return;
+                        }
+                        frame.queueDepth = Math.max(0, mPipeline.getInFlightCount() - mPipeline.getWorkerCount());
+                        int lumaScale = mLumaScale;
+                        frame.lumaScale = lumaScale * mQualityScale;
+                        if (lumaScale > 0) {
+                            // 检测只需要亮度：Y 平面从相机缓冲（Camera2 为直接 ByteBuffer）一次拷到帧缓冲，
+                            // 跟踪和检测都用这一份，拷完立即交还相机
+                            copyLuma(input, frame);
+                            input.releaseData();
+                            //跟踪在原始 Y 平面上进行，只在亮度模式下启用（检测结果也在同一坐标系）
+                            if (!mTracker.shouldDetect(input.mReceiveTime)) {
+                                boolean tracked = mTracker.track(frame.nv21, input.mWidth, input.mHeight, mTrackState);
+                                mMetrics.recordStage(PipelineMetrics.STAGE_TRACK, System.nanoTime() - start);
+                                if (tracked) {
+                                    frame.tracked = true;
+                                    frame.type = 1;
+                                    trackedBounds(input, frame);
+                                    return;
+                                }
+                                //跟丢了，这一帧直接做完整检测
+                                mTracker.shouldDetect(input.mReceiveTime);
+                            }
+                            frame.width = input.mWidth;
+                            frame.height = input.mHeight;
+                            frame.rotate = input.mRotate;
+                            frame.mirror = input.mMirror;
+                            mMetrics.recordStage(PipelineMetrics.STAGE_ROTATE, System.nanoTime() - start);
+                            return;
                         }
-                    });
-                    endTime=System.currentTimeMillis();
-                    logMsg = "识别人脸前耗时时间："+(endTime-startTime);
-                    FaceDetector.Face[] faces = mFaceHelper.findFaces(bitmap);
-                    logMsg = logMsg + ",==识别人脸时间:"+(System.currentTimeMillis()-endTime)+",mOrienta:"+mOrienta+",w:"+mBitmap.getWidth()+",h:"+mBitmap.getHeight()+",degrees:"+degrees;//width:"+mBitMap.getWidth()+",height:"+mBitMap.getHeight()+",
-                    Logger.i(TAG+logMsg);
-                    FaceDetector.Face facePostion = null;
-                    int index = 0;
-                    if(faces!=null){
-                        for (FaceDetector.Face face : faces) {
-                            if (face == null) {
-                                bitmap.recycle();
-                                bitmap = null;
-                                mBitmapOutput.close();
-                                mBitmapOutput = null;
-                                Logger.e("无人脸");
-                                type = 0;
-                                break;
-                            } else {
-                                Logger.e("有人脸");
-                                facePostion = face;
-                                type = 1;
-                                break;
+                        // 只在 NV21 上旋转+镜像（单字节拷贝），相机缓冲很快就能交还；
+                        // 较重的 565 转换放到并行的检测线程上
+                        int size = FrameBufferPool.nv21BufferSize(input.mWidth, input.mHeight);
+                        if (frame.nv21 == null || frame.nv21.length < size) {
+                            frame.nv21 = new byte[size];
+                        }
+                        byte[] nv21 = input.mData.nv21Array();
+                        if (nv21 == null) {
+                            //Camera2 的平面不是 NV21 布局，先整理成 NV21 再旋转
+                            if (mPlanesScratch == null || mPlanesScratch.length < size) {
+                                mPlanesScratch = new byte[size];
                             }
+                            input.mData.copyNv21(mPlanesScratch);
+                            nv21 = mPlanesScratch;
                         }
+                        Nv21Rotator.rotate(nv21, input.mWidth, input.mHeight, input.mRotate, input.mMirror, frame.nv21);
+                        frame.width = Nv21Rotator.outputWidth(input.mWidth, input.mHeight, input.mRotate);
+                        frame.height = Nv21Rotator.outputHeight(input.mWidth, input.mHeight, input.mRotate);
+                        //旋转完就把缓冲还给相机
+                        input.releaseData();
+                        mMetrics.recordStage(PipelineMetrics.STAGE_ROTATE, System.nanoTime() - start);
                     }
-                    Message message = mHandler.obtainMessage(1);
-                    Bundle bun = new Bundle(   );
-                    bun.putInt("type",type);
-                    bun.putString("msg",logMsg);
-                    message.setData(bun);
-                    mHandler.sendMessage(message);
-                }
-            }catch (Exception e){
-                e.printStackTrace();
-            }finally{
-                if (bitmap != null) {
-                    bitmap.recycle();
-                    bitmap = null;
-                }
-                if (mFaceBitmap != null) {
-                    mFaceBitmap.recycle();
-                    mFaceBitmap = null;
-                }
-                if (mBitmapOutput != null ) {
-                    try {
-                        mBitmapOutput.close();
-                        mBitmapOutput = null;
-                    } catch (IOException e) {
-                        e.printStackTrace();
+                },
+                new FramePipeline.Factory<FaceFrame>() {
+                    @Override
+                    public FaceFrame newFrame() {
+                        return new FaceFrame();
                     }
+
+                    @Override
+                    public FramePipeline.Detector<FaceFrame> newDetector(int worker) {
+                        //每个检测线程各自的 FaceHelper，检测器缓存不共享
+                        final FaceHelper helper = FaceHelper.newInstance();
+                        helper.setZoom(1);
+                        helper.setRectFlagOffset(RECT_FLAG_OFFSET);
+                        //人脸通常还在上次附近，先检测附近窗口，找不到再全图
+                        helper.setRoiEnabled(true);
+                        //一次检测给出画面里所有人脸；上一帧有多个人脸时附近窗口检测不生效，全图检测
+                        helper.setMaxFaceNum(MAX_FACES);
+                        final FrameTransform toSensor = new FrameTransform();
+                        final float[] point = new float[3];
+                        final FaceBox[] boxes = FaceBox.newArray(helper.getMaxFaceNum());
+                        final FaceThumbnailer thumbnailer = new FaceThumbnailer(THUMBNAIL_SIZE, boxes.length, mThumbnailExecutor);
+                        //缩略图从原始预览帧上采样，近处的人脸比缩略图大好几倍，从金字塔上取层避免混叠
+                        thumbnailer.setUsePyramid(THUMBNAIL_PYRAMID_LEVELS);
+                        final FrameTransform toThumbnail = new FrameTransform();
+                        return new FramePipeline.Detector<FaceFrame>() {
+                            @Override
+                            public void detect(FaceFrame frame) {
+                                if (frame.width == 0 || frame.tracked) {
+                                    return;
+                                }
+                                long start = System.nanoTime();
+                                if (frame.lumaScale > 0) {
+                                    detectLuma(frame, start);
+                                    return;
+                                }
+                                // 直接 NV21 转 565，不再走 JPEG 压缩/解码；bitmap 跟着帧对象复用，不能 recycle
+                                frame.bitmap = helper.decodeBitmap(frame.nv21, frame.width, frame.height, 1, 0, frame.bitmap);
+                                long decoded = System.nanoTime();
+                                mMetrics.recordStage(PipelineMetrics.STAGE_DECODE, decoded - start);
+                                FaceDetector.Face[] faces = helper.findFaces(frame.bitmap);
+                                frame.type = 0;
+                                frame.previewWidth = helper.getPreviewWidth();
+                                frame.previewHeight = helper.getPreviewHeight();
+                                if (faces != null) {
+                                    for (FaceDetector.Face face : faces) {
+                                        if (face != null && frame.faceCount < FaceOverlayView.MAX_FACES) {
+                                            frame.type = 1;
+                                            helper.getFaceBounds(face, frame.previewWidth, frame.previewHeight,
+                                                    frame.faceBounds, frame.faceCount++ * 4);
+                                        }
+                                    }
+                                }
+                                mMetrics.recordStage(PipelineMetrics.STAGE_DETECT, System.nanoTime() - decoded);
+                            }
+
+                            /**
+                             * 亮度模式：缩小、旋转和检测都在 findFaceBoxes 里，整体计入检测耗时。
+                             */
+                            private void detectLuma(FaceFrame frame, long start) {
+                                int backend = mDetectorBackend;
+                                if (helper.getDetectorBackend() != backend) {
+                                    helper.setDetectorBackend(backend);
+                                }
+                                helper.setCascade(mCascade);
+                                helper.setEqualizeLuma(mEqualizeLuma);
+                                long roiHits = helper.getRoiHitCount();
+                                int count = helper.findFaceBoxes(frame.nv21, frame.width, frame.height,
+                                        frame.lumaScale, frame.rotate, frame.mirror, boxes);
+                                //只用全图检测的耗时校准，命中附近窗口的检测要快得多
+                                int pixels = YuvConverter.scaledWidth(frame.width, frame.lumaScale)
+                                        * YuvConverter.scaledHeight(frame.height, frame.lumaScale);
+                                if (mAutoSize && helper.getRoiHitCount() == roiHits
+                                        && mSizeTuner.addSample(pixels, System.nanoTime() - start)) {
+                                    mHandler.post(mRetune);
+                                }
+                                frame.bitmap = null;
+                                frame.type = 0;
+                                frame.previewWidth = helper.getPreviewWidth();
+                                frame.previewHeight = helper.getPreviewHeight();
+                                FaceBox best = null;
+                                for (int i = 0; i < count; i++) {
+                                    if (best == null || boxes[i].getConfidence() > best.getConfidence()) {
+                                        best = boxes[i];
+                                    }
+                                    if (frame.faceCount < FaceOverlayView.MAX_FACES) {
+                                        helper.getFaceBounds(boxes[i], frame.previewWidth, frame.previewHeight,
+                                                frame.faceBounds, frame.faceCount++ * 4);
+                                    }
+                                }
+                                if (best != null) {
+                                    frame.type = 1;
+                                }
+                                //模板跟踪只跟一个人，多人时每帧都检测
+                                if (count == 1) {
+                                    //预览画面坐标 → 原始 Y 平面坐标，供跟踪取模板
+                                    helper.mapToPreview(best, point);
+                                    toSensor.setSensorToOriented(frame.width, frame.height, frame.rotate, frame.mirror)
+                                            .invert(toSensor).mapPoint(point);
+                                    frame.faceX = point[0];
+                                    frame.faceY = point[1];
+                                    frame.faceSize = point[2] * TRACK_SIZE_FACTOR;
+                                }
+                                long detected = System.nanoTime();
+                                mMetrics.recordStage(PipelineMetrics.STAGE_DETECT, detected - start);
+                                if (count > 0) {
+                                    //从全分辨率 Y 平面采样，比检测图清晰
+                                    toThumbnail.setDetectionToSensor(frame.width, frame.height, frame.lumaScale, frame.rotate, frame.mirror);
+                                    try {
+                                        thumbnailer.extract(frame.nv21, frame.width, frame.height, toThumbnail,
+                                                boxes, count, frame.receiveTime, mThumbnailConsumer);
+                                    } catch (InterruptedException e) {
+                                        Thread.currentThread().interrupt();
+                                    }
+                                    mMetrics.recordStage(PipelineMetrics.STAGE_THUMBNAIL, System.nanoTime() - detected);
+                                }
+                            }
+
+                            @Override
+                            public void release() {
+                                helper.release();
+                            }
+                        };
+                    }
+                },
+                new FramePipeline.Publisher<FaceFrame>() {
+                    @Override
+                    public void publish(long index, FaceFrame frame) {
+                        if (frame.type < 0) {
+                            return;
+                        }
+                        long start = System.nanoTime();
+                        //硬件结果有效时由它驱动显示，软件结果只用来对比
+                        boolean hardware = mUseHardwareFaces && mFaceArbiter.isHardwareFresh(start);
+                        if (hardware && !frame.tracked) {
+                            mFaceArbiter.onSoftwareResult(frame.faceCount, frame.receiveTime);
+                        }
+                        if (!frame.tracked) {
+                            //按帧序发布，用检测帧的 Y 平面更新跟踪模板
+                            if (frame.lumaScale > 0) {
+                                if (frame.faceSize <= 0 || !mTracker.start(frame.nv21, frame.width, frame.height,
+                                        frame.faceX, frame.faceY, frame.faceSize)) {
+                                    mTracker.stop();
+                                }
+                            }
+                            //frame.bitmap 随帧回到空闲池，交给界面的是拷贝；上一张还没显示出来时跳过这一张
+                            if (mShowDebugBitmap && frame.bitmap != null && mDebugBitmapPending.compareAndSet(false, true)) {
+                                final Bitmap mBitmap = copyDebugBitmap(frame.bitmap);
+                                runOnUiThread(new Runnable() {
+                                    @Override
+                                    public void run() {
+                                        if (mShowDebugBitmap) {
+                                            mImg.setImageBitmap(mBitmap);
+                                        }
+                                        mDebugBitmapPending.set(false);
+                                    }
+                                });
+                            }
+                        }
+                        if (!hardware) {
+                            //按帧序发布，编号在这里分配才能和上一帧对上
+                            mFaceIds.assign(frame.faceBounds, frame.faceCount, frame.faceIds);
+                            mOverlay.setFaces(frame.faceBounds, frame.faceIds, frame.faceCount, frame.previewWidth, frame.previewHeight);
+                            mFaceResults.publish(index, frame.receiveTime, frame.faceBounds, frame.faceIds, frame.faceCount,
+                                    frame.previewWidth, frame.previewHeight, false);
+                        }
+                        long end = System.nanoTime();
+                        mMetrics.recordStage(PipelineMetrics.STAGE_PUBLISH, end - start);
+                        mMetrics.recordStage(PipelineMetrics.STAGE_TOTAL, end - frame.receiveTime);
+                        mGovernor.addSample(end - frame.receiveTime, frame.queueDepth);
+                        mMetrics.onFrameProcessed();
+                    }
+                });
+    }
+
+    /**
+     * 把相机帧的 Y 平面紧凑拷到 frame.nv21 开头，在 face 线程（准备阶段）上调用。
+     */
+    private static void copyLuma(FaceThread input, FaceFrame frame) {
+        int lumaSize = input.mWidth * input.mHeight;
+        if (frame.nv21 == null || frame.nv21.length < lumaSize) {
+            frame.nv21 = new byte[lumaSize];
+        }
+        input.mData.copyLuma(frame.nv21);
+    }
+
+    /**
+     * 跟踪帧的人脸框：跟踪中心在原始 Y 平面上，换到旋转后的预览画面，边长按检测框的比例还原。
+     * 在 face 线程（准备阶段）上调用，位置和边长取自 track 成功时写入的 mTrackState。
+     */
+    private void trackedBounds(FaceThread input, FaceFrame frame) {
+        mTrackTransform.setSensorToOriented(input.mWidth, input.mHeight, input.mRotate, input.mMirror);
+        float x = mTrackState[0];
+        float y = mTrackState[1];
+        frame.previewWidth = Nv21Rotator.outputWidth(input.mWidth, input.mHeight, input.mRotate);
+        frame.previewHeight = Nv21Rotator.outputHeight(input.mWidth, input.mHeight, input.mRotate);
+        float half = mTrackState[2] / TRACK_SIZE_FACTOR * RECT_FLAG_OFFSET;
+        FaceGeometry.faceRect(mTrackTransform.mapX(x, y), mTrackTransform.mapY(x, y), half,
+                frame.previewWidth, frame.previewHeight, frame.faceBounds);
+        frame.faceCount = 1;
+    }
+
+    /**
+     * 预览帧转到用户看到的方向需要的旋转角度（与显示方向互为反向）。
+     */
+    private int detectionRotation() {
+        switch (mOrienta){
+            case  90:
+                return 270;
+            case 270:
+                return 90;
+            default:
+                return mOrienta;
+        }
+    }
+
+    /**
+     * 相机硬件检测的人脸：从原始预览帧坐标换到预览画面，直接交给覆盖层；
+     * 软件检测只按 mFaceArbiter 的节奏跑来核对。旧版相机在 camera 线程、Camera2 在其内部线程上回调。
+     */
+    private final CameraSource.FaceCallback mHardwareFaceCallback = new CameraSource.FaceCallback() {
+        @Override
+        public void onFaces(float[] bounds, float[] scores, int count, long timeNanos) {
+            if (!mUseHardwareFaces) {
+                return;
+            }
+            mFaceArbiter.onHardwareFaces(count, timeNanos);
+            int width = mPreviewWidth, height = mPreviewHeight;
+            int rotate = detectionRotation();
+            mHardwareTransform.setSensorToOriented(width, height, rotate, mMirror);
+            int previewWidth = Nv21Rotator.outputWidth(width, height, rotate);
+            int previewHeight = Nv21Rotator.outputHeight(width, height, rotate);
+            int faceCount = Math.min(count, FaceOverlayView.MAX_FACES);
+            for (int i = 0; i < faceCount; i++) {
+                System.arraycopy(bounds, i * 4, mHardwareRect, 0, 4);
+                mHardwareTransform.mapRect(mHardwareRect);
+                int o = i * 4;
+                mHardwareBounds[o] = (int) Math.max(0, mHardwareRect[0]);
+                mHardwareBounds[o + 1] = (int) Math.max(0, mHardwareRect[1]);
+                mHardwareBounds[o + 2] = (int) Math.min(previewWidth, mHardwareRect[2]);
+                mHardwareBounds[o + 3] = (int) Math.min(previewHeight, mHardwareRect[3]);
+            }
+            mFaceIds.assign(mHardwareBounds, faceCount, mHardwareIds);
+            mOverlay.setFaces(mHardwareBounds, mHardwareIds, faceCount, previewWidth, previewHeight);
+            mFaceResults.publish(-1, timeNanos, mHardwareBounds, mHardwareIds, faceCount, previewWidth, previewHeight, true);
+        }
+    };
+
+    /**
+     * 把调试图拷到界面没有在显示的那张缓冲里，发布线程上调用。
+     * 只有上一张已经交给 ImageView 后才会再调用，所以另一张一定空闲。
+     */
+    private Bitmap copyDebugBitmap(Bitmap src) {
+        int i = mDebugBitmapIndex ^= 1;
+        Bitmap dst = mDebugBitmaps[i];
+        if (dst == null || dst.getWidth() != src.getWidth() || dst.getHeight() != src.getHeight()) {
+            dst = Bitmap.createBitmap(src.getWidth(), src.getHeight(), src.getConfig());
+            mDebugBitmaps[i] = dst;
+            mDebugCanvases[i] = new Canvas(dst);
+        }
+        mDebugCanvases[i].drawBitmap(src, 0, 0, null);
+        return dst;
+    }
+
+    /**
+     * 把当前质量档位应用到检测缩小倍数、帧调度和跟踪，主线程上调用。
+     */
+    private void applyQuality() {
+        QualityGovernor.Level level = mGovernor.getLevel();
+        mQualityScale = level.getScale();
+        mScheduler.setMinInterval(level.getMinIntervalNanos(), TimeUnit.NANOSECONDS);
+        mTracker.setRedetectInterval(level.getRedetectIntervalNanos(), TimeUnit.NANOSECONDS);
+        Logger.i(TAG+"质量档位："+mGovernor.getLevelIndex()+" "+level);
+    }
+
+    /**
+     * 读取粘性的电池广播换算温度状态，不注册接收器。
+     */
+    private int thermalStatus() {
+        Intent battery = registerReceiver(null, new IntentFilter(Intent.ACTION_BATTERY_CHANGED));
+        int temperature = battery != null ? battery.getIntExtra(BatteryManager.EXTRA_TEMPERATURE, -1) : -1;
+        if (temperature < 0) {
+            return QualityGovernor.THERMAL_UNKNOWN;
+        }
+        return temperature >= BATTERY_HOT ? QualityGovernor.THERMAL_HOT
+                : temperature >= BATTERY_WARM ? QualityGovernor.THERMAL_WARM : QualityGovernor.THERMAL_NONE;
+    }
+
+    private static String thermalName(int thermal) {
+        switch (thermal) {
+            case QualityGovernor.THERMAL_NONE:
+                return "正常";
+            case QualityGovernor.THERMAL_WARM:
+                return "偏高";
+            case QualityGovernor.THERMAL_HOT:
+                return "过高";
+            default:
+                return "未知";
+        }
+    }
+
+    private String backendName(int backend) {
+        if (backend != FaceHelper.DETECTOR_CASCADE) {
+            return "android";
+        }
+        return mCascade != null ? "cascade" : "cascade-demo";
+    }
+
+    /**
+     * 读取 assets 里的训练级联，没有或读不了时返回 null，在后台线程上调用。
+     */
+    private HaarCascade loadCascade() {
+        InputStream in = null;
+        try {
+            in = getAssets().open(CASCADE_ASSET);
+            HaarCascade cascade = HaarCascade.load(in);
+            Logger.i(TAG+"级联已加载："+CASCADE_ASSET+"，"+cascade.getStageCount()+" 级");
+            return cascade;
+        } catch (IOException e) {
+            Logger.w(TAG+"没有可用的训练级联，级联后端使用内置示例（不能用来对比精度）："+e.getMessage());
+            return null;
+        } finally {
+            if (in != null) {
+                try {
+                    in.close();
+                } catch (IOException ignored) {
                 }
             }
         }
@@ -388,9 +1238,21 @@ public class CameraAct extends AppCompatActivity implements Camera.PreviewCallba
     protected void onDestroy() {
         super.onDestroy();
         isFirst=true;
+        mHandler.removeCallbacks(mMetricsReport);
+        mHandler.removeCallbacks(mRetune);
+        //关闭相机后 camera 线程自行退出，不在主线程上等待
+        mCameraController.release();
+        if (mRecorder != null) {
+            mRecorder.stop();
+            mRecorder = null;
+        }
+        //先停检测线程，face 线程才不会阻塞在等待空闲检测线程上
+        mPipeline.shutdown();
         if (mFaceHandleThread != null) {
             if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.JELLY_BEAN_MR2) {
                 mFaceHandleThread.quitSafely();
+            } else {
+                mFaceHandleThread.quit();
             }
             try {
                 mFaceHandleThread.join();
@@ -400,9 +1262,18 @@ public class CameraAct extends AppCompatActivity implements Camera.PreviewCallba
                 e.printStackTrace();
             }
         }
+        mThumbnailExecutor.shutdown();
+        //检测线程已退出，释放准备阶段复用的缓冲
+        mFaceHelper.release();
     }
     private ImageView mImg;
-    private   int mOrienta =0,index;
+    //检测线程和相机回调线程上读取
+    private volatile int mOrienta =0;
+    private int index;
+    //旋转按钮选的角度，-1 表示按屏幕方向计算
+    private int mOrientaOverride = -1;
+    //Camera2 预览在 TextureView 上额外旋转的角度，只在主线程读写
+    private int mPreviewRotation;
     private Button xz0,xz90,xz180,xz270,startCaream,openCaremaSize;
     private Handler mFaceHandle;
     private HandlerThread mFaceHandleThread;
@@ -410,11 +1281,21 @@ public class CameraAct extends AppCompatActivity implements Camera.PreviewCallba
     private String TAG="CameraAct:";
     private SurfaceTexture mSurface;
     private EditText sizeIndex;
-    private Camera mCamera;
+    private CameraController mCameraController;
+    //已打开的帧来源，只在主线程上读写，用于显示统计
+    private CameraSource mCameraSource;
     private TextView faceStatus,log,rotation,caremaSizeText;
     private AutoFitTextureView textureView;
     private Context mContext;
-    private long time;
+    private FrameScheduler<FaceThread> mScheduler;
+    private FramePipeline<FaceThread, FaceFrame> mPipeline;
+    private final PipelineMetrics mMetrics = new PipelineMetrics();
+    private PipelineMetrics.Snapshot mLastSnapshot;
+    private static final long METRICS_INTERVAL = 1000;
+    //准备阶段把 Camera2 平面整理成 NV21 的缓冲，只在 face 线程上使用
+    private byte[] mPlanesScratch;
+    private int mPreviewWidth, mPreviewHeight;
+    private volatile boolean mMirror;
     private boolean isFirst=true,xzzd=false;
     private boolean isExpend = false;
 }
@@ -0,0 +1,452 @@
+package com.util;
+
+import android.annotation.TargetApi;
+import android.content.Context;
+import android.graphics.ImageFormat;
+import android.graphics.Rect;
+import android.graphics.SurfaceTexture;
+import android.hardware.camera2.CameraAccessException;
+import android.hardware.camera2.CameraCaptureSession;
+import android.hardware.camera2.CameraCharacteristics;
+import android.hardware.camera2.CameraDevice;
+import android.hardware.camera2.CameraManager;
+import android.hardware.camera2.CaptureRequest;
+import android.hardware.camera2.CaptureResult;
+import android.hardware.camera2.TotalCaptureResult;
+import android.hardware.camera2.params.Face;
+import android.hardware.camera2.params.StreamConfigurationMap;
+import android.media.Image;
+import android.media.ImageReader;
+import android.os.Build;
+import android.os.Handler;
+import android.os.HandlerThread;
+import android.util.Size;
+import android.view.Surface;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Camera2 的帧来源：预览输出到 SurfaceTexture，同时输出到 YUV_420_888 的 ImageReader。
+ * <p>
+ * Image 的三个平面直接包装成 {@link CameraFrame}，不拷贝；帧 release 时才 close Image。
+ * ImageReader 最多持有 {@link #MAX_IMAGES} 帧，检测线程占着的帧多了就不再取新帧，
+ * 由相机丢帧，这就是背压，不会像旧版回调那样每帧都要一块缓冲。
+ * <p>
+ * 相机回调都在内部的 camera2 线程上，公开方法和回调之间用对象锁同步。
+ */
+@TargetApi(Build.VERSION_CODES.LOLLIPOP)
+public class Camera2Source implements CameraSource {
+
+    /**
+     * ImageReader 的容量。acquireLatestImage 取帧时要临时多占一个槽位，
+     * 所以只有被占用的帧不到 MAX_IMAGES - 1 个时才取新帧。
+     */
+    static final int MAX_IMAGES = 4;
+
+    private final CameraManager mManager;
+    private HandlerThread mThread;
+    private Handler mHandler;
+    private String mCameraId;
+    private CameraCharacteristics mCharacteristics;
+    private CameraDevice mDevice;
+    private CameraCaptureSession mSession;
+    private ImageReader mReader;
+    private Surface mPreviewSurface;
+    private FrameCallback mCallback;
+    private int mWidth, mHeight;
+    // 硬件人脸检测：open 时选定的模式（OFF 表示不支持）和传感器有效区域
+    private int mFaceMode = CaptureRequest.STATISTICS_FACE_DETECT_MODE_OFF;
+    private Rect mActiveArray;
+    private FaceCallback mFaceCallback;
+    // 以下只在 camera2 线程上使用
+    private final FrameTransform mFaceTransform = new FrameTransform();
+    private float[] mFaceBounds = new float[4];
+    private float[] mFaceScores = new float[1];
+    private final float[] mRect = new float[4];
+    private int mInUseCount;
+    private long mStarvationCount;
+    // 已停用但还有帧没 release 的 ImageReader，最后一帧 release 时再关闭，否则平面缓冲会失效
+    private final List<ImageReader> mRetiredReaders = new ArrayList<>();
+
+    public Camera2Source(Context context) {
+        mManager = (CameraManager) context.getApplicationContext().getSystemService(Context.CAMERA_SERVICE);
+    }
+
+    /**
+     * 设备上是否可以用 Camera2：系统版本足够且相机不是 LEGACY 级别
+     * （LEGACY 级别的 Camera2 只是旧接口的包装，直接用旧接口更省）。
+     */
+    public static boolean isSupported(Context context, boolean front) {
+        if (Build.VERSION.SDK_INT < Build.VERSION_CODES.LOLLIPOP) {
+            return false;
+        }
+        CameraManager manager = (CameraManager) context.getApplicationContext().getSystemService(Context.CAMERA_SERVICE);
+        try {
+            String id = findCamera(manager, front);
+            if (id == null) {
+                return false;
+            }
+            Integer level = manager.getCameraCharacteristics(id).get(CameraCharacteristics.INFO_SUPPORTED_HARDWARE_LEVEL);
+            return level != null && level != CameraCharacteristics.INFO_SUPPORTED_HARDWARE_LEVEL_LEGACY;
+        } catch (CameraAccessException e) {
+            e.printStackTrace();
+            return false;
+        }
+    }
+
+    private static String findCamera(CameraManager manager, boolean front) throws CameraAccessException {
+        int facing = front ? CameraCharacteristics.LENS_FACING_FRONT : CameraCharacteristics.LENS_FACING_BACK;
+        for (String id : manager.getCameraIdList()) {
+            Integer lens = manager.getCameraCharacteristics(id).get(CameraCharacteristics.LENS_FACING);
+            if (lens != null && lens == facing) {
+                return id;
+            }
+        }
+        return null;
+    }
+
+    @Override
+    public synchronized boolean open(boolean front) {
+        try {
+            String id = findCamera(mManager, front);
+            if (id == null) {
+                return false;
+            }
+            mCameraId = id;
+            mCharacteristics = mManager.getCameraCharacteristics(id);
+            mActiveArray = mCharacteristics.get(CameraCharacteristics.SENSOR_INFO_ACTIVE_ARRAY_SIZE);
+            mFaceMode = selectFaceMode(mCharacteristics);
+            mThread = new HandlerThread("camera2");
+            mThread.start();
+            mHandler = new Handler(mThread.getLooper());
+            //异步打开，设备就绪且 startPreview 之后才建会话
+            mManager.openCamera(id, mStateCallback, mHandler);
+            return true;
+        } catch (CameraAccessException | SecurityException e) {
+            e.printStackTrace();
+            close();
+            return false;
+        }
+    }
+
+    /**
+     * 优先 SIMPLE（只有框和置信度，开销最小），其次 FULL；不支持返回 OFF。
+     */
+    private static int selectFaceMode(CameraCharacteristics characteristics) {
+        Integer maxCount = characteristics.get(CameraCharacteristics.STATISTICS_INFO_MAX_FACE_COUNT);
+        int[] modes = characteristics.get(CameraCharacteristics.STATISTICS_INFO_AVAILABLE_FACE_DETECT_MODES);
+        if (maxCount == null || maxCount <= 0 || modes == null) {
+            return CaptureRequest.STATISTICS_FACE_DETECT_MODE_OFF;
+        }
+        int selected = CaptureRequest.STATISTICS_FACE_DETECT_MODE_OFF;
+        for (int mode : modes) {
+            if (mode == CaptureRequest.STATISTICS_FACE_DETECT_MODE_SIMPLE) {
+                return mode;
+            }
+            if (mode == CaptureRequest.STATISTICS_FACE_DETECT_MODE_FULL) {
+                selected = mode;
+            }
+        }
+        return selected;
+    }
+
+    @Override
+    public synchronized int[] getPreviewSizes() {
+        if (mCharacteristics == null) {
+            return new int[0];
+        }
+        StreamConfigurationMap map = mCharacteristics.get(CameraCharacteristics.SCALER_STREAM_CONFIGURATION_MAP);
+        if (map == null) {
+            return new int[0];
+        }
+        //同时能输出到 ImageReader 和预览的尺寸
+        Size[] yuv = map.getOutputSizes(ImageFormat.YUV_420_888);
+        List<Size> preview = Arrays.asList(map.getOutputSizes(SurfaceTexture.class));
+        int[] out = new int[yuv.length * 2];
+        int count = 0;
+        for (Size size : yuv) {
+            if (preview.contains(size)) {
+                out[count++] = size.getWidth();
+                out[count++] = size.getHeight();
+            }
+        }
+        return Arrays.copyOf(out, count);
+    }
+
+    @Override
+    public synchronized int getSensorOrientation() {
+        if (mCharacteristics == null) {
+            return 0;
+        }
+        Integer orientation = mCharacteristics.get(CameraCharacteristics.SENSOR_ORIENTATION);
+        return orientation == null ? 0 : orientation;
+    }
+
+    @Override
+    public synchronized boolean isFrontFacing() {
+        if (mCharacteristics == null) {
+            return false;
+        }
+        Integer lens = mCharacteristics.get(CameraCharacteristics.LENS_FACING);
+        return lens != null && lens == CameraCharacteristics.LENS_FACING_FRONT;
+    }
+
+    @Override
+    public synchronized boolean isFaceDetectionSupported() {
+        return mFaceMode != CaptureRequest.STATISTICS_FACE_DETECT_MODE_OFF && mActiveArray != null;
+    }
+
+    @Override
+    public synchronized void setFaceCallback(FaceCallback callback) {
+        mFaceCallback = callback;
+    }
+
+    /**
+     * Camera2 的预览由系统按自然方向摆正，这里忽略；需要额外旋转时由调用方设置 TextureView 的变换。
+     */
+    @Override
+    public void setDisplayOrientation(int degrees) {
+    }
+
+    @Override
+    public synchronized void startPreview(SurfaceTexture surface, int width, int height, FrameCallback callback) {
+        if (mCameraId == null) {
+            return;
+        }
+        mCallback = callback;
+        mWidth = width;
+        mHeight = height;
+        surface.setDefaultBufferSize(width, height);
+        mPreviewSurface = new Surface(surface);
+        mReader = ImageReader.newInstance(width, height, ImageFormat.YUV_420_888, MAX_IMAGES);
+        mReader.setOnImageAvailableListener(mImageListener, mHandler);
+        createSession();
+    }
+
+    /**
+     * 设备已打开且已有输出时建立会话，两者谁后到谁触发。
+     */
+    private void createSession() {
+        if (mDevice == null || mReader == null) {
+            return;
+        }
+        try {
+            mDevice.createCaptureSession(Arrays.asList(mPreviewSurface, mReader.getSurface()),
+                    mSessionCallback, mHandler);
+        } catch (CameraAccessException e) {
+            e.printStackTrace();
+        }
+    }
+
+    private final CameraDevice.StateCallback mStateCallback = new CameraDevice.StateCallback() {
+        @Override
+        public void onOpened(CameraDevice camera) {
+            synchronized (Camera2Source.this) {
+                if (mCameraId == null) {
+                    //打开过程中已经 close
+                    camera.close();
+                    return;
+                }
+                mDevice = camera;
+                createSession();
+            }
+        }
+
+        @Override
+        public void onDisconnected(CameraDevice camera) {
+            synchronized (Camera2Source.this) {
+                camera.close();
+                mDevice = null;
+            }
+        }
+
+        @Override
+        public void onError(CameraDevice camera, int error) {
+            synchronized (Camera2Source.this) {
+                camera.close();
+                mDevice = null;
+            }
+        }
+    };
+
+    private final CameraCaptureSession.StateCallback mSessionCallback = new CameraCaptureSession.StateCallback() {
+        @Override
+        public void onConfigured(CameraCaptureSession session) {
+            synchronized (Camera2Source.this) {
+                if (mDevice == null || mReader == null) {
+                    session.close();
+                    return;
+                }
+                mSession = session;
+                try {
+                    CaptureRequest.Builder builder = mDevice.createCaptureRequest(CameraDevice.TEMPLATE_PREVIEW);
+                    builder.addTarget(mPreviewSurface);
+                    builder.addTarget(mReader.getSurface());
+                    builder.set(CaptureRequest.CONTROL_AF_MODE, CaptureRequest.CONTROL_AF_MODE_CONTINUOUS_VIDEO);
+                    CameraCaptureSession.CaptureCallback captureCallback = null;
+                    if (mFaceCallback != null && isFaceDetectionSupported()) {
+                        builder.set(CaptureRequest.STATISTICS_FACE_DETECT_MODE, mFaceMode);
+                        captureCallback = mCaptureCallback;
+                    }
+                    session.setRepeatingRequest(builder.build(), captureCallback, mHandler);
+                } catch (CameraAccessException | IllegalStateException e) {
+                    e.printStackTrace();
+                }
+            }
+        }
+
+        @Override
+        public void onConfigureFailed(CameraCaptureSession session) {
+            session.close();
+        }
+    };
+
+    /**
+     * 人脸框为传感器有效区域坐标，按本帧的裁剪区域和输出流宽高比换算到预览帧。
+     */
+    private final CameraCaptureSession.CaptureCallback mCaptureCallback = new CameraCaptureSession.CaptureCallback() {
+        @Override
+        public void onCaptureCompleted(CameraCaptureSession session, CaptureRequest request, TotalCaptureResult result) {
+            FaceCallback callback;
+            Rect crop;
+            int width, height;
+            synchronized (Camera2Source.this) {
+                callback = mFaceCallback;
+                crop = result.get(CaptureResult.SCALER_CROP_REGION);
+                if (crop == null) {
+                    crop = mActiveArray;
+                }
+                width = mWidth;
+                height = mHeight;
+            }
+            Face[] faces = result.get(CaptureResult.STATISTICS_FACES);
+            if (callback == null || crop == null) {
+                return;
+            }
+            int count = faces == null ? 0 : faces.length;
+            if (mFaceBounds.length < count * 4) {
+                mFaceBounds = new float[count * 4];
+                mFaceScores = new float[count];
+            }
+            mFaceTransform.setRegionToSensor(crop.left, crop.top, crop.right, crop.bottom, width, height, true);
+            for (int i = 0; i < count; i++) {
+                Rect bounds = faces[i].getBounds();
+                mRect[0] = bounds.left;
+                mRect[1] = bounds.top;
+                mRect[2] = bounds.right;
+                mRect[3] = bounds.bottom;
+                mFaceTransform.mapRect(mRect);
+                System.arraycopy(mRect, 0, mFaceBounds, i * 4, 4);
+                //score 为 1~100
+                mFaceScores[i] = faces[i].getScore() / 100f;
+            }
+            callback.onFaces(mFaceBounds, mFaceScores, count, System.nanoTime());
+        }
+    };
+
+    private final ImageReader.OnImageAvailableListener mImageListener = new ImageReader.OnImageAvailableListener() {
+        @Override
+        public void onImageAvailable(ImageReader reader) {
+            FrameCallback callback;
+            Image image;
+            synchronized (Camera2Source.this) {
+                if (reader != mReader || mCallback == null) {
+                    return;
+                }
+                //检测线程还占着帧，不取新帧，让相机在队列满时自行丢帧
+                if (mInUseCount >= MAX_IMAGES - 1) {
+                    mStarvationCount++;
+                    return;
+                }
+                try {
+                    //只要最新一帧，队列里更早的帧直接丢掉
+                    image = reader.acquireLatestImage();
+                } catch (IllegalStateException e) {
+                    mStarvationCount++;
+                    return;
+                }
+                if (image == null) {
+                    return;
+                }
+                mInUseCount++;
+                callback = mCallback;
+            }
+            Image.Plane[] planes = image.getPlanes();
+            callback.onFrame(CameraFrame.fromPlanes(image.getWidth(), image.getHeight(), System.nanoTime(),
+                    planes[0].getBuffer(), planes[0].getRowStride(),
+                    planes[1].getBuffer(), planes[2].getBuffer(), planes[1].getRowStride(), planes[1].getPixelStride(),
+                    image, mReleaser));
+        }
+    };
+
+    private final CameraFrame.Releaser mReleaser = new CameraFrame.Releaser() {
+        @Override
+        public void release(CameraFrame frame) {
+            synchronized (Camera2Source.this) {
+                ((Image) frame.getTag()).close();
+                mInUseCount--;
+                if (mInUseCount == 0) {
+                    closeRetiredReaders();
+                }
+            }
+        }
+    };
+
+    private void closeRetiredReaders() {
+        for (ImageReader reader : mRetiredReaders) {
+            reader.close();
+        }
+        mRetiredReaders.clear();
+    }
+
+    @Override
+    public synchronized void stopPreview() {
+        mCallback = null;
+        if (mSession != null) {
+            mSession.close();
+            mSession = null;
+        }
+        if (mReader != null) {
+            mReader.setOnImageAvailableListener(null, null);
+            mRetiredReaders.add(mReader);
+            mReader = null;
+            if (mInUseCount == 0) {
+                closeRetiredReaders();
+            }
+        }
+        if (mPreviewSurface != null) {
+            mPreviewSurface.release();
+            mPreviewSurface = null;
+        }
+    }
+
+    @Override
+    public synchronized void close() {
+        stopPreview();
+        if (mDevice != null) {
+            mDevice.close();
+            mDevice = null;
+        }
+        mCameraId = null;
+        mCharacteristics = null;
+        mActiveArray = null;
+        mFaceMode = CaptureRequest.STATISTICS_FACE_DETECT_MODE_OFF;
+        if (mThread != null) {
+            mThread.quitSafely();
+            mThread = null;
+            mHandler = null;
+        }
+    }
+
+    @Override
+    public synchronized int getInUseCount() {
+        return mInUseCount;
+    }
+
+    @Override
+    public synchronized long getStarvationCount() {
+        return mStarvationCount;
+    }
+}
@@ -0,0 +1,274 @@
+package com.util;
+
+import android.graphics.SurfaceTexture;
+import android.os.Build;
+import android.os.Handler;
+import android.os.HandlerThread;
+import android.os.Looper;
+
+/**
+ * 相机生命周期状态机：打开、配置、开始/停止预览和关闭都在自己的 camera 线程上按请求顺序执行，
+ * 调用方（主线程）只投递请求，结果通过 {@link Listener} 在主线程上回调，不再阻塞 UI。
+ * <p>
+ * 状态：CLOSED → open → OPENED → startPreview → PREVIEW；stopPreview 回到 OPENED，close 回到 CLOSED。
+ * 不合当前状态的请求直接忽略。只改显示方向时用 {@link #setDisplayOrientation}，不需要重开相机。
+ * 从 open/restart 请求到收到第一帧的耗时记入 {@link PipelineMetrics#STAGE_RESTART}。
+ */
+public class CameraController {
+
+    public static final int STATE_CLOSED = 0;
+    public static final int STATE_OPENED = 1;
+    public static final int STATE_PREVIEW = 2;
+
+    public interface Factory {
+        /**
+         * 在 camera 线程上调用，返回一个已打开的帧来源，打不开返回 null。
+         */
+        CameraSource open(boolean front);
+    }
+
+    /**
+     * 回调都在主线程上。
+     */
+    public interface Listener {
+        /**
+         * 相机已打开，调用方据此选尺寸后调用 {@link #startPreview}。
+         *
+         * @param previewSizes 支持的预览尺寸，依次为 width, height
+         */
+        void onOpened(CameraSource source, int[] previewSizes);
+
+        void onPreviewStarted(int width, int height);
+
+        void onClosed();
+
+        void onError(String message);
+    }
+
+    private final Factory mFactory;
+    private final Listener mListener;
+    private final PipelineMetrics mMetrics;
+    private final HandlerThread mThread;
+    private final Handler mHandler;
+    private final Handler mMainHandler = new Handler(Looper.getMainLooper());
+    private volatile int mState = STATE_CLOSED;
+    // 以下只在 camera 线程上读写，getSource 读 volatile 快照
+    private volatile CameraSource mSource;
+    private volatile boolean mFaceDetectionSupported;
+    private boolean mFront;
+    private CameraSource.FrameCallback mFrameCallback;
+    // 等待第一帧的 open/restart 请求时间，0 表示不在等待
+    private volatile long mRequestNanos;
+
+    public CameraController(Factory factory, Listener listener, PipelineMetrics metrics) {
+        mFactory = factory;
+        mListener = listener;
+        mMetrics = metrics;
+        mThread = new HandlerThread("camera");
+        mThread.start();
+        mHandler = new Handler(mThread.getLooper());
+    }
+
+    public int getState() {
+        return mState;
+    }
+
+    /**
+     * 当前的帧来源，未打开时为 null。只可用于读取统计，生命周期方法由本类调用。
+     */
+    public CameraSource getSource() {
+        return mSource;
+    }
+
+    /**
+     * 打开时探测的硬件人脸检测能力。
+     */
+    public boolean isFaceDetectionSupported() {
+        return mFaceDetectionSupported;
+    }
+
+    public void open(final boolean front) {
+        markRequest();
+        mHandler.post(new Runnable() {
+            @Override
+            public void run() {
+                doOpen(front);
+            }
+        });
+    }
+
+    /**
+     * 关闭后重新打开（预览尺寸或摄像头变化时），打开后同样回调 onOpened。
+     */
+    public void restart() {
+        markRequest();
+        mHandler.post(new Runnable() {
+            @Override
+            public void run() {
+                boolean front = mFront;
+                doClose();
+                doOpen(front);
+            }
+        });
+    }
+
+    private void markRequest() {
+        long now = System.nanoTime();
+        // 0 留作「不在等待」
+        mRequestNanos = now == 0 ? 1 : now;
+    }
+
+    private void doOpen(boolean front) {
+        if (mState != STATE_CLOSED) {
+            return;
+        }
+        mFront = front;
+        final CameraSource source = mFactory.open(front);
+        if (source == null) {
+            mRequestNanos = 0;
+            postError("camera open failed");
+            return;
+        }
+        mSource = source;
+        mFaceDetectionSupported = source.isFaceDetectionSupported();
+        mState = STATE_OPENED;
+        final int[] sizes = source.getPreviewSizes();
+        mMainHandler.post(new Runnable() {
+            @Override
+            public void run() {
+                mListener.onOpened(source, sizes);
+            }
+        });
+    }
+
+    /**
+     * @param faceCallback 硬件人脸回调，null 表示不开启
+     */
+    public void startPreview(final SurfaceTexture surface, final int width, final int height,
+                             final CameraSource.FrameCallback frameCallback,
+                             final CameraSource.FaceCallback faceCallback) {
+        mHandler.post(new Runnable() {
+            @Override
+            public void run() {
+                if (mState != STATE_OPENED) {
+                    return;
+                }
+                mFrameCallback = frameCallback;
+                mSource.setFaceCallback(faceCallback);
+                mSource.startPreview(surface, width, height, mFirstFrameCallback);
+                mState = STATE_PREVIEW;
+                mMainHandler.post(new Runnable() {
+                    @Override
+                    public void run() {
+                        mListener.onPreviewStarted(width, height);
+                    }
+                });
+            }
+        });
+    }
+
+    /**
+     * 记下第一帧的到达时间，然后转给调用方的回调。
+     */
+    private final CameraSource.FrameCallback mFirstFrameCallback = new CameraSource.FrameCallback() {
+        @Override
+        public void onFrame(CameraFrame frame) {
+            long request = mRequestNanos;
+            if (request != 0) {
+                mRequestNanos = 0;
+                mMetrics.recordStage(PipelineMetrics.STAGE_RESTART, frame.getTimestamp() - request);
+            }
+            CameraSource.FrameCallback callback = mFrameCallback;
+            if (callback != null) {
+                callback.onFrame(frame);
+            } else {
+                frame.release();
+            }
+        }
+    };
+
+    /**
+     * 只改预览显示方向，相机不重开。
+     */
+    public void setDisplayOrientation(final int degrees) {
+        mHandler.post(new Runnable() {
+            @Override
+            public void run() {
+                if (mSource != null) {
+                    mSource.setDisplayOrientation(degrees);
+                }
+            }
+        });
+    }
+
+    public void stopPreview() {
+        mHandler.post(new Runnable() {
+            @Override
+            public void run() {
+                doStopPreview();
+            }
+        });
+    }
+
+    private void doStopPreview() {
+        if (mState != STATE_PREVIEW) {
+            return;
+        }
+        mSource.stopPreview();
+        mFrameCallback = null;
+        mState = STATE_OPENED;
+    }
+
+    public void close() {
+        mHandler.post(new Runnable() {
+            @Override
+            public void run() {
+                doClose();
+            }
+        });
+    }
+
+    private void doClose() {
+        if (mState == STATE_CLOSED) {
+            return;
+        }
+        doStopPreview();
+        mSource.close();
+        mSource = null;
+        mFaceDetectionSupported = false;
+        mState = STATE_CLOSED;
+        mMainHandler.post(new Runnable() {
+            @Override
+            public void run() {
+                mListener.onClosed();
+            }
+        });
+    }
+
+    /**
+     * 关闭相机并结束 camera 线程，之后不能再用。
+     */
+    public void release() {
+        close();
+        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.JELLY_BEAN_MR2) {
+            mThread.quitSafely();
+        } else {
+            //quit 会丢掉队列里的 close，先把它执行完
+            mHandler.post(new Runnable() {
+                @Override
+                public void run() {
+                    mThread.quit();
+                }
+            });
+        }
+    }
+
+    private void postError(final String message) {
+        mMainHandler.post(new Runnable() {
+            @Override
+            public void run() {
+                mListener.onError(message);
+            }
+        });
+    }
+}
@@ -0,0 +1,178 @@
+package com.util;
+
+import java.nio.ByteBuffer;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * 一帧相机数据，屏蔽旧版 Camera 的 NV21 byte[] 和 Camera2 ImageReader 的 YUV_420_888 平面之间的差别。
+ * <p>
+ * Camera2 的平面是直接 ByteBuffer，这里只保存引用不拷贝；消费方按需用 {@link #copyLuma} /
+ * {@link #copyNv21} 一次性读成紧凑布局，然后尽快 {@link #release()} 把缓冲（或 Image）还给相机。
+ * 同一时刻只应有一个线程读取。
+ */
+public class CameraFrame {
+
+    public interface Releaser {
+        /**
+         * 归还帧占用的相机缓冲，每帧只回调一次。
+         */
+        void release(CameraFrame frame);
+    }
+
+    private final int mWidth, mHeight;
+    private final long mTimestamp;
+    private final byte[] mNv21;
+    private final ByteBuffer mY, mU, mV;
+    private final int mYRowStride, mUvRowStride, mUvPixelStride;
+    private final Object mTag;
+    private final Releaser mReleaser;
+    private final AtomicBoolean mReleased = new AtomicBoolean();
+
+    private CameraFrame(int width, int height, long timestamp, byte[] nv21,
+                        ByteBuffer y, int yRowStride, ByteBuffer u, ByteBuffer v, int uvRowStride, int uvPixelStride,
+                        Object tag, Releaser releaser) {
+        mWidth = width;
+        mHeight = height;
+        mTimestamp = timestamp;
+        mNv21 = nv21;
+        mY = y;
+        mYRowStride = yRowStride;
+        mU = u;
+        mV = v;
+        mUvRowStride = uvRowStride;
+        mUvPixelStride = uvPixelStride;
+        mTag = tag;
+        mReleaser = releaser;
+    }
+
+    /**
+     * 包装旧版 Camera 预览回调的 NV21 数组，不拷贝。
+     *
+     * @param tag 释放时可取回的对象，如借出该数组的缓冲池
+     */
+    public static CameraFrame fromNv21(byte[] nv21, int width, int height, long timestamp,
+                                       Object tag, Releaser releaser) {
+        if (nv21.length < width * height * 3 / 2) {
+            throw new IllegalArgumentException("nv21 buffer too small");
+        }
+        return new CameraFrame(width, height, timestamp, nv21, null, width, null, null, width, 2, tag, releaser);
+    }
+
+    /**
+     * 包装 YUV_420_888 的三个平面，不拷贝。
+     *
+     * @param u   Cb 平面（Image.getPlanes()[1]）
+     * @param v   Cr 平面（Image.getPlanes()[2]）
+     * @param tag 平面所属的对象（如 Image），释放时可取回
+     */
+    public static CameraFrame fromPlanes(int width, int height, long timestamp,
+                                         ByteBuffer y, int yRowStride, ByteBuffer u, ByteBuffer v,
+                                         int uvRowStride, int uvPixelStride, Object tag, Releaser releaser) {
+        return new CameraFrame(width, height, timestamp, null, y, yRowStride, u, v, uvRowStride, uvPixelStride,
+                tag, releaser);
+    }
+
+    public int getWidth() {
+        return mWidth;
+    }
+
+    public int getHeight() {
+        return mHeight;
+    }
+
+    /**
+     * 收到帧时的 System.nanoTime()，与流水线各阶段的计时同一时基。
+     */
+    public long getTimestamp() {
+        return mTimestamp;
+    }
+
+    public Object getTag() {
+        return mTag;
+    }
+
+    /**
+     * 旧版 Camera 的 NV21 数组，可直接当 NV21 使用；Camera2 的帧返回 null。
+     */
+    public byte[] nv21Array() {
+        return mNv21;
+    }
+
+    /**
+     * Y 平面第 (x, y) 个像素。逐点读取较慢，只适合稀疏采样。
+     */
+    public int getLuma(int x, int y) {
+        if (mNv21 != null) {
+            return mNv21[y * mWidth + x] & 0xff;
+        }
+        return mY.get(y * mYRowStride + x) & 0xff;
+    }
+
+    /**
+     * 把 Y 平面按紧凑行宽拷到 dst 开头。
+     *
+     * @param dst 长度至少 width * height
+     */
+    public void copyLuma(byte[] dst) {
+        int size = mWidth * mHeight;
+        if (dst.length < size) {
+            throw new IllegalArgumentException("luma buffer too small");
+        }
+        if (mNv21 != null) {
+            System.arraycopy(mNv21, 0, dst, 0, size);
+            return;
+        }
+        ByteBuffer y = mY;
+        if (mYRowStride == mWidth) {
+            y.position(0);
+            y.get(dst, 0, size);
+            return;
+        }
+        // 行尾有对齐填充，逐行整块读取；最后一行可能没有填充
+        for (int row = 0; row < mHeight; row++) {
+            y.position(row * mYRowStride);
+            y.get(dst, row * mWidth, mWidth);
+        }
+    }
+
+    /**
+     * 拷成 NV21 布局（Y 平面后跟 VU 交错），供需要色度的转换使用。
+     *
+     * @param dst 长度至少 width * height * 3 / 2
+     */
+    public void copyNv21(byte[] dst) {
+        int frameSize = mWidth * mHeight;
+        if (dst.length < frameSize * 3 / 2) {
+            throw new IllegalArgumentException("nv21 buffer too small");
+        }
+        if (mNv21 != null) {
+            System.arraycopy(mNv21, 0, dst, 0, frameSize * 3 / 2);
+            return;
+        }
+        copyLuma(dst);
+        int chromaWidth = mWidth / 2;
+        int chromaHeight = mHeight / 2;
+        for (int row = 0; row < chromaHeight; row++) {
+            int src = row * mUvRowStride;
+            int o = frameSize + row * mWidth;
+            for (int col = 0; col < chromaWidth; col++) {
+                dst[o++] = mV.get(src);
+                dst[o++] = mU.get(src);
+                src += mUvPixelStride;
+            }
+        }
+    }
+
+    /**
+     * 归还缓冲，可重复调用，只有第一次生效。
+     */
+    public void release() {
+        if (mReleased.compareAndSet(false, true) && mReleaser != null) {
+            mReleaser.release(this);
+        }
+    }
+
+    public boolean isReleased() {
+        return mReleased.get();
+    }
+}
@@ -0,0 +1,85 @@
+package com.util;
+
+import android.graphics.SurfaceTexture;
+
+/**
+ * 预览帧来源，屏蔽旧版 Camera 和 Camera2 的差别。帧以 {@link CameraFrame} 交出，
+ * 用完必须调用 {@link CameraFrame#release()}，否则相机缓冲耗尽后不再出帧（即背压）。
+ * <p>
+ * open/startPreview/stopPreview/close 应在同一个线程上调用，一般交给 {@link CameraController} 在其 camera 线程上执行。
+ */
+public interface CameraSource {
+
+    interface FrameCallback {
+        /**
+         * 在相机回调线程上调用，不要在这里做耗时处理。
+         */
+        void onFrame(CameraFrame frame);
+    }
+
+    interface FaceCallback {
+        /**
+         * 相机硬件检测到的人脸，每帧（或每次驱动上报）调用一次，没有人脸时 count 为 0。
+         *
+         * @param bounds    依次为每个人脸的 left, top, right, bottom，已换算到原始（未旋转、未镜像）预览帧坐标
+         * @param scores    每个人脸的置信度，0~1
+         * @param timeNanos 收到结果时的 System.nanoTime()
+         */
+        void onFaces(float[] bounds, float[] scores, int count, long timeNanos);
+    }
+
+    /**
+     * @param front true 打开前置摄像头，否则后置
+     * @return 打开失败（无权限、无对应摄像头、被占用）返回 false
+     */
+    boolean open(boolean front);
+
+    /**
+     * 支持的预览尺寸，依次为 width, height；未打开时返回空数组。
+     */
+    int[] getPreviewSizes();
+
+    /**
+     * 传感器相对设备自然方向的顺时针角度。
+     */
+    int getSensorOrientation();
+
+    boolean isFrontFacing();
+
+    /**
+     * 相机能否自己检测人脸，open 之后才有意义。
+     */
+    boolean isFaceDetectionSupported();
+
+    /**
+     * 开启（callback 非 null）或关闭硬件人脸检测，在 startPreview 之前调用；不支持时忽略。
+     */
+    void setFaceCallback(FaceCallback callback);
+
+    /**
+     * 预览画面的显示旋转角度，不支持的实现忽略（由 TextureView 变换负责）。
+     */
+    void setDisplayOrientation(int degrees);
+
+    /**
+     * 开始预览并按 width * height 输出帧。
+     */
+    void startPreview(SurfaceTexture surface, int width, int height, FrameCallback callback);
+
+    /**
+     * 停止出帧；已交出还未 release 的帧仍可安全读取和释放。
+     */
+    void stopPreview();
+
+    void close();
+
+    /**
+     * 已交出还未 release 的帧数。
+     */
+    int getInUseCount();
+
+    /**
+     * 因缓冲全部被占用而丢掉的帧数。
+     */
+    long getStarvationCount();
+}
@@ -0,0 +1,182 @@
+package com.util;
+
+import java.util.Arrays;
+
+/**
+ * 纯 Java 的人脸检测后端：积分图 + Haar 级联，按 1.25 倍逐级放大窗口滑动扫描，
+ * 重叠的命中窗口合并成一个人脸，命中数不足 minNeighbors 的组视为误检丢弃。
+ * <p>
+ * 不依赖 Android，可以在 JVM 单元测试和基准测试中运行。缓冲跨帧复用，预热后检测过程不分配对象。
+ */
+public class CascadeFaceDetector implements LumaFaceDetector {
+
+    /**
+     * 窗口逐级放大的倍数。
+     */
+    static final float SCALE_STEP = 1.25f;
+    /**
+     * 滑动步长（窗口坐标），窗口放大后步长同比放大。
+     */
+    static final float SHIFT = 2f;
+    /**
+     * 标准差低于该值的窗口（几乎纯色）直接跳过。
+     */
+    private static final float MIN_STD = 8f;
+
+    private final HaarCascade mCascade;
+    private final IntegralImage mIntegral = new IntegralImage();
+    private final int[] mScaledRects;
+    private final float[] mScaledWeights;
+    private int mMinSize;
+    private int mMinNeighbors = 3;
+    // 命中窗口 x, y, size
+    private int[] mHits = new int[3 * 64];
+    private int mHitCount;
+    // 合并后的组：x, y, size 之和与命中数
+    private float[] mGroups = new float[3 * 16];
+    private int[] mGroupHits = new int[16];
+    private int mGroupCount;
+
+    public CascadeFaceDetector() {
+        this(HaarCascade.frontalFace());
+    }
+
+    public CascadeFaceDetector(HaarCascade cascade) {
+        mCascade = cascade;
+        mScaledRects = new int[cascade.getRectCount() * 4];
+        mScaledWeights = new float[cascade.getRectCount()];
+        mMinSize = Math.max(cascade.getWindowWidth(), cascade.getWindowHeight());
+    }
+
+    /**
+     * 最小人脸尺寸（像素），越大扫描的尺度越少、越快。
+     */
+    public void setMinSize(int minSize) {
+        mMinSize = Math.max(minSize, Math.max(mCascade.getWindowWidth(), mCascade.getWindowHeight()));
+    }
+
+    /**
+     * 一个人脸至少需要的命中窗口数，越大误检越少、漏检越多。
+     */
+    public void setMinNeighbors(int minNeighbors) {
+        mMinNeighbors = Math.max(1, minNeighbors);
+    }
+
+    @Override
+    public int detect(byte[] luma, int width, int height, FaceBox[] out) {
+        mIntegral.compute(luma, width, height);
+        mHitCount = 0;
+        int windowWidth = mCascade.getWindowWidth();
+        int windowHeight = mCascade.getWindowHeight();
+        for (float scale = mMinSize / (float) Math.max(windowWidth, windowHeight); ; scale *= SCALE_STEP) {
+            int w = (int) (windowWidth * scale);
+            int h = (int) (windowHeight * scale);
+            if (w > width || h > height) {
+                break;
+            }
+            scan(scale, w, h, width, height);
+        }
+        group();
+        return output(out);
+    }
+
+    private void scan(float scale, int w, int h, int width, int height) {
+        mCascade.scale(scale, mScaledRects, mScaledWeights);
+        int step = Math.max(1, (int) (SHIFT * scale));
+        float area = w * h;
+        IntegralImage integral = mIntegral;
+        for (int y = 0; y + h <= height; y += step) {
+            for (int x = 0; x + w <= width; x += step) {
+                float mean = integral.sum(x, y, w, h) / area;
+                float variance = integral.squaredSum(x, y, w, h) / area - mean * mean;
+                if (variance < MIN_STD * MIN_STD) {
+                    continue;
+                }
+                float invStd = 1f / (float) Math.sqrt(variance);
+                if (mCascade.evaluate(integral, x, y, invStd, mScaledRects, mScaledWeights)) {
+                    addHit(x, y, w);
+                }
+            }
+        }
+    }
+
+    private void addHit(int x, int y, int size) {
+        if (mHitCount * 3 == mHits.length) {
+            mHits = Arrays.copyOf(mHits, mHits.length * 2);
+        }
+        int o = mHitCount * 3;
+        mHits[o] = x;
+        mHits[o + 1] = y;
+        mHits[o + 2] = size;
+        mHitCount++;
+    }
+
+    /**
+     * 贪心合并：命中窗口与某组的平均窗口中心距离小于其边长的 1/3、尺寸相差不到 1.5 倍即并入该组。
+     */
+    private void group() {
+        mGroupCount = 0;
+        for (int i = 0; i < mHitCount; i++) {
+            float x = mHits[i * 3], y = mHits[i * 3 + 1], size = mHits[i * 3 + 2];
+            float cx = x + size / 2, cy = y + size / 2;
+            int target = -1;
+            for (int g = 0; g < mGroupCount; g++) {
+                float n = mGroupHits[g];
+                float gs = mGroups[g * 3 + 2] / n;
+                float gcx = mGroups[g * 3] / n + gs / 2;
+                float gcy = mGroups[g * 3 + 1] / n + gs / 2;
+                if (Math.abs(cx - gcx) < gs / 3 && Math.abs(cy - gcy) < gs / 3
+                        && size < gs * 1.5f && gs < size * 1.5f) {
+                    target = g;
+                    break;
+                }
+            }
+            if (target < 0) {
+                if (mGroupCount == mGroupHits.length) {
+                    mGroups = Arrays.copyOf(mGroups, mGroups.length * 2);
+                    mGroupHits = Arrays.copyOf(mGroupHits, mGroupHits.length * 2);
+                }
+                target = mGroupCount++;
+                mGroups[target * 3] = 0;
+                mGroups[target * 3 + 1] = 0;
+                mGroups[target * 3 + 2] = 0;
+                mGroupHits[target] = 0;
+            }
+            mGroups[target * 3] += x;
+            mGroups[target * 3 + 1] += y;
+            mGroups[target * 3 + 2] += size;
+            mGroupHits[target]++;
+        }
+    }
+
+    /**
+     * 按命中数从高到低输出，眼睛中点和眼距按默认级联的窗口布局换算。
+     */
+    private int output(FaceBox[] out) {
+        int count = 0;
+        while (count < out.length) {
+            int best = -1;
+            for (int g = 0; g < mGroupCount; g++) {
+                if (mGroupHits[g] >= mMinNeighbors && (best < 0 || mGroupHits[g] > mGroupHits[best])) {
+                    best = g;
+                }
+            }
+            if (best < 0) {
+                break;
+            }
+            float n = mGroupHits[best];
+            float x = mGroups[best * 3] / n, y = mGroups[best * 3 + 1] / n, size = mGroups[best * 3 + 2] / n;
+            // 命中窗口越多越可信，10 个以上记为 1
+            out[count++].set(x + size / 2, y + size * 8.5f / 24, size * 10f / 24, Math.min(1f, n / 10f));
+            mGroupHits[best] = -mGroupHits[best];
+        }
+        return count;
+    }
+
+    @Override
+    public void release() {
+        mIntegral.release();
+        mHitCount = 0;
+        mGroupCount = 0;
+    }
+}
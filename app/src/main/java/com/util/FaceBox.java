@@ -0,0 +1,60 @@
+package com.util;
+
+/**
+ * 检测结果，与 {@link android.media.FaceDetector.Face} 一样用眼睛中点和眼距描述人脸，
+ * 坐标为检测时传入的亮度平面坐标。对象由调用方预先分配并跨帧复用。
+ */
+public class FaceBox {
+
+    private float mMidX, mMidY, mEyesDistance, mConfidence;
+
+    public FaceBox set(float midX, float midY, float eyesDistance, float confidence) {
+        mMidX = midX;
+        mMidY = midY;
+        mEyesDistance = eyesDistance;
+        mConfidence = confidence;
+        return this;
+    }
+
+    public FaceBox set(FaceBox other) {
+        return set(other.mMidX, other.mMidY, other.mEyesDistance, other.mConfidence);
+    }
+
+    /**
+     * 平移，用于把裁剪窗口里的结果换回整幅画面坐标。
+     */
+    public void offset(float dx, float dy) {
+        mMidX += dx;
+        mMidY += dy;
+    }
+
+    public float getMidX() {
+        return mMidX;
+    }
+
+    public float getMidY() {
+        return mMidY;
+    }
+
+    public float getEyesDistance() {
+        return mEyesDistance;
+    }
+
+    /**
+     * 0~1，各后端的含义不完全相同，只适合同一后端内比较。
+     */
+    public float getConfidence() {
+        return mConfidence;
+    }
+
+    /**
+     * 分配一组可复用的结果对象。
+     */
+    public static FaceBox[] newArray(int count) {
+        FaceBox[] boxes = new FaceBox[count];
+        for (int i = 0; i < count; i++) {
+            boxes[i] = new FaceBox();
+        }
+        return boxes;
+    }
+}
@@ -0,0 +1,138 @@
+package com.util;
+
+/**
+ * 人脸框计算和裁剪的纯 Java 部分，不依赖 android.graphics，可以在 JVM 上测试和做基准测试。
+ */
+public final class FaceGeometry {
+
+    /**
+     * 框的上下边相对眼睛中点下移的像素数，眼睛中点偏上，下移后框更贴合整张脸。
+     */
+    static final int RECT_DOWN_SHIFT = 10;
+    /**
+     * ROI 边长对齐的步长。FaceDetector 按图片尺寸缓存，尺寸对齐后人脸远近小幅变化不会反复重建检测器。
+     */
+    static final int ROI_ALIGN = 32;
+
+    private FaceGeometry() {
+        //no instance
+    }
+
+    /**
+     * {@link FaceHelper#getFaceRect} 的计算部分：以眼睛中点为中心、半边长为 eyesDistance * offset 的方框，
+     * 并裁剪到画面范围内。
+     *
+     * @param midX   眼睛中点，已映射到目标画面坐标
+     * @param midY   同上
+     * @param offset 半边长，即 eyesDistance * rectFlagOffset / zoom
+     * @param out    依次写入 left, top, right, bottom
+     */
+    public static void faceRect(float midX, float midY, float offset, int width, int height, int[] out) {
+        float left = midX - offset;
+        float top = midY - offset + RECT_DOWN_SHIFT;
+        float right = midX + offset;
+        float bottom = midY + offset + RECT_DOWN_SHIFT;
+        //边界检测
+        out[0] = (int) (left < 0 ? 0 : left);
+        out[1] = (int) (top < 0 ? 0 : top);
+        out[2] = (int) (right > width ? width : right);
+        out[3] = (int) (bottom > height ? height : bottom);
+    }
+
+    /**
+     * 在上一次人脸附近取检测窗口：以眼睛中点为中心、边长约 eyesDistance * scale 的方框，
+     * 边长向上对齐到 {@link #ROI_ALIGN}，超出画面时平移回画面内。
+     *
+     * @param out 依次写入 left, top, width, height
+     * @return 窗口超过画面一半面积时返回 false，此时直接全图检测更划算
+     */
+    public static boolean roiWindow(float midX, float midY, float eyesDistance, float scale,
+                                    int width, int height, int[] out) {
+        int side = Math.max(2, (int) Math.ceil(eyesDistance * scale / ROI_ALIGN)) * ROI_ALIGN;
+        int roiWidth = Math.min(side, width & ~1);
+        int roiHeight = Math.min(side, height);
+        if ((long) roiWidth * roiHeight * 2 > (long) width * height) {
+            return false;
+        }
+        out[0] = clamp(Math.round(midX - roiWidth / 2f), 0, width - roiWidth);
+        out[1] = clamp(Math.round(midY - roiHeight / 2f), 0, height - roiHeight);
+        out[2] = roiWidth;
+        out[3] = roiHeight;
+        return true;
+    }
+
+    private static int clamp(int value, int min, int max) {
+        return value < min ? min : value > max ? max : value;
+    }
+
+    /**
+     * 从 RGB_565 像素中裁出一块，等价于 {@link FaceHelper#faceCrop} 但写入复用的数组。
+     */
+    public static void crop(short[] src, int srcWidth, int left, int top, int cropWidth, int cropHeight, short[] dst) {
+        for (int y = 0; y < cropHeight; y++) {
+            System.arraycopy(src, (top + y) * srcWidth + left, dst, y * cropWidth, cropWidth);
+        }
+    }
+
+    /**
+     * 同上，裁剪亮度平面。
+     */
+    public static void crop(byte[] src, int srcWidth, int left, int top, int cropWidth, int cropHeight, byte[] dst) {
+        for (int y = 0; y < cropHeight; y++) {
+            System.arraycopy(src, (top + y) * srcWidth + left, dst, y * cropWidth, cropWidth);
+        }
+    }
+
+    /**
+     * 两个框 (left, top, right, bottom) 的交并比。
+     */
+    public static float iou(float l1, float t1, float r1, float b1, float l2, float t2, float r2, float b2) {
+        float w = Math.min(r1, r2) - Math.max(l1, l2);
+        float h = Math.min(b1, b2) - Math.max(t1, t2);
+        if (w <= 0 || h <= 0) {
+            return 0;
+        }
+        float inter = w * h;
+        float union = (r1 - l1) * (b1 - t1) + (r2 - l2) * (b2 - t2) - inter;
+        return union <= 0 ? 0 : inter / union;
+    }
+
+    /**
+     * 非极大值抑制：按置信度从高到低保留，与已保留的人脸框交并比超过 threshold 的丢掉。
+     * 人脸框取以眼睛中点为中心、半边长为眼距的方框，只用于比较重叠，不影响输出坐标。
+     * 保留的人脸按置信度排在 boxes 前面（只交换数组元素，FaceBox 对象不复制）。
+     *
+     * @return 保留的人脸数
+     */
+    public static int suppressOverlaps(FaceBox[] boxes, int count, float threshold) {
+        // 人数不多，插入排序即可，不分配对象
+        for (int i = 1; i < count; i++) {
+            FaceBox box = boxes[i];
+            int j = i - 1;
+            while (j >= 0 && boxes[j].getConfidence() < box.getConfidence()) {
+                boxes[j + 1] = boxes[j];
+                j--;
+            }
+            boxes[j + 1] = box;
+        }
+        int kept = 0;
+        for (int i = 0; i < count; i++) {
+            FaceBox box = boxes[i];
+            boolean overlaps = false;
+            for (int k = 0; k < kept && !overlaps; k++) {
+                overlaps = squareIou(box, boxes[k]) > threshold;
+            }
+            if (!overlaps) {
+                boxes[i] = boxes[kept];
+                boxes[kept++] = box;
+            }
+        }
+        return kept;
+    }
+
+    private static float squareIou(FaceBox a, FaceBox b) {
+        float ha = a.getEyesDistance(), hb = b.getEyesDistance();
+        return iou(a.getMidX() - ha, a.getMidY() - ha, a.getMidX() + ha, a.getMidY() + ha,
+                b.getMidX() - hb, b.getMidY() - hb, b.getMidX() + hb, b.getMidY() + hb);
+    }
+}
@@ -17,19 +17,69 @@ import android.support.annotation.Nullable;
 
 import java.io.ByteArrayOutputStream;
 import java.io.IOException;
+import java.nio.ShortBuffer;
 import java.util.logging.Logger;
 
 
 public class FaceHelper {
     private static final String TAG = "FaceHelper";
+    /**
+     * 检测后端：android.media.FaceDetector。
+     */
+    public static final int DETECTOR_ANDROID = 0;
+    /**
+     * 检测后端：纯 Java 的 Haar 级联 {@link CascadeFaceDetector}。
+     */
+    public static final int DETECTOR_CASCADE = 1;
+    /**
+     * 缓存的 FaceDetector 个数，预览尺寸/旋转方向一般只有两三种，ROI 模式再多一两种窗口尺寸。
+     */
+    private static final int DETECTOR_CACHE_SIZE = 4;
+    /**
+     * ROI 边长 = 眼距 * ROI_SCALE，脸宽约为两倍眼距，留出来回移动的余量。
+     */
+    private static final float ROI_SCALE = 6f;
+    /**
+     * 多人脸时交并比超过该值的重叠框只保留置信度高的。
+     */
+    private static final float NMS_THRESHOLD = 0.3f;
     private volatile static FaceHelper instance;
     private int maxFaceNum;
     private Paint paint;
     private float rectFlagOffset;
-    private int mBitmapWidth, mBitmapHeight;
+    // 检测图坐标 → 预览画面坐标，以及预览画面尺寸
+    private final FrameTransform mDetectionTransform = new FrameTransform();
+    private final FrameTransform mRectTransform = new FrameTransform();
+    private final FrameTransform mOrientTransform = new FrameTransform();
+    private int mTargetWidth, mTargetHeight;
+    private final PointF mMidPoint = new PointF();
+    private byte[] mLuma;
+    private Bitmap mLumaBitmap;
     private boolean isZoom;
     private float mZoomValue;
-    private FaceDetector detector;
+    private short[] mDecodePixels;
+    private Bitmap mDecodeBitmap;
+    private final DetectorEntry[] mDetectorCache = new DetectorEntry[DETECTOR_CACHE_SIZE];
+    private long mDetectorTick;
+    private Bitmap mZoomBitmap;
+    private Canvas mZoomCanvas;
+    private Matrix mZoomMatrix;
+    private Paint mZoomPaint;
+    private final int[] mRectBounds = new int[4];
+    private Canvas mDrawCanvas;
+    // ROI 模式：上一次恰好一个人脸时的位置，以及 Bitmap 检测复用的裁剪图
+    private final FaceRoi mRoi = new FaceRoi(ROI_SCALE, NMS_THRESHOLD);
+    private final int[] mRoiBounds = new int[4];
+    private final Rect mRoiSrc = new Rect();
+    private final Rect mRoiDst = new Rect();
+    private Bitmap mRoiBitmap;
+    private Canvas mRoiCanvas;
+    private int mDetectorBackend = DETECTOR_ANDROID;
+    private LumaFaceDetector mAndroidDetector;
+    private LumaFaceDetector mCascadeDetector;
+    private HaarCascade mCascade;
+    private boolean mEqualizeLuma;
+    private final int[] mHistogram = new int[256];
 
     private FaceHelper() {
         //no instance
@@ -49,6 +99,13 @@ public class FaceHelper {
         return instance;
     }
 
+    /**
+     * 新建独立实例，多线程检测时每个线程各持有一个，检测器缓存和复用的 Bitmap 不共享。
+     */
+    public static FaceHelper newInstance() {
+        return new FaceHelper();
+    }
+
     public Bitmap decodeBitmap(byte[] data, int width, int height) {
         if (data == null) {
             return null;
@@ -70,6 +127,42 @@ public class FaceHelper {
     }
 
     /**
+     * 不经过 JPEG 的解码方式，直接把 NV21 转成 RGB_565，可同时缩小和旋转。
+     * 返回的 Bitmap 会在下一次调用时被复用覆盖，调用方不要 recycle。
+     *
+     * @param scale    整数缩小倍数，1 为原图
+     * @param rotation 顺时针旋转角度 0/90/180/270
+     */
+    public Bitmap decodeBitmap(byte[] data, int width, int height, int scale, int rotation) {
+        mDecodeBitmap = decodeBitmap(data, width, height, scale, rotation, mDecodeBitmap);
+        return mDecodeBitmap;
+    }
+
+    /**
+     * 同上，解码到调用方提供的 Bitmap；尺寸不符或为 null 时新建一个返回。
+     */
+    public Bitmap decodeBitmap(byte[] data, int width, int height, int scale, int rotation, @Nullable Bitmap reuse) {
+        if (data == null) {
+            return null;
+        }
+        int outWidth = YuvConverter.outputWidth(width, height, scale, rotation);
+        int outHeight = YuvConverter.outputHeight(width, height, scale, rotation);
+        int size = outWidth * outHeight;
+        if (mDecodePixels == null || mDecodePixels.length < size) {
+            mDecodePixels = new short[size];
+        }
+        if (reuse == null || reuse.isRecycled()
+                || reuse.getWidth() != outWidth || reuse.getHeight() != outHeight) {
+            reuse = Bitmap.createBitmap(outWidth, outHeight, Bitmap.Config.RGB_565);
+        }
+        YuvConverter.nv21ToRgb565(data, width, height, scale, rotation, mDecodePixels);
+        reuse.copyPixelsFromBuffer(ShortBuffer.wrap(mDecodePixels, 0, size));
+        return reuse;
+    }
+
+    /**
+     * 注意：返回的数组和其中的 Face 会在下一次检测时被复用，不要跨帧持有。
+     *
      * @param data
      * @param width
      * @param height
@@ -83,19 +176,15 @@ public class FaceHelper {
         return findFaces(decodeBitmap(data, width, height));
     }
 
+    /**
+     * 裁出人脸 Bitmap，每次新建。需要每帧为所有人脸生成缩略图时用 {@link FaceThumbnailer}，直接从亮度平面采样到复用缓冲。
+     */
     public Bitmap faceCrop(Rect rect, Bitmap bitmap) {
-        Matrix matrix = new Matrix();
-        matrix.postScale(1, 1);
-
-        bitmap = Bitmap.createBitmap(bitmap,
+        return Bitmap.createBitmap(bitmap,
                 rect.left,
                 rect.top,
                 rect.right - rect.left,
-                rect.bottom - rect.top,
-                matrix, false);
-
-
-        return bitmap;
+                rect.bottom - rect.top);
     }
 
     @Nullable
@@ -104,22 +193,213 @@ public class FaceHelper {
         if (source == null) {
             return null;
         }
-        if (isZoom) {
-            Matrix matrix = new Matrix();
-            matrix.postScale(mZoomValue, mZoomValue);
-            //matrix.postRotate(180);
-            source = Bitmap.createBitmap(source, 0, 0,
-                    source.getWidth(),
-                    source.getHeight(), matrix, true);
-            mBitmapWidth = source.getWidth();
-            mBitmapHeight = source.getHeight();
-        }
-
-        this.detector = new FaceDetector(source.getWidth(),
-                source.getHeight(),
-                maxFaceNum);
-        Face[] faces = new Face[maxFaceNum];
-       int detectorFaces = this.detector.findFaces(source, faces);
+        mTargetWidth = source.getWidth();
+        mTargetHeight = source.getHeight();
+        mDetectionTransform.setIdentity();
+        if (isZoom && mZoomValue != 1) {
+            source = zoomBitmap(source);
+            mDetectionTransform.postScale(mTargetWidth / (float) source.getWidth(),
+                    mTargetHeight / (float) source.getHeight());
+        }
+        return detect(source);
+    }
+
+    /**
+     * 亮度检测模式：直接从 NV21 的 Y 平面隔点缩小、旋转、镜像得到灰度 565 图再检测，
+     * 像素数只有原图的 1/scale²。检测结果通过 {@link #getFaceRect} / {@link #mapToPreview}
+     * 精确映射回旋转后的全分辨率预览画面。
+     *
+     * @param nv21     预览帧（只读取 Y 平面）
+     * @param scale    缩小倍数，常用 2 或 4
+     * @param rotation 顺时针旋转 0/90/180/270
+     * @param mirror   旋转后是否水平镜像
+     */
+    @Nullable
+    public Face[] findFacesInLuma(byte[] nv21, int width, int height, int scale, int rotation, boolean mirror) {
+        if (nv21 == null || nv21.length < width * height) {
+            return null;
+        }
+        int outWidth = YuvConverter.outputWidth(width, height, scale, rotation);
+        int outHeight = YuvConverter.outputHeight(width, height, scale, rotation);
+        int size = outWidth * outHeight;
+        if (mLuma == null || mLuma.length < size) {
+            mLuma = new byte[size];
+        }
+        if (mDecodePixels == null || mDecodePixels.length < size) {
+            mDecodePixels = new short[size];
+        }
+        if (mLumaBitmap == null || mLumaBitmap.isRecycled()
+                || mLumaBitmap.getWidth() != outWidth || mLumaBitmap.getHeight() != outHeight) {
+            mLumaBitmap = Bitmap.createBitmap(outWidth, outHeight, Bitmap.Config.RGB_565);
+        }
+        Nv21Rotator.rotateLuma(nv21, width, height, scale, rotation, mirror, mLuma);
+        YuvConverter.lumaToRgb565(mLuma, outWidth, outHeight, mDecodePixels);
+        mLumaBitmap.copyPixelsFromBuffer(ShortBuffer.wrap(mDecodePixels, 0, size));
+
+        mDetectionTransform.setDetectionToSensor(width, height, scale, rotation, mirror)
+                .postConcat(mOrientTransform.setSensorToOriented(width, height, rotation, mirror));
+        mTargetWidth = Nv21Rotator.outputWidth(width, height, rotation);
+        mTargetHeight = Nv21Rotator.outputHeight(width, height, rotation);
+        return detect(mLumaBitmap);
+    }
+
+    /**
+     * 与 {@link #findFacesInLuma} 相同的缩小、旋转、镜像，但交给 {@link #setDetectorBackend} 选定的后端检测，
+     * 结果写入 out（元素不能为 null）。FaceBox 坐标为检测图坐标，用 {@link #getFaceRect(FaceBox, int, int)}
+     * / {@link #mapToPreview(FaceBox, float[])} 映射回预览画面。ROI 模式同样适用。
+     *
+     * @return 人脸数
+     */
+    public int findFaceBoxes(byte[] nv21, int width, int height, int scale, int rotation, boolean mirror, FaceBox[] out) {
+        if (nv21 == null || nv21.length < width * height) {
+            return 0;
+        }
+        int outWidth = YuvConverter.outputWidth(width, height, scale, rotation);
+        int outHeight = YuvConverter.outputHeight(width, height, scale, rotation);
+        int size = outWidth * outHeight;
+        if (mLuma == null || mLuma.length < size) {
+            mLuma = new byte[size];
+        }
+        Nv21Rotator.rotateLuma(nv21, width, height, scale, rotation, mirror, mLuma);
+        if (mEqualizeLuma) {
+            LumaFilters.equalizeHistogram(mLuma, outWidth, outHeight, mHistogram, mLuma);
+        }
+        mDetectionTransform.setDetectionToSensor(width, height, scale, rotation, mirror)
+                .postConcat(mOrientTransform.setSensorToOriented(width, height, rotation, mirror));
+        mTargetWidth = Nv21Rotator.outputWidth(width, height, rotation);
+        mTargetHeight = Nv21Rotator.outputHeight(width, height, rotation);
+
+        return mRoi.detect(obtainLumaDetector(), mLuma, outWidth, outHeight, out);
+    }
+
+    private LumaFaceDetector obtainLumaDetector() {
+        if (mDetectorBackend == DETECTOR_CASCADE) {
+            if (mCascadeDetector == null) {
+                mCascadeDetector = new CascadeFaceDetector(mCascade != null ? mCascade : HaarCascade.frontalFace());
+            }
+            return mCascadeDetector;
+        }
+        if (mAndroidDetector == null) {
+            mAndroidDetector = new AndroidLumaDetector();
+        }
+        return mAndroidDetector;
+    }
+
+    /**
+     * {@link #DETECTOR_CASCADE} 使用的级联，通常是 {@link HaarCascade#load} 读入的训练级联；
+     * null 表示内置的示例级联 {@link HaarCascade#frontalFace()}。级联只读，可以在各实例间共用。
+     */
+    public void setCascade(HaarCascade cascade) {
+        if (cascade == mCascade) {
+            return;
+        }
+        mCascade = cascade;
+        if (mCascadeDetector != null) {
+            mCascadeDetector.release();
+            mCascadeDetector = null;
+        }
+    }
+
+    /**
+     * 选择 {@link #findFaceBoxes} 使用的后端，{@link #DETECTOR_ANDROID} 或 {@link #DETECTOR_CASCADE}，
+     * 可以在检测过程中随时切换以对比两者的精度和耗时。
+     */
+    public void setDetectorBackend(int backend) {
+        if (backend != DETECTOR_ANDROID && backend != DETECTOR_CASCADE) {
+            throw new IllegalArgumentException("unknown detector backend: " + backend);
+        }
+        if (backend != mDetectorBackend) {
+            mDetectorBackend = backend;
+            mRoi.reset();
+        }
+    }
+
+    public int getDetectorBackend() {
+        return mDetectorBackend;
+    }
+
+    /**
+     * {@link #findFaceBoxes} 检测前先做直方图均衡，逆光或暗光环境下能检出更多人脸，每帧多一次整图遍历。
+     */
+    public void setEqualizeLuma(boolean equalize) {
+        mEqualizeLuma = equalize;
+    }
+
+    /**
+     * 亮度检测模式最近一次送检的灰度图，复用对象，只用于调试显示。
+     */
+    public Bitmap getLumaBitmap() {
+        return mLumaBitmap;
+    }
+
+    /**
+     * 检测 source（检测图）。ROI 模式下先在上一次人脸附近的窗口里找，找不到再全图检测；
+     * 窗口命中时返回的 Face 坐标相对窗口，平移已并入 {@link #mDetectionTransform}。
+     */
+    private Face[] detect(Bitmap source) {
+        int width = source.getWidth();
+        int height = source.getHeight();
+        // 多人脸时窗口会漏掉其他人，上一次恰好一个人脸时才先检测窗口
+        if (mRoi.window(width, height, mRoiBounds)) {
+            int left = mRoiBounds[0];
+            int top = mRoiBounds[1];
+            Face[] faces = detectWhole(cropRoi(source, mRoiBounds));
+            if (rememberFace(faces, left, top) > 0) {
+                mRoi.onHit();
+                mDetectionTransform.preTranslate(left, top);
+                return faces;
+            }
+            mRoi.onMiss();
+        }
+        Face[] faces = detectWhole(source);
+        rememberFace(faces, 0, 0);
+        return faces;
+    }
+
+    /**
+     * 把人脸数和第一个人脸在检测图上的位置交给 {@link #mRoi}。
+     *
+     * @return 人脸数
+     */
+    private int rememberFace(Face[] faces, int offsetX, int offsetY) {
+        int count = 0;
+        while (count < faces.length && faces[count] != null) {
+            count++;
+        }
+        if (count == 0) {
+            mRoi.update(0, 0, 0, 0);
+            return 0;
+        }
+        faces[0].getMidPoint(mMidPoint);
+        mRoi.update(count, mMidPoint.x + offsetX, mMidPoint.y + offsetY, faces[0].eyesDistance());
+        return count;
+    }
+
+    /**
+     * 与 {@link #faceCrop} 相同的裁剪，但画到复用的 Bitmap 上。
+     */
+    private Bitmap cropRoi(Bitmap source, int[] bounds) {
+        int width = bounds[2];
+        int height = bounds[3];
+        if (mRoiBitmap == null || mRoiBitmap.isRecycled()
+                || mRoiBitmap.getWidth() != width || mRoiBitmap.getHeight() != height) {
+            mRoiBitmap = Bitmap.createBitmap(width, height, Bitmap.Config.RGB_565);
+            mRoiCanvas = new Canvas(mRoiBitmap);
+        }
+        mRoiSrc.set(bounds[0], bounds[1], bounds[0] + width, bounds[1] + height);
+        mRoiDst.set(0, 0, width, height);
+        mRoiCanvas.drawBitmap(source, mRoiSrc, mRoiDst, null);
+        return mRoiBitmap;
+    }
+
+    private Face[] detectWhole(Bitmap source) {
+        DetectorEntry entry = obtainDetector(source.getWidth(), source.getHeight(), maxFaceNum);
+        int detectorFaces = entry.detector.findFaces(source, entry.pool);
+        // FaceDetector 会复用 pool 里已有的 Face 对象，这里只把本次结果挂到 result 上
+        Face[] faces = entry.result;
+        for (int i = 0; i < faces.length; i++) {
+            faces[i] = i < detectorFaces ? entry.pool[i] : null;
+        }
 //        LogUtils.e(TAG, "findFaces: Find face : " + detectorFaces);
 //        ArrayList<Face> list = new ArrayList<>();
 //        for (int i = 0; i < faces.length; i++) {
@@ -130,6 +410,94 @@ public class FaceHelper {
         return faces;
     }
 
+    /**
+     * 缩放到复用的 Bitmap 上，避免每帧 createBitmap。
+     */
+    private Bitmap zoomBitmap(Bitmap source) {
+        int width = ((int) (source.getWidth() * mZoomValue)) & ~1;
+        int height = (int) (source.getHeight() * mZoomValue);
+        if (mZoomBitmap == null || mZoomBitmap.isRecycled()
+                || mZoomBitmap.getWidth() != width || mZoomBitmap.getHeight() != height) {
+            mZoomBitmap = Bitmap.createBitmap(width, height, Bitmap.Config.RGB_565);
+            mZoomCanvas = new Canvas(mZoomBitmap);
+        }
+        if (mZoomMatrix == null) {
+            mZoomMatrix = new Matrix();
+            mZoomPaint = new Paint(Paint.FILTER_BITMAP_FLAG);
+        }
+        mZoomMatrix.setScale(mZoomValue, mZoomValue);
+        mZoomCanvas.drawBitmap(source, mZoomMatrix, mZoomPaint);
+        return mZoomBitmap;
+    }
+
+    /**
+     * 按尺寸取缓存的 FaceDetector，没有则新建并淘汰最久未使用的一个。
+     * FaceDetector 构造时会分配 native 缓冲，不能每帧 new。
+     */
+    private DetectorEntry obtainDetector(int width, int height, int maxFaces) {
+        DetectorEntry oldest = null;
+        int oldestIndex = 0;
+        mDetectorTick++;
+        for (int i = 0; i < mDetectorCache.length; i++) {
+            DetectorEntry entry = mDetectorCache[i];
+            if (entry == null) {
+                oldest = null;
+                oldestIndex = i;
+                break;
+            }
+            if (entry.width == width && entry.height == height && entry.maxFaces == maxFaces) {
+                entry.lastUsed = mDetectorTick;
+                return entry;
+            }
+            if (oldest == null || entry.lastUsed < oldest.lastUsed) {
+                oldest = entry;
+                oldestIndex = i;
+            }
+        }
+        DetectorEntry entry = new DetectorEntry(width, height, maxFaces);
+        entry.lastUsed = mDetectorTick;
+        mDetectorCache[oldestIndex] = entry;
+        return entry;
+    }
+
+    /**
+     * 释放缓存的检测器和复用的 Bitmap，页面销毁时调用。
+     * FaceDetector 没有公开的 release 方法，去掉引用后其 native 缓冲在回收时释放。
+     */
+    public void release() {
+        for (int i = 0; i < mDetectorCache.length; i++) {
+            mDetectorCache[i] = null;
+        }
+        if (mDecodeBitmap != null) {
+            mDecodeBitmap.recycle();
+            mDecodeBitmap = null;
+        }
+        if (mZoomBitmap != null) {
+            mZoomBitmap.recycle();
+            mZoomBitmap = null;
+            mZoomCanvas = null;
+        }
+        if (mLumaBitmap != null) {
+            mLumaBitmap.recycle();
+            mLumaBitmap = null;
+        }
+        if (mRoiBitmap != null) {
+            mRoiBitmap.recycle();
+            mRoiBitmap = null;
+            mRoiCanvas = null;
+        }
+        mRoi.release();
+        if (mAndroidDetector != null) {
+            mAndroidDetector.release();
+            mAndroidDetector = null;
+        }
+        if (mCascadeDetector != null) {
+            mCascadeDetector.release();
+            mCascadeDetector = null;
+        }
+        mDecodePixels = null;
+        mLuma = null;
+    }
 
     public Canvas drawFace(Face[] faces, Canvas canvas) {
         for (Face face : faces) {
@@ -147,8 +515,13 @@ public class FaceHelper {
     }
 
     public Bitmap drawFace(Face face, Bitmap source) {
-        Canvas canvas = new Canvas(source);
-        drawFace(face, canvas);
+        //复用同一个 Canvas，只换绑目标 Bitmap
+        if (mDrawCanvas == null) {
+            mDrawCanvas = new Canvas();
+        }
+        mDrawCanvas.setBitmap(source);
+        drawFace(face, mDrawCanvas);
+        mDrawCanvas.setBitmap(null);
         return source;
     }
 
@@ -192,24 +565,111 @@ public class FaceHelper {
         }
     }
 
+    /**
+     * 人脸框，坐标系为 width * height 的画面（预览画面按比例缩放到该尺寸）。
+     * 检测时的缩放、旋转、镜像都已通过检测变换映射回去。
+     */
     public Rect getFaceRect(Face face, int width, int height) {
+        PointF pointF = mMidPoint;
+        face.getMidPoint(pointF);
+        return getFaceRect(pointF.x, pointF.y, face.eyesDistance(), width, height);
+    }
 
+    /**
+     * 同上，用于 {@link #findFaceBoxes} 的结果。
+     */
+    public Rect getFaceRect(FaceBox face, int width, int height) {
+        return getFaceRect(face.getMidX(), face.getMidY(), face.getEyesDistance(), width, height);
+    }
 
-        PointF pointF = new PointF();
-        face.getMidPoint(pointF);
+    private Rect getFaceRect(float midX, float midY, float eyesDistance, int width, int height) {
+        int[] bounds = mRectBounds;
+        getFaceBounds(midX, midY, eyesDistance, width, height, bounds, 0);
+        return new Rect(bounds[0], bounds[1], bounds[2], bounds[3]);
+    }
+
+    /**
+     * 与 {@link #getFaceRect(FaceBox, int, int)} 相同，但写入 out[offset..offset+3]（left, top, right, bottom），
+     * 不分配 Rect，供每帧调用。
+     */
+    public void getFaceBounds(FaceBox face, int width, int height, int[] out, int offset) {
+        getFaceBounds(face.getMidX(), face.getMidY(), face.getEyesDistance(), width, height, out, offset);
+    }
+
+    public void getFaceBounds(Face face, int width, int height, int[] out, int offset) {
+        face.getMidPoint(mMidPoint);
+        getFaceBounds(mMidPoint.x, mMidPoint.y, face.eyesDistance(), width, height, out, offset);
+    }
 
-        float eyesDistance = face.eyesDistance();
-        float offset = eyesDistance * (rectFlagOffset / mZoomValue);
-        if (isZoom) {
-            pointF.x = width * (pointF.x / mBitmapWidth);
-            pointF.y = height * (pointF.y / mBitmapHeight);
+    private void getFaceBounds(float midX, float midY, float eyesDistance, int width, int height, int[] out, int offset) {
+        FrameTransform transform = mRectTransform.set(mDetectionTransform)
+                .postScale(width / (float) mTargetWidth, height / (float) mTargetHeight);
+        float x = transform.mapX(midX, midY);
+        float y = transform.mapY(midX, midY);
+        float half = transform.mapLength(eyesDistance) * rectFlagOffset;
+        int[] bounds = mRectBounds;
+        FaceGeometry.faceRect(x, y, half, width, height, bounds);
+        if (out != bounds || offset != 0) {
+            System.arraycopy(bounds, 0, out, offset, 4);
         }
-        //边界检测
-        int left = (int) (pointF.x - offset < 0 ? 0 : pointF.x - offset);
-        int top = (int) (pointF.y - offset + 10 < 0 ? 0 : pointF.y - offset + 10);
-        int right = (int) (pointF.x + offset > width ? width : pointF.x + offset);
-        int bottom = (int) (pointF.y + offset + 10 > height ? height : pointF.y + offset + 10);
-        return new Rect(left, top, right, bottom);
+    }
+
+    /**
+     * 把人脸的眼睛中点和眼距映射到预览画面坐标。
+     *
+     * @param out 依次写入 x, y, eyesDistance
+     */
+    public void mapToPreview(Face face, float[] out) {
+        face.getMidPoint(mMidPoint);
+        out[0] = mDetectionTransform.mapX(mMidPoint.x, mMidPoint.y);
+        out[1] = mDetectionTransform.mapY(mMidPoint.x, mMidPoint.y);
+        out[2] = mDetectionTransform.mapLength(face.eyesDistance());
+    }
+
+    /**
+     * 同上，用于 {@link #findFaceBoxes} 的结果。
+     */
+    public void mapToPreview(FaceBox face, float[] out) {
+        out[0] = mDetectionTransform.mapX(face.getMidX(), face.getMidY());
+        out[1] = mDetectionTransform.mapY(face.getMidX(), face.getMidY());
+        out[2] = mDetectionTransform.mapLength(face.getEyesDistance());
+    }
+
+    /**
+     * 最近一次检测的预览画面宽度，即 {@link #mapToPreview} 结果所在坐标系。
+     */
+    public int getPreviewWidth() {
+        return mTargetWidth;
+    }
+
+    public int getPreviewHeight() {
+        return mTargetHeight;
+    }
+
+    /**
+     * ROI 模式：人脸多半还在上次的位置附近，先只检测附近的窗口，像素数少、检测快得多。
+     * 只在上一次恰好检测到一个人脸时生效，见 {@link FaceRoi}。
+     */
+    public void setRoiEnabled(boolean enabled) {
+        mRoi.setEnabled(enabled);
+    }
+
+    public boolean isRoiEnabled() {
+        return mRoi.isEnabled();
+    }
+
+    /**
+     * 在 ROI 窗口里找到人脸的次数。
+     */
+    public long getRoiHitCount() {
+        return mRoi.getHitCount();
+    }
+
+    /**
+     * ROI 窗口没找到、回退到全图检测的次数。
+     */
+    public long getRoiMissCount() {
+        return mRoi.getMissCount();
     }
 
     public boolean isZoom() {
@@ -231,4 +691,61 @@ public class FaceHelper {
     }
 
 
+    /**
+     * android.media.FaceDetector 的后端适配：亮度转灰度 565 后检测，检测器仍走本类的尺寸缓存。
+     */
+    private class AndroidLumaDetector implements LumaFaceDetector {
+        private Bitmap mBitmap;
+
+        @Override
+        public int detect(byte[] luma, int width, int height, FaceBox[] out) {
+            int size = width * height;
+            if (mDecodePixels == null || mDecodePixels.length < size) {
+                mDecodePixels = new short[size];
+            }
+            if (mBitmap == null || mBitmap.isRecycled()
+                    || mBitmap.getWidth() != width || mBitmap.getHeight() != height) {
+                if (mBitmap != null) {
+                    mBitmap.recycle();
+                }
+                mBitmap = Bitmap.createBitmap(width, height, Bitmap.Config.RGB_565);
+            }
+            YuvConverter.lumaToRgb565(luma, width, height, mDecodePixels);
+            mBitmap.copyPixelsFromBuffer(ShortBuffer.wrap(mDecodePixels, 0, size));
+            DetectorEntry entry = obtainDetector(width, height, out.length);
+            int count = entry.detector.findFaces(mBitmap, entry.pool);
+            PointF point = mMidPoint;
+            for (int i = 0; i < count; i++) {
+                Face face = entry.pool[i];
+                face.getMidPoint(point);
+                out[i].set(point.x, point.y, face.eyesDistance(), face.confidence());
+            }
+            return count;
+        }
+
+        @Override
+        public void release() {
+            if (mBitmap != null) {
+                mBitmap.recycle();
+                mBitmap = null;
+            }
+        }
+    }
+
+    private static class DetectorEntry {
+        final int width, height, maxFaces;
+        final FaceDetector detector;
+        final Face[] pool;
+        final Face[] result;
+        long lastUsed;
+
+        DetectorEntry(int width, int height, int maxFaces) {
+            this.width = width;
+            this.height = height;
+            this.maxFaces = maxFaces;
+            detector = new FaceDetector(width, height, maxFaces);
+            pool = new Face[maxFaces];
+            result = new Face[maxFaces];
+        }
+    }
 }
@@ -0,0 +1,181 @@
+package com.util;
+
+/**
+ * 给每帧的人脸框分配跨帧稳定的编号：与上一帧各轨迹按交并比从大到小贪心配对，配上的沿用编号，
+ * 配不上的开新编号；轨迹连续 {@link #setMaxMissed maxMissed} 帧没有配上即丢弃，短暂漏检不换号。
+ * <p>
+ * 轨迹和配对用的数组在构造时分配，{@link #assign} 不分配对象。检测结果和硬件结果可能在不同线程上交来，方法都加了锁。
+ */
+public class FaceIdAssigner {
+
+    private final int mMaxFaces;
+    private final int mCapacity;
+    // 轨迹：最后一次的框、编号、连续未配上的帧数
+    private final float[] mTrackBounds;
+    private final int[] mTrackIds;
+    private final int[] mTrackMissed;
+    private int mTrackCount;
+    // 配对用的临时数组
+    private final float[] mIou;
+    private final boolean[] mFaceMatched;
+    private final boolean[] mTrackMatched;
+
+    private float mThreshold = 0.3f;
+    private int mMaxMissed = 5;
+    private int mNextId = 1;
+    private long mMatchedCount, mCreatedCount, mExpiredCount;
+
+    /**
+     * @param maxFaces 每帧最多的人脸数，多出的不分配编号
+     */
+    public FaceIdAssigner(int maxFaces) {
+        if (maxFaces < 1) {
+            throw new IllegalArgumentException("maxFaces=" + maxFaces);
+        }
+        mMaxFaces = maxFaces;
+        // 漏检中的轨迹也要占位
+        mCapacity = maxFaces * 2;
+        mTrackBounds = new float[mCapacity * 4];
+        mTrackIds = new int[mCapacity];
+        mTrackMissed = new int[mCapacity];
+        mIou = new float[maxFaces * mCapacity];
+        mFaceMatched = new boolean[maxFaces];
+        mTrackMatched = new boolean[mCapacity];
+    }
+
+    /**
+     * 交并比不低于该值才算同一个人，默认 0.3。
+     */
+    public synchronized void setMatchThreshold(float threshold) {
+        mThreshold = threshold;
+    }
+
+    /**
+     * 轨迹最多保留多少帧未配上，默认 5。
+     */
+    public synchronized void setMaxMissed(int frames) {
+        mMaxMissed = Math.max(0, frames);
+    }
+
+    /**
+     * @param bounds 依次为每个人脸的 left, top, right, bottom，各帧须在同一坐标系
+     * @param ids    写入每个人脸的编号（从 1 开始），长度不小于 min(count, maxFaces)
+     * @return 分配了编号的人脸数
+     */
+    public synchronized int assign(int[] bounds, int count, int[] ids) {
+        int n = Math.min(count, mMaxFaces);
+        int tracks = mTrackCount;
+        for (int i = 0; i < n; i++) {
+            mFaceMatched[i] = false;
+            int o = i * 4;
+            for (int t = 0; t < tracks; t++) {
+                int p = t * 4;
+                mIou[i * mCapacity + t] = FaceGeometry.iou(bounds[o], bounds[o + 1], bounds[o + 2], bounds[o + 3],
+                        mTrackBounds[p], mTrackBounds[p + 1], mTrackBounds[p + 2], mTrackBounds[p + 3]);
+            }
+        }
+        for (int t = 0; t < tracks; t++) {
+            mTrackMatched[t] = false;
+        }
+        // 每轮取剩下的最大交并比配对
+        while (true) {
+            int bestFace = -1, bestTrack = -1;
+            float best = mThreshold;
+            for (int i = 0; i < n; i++) {
+                if (mFaceMatched[i]) {
+                    continue;
+                }
+                for (int t = 0; t < tracks; t++) {
+                    float iou = mIou[i * mCapacity + t];
+                    if (!mTrackMatched[t] && iou >= best && (bestFace < 0 || iou > best)) {
+                        best = iou;
+                        bestFace = i;
+                        bestTrack = t;
+                    }
+                }
+            }
+            if (bestFace < 0) {
+                break;
+            }
+            mFaceMatched[bestFace] = true;
+            mTrackMatched[bestTrack] = true;
+            ids[bestFace] = mTrackIds[bestTrack];
+            setTrack(bestTrack, bounds, bestFace);
+            mMatchedCount++;
+        }
+        // 没配上的轨迹计一次漏检，超时的删掉（用末尾的补位，之后的新轨迹才追加）
+        for (int t = tracks - 1; t >= 0; t--) {
+            if (!mTrackMatched[t] && ++mTrackMissed[t] > mMaxMissed) {
+                removeTrack(t);
+                mExpiredCount++;
+            }
+        }
+        for (int i = 0; i < n; i++) {
+            if (mFaceMatched[i]) {
+                continue;
+            }
+            if (mTrackCount == mCapacity) {
+                // 都被漏检中的轨迹占着时，挤掉漏检最久的
+                int oldest = 0;
+                for (int t = 1; t < mTrackCount; t++) {
+                    if (mTrackMissed[t] > mTrackMissed[oldest]) {
+                        oldest = t;
+                    }
+                }
+                removeTrack(oldest);
+                mExpiredCount++;
+            }
+            int t = mTrackCount++;
+            mTrackIds[t] = mNextId++;
+            setTrack(t, bounds, i);
+            ids[i] = mTrackIds[t];
+            mCreatedCount++;
+        }
+        return n;
+    }
+
+    private void setTrack(int t, int[] bounds, int face) {
+        for (int k = 0; k < 4; k++) {
+            mTrackBounds[t * 4 + k] = bounds[face * 4 + k];
+        }
+        mTrackMissed[t] = 0;
+    }
+
+    private void removeTrack(int t) {
+        int last = --mTrackCount;
+        if (t != last) {
+            System.arraycopy(mTrackBounds, last * 4, mTrackBounds, t * 4, 4);
+            mTrackIds[t] = mTrackIds[last];
+            mTrackMissed[t] = mTrackMissed[last];
+        }
+    }
+
+    /**
+     * 丢掉所有轨迹，编号继续递增不复用。相机重启或画面方向变化时调用。
+     */
+    public synchronized void reset() {
+        mTrackCount = 0;
+    }
+
+    /**
+     * 当前的轨迹数，含漏检中的。
+     */
+    public synchronized int getTrackCount() {
+        return mTrackCount;
+    }
+
+    public synchronized long getMatchedCount() {
+        return mMatchedCount;
+    }
+
+    /**
+     * 开过的新编号数，与人数相比过多说明编号不稳定。
+     */
+    public synchronized long getCreatedCount() {
+        return mCreatedCount;
+    }
+
+    public synchronized long getExpiredCount() {
+        return mExpiredCount;
+    }
+}
@@ -0,0 +1,144 @@
+package com.util;
+
+import android.content.Context;
+import android.graphics.Canvas;
+import android.graphics.Color;
+import android.graphics.Paint;
+import android.graphics.Rect;
+import android.util.AttributeSet;
+import android.view.View;
+
+/**
+ * 盖在预览控件上的透明层，画人脸框和编号。检测线程调用 {@link #setFaces} 交来框坐标（预览画面坐标），
+ * 这里按控件尺寸缩放、按需镜像后用预先分配的 Rect 绘制，不再每帧把整张 Bitmap 交给 UI 线程。
+ */
+public class FaceOverlayView extends View {
+
+    /**
+     * 最多同时显示的人脸数，Rect 和坐标缓冲按此预先分配。
+     */
+    public static final int MAX_FACES = 16;
+
+    private final Rect[] mRects = new Rect[MAX_FACES];
+    // 检测线程写入的待绘制坐标，和 onDraw 读取时都要持有 mLock
+    private final Object mLock = new Object();
+    private final int[] mPending = new int[MAX_FACES * 4];
+    private final int[] mPendingIds = new int[MAX_FACES];
+    private int mPendingCount;
+    // 编号文字按框缓存，编号不变时不重新生成字符串
+    private final String[] mLabels = new String[MAX_FACES];
+    private final int[] mLabelIds = new int[MAX_FACES];
+    private int mFrameWidth, mFrameHeight;
+    private boolean mMirror;
+    private final Paint mPaint = new Paint();
+    private final Paint mTextPaint = new Paint();
+
+    public FaceOverlayView(Context context) {
+        this(context, null);
+    }
+
+    public FaceOverlayView(Context context, AttributeSet attrs) {
+        this(context, attrs, 0);
+    }
+
+    public FaceOverlayView(Context context, AttributeSet attrs, int defStyle) {
+        super(context, attrs, defStyle);
+        for (int i = 0; i < mRects.length; i++) {
+            mRects[i] = new Rect();
+        }
+        mPaint.setAntiAlias(true);
+        mPaint.setColor(Color.RED);
+        mPaint.setStrokeWidth(5);
+        mPaint.setStyle(Paint.Style.STROKE);
+        mTextPaint.setAntiAlias(true);
+        mTextPaint.setColor(Color.RED);
+        mTextPaint.setTextSize(36);
+    }
+
+    /**
+     * 显示时是否水平翻转。框坐标已经和用户看到的画面一致时（如 FaceHelper 检测时已带镜像）保持 false。
+     */
+    public void setMirror(boolean mirror) {
+        synchronized (mLock) {
+            mMirror = mirror;
+        }
+        postInvalidate();
+    }
+
+    public Paint getPaint() {
+        return mPaint;
+    }
+
+    /**
+     * 可在任意线程调用。
+     *
+     * @param bounds      依次为每个框的 left, top, right, bottom，坐标系为 frameWidth * frameHeight 的预览画面
+     * @param count       框数，超过 {@link #MAX_FACES} 的部分忽略
+     * @param frameWidth  预览画面宽度
+     * @param frameHeight 预览画面高度
+     */
+    public void setFaces(int[] bounds, int count, int frameWidth, int frameHeight) {
+        setFaces(bounds, null, count, frameWidth, frameHeight);
+    }
+
+    /**
+     * 同上，并在每个框左上角标出编号。
+     *
+     * @param ids 每个框的编号，0 或 ids 为 null 时不标
+     */
+    public void setFaces(int[] bounds, int[] ids, int count, int frameWidth, int frameHeight) {
+        synchronized (mLock) {
+            mPendingCount = Math.min(count, MAX_FACES);
+            System.arraycopy(bounds, 0, mPending, 0, mPendingCount * 4);
+            for (int i = 0; i < mPendingCount; i++) {
+                mPendingIds[i] = ids != null ? ids[i] : 0;
+            }
+            mFrameWidth = frameWidth;
+            mFrameHeight = frameHeight;
+        }
+        postInvalidate();
+    }
+
+    public void clearFaces() {
+        synchronized (mLock) {
+            mPendingCount = 0;
+        }
+        postInvalidate();
+    }
+
+    @Override
+    protected void onDraw(Canvas canvas) {
+        super.onDraw(canvas);
+        int count;
+        synchronized (mLock) {
+            count = mPendingCount;
+            if (count == 0 || mFrameWidth <= 0 || mFrameHeight <= 0) {
+                return;
+            }
+            float sx = getWidth() / (float) mFrameWidth;
+            float sy = getHeight() / (float) mFrameHeight;
+            for (int i = 0; i < count; i++) {
+                int o = i * 4;
+                int left = (int) (mPending[o] * sx);
+                int right = (int) (mPending[o + 2] * sx);
+                if (mMirror) {
+                    int mirrored = getWidth() - right;
+                    right = getWidth() - left;
+                    left = mirrored;
+                }
+                mRects[i].set(left, (int) (mPending[o + 1] * sy), right, (int) (mPending[o + 3] * sy));
+                int id = mPendingIds[i];
+                if (id != mLabelIds[i]) {
+                    mLabelIds[i] = id;
+                    mLabels[i] = id > 0 ? "#" + id : null;
+                }
+            }
+        }
+        for (int i = 0; i < count; i++) {
+            canvas.drawRect(mRects[i], mPaint);
+            if (mLabels[i] != null) {
+                canvas.drawText(mLabels[i], mRects[i].left, mRects[i].top - 8, mTextPaint);
+            }
+        }
+    }
+}
@@ -0,0 +1,262 @@
+package com.util;
+
+/**
+ * 最近 N 次人脸结果的环形缓存，并把逐帧的有/无人脸去抖成进入/离开事件。
+ * <p>
+ * 槽位在构造时一次分配，{@link #publish} 只拷贝数据；读取方用自己预先分配的 {@link Result} 调
+ * {@link #getLatest} / {@link #get}，同样不分配对象。
+ * 状态切换带迟滞：连续 {@link #setEnterFrames enterFrames} 次有人脸才算进入，连续
+ * {@link #setLeaveFrames leaveFrames} 次没有才算离开，偶尔漏检一帧不会让界面闪烁。
+ * 检测线程和相机回调线程都会写入，方法都加了锁；{@link PresenceListener} 在写入线程上、锁外回调。
+ */
+public class FaceResultStore {
+
+    public interface PresenceListener {
+        /**
+         * 去抖后的有无人脸状态变化，只在切换时调用一次。
+         *
+         * @param faceCount 触发切换的那次结果的人脸数
+         */
+        void onPresenceChanged(boolean present, int faceCount, long timeNanos);
+    }
+
+    /**
+     * 一次结果的拷贝，由读取方分配并复用。
+     */
+    public static class Result {
+        private final int[] mBounds;
+        private final int[] mIds;
+        private long mFrameIndex, mTimeNanos;
+        private int mFaceCount, mFrameWidth, mFrameHeight;
+        private boolean mHardware;
+
+        public Result(int maxFaces) {
+            mBounds = new int[maxFaces * 4];
+            mIds = new int[maxFaces];
+        }
+
+        void set(Result other) {
+            mFrameIndex = other.mFrameIndex;
+            mTimeNanos = other.mTimeNanos;
+            mFaceCount = Math.min(other.mFaceCount, mBounds.length / 4);
+            mFrameWidth = other.mFrameWidth;
+            mFrameHeight = other.mFrameHeight;
+            mHardware = other.mHardware;
+            System.arraycopy(other.mBounds, 0, mBounds, 0, mFaceCount * 4);
+            System.arraycopy(other.mIds, 0, mIds, 0, mFaceCount);
+        }
+
+        /**
+         * 帧序号，硬件结果为 -1。
+         */
+        public long getFrameIndex() {
+            return mFrameIndex;
+        }
+
+        public long getTimeNanos() {
+            return mTimeNanos;
+        }
+
+        public int getFaceCount() {
+            return mFaceCount;
+        }
+
+        /**
+         * 依次为每个人脸的 left, top, right, bottom，只有前 faceCount 组有效。
+         */
+        public int[] getBounds() {
+            return mBounds;
+        }
+
+        /**
+         * 每个人脸的跨帧编号，见 {@link FaceIdAssigner}；写入时没给编号则为 0。
+         */
+        public int[] getIds() {
+            return mIds;
+        }
+
+        public int getFrameWidth() {
+            return mFrameWidth;
+        }
+
+        public int getFrameHeight() {
+            return mFrameHeight;
+        }
+
+        /**
+         * 结果来自相机硬件检测。
+         */
+        public boolean isHardware() {
+            return mHardware;
+        }
+    }
+
+    private final Result[] mRing;
+    private final int mMaxFaces;
+    // 已写入的总次数，最新一条在 (mCount - 1) % capacity
+    private long mCount;
+    private PresenceListener mListener;
+
+    private int mEnterFrames = 2, mLeaveFrames = 3;
+    private boolean mPresent;
+    // 与当前状态相反的结果连续出现的次数
+    private int mOpposite;
+    private long mEnterCount, mLeaveCount, mSuppressedCount;
+
+    /**
+     * @param capacity 保留的结果条数
+     * @param maxFaces 每条结果最多保存的人脸数，多出的丢掉
+     */
+    public FaceResultStore(int capacity, int maxFaces) {
+        if (capacity <= 0 || maxFaces <= 0) {
+            throw new IllegalArgumentException("capacity=" + capacity + " maxFaces=" + maxFaces);
+        }
+        mMaxFaces = maxFaces;
+        mRing = new Result[capacity];
+        for (int i = 0; i < capacity; i++) {
+            mRing[i] = new Result(maxFaces);
+        }
+    }
+
+    public synchronized void setPresenceListener(PresenceListener listener) {
+        mListener = listener;
+    }
+
+    /**
+     * 连续多少次有人脸才算进入，默认 2。
+     */
+    public synchronized void setEnterFrames(int frames) {
+        mEnterFrames = Math.max(1, frames);
+    }
+
+    /**
+     * 连续多少次没有人脸才算离开，默认 3。
+     */
+    public synchronized void setLeaveFrames(int frames) {
+        mLeaveFrames = Math.max(1, frames);
+    }
+
+    public int getCapacity() {
+        return mRing.length;
+    }
+
+    public Result newResult() {
+        return new Result(mMaxFaces);
+    }
+
+    /**
+     * 写入一次结果。
+     *
+     * @param bounds 依次为每个人脸的 left, top, right, bottom
+     * @return 去抖后的状态是否发生了切换
+     */
+    public boolean publish(long frameIndex, long timeNanos, int[] bounds, int faceCount,
+                           int frameWidth, int frameHeight, boolean hardware) {
+        return publish(frameIndex, timeNanos, bounds, null, faceCount, frameWidth, frameHeight, hardware);
+    }
+
+    /**
+     * 同上，一并保存每个人脸的编号。
+     *
+     * @param ids 每个人脸的编号，可以为 null
+     */
+    public boolean publish(long frameIndex, long timeNanos, int[] bounds, int[] ids, int faceCount,
+                           int frameWidth, int frameHeight, boolean hardware) {
+        PresenceListener listener;
+        boolean present;
+        synchronized (this) {
+            Result slot = mRing[(int) (mCount++ % mRing.length)];
+            slot.mFrameIndex = frameIndex;
+            slot.mTimeNanos = timeNanos;
+            slot.mFaceCount = Math.min(faceCount, mMaxFaces);
+            slot.mFrameWidth = frameWidth;
+            slot.mFrameHeight = frameHeight;
+            slot.mHardware = hardware;
+            System.arraycopy(bounds, 0, slot.mBounds, 0, slot.mFaceCount * 4);
+            for (int i = 0; i < slot.mFaceCount; i++) {
+                slot.mIds[i] = ids != null ? ids[i] : 0;
+            }
+            if (faceCount > 0 == mPresent) {
+                if (mOpposite > 0) {
+                    // 没到阈值就回到了原状态，这次抖动被压住了
+                    mSuppressedCount++;
+                    mOpposite = 0;
+                }
+                return false;
+            }
+            if (++mOpposite < (mPresent ? mLeaveFrames : mEnterFrames)) {
+                return false;
+            }
+            mOpposite = 0;
+            mPresent = !mPresent;
+            if (mPresent) {
+                mEnterCount++;
+            } else {
+                mLeaveCount++;
+            }
+            present = mPresent;
+            listener = mListener;
+        }
+        if (listener != null) {
+            listener.onPresenceChanged(present, faceCount, timeNanos);
+        }
+        return true;
+    }
+
+    /**
+     * 拷贝最新一条结果。
+     *
+     * @return 还没有结果时返回 false
+     */
+    public boolean getLatest(Result dst) {
+        return get(0, dst);
+    }
+
+    /**
+     * 拷贝往前数第 age 条结果，0 为最新。
+     *
+     * @return 该条已被覆盖或还不存在时返回 false
+     */
+    public synchronized boolean get(int age, Result dst) {
+        if (age < 0 || age >= mRing.length || age >= mCount) {
+            return false;
+        }
+        dst.set(mRing[(int) ((mCount - 1 - age) % mRing.length)]);
+        return true;
+    }
+
+    /**
+     * 去抖后的当前状态。
+     */
+    public synchronized boolean isPresent() {
+        return mPresent;
+    }
+
+    /**
+     * 丢掉状态和缓存的结果，不触发离开事件。相机重启或检测方向变化时调用。
+     */
+    public synchronized void reset() {
+        mCount = 0;
+        mPresent = false;
+        mOpposite = 0;
+    }
+
+    public synchronized long getPublishCount() {
+        return mCount;
+    }
+
+    public synchronized long getEnterCount() {
+        return mEnterCount;
+    }
+
+    public synchronized long getLeaveCount() {
+        return mLeaveCount;
+    }
+
+    /**
+     * 被迟滞压住、没有引起状态切换的抖动次数。
+     */
+    public synchronized long getSuppressedCount() {
+        return mSuppressedCount;
+    }
+}
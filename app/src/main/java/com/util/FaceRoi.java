@@ -0,0 +1,148 @@
+package com.util;
+
+/**
+ * ROI 模式的状态：上一次检测恰好一个人脸时记下它在检测图上的位置，下一帧先只检测附近的窗口，
+ * 像素数少、检测快得多；窗口里没找到再全图检测。
+ * <p>
+ * 窗口会漏掉画面里的其他人，所以上一次没有人脸、有多个人脸，或者检测图尺寸变了，都直接全图检测。
+ * 判断依据是上一次实际找到的人脸数，与检测器能返回的人脸数上限无关。不依赖 Android，不是线程安全的。
+ */
+public class FaceRoi {
+
+    private final float mScale;
+    private final float mNmsThreshold;
+    private boolean mEnabled;
+    private boolean mHasLastFace;
+    private float mLastMidX, mLastMidY, mLastEyes;
+    private int mLastWidth, mLastHeight;
+    private final int[] mBounds = new int[4];
+    private byte[] mLuma;
+    private long mHitCount, mMissCount;
+
+    /**
+     * @param scale        窗口边长 = 眼距 * scale
+     * @param nmsThreshold 检测结果去重的 IoU 阈值，见 {@link FaceGeometry#suppressOverlaps}
+     */
+    public FaceRoi(float scale, float nmsThreshold) {
+        mScale = scale;
+        mNmsThreshold = nmsThreshold;
+    }
+
+    public void setEnabled(boolean enabled) {
+        mEnabled = enabled;
+        mHasLastFace = false;
+    }
+
+    public boolean isEnabled() {
+        return mEnabled;
+    }
+
+    /**
+     * 忘掉上一次的人脸，下一帧全图检测。
+     */
+    public void reset() {
+        mHasLastFace = false;
+    }
+
+    /**
+     * 这一帧是否先检测窗口，是则把窗口写入 bounds（left, top, width, height）。
+     * 检测图尺寸与上一次不同时忘掉上一次的人脸。
+     */
+    public boolean window(int width, int height, int[] bounds) {
+        if (width != mLastWidth || height != mLastHeight) {
+            mHasLastFace = false;
+            mLastWidth = width;
+            mLastHeight = height;
+        }
+        return mEnabled && mHasLastFace
+                && FaceGeometry.roiWindow(mLastMidX, mLastMidY, mLastEyes, mScale, width, height, bounds);
+    }
+
+    /**
+     * 记录一次检测结果（检测图坐标），只有恰好一个人脸时下一帧才用窗口。
+     */
+    public void update(int count, float midX, float midY, float eyesDistance) {
+        mHasLastFace = count == 1;
+        if (mHasLastFace) {
+            mLastMidX = midX;
+            mLastMidY = midY;
+            mLastEyes = eyesDistance;
+        }
+    }
+
+    void onHit() {
+        mHitCount++;
+    }
+
+    void onMiss() {
+        mMissCount++;
+    }
+
+    /**
+     * 用 detector 检测亮度图：先试窗口，窗口里没有再全图；结果去重后写入 out（检测图坐标）。
+     *
+     * @return 人脸数
+     */
+    public int detect(LumaFaceDetector detector, byte[] luma, int width, int height, FaceBox[] out) {
+        if (window(width, height, mBounds)) {
+            int left = mBounds[0];
+            int top = mBounds[1];
+            int roiWidth = mBounds[2];
+            int roiHeight = mBounds[3];
+            if (mLuma == null || mLuma.length < roiWidth * roiHeight) {
+                mLuma = new byte[roiWidth * roiHeight];
+            }
+            FaceGeometry.crop(luma, width, left, top, roiWidth, roiHeight, mLuma);
+            int count = suppress(out, detector.detect(mLuma, roiWidth, roiHeight, out));
+            if (count > 0) {
+                mHitCount++;
+                for (int i = 0; i < count; i++) {
+                    out[i].offset(left, top);
+                }
+                remember(out, count);
+                return count;
+            }
+            mMissCount++;
+        }
+        int count = suppress(out, detector.detect(luma, width, height, out));
+        remember(out, count);
+        return count;
+    }
+
+    /**
+     * 检测器一次扫描给出所有人脸，同一张脸可能落在相邻尺度的多个框里，这里去重。
+     */
+    private int suppress(FaceBox[] out, int count) {
+        return count > 1 ? FaceGeometry.suppressOverlaps(out, count, mNmsThreshold) : count;
+    }
+
+    private void remember(FaceBox[] out, int count) {
+        if (count > 0) {
+            update(count, out[0].getMidX(), out[0].getMidY(), out[0].getEyesDistance());
+        } else {
+            update(0, 0, 0, 0);
+        }
+    }
+
+    /**
+     * 释放复用的裁剪缓冲，并忘掉上一次的人脸。
+     */
+    public void release() {
+        mLuma = null;
+        mHasLastFace = false;
+    }
+
+    /**
+     * 在窗口里找到人脸的次数。
+     */
+    public long getHitCount() {
+        return mHitCount;
+    }
+
+    /**
+     * 窗口没找到、回退到全图检测的次数。
+     */
+    public long getMissCount() {
+        return mMissCount;
+    }
+}
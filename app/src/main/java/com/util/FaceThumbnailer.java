@@ -0,0 +1,368 @@
+package com.util;
+
+import java.util.concurrent.Executor;
+
+/**
+ * 从亮度平面直接裁出对齐、缩放好的人脸灰度缩略图，供后续识别使用，代替
+ * {@link FaceHelper#faceCrop} 每次新建 Bitmap 的做法。
+ * <p>
+ * 对齐方式：眼睛中点放在缩略图水平中央、{@link #setAlignment eyeY} 高度处，眼距缩放为边长的
+ * {@link #setAlignment eyeSpan}（默认值接近常见的 112x112 识别模型模板），双线性插值采样。
+ * 人脸远大于缩略图时直接隔点采样会混叠，可以用 {@link #setUsePyramid} 改从 {@link ImagePyramid} 上合适的一层采样。
+ * 缩略图缓冲在构造时按最大人脸数分配，{@link Consumer} 返回后即被下一帧复用。
+ * 一帧有多个人脸且给了 Executor 时，第一个人脸在调用线程上做，其余的分给 Executor 并行。
+ * 实例不是线程安全的，每个检测线程各持有一个，Executor 可以共用。
+ */
+public class FaceThumbnailer {
+
+    public interface Consumer {
+        /**
+         * 在调用 {@link #extract} 的线程上按人脸顺序回调，返回后缓冲被回收，需要保留的数据要拷走。
+         */
+        void onThumbnail(Thumbnail thumbnail);
+    }
+
+    public static class Thumbnail {
+        private final byte[] mPixels;
+        private final int mSize;
+        private long mFrameIndex;
+        private int mFaceIndex;
+        private float mMidX, mMidY, mEyesDistance, mConfidence;
+        // 采样用：金字塔层、该层上缩略图原点和向右、向下一个像素的步长
+        private int mLevel;
+        private float mOriginX, mOriginY, mStepUx, mStepUy, mStepVx, mStepVy;
+
+        Thumbnail(int size) {
+            mSize = size;
+            mPixels = new byte[size * size];
+        }
+
+        /**
+         * 灰度像素，行宽为 {@link #getSize()}。
+         */
+        public byte[] getPixels() {
+            return mPixels;
+        }
+
+        public int getSize() {
+            return mSize;
+        }
+
+        public long getFrameIndex() {
+            return mFrameIndex;
+        }
+
+        /**
+         * 该人脸在检测结果中的下标。
+         */
+        public int getFaceIndex() {
+            return mFaceIndex;
+        }
+
+        /**
+         * 检测时的眼睛中点和眼距（检测图坐标）。
+         */
+        public float getMidX() {
+            return mMidX;
+        }
+
+        public float getMidY() {
+            return mMidY;
+        }
+
+        public float getEyesDistance() {
+            return mEyesDistance;
+        }
+
+        public float getConfidence() {
+            return mConfidence;
+        }
+    }
+
+    private final int mSize;
+    private final Executor mExecutor;
+    private final Thumbnail[] mThumbnails;
+    private final Job[] mJobs;
+    private float mEyeY = 0.46f, mEyeSpan = 0.31f;
+    private ImagePyramid mPyramid;
+
+    // 以下由当前 extract 设置，并行任务只读
+    private byte[] mLuma;
+    private int mWidth, mHeight;
+    private final FrameTransform mToLuma = new FrameTransform();
+    private int mPending;
+    private RuntimeException mFailure;
+
+    /**
+     * @param size     缩略图边长
+     * @param maxFaces 每帧最多处理的人脸数，多出的忽略
+     * @param executor 并行处理其余人脸，null 表示全部在调用线程上做
+     */
+    public FaceThumbnailer(int size, int maxFaces, Executor executor) {
+        if (size < 2 || maxFaces < 1) {
+            throw new IllegalArgumentException("size=" + size + ",maxFaces=" + maxFaces);
+        }
+        mSize = size;
+        mExecutor = executor;
+        mThumbnails = new Thumbnail[maxFaces];
+        mJobs = new Job[maxFaces];
+        for (int i = 0; i < maxFaces; i++) {
+            mThumbnails[i] = new Thumbnail(size);
+            mJobs[i] = new Job(mThumbnails[i]);
+        }
+    }
+
+    /**
+     * @param eyeY    眼睛中点的纵向位置，占边长的比例
+     * @param eyeSpan 眼距占边长的比例
+     */
+    public void setAlignment(float eyeY, float eyeSpan) {
+        if (eyeY < 0 || eyeY > 1 || eyeSpan <= 0) {
+            throw new IllegalArgumentException("eyeY=" + eyeY + ",eyeSpan=" + eyeSpan);
+        }
+        mEyeY = eyeY;
+        mEyeSpan = eyeSpan;
+    }
+
+    /**
+     * 按采样步长从金字塔上选层：步长 2 以上时改用缩小一半的层，直到步长落在 [1, 2)，最多缩小 2^(maxLevels-1) 倍。
+     * 需要时每帧多建几层金字塔（第 1 层约为整帧的 1/4 次遍历），缓冲跨帧复用。默认关闭，即始终在原图上采样。
+     *
+     * @param maxLevels 最大层数（含原图），小于等于 1 表示关闭
+     */
+    public void setUsePyramid(int maxLevels) {
+        mPyramid = maxLevels > 1 ? new ImagePyramid(maxLevels) : null;
+    }
+
+    public int getSize() {
+        return mSize;
+    }
+
+    private class Job implements Runnable {
+        final Thumbnail thumbnail;
+
+        Job(Thumbnail thumbnail) {
+            this.thumbnail = thumbnail;
+        }
+
+        @Override
+        public void run() {
+            try {
+                sample(thumbnail);
+            } catch (RuntimeException e) {
+                synchronized (FaceThumbnailer.this) {
+                    mFailure = e;
+                }
+            } finally {
+                synchronized (FaceThumbnailer.this) {
+                    if (--mPending == 0) {
+                        FaceThumbnailer.this.notifyAll();
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * 为每个人脸生成缩略图并依次交给 consumer，全部完成后返回。
+     *
+     * @param luma   亮度平面，行宽为 width
+     * @param toLuma 人脸坐标 → 亮度平面坐标，例如检测图 → 原始预览帧用
+     *               {@link FrameTransform#setDetectionToSensor}；null 表示人脸坐标就是亮度平面坐标
+     * @return 生成的缩略图数
+     */
+    public int extract(byte[] luma, int width, int height, FrameTransform toLuma,
+                       FaceBox[] faces, int count, long frameIndex, Consumer consumer) throws InterruptedException {
+        if (luma.length < width * height) {
+            throw new IllegalArgumentException("luma buffer too small");
+        }
+        int n = Math.min(count, mThumbnails.length);
+        if (n <= 0) {
+            return 0;
+        }
+        mLuma = luma;
+        mWidth = width;
+        mHeight = height;
+        if (toLuma != null) {
+            mToLuma.set(toLuma);
+        } else {
+            mToLuma.setIdentity();
+        }
+        for (int i = 0; i < n; i++) {
+            Thumbnail thumbnail = mThumbnails[i];
+            FaceBox face = faces[i];
+            thumbnail.mFrameIndex = frameIndex;
+            thumbnail.mFaceIndex = i;
+            thumbnail.mMidX = face.getMidX();
+            thumbnail.mMidY = face.getMidY();
+            thumbnail.mEyesDistance = face.getEyesDistance();
+            thumbnail.mConfidence = face.getConfidence();
+        }
+        int levels = map(n);
+        if (levels > 1) {
+            mPyramid.build(luma, width, height, 1, levels);
+            for (int i = 0; i < n; i++) {
+                rescale(mThumbnails[i], Math.min(mThumbnails[i].mLevel, mPyramid.getLevelCount() - 1));
+            }
+        }
+        try {
+            if (mExecutor == null || n == 1) {
+                for (int i = 0; i < n; i++) {
+                    sample(mThumbnails[i]);
+                }
+            } else {
+                synchronized (this) {
+                    mPending = n - 1;
+                    mFailure = null;
+                }
+                int submitted = 0;
+                try {
+                    for (int i = 1; i < n; i++) {
+                        mExecutor.execute(mJobs[i]);
+                        submitted++;
+                    }
+                    sample(mThumbnails[0]);
+                } finally {
+                    // 已提交的任务还在读亮度图，提交失败或中途出错也要等它们结束才能释放
+                    awaitJobs(n - 1 - submitted);
+                }
+                if (Thread.interrupted()) {
+                    throw new InterruptedException();
+                }
+                synchronized (this) {
+                    if (mFailure != null) {
+                        throw mFailure;
+                    }
+                }
+            }
+            for (int i = 0; i < n; i++) {
+                consumer.onThumbnail(mThumbnails[i]);
+            }
+        } finally {
+            mLuma = null;
+        }
+        return n;
+    }
+
+    /**
+     * 等所有已提交的任务结束。等待期间不响应中断，返回前恢复中断状态，由调用方在任务结束后再抛出。
+     *
+     * @param unsubmitted 没能提交给 Executor 的任务数，不会再回调
+     */
+    private synchronized void awaitJobs(int unsubmitted) {
+        mPending -= unsubmitted;
+        boolean interrupted = false;
+        while (mPending > 0) {
+            try {
+                wait();
+            } catch (InterruptedException e) {
+                interrupted = true;
+            }
+        }
+        if (interrupted) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * 缩略图像素 (u, v) → 人脸坐标 → 亮度平面坐标，三者都是仿射变换，逐像素只需累加步长。
+     * 算出每个人脸在原图上的原点和步长，开了金字塔时顺便选层。
+     *
+     * @return 需要的金字塔层数
+     */
+    private int map(int n) {
+        int levels = 1;
+        int size = mSize;
+        FrameTransform t = mToLuma;
+        for (int i = 0; i < n; i++) {
+            Thumbnail thumbnail = mThumbnails[i];
+            float eyes = Math.max(thumbnail.mEyesDistance, 1e-3f);
+            float k = eyes / (mEyeSpan * size);
+            float x0 = thumbnail.mMidX - (size - 1) / 2f * k;
+            float y0 = thumbnail.mMidY - mEyeY * (size - 1) * k;
+            float ox = t.mapX(x0, y0), oy = t.mapY(x0, y0);
+            thumbnail.mOriginX = ox;
+            thumbnail.mOriginY = oy;
+            thumbnail.mStepUx = t.mapX(x0 + k, y0) - ox;
+            thumbnail.mStepUy = t.mapY(x0 + k, y0) - oy;
+            thumbnail.mStepVx = t.mapX(x0, y0 + k) - ox;
+            thumbnail.mStepVy = t.mapY(x0, y0 + k) - oy;
+            thumbnail.mLevel = 0;
+            if (mPyramid != null) {
+                float step = Math.max((float) Math.hypot(thumbnail.mStepUx, thumbnail.mStepUy),
+                        (float) Math.hypot(thumbnail.mStepVx, thumbnail.mStepVy));
+                int level = 0;
+                while (level < mPyramid.getMaxLevels() - 1 && step >= (2 << level)) {
+                    level++;
+                }
+                thumbnail.mLevel = level;
+                levels = Math.max(levels, level + 1);
+            }
+        }
+        return levels;
+    }
+
+    /**
+     * 原图坐标换到第 level 层：该层像素 i 的中心对应原图 (i + 0.5) * 2^level - 0.5。
+     */
+    private static void rescale(Thumbnail thumbnail, int level) {
+        thumbnail.mLevel = level;
+        if (level == 0) {
+            return;
+        }
+        float f = 1f / ImagePyramid.scaleOf(level);
+        thumbnail.mOriginX = (thumbnail.mOriginX + 0.5f) * f - 0.5f;
+        thumbnail.mOriginY = (thumbnail.mOriginY + 0.5f) * f - 0.5f;
+        thumbnail.mStepUx *= f;
+        thumbnail.mStepUy *= f;
+        thumbnail.mStepVx *= f;
+        thumbnail.mStepVy *= f;
+    }
+
+    private void sample(Thumbnail thumbnail) {
+        int size = mSize;
+        float ox = thumbnail.mOriginX, oy = thumbnail.mOriginY;
+        float ux = thumbnail.mStepUx, uy = thumbnail.mStepUy;
+        float vx = thumbnail.mStepVx, vy = thumbnail.mStepVy;
+        byte[] luma = mLuma;
+        int width = mWidth, height = mHeight;
+        if (thumbnail.mLevel > 0) {
+            luma = mPyramid.getLevel(thumbnail.mLevel);
+            width = mPyramid.getWidth(thumbnail.mLevel);
+            height = mPyramid.getHeight(thumbnail.mLevel);
+        }
+        byte[] out = thumbnail.mPixels;
+        int o = 0;
+        for (int v = 0; v < size; v++) {
+            float x = ox + v * vx, y = oy + v * vy;
+            for (int u = 0; u < size; u++) {
+                out[o++] = (byte) bilinear(luma, width, height, x, y);
+                x += ux;
+                y += uy;
+            }
+        }
+    }
+
+    /**
+     * 双线性插值，超出画面的部分取边缘像素。
+     */
+    static int bilinear(byte[] luma, int width, int height, float x, float y) {
+        if (x < 0) {
+            x = 0;
+        } else if (x > width - 1) {
+            x = width - 1;
+        }
+        if (y < 0) {
+            y = 0;
+        } else if (y > height - 1) {
+            y = height - 1;
+        }
+        int x0 = (int) x, y0 = (int) y;
+        int x1 = Math.min(x0 + 1, width - 1), y1 = Math.min(y0 + 1, height - 1);
+        float fx = x - x0, fy = y - y0;
+        int row0 = y0 * width, row1 = y1 * width;
+        float top = (luma[row0 + x0] & 0xff) + fx * ((luma[row0 + x1] & 0xff) - (luma[row0 + x0] & 0xff));
+        float bottom = (luma[row1 + x0] & 0xff) + fx * ((luma[row1 + x1] & 0xff) - (luma[row1 + x0] & 0xff));
+        return Math.round(top + fy * (bottom - top));
+    }
+}
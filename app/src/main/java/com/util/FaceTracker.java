@@ -0,0 +1,246 @@
+package com.util;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 两次检测之间的人脸跟踪：检测到人脸后在亮度平面上取一个 16x16 采样点的模板，
+ * 后续帧在上次位置附近的窗口里做 SAD 模板匹配，先按模板格距粗搜再逐像素细搜。
+ * <p>
+ * 匹配的平均亮度差超过阈值（置信度过低）或到了重新检测的时间，{@link #shouldDetect(long)} 返回 true，
+ * 由调用方跑一次完整检测再 {@link #start} 重新取模板。这样预览可以按相机帧率出结果，
+ * 昂贵的 FaceDetector 每秒只跑几次。
+ * <p>
+ * 坐标系由调用方决定，只要 start 和 track 传入的是同一种亮度平面即可。方法都加了锁，
+ * 准备阶段（跟踪）和发布阶段（更新模板）可以在不同线程上调用。
+ */
+public class FaceTracker {
+
+    /**
+     * 模板每边的采样点数。
+     */
+    static final int TEMPLATE_SIZE = 16;
+    /**
+     * 粗搜半径，以模板格距计。
+     */
+    private static final int SEARCH_CELLS = 4;
+
+    private final byte[] mTemplate = new byte[TEMPLATE_SIZE * TEMPLATE_SIZE];
+    private final int[] mOffsets = new int[TEMPLATE_SIZE];
+    private int mOriginX, mOriginY;
+    private int mSpan;
+    private float mSize;
+    private boolean mTracking;
+    private float mConfidence;
+    private long mLastDetectNanos;
+    private boolean mDetected;
+    private long mRedetectIntervalNanos = TimeUnit.MILLISECONDS.toNanos(300);
+    private float mMinConfidence = 0.6f;
+    private int mMaxMeanDifference = 48;
+    private long mDetectCount, mTrackCount, mLostCount;
+
+    /**
+     * 跟踪状态下强制重新检测的间隔。
+     */
+    public synchronized void setRedetectInterval(long interval, TimeUnit unit) {
+        mRedetectIntervalNanos = unit.toNanos(interval);
+    }
+
+    /**
+     * 置信度 = 1 - 平均亮度差 / maxMeanDifference，低于 minConfidence 视为跟丢。
+     */
+    public synchronized void setConfidence(float minConfidence, int maxMeanDifference) {
+        if (maxMeanDifference <= 0) {
+            throw new IllegalArgumentException("maxMeanDifference <= 0: " + maxMeanDifference);
+        }
+        mMinConfidence = minConfidence;
+        mMaxMeanDifference = maxMeanDifference;
+    }
+
+    /**
+     * 每帧先调用一次：未在跟踪或到了重新检测的时间返回 true，并把这一帧记为检测帧，
+     * 检测结果回来之前后续帧继续用旧模板跟踪。
+     */
+    public synchronized boolean shouldDetect(long timeNanos) {
+        if (mTracking && mDetected && timeNanos - mLastDetectNanos < mRedetectIntervalNanos) {
+            return false;
+        }
+        mDetected = true;
+        mLastDetectNanos = timeNanos;
+        mDetectCount++;
+        return true;
+    }
+
+    /**
+     * 用检测结果重新取模板。
+     *
+     * @param luma    亮度平面，行宽为 width
+     * @param centerX 人脸中心
+     * @param size    模板覆盖的边长，一般取两倍眼距
+     * @return 模板超出画面时返回 false，并停止跟踪
+     */
+    public synchronized boolean start(byte[] luma, int width, int height, float centerX, float centerY, float size) {
+        float cell = Math.max(1f, size / TEMPLATE_SIZE);
+        for (int k = 0; k < TEMPLATE_SIZE; k++) {
+            mOffsets[k] = Math.round(k * cell);
+        }
+        mSpan = mOffsets[TEMPLATE_SIZE - 1];
+        mSize = size;
+        mOriginX = Math.round(centerX - mSpan / 2f);
+        mOriginY = Math.round(centerY - mSpan / 2f);
+        if (!inside(mOriginX, mOriginY, width, height)) {
+            mTracking = false;
+            return false;
+        }
+        for (int l = 0; l < TEMPLATE_SIZE; l++) {
+            int row = (mOriginY + mOffsets[l]) * width + mOriginX;
+            for (int k = 0; k < TEMPLATE_SIZE; k++) {
+                mTemplate[l * TEMPLATE_SIZE + k] = luma[row + mOffsets[k]];
+            }
+        }
+        mTracking = true;
+        mConfidence = 1f;
+        return true;
+    }
+
+    /**
+     * 检测没有找到人脸，停止跟踪。
+     */
+    public synchronized void stop() {
+        mTracking = false;
+        mConfidence = 0;
+    }
+
+    /**
+     * 同 {@link #track(byte[], int, int)}，成功时在同一次加锁内把中心 x、y 和边长写入 state[0..2]，
+     * 不会和其他线程的 {@link #start} 交错成一半旧位置、一半新尺寸。
+     */
+    public synchronized boolean track(byte[] luma, int width, int height, float[] state) {
+        if (!track(luma, width, height)) {
+            return false;
+        }
+        state[0] = mOriginX + mSpan / 2f;
+        state[1] = mOriginY + mSpan / 2f;
+        state[2] = mSize;
+        return true;
+    }
+
+    /**
+     * 在上次位置附近匹配模板，成功时更新人脸位置。
+     *
+     * @return 跟丢（或本来就没在跟踪）返回 false
+     */
+    public synchronized boolean track(byte[] luma, int width, int height) {
+        if (!mTracking) {
+            return false;
+        }
+        int step = Math.max(1, mOffsets[1]);
+        int bestX = mOriginX, bestY = mOriginY;
+        long best = Long.MAX_VALUE;
+        int radius = SEARCH_CELLS * step;
+        for (int dy = -radius; dy <= radius; dy += step) {
+            for (int dx = -radius; dx <= radius; dx += step) {
+                long sad = sad(luma, width, height, mOriginX + dx, mOriginY + dy, best);
+                if (sad < best) {
+                    best = sad;
+                    bestX = mOriginX + dx;
+                    bestY = mOriginY + dy;
+                }
+            }
+        }
+        int cx = bestX, cy = bestY;
+        int fine = step / 2;
+        for (int dy = -fine; dy <= fine; dy++) {
+            for (int dx = -fine; dx <= fine; dx++) {
+                if (dx == 0 && dy == 0) {
+                    continue;
+                }
+                long sad = sad(luma, width, height, cx + dx, cy + dy, best);
+                if (sad < best) {
+                    best = sad;
+                    bestX = cx + dx;
+                    bestY = cy + dy;
+                }
+            }
+        }
+        float mean = best == Long.MAX_VALUE ? Float.MAX_VALUE : best / (float) mTemplate.length;
+        mConfidence = Math.max(0f, 1f - mean / mMaxMeanDifference);
+        if (mConfidence < mMinConfidence) {
+            mTracking = false;
+            mLostCount++;
+            return false;
+        }
+        mOriginX = bestX;
+        mOriginY = bestY;
+        mTrackCount++;
+        return true;
+    }
+
+    /**
+     * 模板放在 (x, y) 处的绝对差之和，超出画面返回 Long.MAX_VALUE；累计超过 limit 时提前返回。
+     */
+    private long sad(byte[] luma, int width, int height, int x, int y, long limit) {
+        if (!inside(x, y, width, height)) {
+            return Long.MAX_VALUE;
+        }
+        long sum = 0;
+        for (int l = 0; l < TEMPLATE_SIZE; l++) {
+            int row = (y + mOffsets[l]) * width + x;
+            int t = l * TEMPLATE_SIZE;
+            for (int k = 0; k < TEMPLATE_SIZE; k++) {
+                sum += Math.abs((luma[row + mOffsets[k]] & 0xff) - (mTemplate[t + k] & 0xff));
+            }
+            if (sum >= limit) {
+                return sum;
+            }
+        }
+        return sum;
+    }
+
+    private boolean inside(int x, int y, int width, int height) {
+        return x >= 0 && y >= 0 && x + mSpan < width && y + mSpan < height;
+    }
+
+    public synchronized boolean isTracking() {
+        return mTracking;
+    }
+
+    public synchronized float getCenterX() {
+        return mOriginX + mSpan / 2f;
+    }
+
+    public synchronized float getCenterY() {
+        return mOriginY + mSpan / 2f;
+    }
+
+    /**
+     * 跟踪框边长，即 start 时传入的 size。
+     */
+    public synchronized float getSize() {
+        return mSize;
+    }
+
+    /**
+     * 最近一次匹配的置信度，0~1。
+     */
+    public synchronized float getConfidence() {
+        return mConfidence;
+    }
+
+    /**
+     * 判定为需要完整检测的帧数。
+     */
+    public synchronized long getDetectCount() {
+        return mDetectCount;
+    }
+
+    /**
+     * 靠跟踪出结果、省掉检测的帧数。
+     */
+    public synchronized long getTrackCount() {
+        return mTrackCount;
+    }
+
+    public synchronized long getLostCount() {
+        return mLostCount;
+    }
+}
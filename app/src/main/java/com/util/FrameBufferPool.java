@@ -0,0 +1,154 @@
+package com.util;
+
+/**
+ * 预览帧缓冲池，配合 Camera.addCallbackBuffer / setPreviewCallbackWithBuffer 使用，
+ * 预览过程中不再每帧分配 byte[]。
+ * <p>
+ * 每块缓冲处于三种状态之一：空闲、已交给相机、被应用占用（检测线程还没用完）。
+ * 检测线程用完后调用 {@link #release(byte[])}，缓冲才会重新交还给相机。
+ */
+public class FrameBufferPool {
+
+    /**
+     * 把缓冲交还给相机，通常就是 camera.addCallbackBuffer(buffer)。
+     */
+    public interface Recycler {
+        void recycle(byte[] buffer);
+    }
+
+    private static final int STATE_IDLE = 0;
+    private static final int STATE_QUEUED = 1;
+    private static final int STATE_IN_USE = 2;
+
+    private final byte[][] mBuffers;
+    private final int[] mStates;
+    private final int mBufferSize;
+    private Recycler mRecycler;
+    private int mQueuedCount, mInUseCount;
+    private long mStarvationCount, mFrameCount;
+
+    /**
+     * @param bufferSize 单帧字节数，见 {@link #nv21BufferSize(int, int)}
+     * @param count      缓冲数量，至少 2 块：一块给检测线程，一块给相机继续出帧
+     */
+    public FrameBufferPool(int bufferSize, int count) {
+        if (bufferSize <= 0 || count < 2) {
+            throw new IllegalArgumentException("bufferSize=" + bufferSize + ",count=" + count);
+        }
+        mBufferSize = bufferSize;
+        mBuffers = new byte[count][];
+        mStates = new int[count];
+        for (int i = 0; i < count; i++) {
+            mBuffers[i] = new byte[bufferSize];
+        }
+    }
+
+    /**
+     * NV21 一帧的字节数（12 bits per pixel）。
+     */
+    public static int nv21BufferSize(int width, int height) {
+        return width * height * 3 / 2;
+    }
+
+    /**
+     * 绑定相机，把所有空闲缓冲交给相机。
+     */
+    public synchronized void attach(Recycler recycler) {
+        mRecycler = recycler;
+        for (int i = 0; i < mBuffers.length; i++) {
+            if (mStates[i] == STATE_IDLE) {
+                mStates[i] = STATE_QUEUED;
+                mQueuedCount++;
+                recycler.recycle(mBuffers[i]);
+            }
+        }
+    }
+
+    /**
+     * 相机关闭时调用，相机队列中的缓冲全部收回为空闲；仍被占用的缓冲等 release 时再收回。
+     */
+    public synchronized void detach() {
+        mRecycler = null;
+        for (int i = 0; i < mBuffers.length; i++) {
+            if (mStates[i] == STATE_QUEUED) {
+                mStates[i] = STATE_IDLE;
+            }
+        }
+        mQueuedCount = 0;
+    }
+
+    /**
+     * onPreviewFrame 收到数据时调用，标记该缓冲被应用占用。
+     *
+     * @return false 表示不是本池的缓冲（例如相机重启前残留的回调）
+     */
+    public synchronized boolean acquire(byte[] buffer) {
+        int i = indexOf(buffer);
+        if (i < 0 || mStates[i] != STATE_QUEUED) {
+            return false;
+        }
+        mStates[i] = STATE_IN_USE;
+        mQueuedCount--;
+        mInUseCount++;
+        mFrameCount++;
+        if (mQueuedCount == 0) {
+            // 相机手上已经没有缓冲，下一帧会被相机丢弃
+            mStarvationCount++;
+        }
+        return true;
+    }
+
+    /**
+     * 用完缓冲后调用；相机仍在运行时立即交还给相机。
+     */
+    public synchronized void release(byte[] buffer) {
+        int i = indexOf(buffer);
+        if (i < 0 || mStates[i] != STATE_IN_USE) {
+            return;
+        }
+        mInUseCount--;
+        if (mRecycler != null) {
+            mStates[i] = STATE_QUEUED;
+            mQueuedCount++;
+            mRecycler.recycle(buffer);
+        } else {
+            mStates[i] = STATE_IDLE;
+        }
+    }
+
+    private int indexOf(byte[] buffer) {
+        for (int i = 0; i < mBuffers.length; i++) {
+            if (mBuffers[i] == buffer) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    public int getBufferSize() {
+        return mBufferSize;
+    }
+
+    public int getBufferCount() {
+        return mBuffers.length;
+    }
+
+    public synchronized int getInUseCount() {
+        return mInUseCount;
+    }
+
+    public synchronized int getQueuedCount() {
+        return mQueuedCount;
+    }
+
+    /**
+     * 相机缓冲耗尽的次数，持续增长说明检测线程占用缓冲太久，需要加大缓冲数量。
+     */
+    public synchronized long getStarvationCount() {
+        return mStarvationCount;
+    }
+
+    public synchronized long getFrameCount() {
+        return mFrameCount;
+    }
+}
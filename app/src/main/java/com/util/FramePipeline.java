@@ -0,0 +1,247 @@
+package com.util;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 多核流水线：准备（色彩转换+旋转）→ 检测（N 个工作线程）→ 发布，按提交顺序输出结果。
+ * <p>
+ * 帧对象 F 由流水线预先创建并循环使用，数量即在途帧上限；每个检测线程持有自己的 {@link Detector}，
+ * 检测器状态不在线程之间共享。{@link #process(long, Object)} 在准备线程上调用，没有空闲帧或空闲
+ * 检测线程时会阻塞，配合 {@link FrameScheduler} 使用时阻塞期间到达的帧会在调度器的槽位里被覆盖。
+ *
+ * @param <I> 输入，例如相机回调的 NV21 缓冲
+ * @param <F> 在流水线中流转的帧，保存转换后的图像和检测结果
+ */
+public class FramePipeline<I, F> {
+
+    public interface Preparer<I, F> {
+        /**
+         * 准备阶段：把输入转换到帧对象中。返回后输入即可交还。
+         */
+        void prepare(long index, I input, F frame);
+    }
+
+    public interface Detector<F> {
+        /**
+         * 检测阶段，在所属工作线程上调用，结果写回帧对象。
+         */
+        void detect(F frame);
+
+        /**
+         * 工作线程退出前调用。
+         */
+        void release();
+    }
+
+    public interface Factory<F> {
+        F newFrame();
+
+        /**
+         * 每个工作线程各创建一个检测器。
+         */
+        Detector<F> newDetector(int worker);
+    }
+
+    public interface Publisher<F> {
+        /**
+         * 发布阶段，严格按 index 提交顺序回调（可能在任意工作线程上，但不会并发）。
+         * 返回后帧对象会被回收复用，需要的数据要在这里拷走。
+         */
+        void publish(long index, F frame);
+    }
+
+    private static final long POLL_MILLIS = 50;
+
+    private final Preparer<I, F> mPreparer;
+    private final Publisher<F> mPublisher;
+    private final BlockingQueue<F> mFreeFrames;
+    private final BlockingQueue<Worker> mIdleWorkers;
+    private final List<Worker> mWorkers;
+    private final int mCapacity;
+    // 乱序完成的帧在这里等待，下标为 seq % mCapacity
+    private final Object[] mPendingFrames;
+    private final long[] mPendingIndex;
+    private final boolean[] mPendingReady;
+    private long mNextSeq;
+    private long mNextPublishSeq;
+    private final AtomicLong mPublished = new AtomicLong();
+    private volatile boolean isShutdown;
+
+    /**
+     * @param workerCount 检测线程数
+     * @param capacity    在途帧上限（含等待发布的帧），不小于 workerCount
+     */
+    public FramePipeline(int workerCount, int capacity, Preparer<I, F> preparer,
+                         Factory<F> factory, Publisher<F> publisher) {
+        if (workerCount < 1 || capacity < workerCount) {
+            throw new IllegalArgumentException("workerCount=" + workerCount + ",capacity=" + capacity);
+        }
+        mPreparer = preparer;
+        mPublisher = publisher;
+        mCapacity = capacity;
+        mFreeFrames = new ArrayBlockingQueue<>(capacity);
+        for (int i = 0; i < capacity; i++) {
+            mFreeFrames.add(factory.newFrame());
+        }
+        mPendingFrames = new Object[capacity];
+        mPendingIndex = new long[capacity];
+        mPendingReady = new boolean[capacity];
+        mIdleWorkers = new ArrayBlockingQueue<>(workerCount);
+        mWorkers = new ArrayList<>(workerCount);
+        for (int i = 0; i < workerCount; i++) {
+            Worker worker = new Worker(i, factory.newDetector(i));
+            mWorkers.add(worker);
+            mIdleWorkers.add(worker);
+            worker.start();
+        }
+    }
+
+    /**
+     * 默认检测线程数：留一个核给相机回调和 UI。
+     */
+    public static int defaultWorkerCount() {
+        return Math.max(1, Runtime.getRuntime().availableProcessors() - 1);
+    }
+
+    /**
+     * 在准备线程上调用：取一个空闲帧做准备，再交给空闲的检测线程。
+     *
+     * @return false 表示流水线已关闭，帧未被处理
+     */
+    public boolean process(long index, I input) throws InterruptedException {
+        F frame = poll(mFreeFrames);
+        if (frame == null) {
+            return false;
+        }
+        Worker worker;
+        try {
+            mPreparer.prepare(index, input, frame);
+            worker = poll(mIdleWorkers);
+        } catch (RuntimeException e) {
+            mFreeFrames.offer(frame);
+            throw e;
+        }
+        if (worker == null) {
+            mFreeFrames.offer(frame);
+            return false;
+        }
+        worker.hand(mNextSeq++, index, frame);
+        return true;
+    }
+
+    private <T> T poll(BlockingQueue<T> queue) throws InterruptedException {
+        while (!isShutdown) {
+            T item = queue.poll(POLL_MILLIS, TimeUnit.MILLISECONDS);
+            if (item != null) {
+                return item;
+            }
+        }
+        return null;
+    }
+
+    @SuppressWarnings("unchecked")
+    private void complete(long seq, long index, F frame) {
+        synchronized (mPendingFrames) {
+            int slot = (int) (seq % mCapacity);
+            mPendingFrames[slot] = frame;
+            mPendingIndex[slot] = index;
+            mPendingReady[slot] = true;
+            while (true) {
+                int next = (int) (mNextPublishSeq % mCapacity);
+                if (!mPendingReady[next]) {
+                    break;
+                }
+                F ready = (F) mPendingFrames[next];
+                mPendingFrames[next] = null;
+                mPendingReady[next] = false;
+                mNextPublishSeq++;
+                // 先计数再回调，发布回调里等到最后一帧的调用方读到的计数已经包含它
+                mPublished.incrementAndGet();
+                try {
+                    mPublisher.publish(mPendingIndex[next], ready);
+                } catch (RuntimeException e) {
+                    e.printStackTrace();
+                }
+                mFreeFrames.offer(ready);
+            }
+        }
+    }
+
+    /**
+     * 停止所有检测线程并等待退出，在途的帧不再发布。
+     */
+    public void shutdown() {
+        isShutdown = true;
+        for (Worker worker : mWorkers) {
+            worker.interrupt();
+        }
+        for (Worker worker : mWorkers) {
+            try {
+                worker.join();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+        }
+    }
+
+    public int getWorkerCount() {
+        return mWorkers.size();
+    }
+
+    /**
+     * 已准备但还没发布的帧数。
+     */
+    public int getInFlightCount() {
+        return mCapacity - mFreeFrames.size();
+    }
+
+    public long getPublishedCount() {
+        return mPublished.get();
+    }
+
+    private class Worker extends Thread {
+        private final Detector<F> mDetector;
+        private final BlockingQueue<Object> mJob = new ArrayBlockingQueue<>(1);
+        private long mSeq, mIndex;
+
+        Worker(int id, Detector<F> detector) {
+            super("face-detect-" + id);
+            mDetector = detector;
+        }
+
+        void hand(long seq, long index, F frame) {
+            mSeq = seq;
+            mIndex = index;
+            // mSeq/mIndex 在 offer 之前写入，由队列保证对工作线程可见
+            mJob.offer(frame);
+        }
+
+        @Override
+        @SuppressWarnings("unchecked")
+        public void run() {
+            try {
+                while (!isShutdown) {
+                    F frame = (F) mJob.take();
+                    long seq = mSeq, index = mIndex;
+                    try {
+                        mDetector.detect(frame);
+                    } catch (RuntimeException e) {
+                        e.printStackTrace();
+                    }
+                    mIdleWorkers.offer(this);
+                    complete(seq, index, frame);
+                }
+            } catch (InterruptedException e) {
+                // shutdown
+            } finally {
+                mDetector.release();
+            }
+        }
+    }
+}
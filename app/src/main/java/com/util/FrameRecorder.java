@@ -0,0 +1,238 @@
+package com.util;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.ArrayDeque;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 把抽样的预览帧录成 {@link Nv21FrameFile}，供 tools 模块的 BatchRunner 离线复现。
+ * <p>
+ * 录制缓冲在构造时一次分配成环；{@link #offer} 在相机回调线程上只做一次拷贝，没有空闲缓冲（磁盘跟不上）
+ * 时直接丢帧计数，从不阻塞。后台写线程把帧追加到 dir/prefix-序号.nv21，单个文件超过 maxFileBytes 时换下一个，
+ * 最多保留 maxFiles 个，超出时删掉最老的。写文件出错后停止录制，见 {@link #getError()}。
+ */
+public class FrameRecorder {
+
+    private static final long POLL_MILLIS = 100;
+
+    private static class Slot {
+        final byte[] data;
+        final ByteBuffer buffer;
+        int width, height, rotation;
+        long timestamp;
+
+        Slot(int bytes) {
+            data = new byte[bytes];
+            buffer = ByteBuffer.wrap(data);
+        }
+    }
+
+    private final File mDir;
+    private final String mPrefix;
+    private final long mMaxFileBytes;
+    private final int mMaxFiles;
+    private final int mSlotBytes;
+    private final BlockingQueue<Slot> mFree;
+    private final BlockingQueue<Slot> mFilled;
+    private volatile int mInterval = 30;
+    // 以下在调用 offer 的线程上使用
+    private long mOffered;
+
+    private final AtomicLong mRecorded = new AtomicLong();
+    private final AtomicLong mDropped = new AtomicLong();
+    private volatile IOException mError;
+    private volatile boolean isStopped;
+    private Thread mThread;
+
+    // 以下只在写线程上使用
+    private final ArrayDeque<File> mFiles = new ArrayDeque<>();
+    private Nv21FrameFile.Writer mWriter;
+    private int mNextFile;
+
+    /**
+     * @param slots        录制缓冲个数，即写线程落后时最多积压的帧数
+     * @param maxFrameSize 单帧 NV21 的最大字节数，更大的帧丢弃
+     * @param maxFileBytes 单个文件的大小上限
+     * @param maxFiles     最多保留的文件数
+     */
+    public FrameRecorder(File dir, String prefix, int slots, int maxFrameSize, long maxFileBytes, int maxFiles) {
+        if (slots < 1 || maxFrameSize < 1 || maxFileBytes < 1 || maxFiles < 1) {
+            throw new IllegalArgumentException("non-positive recorder parameter");
+        }
+        mDir = dir;
+        mPrefix = prefix;
+        mMaxFileBytes = maxFileBytes;
+        mMaxFiles = maxFiles;
+        mSlotBytes = maxFrameSize;
+        mFree = new ArrayBlockingQueue<>(slots);
+        mFilled = new ArrayBlockingQueue<>(slots);
+        for (int i = 0; i < slots; i++) {
+            mFree.add(new Slot(maxFrameSize));
+        }
+    }
+
+    /**
+     * 每隔多少帧抽一帧，0 表示只录强制的帧。默认 30。
+     */
+    public void setSampleInterval(int interval) {
+        mInterval = Math.max(0, interval);
+    }
+
+    /**
+     * 启动写线程，只能调用一次。启动前 offer 的帧先积压在缓冲里。
+     */
+    public synchronized void start() {
+        if (mThread != null) {
+            throw new IllegalStateException("already started");
+        }
+        mThread = new Thread("frame-recorder") {
+            @Override
+            public void run() {
+                writeLoop();
+            }
+        };
+        mThread.start();
+    }
+
+    /**
+     * 不再接收新帧，写线程把积压的帧写完并关闭文件后退出。不等待，需要时再调用 {@link #join()}。
+     */
+    public void stop() {
+        isStopped = true;
+    }
+
+    /**
+     * 等写线程退出，在 {@link #stop()} 之后调用。
+     */
+    public void join() throws InterruptedException {
+        Thread thread;
+        synchronized (this) {
+            thread = mThread;
+        }
+        if (thread != null) {
+            thread.join();
+        }
+    }
+
+    /**
+     * 按抽样间隔决定是否录制这一帧，录制时拷贝一份，帧本身不会被持有。
+     *
+     * @param rotation 检测用的旋转角度，随帧写入
+     * @param force    不管抽样间隔都录，例如检测状态刚发生变化
+     * @return 帧被放进了录制缓冲
+     */
+    public boolean offer(CameraFrame frame, int rotation, boolean force) {
+        if (isStopped || mError != null) {
+            return false;
+        }
+        int interval = mInterval;
+        boolean sampled = interval > 0 && mOffered++ % interval == 0;
+        if (!sampled && !force) {
+            return false;
+        }
+        int size = Nv21FrameFile.frameSize(frame.getWidth(), frame.getHeight());
+        Slot slot = size <= mSlotBytes ? mFree.poll() : null;
+        if (slot == null) {
+            mDropped.incrementAndGet();
+            return false;
+        }
+        frame.copyNv21(slot.data);
+        slot.width = frame.getWidth();
+        slot.height = frame.getHeight();
+        slot.rotation = rotation;
+        slot.timestamp = frame.getTimestamp();
+        mFilled.offer(slot);
+        // 写线程可能在上面的检查之后已经看到停止并退出，收回这一帧计入丢帧；没收回说明写线程已经取走
+        if ((isStopped || mError != null) && mFilled.remove(slot)) {
+            mDropped.incrementAndGet();
+            mFree.offer(slot);
+            return false;
+        }
+        return true;
+    }
+
+    private void writeLoop() {
+        try {
+            while (true) {
+                Slot slot = mFilled.poll(POLL_MILLIS, TimeUnit.MILLISECONDS);
+                if (slot == null) {
+                    if (isStopped) {
+                        break;
+                    }
+                    continue;
+                }
+                try {
+                    write(slot);
+                    mRecorded.incrementAndGet();
+                } finally {
+                    mFree.offer(slot);
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (IOException e) {
+            mError = e;
+        } finally {
+            // 出错或停止后积压的帧不再写，计入丢帧
+            Slot slot;
+            while ((slot = mFilled.poll()) != null) {
+                mDropped.incrementAndGet();
+                mFree.offer(slot);
+            }
+            closeWriter();
+        }
+    }
+
+    private void write(Slot slot) throws IOException {
+        if (mWriter != null && mWriter.size() >= mMaxFileBytes) {
+            closeWriter();
+        }
+        if (mWriter == null) {
+            File file = new File(mDir, mPrefix + "-" + (mNextFile++) + ".nv21");
+            mWriter = new Nv21FrameFile.Writer(file);
+            mFiles.addLast(file);
+            while (mFiles.size() > mMaxFiles) {
+                mFiles.removeFirst().delete();
+            }
+        }
+        slot.buffer.clear();
+        mWriter.write(slot.buffer, slot.width, slot.height, slot.rotation, slot.timestamp);
+    }
+
+    private void closeWriter() {
+        if (mWriter == null) {
+            return;
+        }
+        try {
+            mWriter.close();
+        } catch (IOException e) {
+            if (mError == null) {
+                mError = e;
+            }
+        }
+        mWriter = null;
+    }
+
+    public long getRecordedCount() {
+        return mRecorded.get();
+    }
+
+    /**
+     * 因缓冲占满、帧过大、写文件出错或停止时还没写而没录上的帧数。
+     */
+    public long getDroppedCount() {
+        return mDropped.get();
+    }
+
+    /**
+     * 写文件的错误，没有出错时为 null。
+     */
+    public IOException getError() {
+        return mError;
+    }
+}
@@ -0,0 +1,181 @@
+package com.util;
+
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * 帧调度器：单槽位"最新帧优先"信箱，取代每 200ms 往 Handler 里 post 一个任务的做法。
+ * <p>
+ * 检测线程忙时新帧直接覆盖槽位里的旧帧（旧帧计为丢弃），队列长度永远不超过 1，
+ * 检测结果不会越积越落后。放行间隔按实测处理耗时自适应调整。
+ *
+ * @param <T> 帧类型
+ */
+public class FrameScheduler<T> {
+
+    public interface Callback<T> {
+        /**
+         * 在 executor 线程上处理一帧。
+         */
+        void onProcess(T frame);
+
+        /**
+         * 帧还没处理就被更新的帧覆盖，调用方应在这里归还缓冲。可能在任意线程回调。
+         */
+        void onDrop(T frame);
+    }
+
+    private final Executor mExecutor;
+    private final Callback<T> mCallback;
+    private final AtomicReference<T> mSlot = new AtomicReference<>();
+    private final AtomicBoolean mScheduled = new AtomicBoolean();
+    private final AtomicLong mSubmitted = new AtomicLong();
+    private final AtomicLong mThrottled = new AtomicLong();
+    private final AtomicLong mReplaced = new AtomicLong();
+    private final AtomicLong mProcessed = new AtomicLong();
+    private volatile long mAvgProcessNanos = -1;
+    private volatile long mMinIntervalNanos;
+    private volatile float mLoadFactor = 1f;
+    private long mLastAdmitNanos;
+    private boolean mAdmitted;
+
+    private final Runnable mDrain = new Runnable() {
+        @Override
+        public void run() {
+            drain();
+        }
+    };
+
+    public FrameScheduler(Executor executor, Callback<T> callback) {
+        mExecutor = executor;
+        mCallback = callback;
+    }
+
+    /**
+     * 最小放行间隔，即处理速率上限。
+     */
+    public void setMinInterval(long interval, TimeUnit unit) {
+        mMinIntervalNanos = unit.toNanos(interval);
+    }
+
+    /**
+     * 放行间隔 = 平均处理耗时 * loadFactor。1 表示刚好跟上检测速度，小于 1 会多覆盖一些帧但延迟更低。
+     */
+    public void setLoadFactor(float loadFactor) {
+        if (loadFactor < 0) {
+            throw new IllegalArgumentException("loadFactor < 0: " + loadFactor);
+        }
+        mLoadFactor = loadFactor;
+    }
+
+    /**
+     * 每收到一帧先调用一次，判断是否到了放行时间，不到则计为限流。
+     * 先判断再构造帧对象，被限流的帧不产生任何分配。只应由单个生产者线程（相机回调线程）调用。
+     */
+    public boolean admit() {
+        mSubmitted.incrementAndGet();
+        long now = nanoTime();
+        if (mAdmitted && now - mLastAdmitNanos < currentIntervalNanos()) {
+            mThrottled.incrementAndGet();
+            return false;
+        }
+        mAdmitted = true;
+        mLastAdmitNanos = now;
+        return true;
+    }
+
+    /**
+     * 放入槽位；槽位里尚未处理的旧帧通过 {@link Callback#onDrop(Object)} 交还。
+     */
+    public void submit(T frame) {
+        T old = mSlot.getAndSet(frame);
+        if (old != null) {
+            mReplaced.incrementAndGet();
+            mCallback.onDrop(old);
+        }
+        if (mScheduled.compareAndSet(false, true)) {
+            mExecutor.execute(mDrain);
+        }
+    }
+
+    private void drain() {
+        while (true) {
+            T frame = mSlot.getAndSet(null);
+            if (frame == null) {
+                mScheduled.set(false);
+                // 置位前生产者可能刚放进一帧但没有重新调度，这里再检查一次
+                if (mSlot.get() != null && mScheduled.compareAndSet(false, true)) {
+                    continue;
+                }
+                return;
+            }
+            long start = nanoTime();
+            try {
+                mCallback.onProcess(frame);
+            } catch (RuntimeException e) {
+                // 异常退出时复位，下一次 submit 会重新调度
+                mScheduled.set(false);
+                throw e;
+            } finally {
+                long cost = nanoTime() - start;
+                long avg = mAvgProcessNanos;
+                // 指数滑动平均，权重 1/8
+                mAvgProcessNanos = avg < 0 ? cost : avg + ((cost - avg) >> 3);
+                mProcessed.incrementAndGet();
+            }
+        }
+    }
+
+    /**
+     * 清空槽位，槽位中的帧通过 onDrop 交还。相机关闭时调用。
+     */
+    public void clear() {
+        T old = mSlot.getAndSet(null);
+        if (old != null) {
+            mReplaced.incrementAndGet();
+            mCallback.onDrop(old);
+        }
+    }
+
+    long nanoTime() {
+        return System.nanoTime();
+    }
+
+    public long currentIntervalNanos() {
+        long avg = mAvgProcessNanos;
+        long adaptive = avg < 0 ? 0 : (long) (avg * mLoadFactor);
+        return Math.max(mMinIntervalNanos, adaptive);
+    }
+
+    public long getAvgProcessNanos() {
+        return Math.max(0, mAvgProcessNanos);
+    }
+
+    /**
+     * 相机送来的总帧数。
+     */
+    public long getSubmittedCount() {
+        return mSubmitted.get();
+    }
+
+    /**
+     * 因处理速率限制被直接丢弃的帧数。
+     */
+    public long getThrottledCount() {
+        return mThrottled.get();
+    }
+
+    /**
+     * 在槽位里还没被处理就被更新帧覆盖的帧数。
+     */
+    public long getReplacedCount() {
+        return mReplaced.get();
+    }
+
+    public long getProcessedCount() {
+        return mProcessed.get();
+    }
+}
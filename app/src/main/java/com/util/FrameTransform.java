@@ -0,0 +1,251 @@
+package com.util;
+
+/**
+ * 画面坐标之间的仿射变换（x' = a*x + b*y + tx, y' = c*x + d*y + ty），
+ * 用于把检测图上的人脸坐标映射回预览画面，缩放、旋转、镜像都可以组合。
+ * <p>
+ * 坐标按像素下标计：宽为 w 的画面水平翻转为 x' = w - 1 - x，与 {@link Nv21Rotator}、
+ * {@link YuvConverter} 的像素搬运方式一致，来回映射没有半像素误差。非线程安全，每个检测线程各用各的。
+ */
+public class FrameTransform {
+
+    private float a, b, c, d, tx, ty;
+
+    public FrameTransform() {
+        setIdentity();
+    }
+
+    public FrameTransform setIdentity() {
+        a = 1;
+        b = 0;
+        c = 0;
+        d = 1;
+        tx = 0;
+        ty = 0;
+        return this;
+    }
+
+    public FrameTransform set(FrameTransform other) {
+        a = other.a;
+        b = other.b;
+        c = other.c;
+        d = other.d;
+        tx = other.tx;
+        ty = other.ty;
+        return this;
+    }
+
+    public FrameTransform postScale(float sx, float sy) {
+        a *= sx;
+        b *= sx;
+        tx *= sx;
+        c *= sy;
+        d *= sy;
+        ty *= sy;
+        return this;
+    }
+
+    public FrameTransform postTranslate(float dx, float dy) {
+        tx += dx;
+        ty += dy;
+        return this;
+    }
+
+    /**
+     * 在本变换之前先平移，即 this = this ∘ translate(dx, dy)。用于从裁剪窗口坐标换到整幅画面坐标。
+     */
+    public FrameTransform preTranslate(float dx, float dy) {
+        tx += a * dx + b * dy;
+        ty += c * dx + d * dy;
+        return this;
+    }
+
+    /**
+     * 水平翻转，width 为翻转前画面宽度。
+     */
+    public FrameTransform postMirror(int width) {
+        a = -a;
+        b = -b;
+        tx = width - 1 - tx;
+        return this;
+    }
+
+    /**
+     * 顺时针旋转，width/height 为旋转前画面尺寸。
+     */
+    public FrameTransform postRotate(int rotation, int width, int height) {
+        float na, nb, nc, nd, ntx, nty;
+        switch (rotation) {
+            case 0:
+                return this;
+            case 90:
+                // x' = h - 1 - y, y' = x
+                na = -c;
+                nb = -d;
+                ntx = height - 1 - ty;
+                nc = a;
+                nd = b;
+                nty = tx;
+                break;
+            case 180:
+                // x' = w - 1 - x, y' = h - 1 - y
+                na = -a;
+                nb = -b;
+                ntx = width - 1 - tx;
+                nc = -c;
+                nd = -d;
+                nty = height - 1 - ty;
+                break;
+            case 270:
+                // x' = y, y' = w - 1 - x
+                na = c;
+                nb = d;
+                ntx = ty;
+                nc = -a;
+                nd = -b;
+                nty = width - 1 - tx;
+                break;
+            default:
+                throw new IllegalArgumentException("unsupported rotation: " + rotation);
+        }
+        a = na;
+        b = nb;
+        c = nc;
+        d = nd;
+        tx = ntx;
+        ty = nty;
+        return this;
+    }
+
+    /**
+     * this = other ∘ this，即先做本变换再做 other。
+     */
+    public FrameTransform postConcat(FrameTransform other) {
+        float na = other.a * a + other.b * c;
+        float nb = other.a * b + other.b * d;
+        float nc = other.c * a + other.d * c;
+        float nd = other.c * b + other.d * d;
+        float ntx = other.a * tx + other.b * ty + other.tx;
+        float nty = other.c * tx + other.d * ty + other.ty;
+        a = na;
+        b = nb;
+        c = nc;
+        d = nd;
+        tx = ntx;
+        ty = nty;
+        return this;
+    }
+
+    /**
+     * 求逆写入 out（可以是 this）。
+     */
+    public FrameTransform invert(FrameTransform out) {
+        float det = a * d - b * c;
+        if (det == 0) {
+            throw new IllegalStateException("transform is not invertible");
+        }
+        float ia = d / det;
+        float ib = -b / det;
+        float ic = -c / det;
+        float id = a / det;
+        float itx = -(ia * tx + ib * ty);
+        float ity = -(ic * tx + id * ty);
+        out.a = ia;
+        out.b = ib;
+        out.c = ic;
+        out.d = id;
+        out.tx = itx;
+        out.ty = ity;
+        return out;
+    }
+
+    /**
+     * 检测图 → 原始（未旋转）预览帧。检测图由预览帧按 scale 隔点缩小、旋转、镜像得到，
+     * 与 {@link Nv21Rotator#rotateLuma} / {@link YuvConverter#nv21ToRgb565} 的输出一致。
+     */
+    public FrameTransform setDetectionToSensor(int width, int height, int scale, int rotation, boolean mirror) {
+        int outWidth = YuvConverter.outputWidth(width, height, scale, rotation);
+        int outHeight = YuvConverter.outputHeight(width, height, scale, rotation);
+        setIdentity();
+        if (mirror) {
+            postMirror(outWidth);
+        }
+        postRotate((360 - rotation) % 360, outWidth, outHeight);
+        return postScale(scale, scale);
+    }
+
+    /**
+     * 原始预览帧 → 旋转、镜像后的全分辨率预览画面（即用户看到的方向）。
+     */
+    public FrameTransform setSensorToOriented(int width, int height, int rotation, boolean mirror) {
+        setIdentity();
+        postRotate(rotation, width, height);
+        if (mirror) {
+            postMirror(Nv21Rotator.outputWidth(width, height, rotation));
+        }
+        return this;
+    }
+
+    /**
+     * 相机上报的人脸坐标 → 原始（未旋转）预览帧。上报坐标中 region 对应整个取景范围：
+     * 旧版 Camera 为 (-1000, -1000, 1000, 1000)，Camera2 为传感器有效区域坐标下的裁剪区域。
+     *
+     * @param cropToAspect region 与预览帧宽高比不同时，按预览帧宽高比在 region 中居中裁剪（Camera2 输出流的取景方式）
+     */
+    public FrameTransform setRegionToSensor(float left, float top, float right, float bottom,
+                                            int width, int height, boolean cropToAspect) {
+        float regionWidth = right - left;
+        float regionHeight = bottom - top;
+        if (cropToAspect) {
+            float aspect = width / (float) height;
+            if (regionWidth > regionHeight * aspect) {
+                float visible = regionHeight * aspect;
+                left += (regionWidth - visible) / 2;
+                regionWidth = visible;
+            } else {
+                float visible = regionWidth / aspect;
+                top += (regionHeight - visible) / 2;
+                regionHeight = visible;
+            }
+        }
+        setIdentity();
+        postTranslate(-left, -top);
+        return postScale(width / regionWidth, height / regionHeight);
+    }
+
+    public float mapX(float x, float y) {
+        return a * x + b * y + tx;
+    }
+
+    public float mapY(float x, float y) {
+        return c * x + d * y + ty;
+    }
+
+    /**
+     * 原地映射点，xy 为 {x, y}。
+     */
+    public void mapPoint(float[] xy) {
+        float x = xy[0], y = xy[1];
+        xy[0] = a * x + b * y + tx;
+        xy[1] = c * x + d * y + ty;
+    }
+
+    /**
+     * 原地映射矩形 {left, top, right, bottom}，结果重新按大小排序。
+     */
+    public void mapRect(float[] ltrb) {
+        float x0 = mapX(ltrb[0], ltrb[1]), y0 = mapY(ltrb[0], ltrb[1]);
+        float x1 = mapX(ltrb[2], ltrb[3]), y1 = mapY(ltrb[2], ltrb[3]);
+        ltrb[0] = Math.min(x0, x1);
+        ltrb[1] = Math.min(y0, y1);
+        ltrb[2] = Math.max(x0, x1);
+        ltrb[3] = Math.max(y0, y1);
+    }
+
+    /**
+     * 映射长度（如眼距），取面积缩放比的平方根，旋转和镜像不影响长度。
+     */
+    public float mapLength(float length) {
+        return length * (float) Math.sqrt(Math.abs(a * d - b * c));
+    }
+}
@@ -0,0 +1,366 @@
+package com.util;
+
+import org.w3c.dom.Element;
+import org.w3c.dom.Node;
+import org.xml.sax.SAXException;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import javax.xml.parsers.DocumentBuilderFactory;
+import javax.xml.parsers.ParserConfigurationException;
+
+/**
+ * Viola-Jones 式的 Haar 特征级联，数据按数组平铺存放，评估时不产生对象。
+ * <p>
+ * 每个特征由若干加权矩形组成，特征值 = Σ weight * 矩形平均亮度 / 窗口标准差，
+ * 即以窗口对比度归一化，光照强弱不影响阈值。特征值大于 threshold 投 above 票，否则投 below 票；
+ * 一级里所有票数之和达到该级阈值才进入下一级，任意一级不通过即拒绝。
+ * <p>
+ * 训练好的级联用 {@link #load} 从 OpenCV 的级联 XML 读入；{@link #frontalFace()} 只是手工设定的示例。
+ */
+public class HaarCascade {
+
+    private static final int RECT_FIELDS = 4;
+
+    private final int mWindowWidth, mWindowHeight;
+    // 级：特征起始下标、特征数、通过阈值
+    private int[] mStageStart = new int[4];
+    private int[] mStageCount = new int[4];
+    private float[] mStageThreshold = new float[4];
+    private int mStages;
+    // 特征：矩形起始下标、矩形数、阈值、两侧票值
+    private int[] mFeatureRectStart = new int[8];
+    private int[] mFeatureRectCount = new int[8];
+    private float[] mFeatureThreshold = new float[8];
+    private float[] mFeatureBelow = new float[8];
+    private float[] mFeatureAbove = new float[8];
+    private int mFeatures;
+    // 矩形：x, y, w, h（窗口坐标）和权重
+    private int[] mRects = new int[16 * RECT_FIELDS];
+    private float[] mWeights = new float[16];
+    private int mRectCount;
+
+    public HaarCascade(int windowWidth, int windowHeight) {
+        mWindowWidth = windowWidth;
+        mWindowHeight = windowHeight;
+    }
+
+    /**
+     * 新开一级，之后 addFeature 加入的特征都属于这一级。
+     */
+    public HaarCascade addStage(float threshold) {
+        if (mStages == mStageStart.length) {
+            int capacity = mStages * 2;
+            mStageStart = Arrays.copyOf(mStageStart, capacity);
+            mStageCount = Arrays.copyOf(mStageCount, capacity);
+            mStageThreshold = Arrays.copyOf(mStageThreshold, capacity);
+        }
+        mStageStart[mStages] = mFeatures;
+        mStageCount[mStages] = 0;
+        mStageThreshold[mStages] = threshold;
+        mStages++;
+        return this;
+    }
+
+    /**
+     * @param rects 依次为每个矩形的 x, y, w, h, weight（窗口坐标）
+     */
+    public HaarCascade addFeature(float threshold, float below, float above, float... rects) {
+        if (mStages == 0) {
+            throw new IllegalStateException("addStage first");
+        }
+        if (rects.length == 0 || rects.length % (RECT_FIELDS + 1) != 0) {
+            throw new IllegalArgumentException("rects must be x, y, w, h, weight groups");
+        }
+        if (mFeatures == mFeatureRectStart.length) {
+            int capacity = mFeatures * 2;
+            mFeatureRectStart = Arrays.copyOf(mFeatureRectStart, capacity);
+            mFeatureRectCount = Arrays.copyOf(mFeatureRectCount, capacity);
+            mFeatureThreshold = Arrays.copyOf(mFeatureThreshold, capacity);
+            mFeatureBelow = Arrays.copyOf(mFeatureBelow, capacity);
+            mFeatureAbove = Arrays.copyOf(mFeatureAbove, capacity);
+        }
+        int count = rects.length / (RECT_FIELDS + 1);
+        mFeatureRectStart[mFeatures] = mRectCount;
+        mFeatureRectCount[mFeatures] = count;
+        mFeatureThreshold[mFeatures] = threshold;
+        mFeatureBelow[mFeatures] = below;
+        mFeatureAbove[mFeatures] = above;
+        mFeatures++;
+        mStageCount[mStages - 1]++;
+        for (int i = 0; i < count; i++) {
+            if (mRectCount == mWeights.length) {
+                mRects = Arrays.copyOf(mRects, mRects.length * 2);
+                mWeights = Arrays.copyOf(mWeights, mWeights.length * 2);
+            }
+            int src = i * (RECT_FIELDS + 1);
+            int x = (int) rects[src], y = (int) rects[src + 1], w = (int) rects[src + 2], h = (int) rects[src + 3];
+            if (x < 0 || y < 0 || w <= 0 || h <= 0 || x + w > mWindowWidth || y + h > mWindowHeight) {
+                throw new IllegalArgumentException("rect outside window");
+            }
+            int dst = mRectCount * RECT_FIELDS;
+            mRects[dst] = x;
+            mRects[dst + 1] = y;
+            mRects[dst + 2] = w;
+            mRects[dst + 3] = h;
+            mWeights[mRectCount] = rects[src + 4];
+            mRectCount++;
+        }
+        return this;
+    }
+
+    public int getWindowWidth() {
+        return mWindowWidth;
+    }
+
+    public int getWindowHeight() {
+        return mWindowHeight;
+    }
+
+    public int getStageCount() {
+        return mStages;
+    }
+
+    int getRectCount() {
+        return mRectCount;
+    }
+
+    /**
+     * 按窗口缩放比例算出各矩形在画面上的尺寸，权重除以缩放后的面积（矩形和 → 平均亮度）。
+     *
+     * @param rects   长度至少 getRectCount() * 4
+     * @param weights 长度至少 getRectCount()
+     */
+    void scale(float scale, int[] rects, float[] weights) {
+        for (int i = 0; i < mRectCount; i++) {
+            int src = i * RECT_FIELDS;
+            int x = (int) (mRects[src] * scale);
+            int y = (int) (mRects[src + 1] * scale);
+            int w = Math.max(1, (int) (mRects[src + 2] * scale));
+            int h = Math.max(1, (int) (mRects[src + 3] * scale));
+            rects[src] = x;
+            rects[src + 1] = y;
+            rects[src + 2] = w;
+            rects[src + 3] = h;
+            weights[i] = mWeights[i] / (w * h);
+        }
+    }
+
+    /**
+     * 在 (x, y) 处评估级联，rects/weights 为 {@link #scale} 的结果。
+     *
+     * @param invStd 窗口标准差的倒数
+     */
+    boolean evaluate(IntegralImage integral, int x, int y, float invStd, int[] rects, float[] weights) {
+        for (int s = 0; s < mStages; s++) {
+            float votes = 0;
+            int end = mStageStart[s] + mStageCount[s];
+            for (int f = mStageStart[s]; f < end; f++) {
+                float value = 0;
+                int rectEnd = mFeatureRectStart[f] + mFeatureRectCount[f];
+                for (int r = mFeatureRectStart[f]; r < rectEnd; r++) {
+                    int o = r * RECT_FIELDS;
+                    value += weights[r] * integral.sum(x + rects[o], y + rects[o + 1], rects[o + 2], rects[o + 3]);
+                }
+                votes += value * invStd > mFeatureThreshold[f] ? mFeatureAbove[f] : mFeatureBelow[f];
+            }
+            if (votes < mStageThreshold[s]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * 读取 OpenCV 的 Haar 级联 XML，新格式（opencv_traincascade 生成，如 haarcascade_frontalface_default.xml）
+     * 和旧格式（opencv-haar-classifier，如 haarcascade_frontalface_alt.xml）都支持。
+     * 只支持单节点的弱分类器（树桩）和正放的矩形特征，遇到多节点树或倾斜特征时抛出 IOException。
+     * <p>
+     * OpenCV 的特征值是 Σ weight * 矩形和，除以去掉一圈边框的窗口面积和窗口标准差后与阈值比较；
+     * 这里的特征按矩形平均亮度计算，所以权重换算为 weight * 矩形面积 / ((w - 2) * (h - 2))，阈值不变。
+     */
+    public static HaarCascade load(InputStream in) throws IOException {
+        Element root;
+        try {
+            root = DocumentBuilderFactory.newInstance().newDocumentBuilder().parse(in).getDocumentElement();
+        } catch (ParserConfigurationException | SAXException e) {
+            throw new IOException("invalid cascade xml", e);
+        }
+        // opencv_storage 下的第一个元素就是级联本身，标签名随文件而定
+        Element cascade = child(root, null);
+        if (cascade == null) {
+            throw new IOException("empty cascade file");
+        }
+        if (child(cascade, "features") != null) {
+            return loadTraincascade(cascade);
+        }
+        if (child(cascade, "size") != null) {
+            return loadHaarClassifier(cascade);
+        }
+        throw new IOException("unknown cascade format: " + cascade.getTagName());
+    }
+
+    private static HaarCascade loadTraincascade(Element cascade) throws IOException {
+        String type = text(cascade, "featureType");
+        if (!"HAAR".equalsIgnoreCase(type)) {
+            throw new IOException("unsupported feature type: " + type);
+        }
+        int width = (int) number(cascade, "width");
+        int height = (int) number(cascade, "height");
+        List<float[]> features = new ArrayList<>();
+        for (Element feature : children(required(cascade, "features"))) {
+            features.add(rects(feature, width, height));
+        }
+        HaarCascade result = new HaarCascade(width, height);
+        for (Element stage : children(required(cascade, "stages"))) {
+            result.addStage(number(stage, "stageThreshold"));
+            for (Element weak : children(required(stage, "weakClassifiers"))) {
+                // 树桩：left, right, 特征下标, 阈值；小于阈值取 leafValues[0]
+                float[] nodes = numbers(text(weak, "internalNodes"));
+                float[] leaves = numbers(text(weak, "leafValues"));
+                if (nodes.length != 4 || leaves.length != 2) {
+                    throw new IOException("only stump classifiers are supported");
+                }
+                int index = (int) nodes[2];
+                if (index < 0 || index >= features.size()) {
+                    throw new IOException("feature index out of range: " + index);
+                }
+                result.addFeature(nodes[3], leaves[0], leaves[1], features.get(index));
+            }
+        }
+        return result;
+    }
+
+    private static HaarCascade loadHaarClassifier(Element cascade) throws IOException {
+        float[] size = numbers(text(cascade, "size"));
+        if (size.length != 2) {
+            throw new IOException("invalid window size");
+        }
+        int width = (int) size[0], height = (int) size[1];
+        HaarCascade result = new HaarCascade(width, height);
+        for (Element stage : children(required(cascade, "stages"))) {
+            result.addStage(number(stage, "stage_threshold"));
+            for (Element tree : children(required(stage, "trees"))) {
+                List<Element> nodes = children(tree);
+                if (nodes.size() != 1 || child(nodes.get(0), "left_val") == null
+                        || child(nodes.get(0), "right_val") == null) {
+                    throw new IOException("only stump classifiers are supported");
+                }
+                Element node = nodes.get(0);
+                result.addFeature(number(node, "threshold"), number(node, "left_val"), number(node, "right_val"),
+                        rects(required(node, "feature"), width, height));
+            }
+        }
+        return result;
+    }
+
+    /**
+     * 读出一个特征的矩形，权重换算见 {@link #load}。
+     */
+    private static float[] rects(Element feature, int width, int height) throws IOException {
+        if (child(feature, "tilted") != null && number(feature, "tilted") != 0) {
+            throw new IOException("tilted features are not supported");
+        }
+        List<Element> rects = children(required(feature, "rects"));
+        float norm = (width - 2) * (height - 2);
+        float[] out = new float[rects.size() * (RECT_FIELDS + 1)];
+        for (int i = 0; i < rects.size(); i++) {
+            float[] rect = numbers(rects.get(i).getTextContent());
+            if (rect.length != RECT_FIELDS + 1) {
+                throw new IOException("invalid rect: " + rects.get(i).getTextContent().trim());
+            }
+            int o = i * (RECT_FIELDS + 1);
+            System.arraycopy(rect, 0, out, o, RECT_FIELDS);
+            out[o + RECT_FIELDS] = rect[RECT_FIELDS] * rect[2] * rect[3] / norm;
+        }
+        return out;
+    }
+
+    /**
+     * 第一个标签名为 name 的子元素，name 为 null 时取第一个子元素。
+     */
+    private static Element child(Element parent, String name) {
+        for (Node node = parent.getFirstChild(); node != null; node = node.getNextSibling()) {
+            if (node instanceof Element && (name == null || name.equals(((Element) node).getTagName()))) {
+                return (Element) node;
+            }
+        }
+        return null;
+    }
+
+    private static Element required(Element parent, String name) throws IOException {
+        Element element = child(parent, name);
+        if (element == null) {
+            throw new IOException("missing <" + name + "> in <" + parent.getTagName() + ">");
+        }
+        return element;
+    }
+
+    /**
+     * 列表元素（OpenCV 用 &lt;_&gt; 表示）。
+     */
+    private static List<Element> children(Element parent) {
+        List<Element> out = new ArrayList<>();
+        for (Node node = parent.getFirstChild(); node != null; node = node.getNextSibling()) {
+            if (node instanceof Element) {
+                out.add((Element) node);
+            }
+        }
+        return out;
+    }
+
+    private static String text(Element parent, String name) throws IOException {
+        return required(parent, name).getTextContent().trim();
+    }
+
+    private static float number(Element parent, String name) throws IOException {
+        float[] values = numbers(text(parent, name));
+        if (values.length != 1) {
+            throw new IOException("invalid <" + name + ">");
+        }
+        return values[0];
+    }
+
+    private static float[] numbers(String text) throws IOException {
+        String trimmed = text.trim();
+        if (trimmed.isEmpty()) {
+            return new float[0];
+        }
+        String[] parts = trimmed.split("\\s+");
+        float[] out = new float[parts.length];
+        try {
+            for (int i = 0; i < parts.length; i++) {
+                out[i] = Float.parseFloat(parts[i]);
+            }
+        } catch (NumberFormatException e) {
+            throw new IOException("invalid number in: " + trimmed, e);
+        }
+        return out;
+    }
+
+    /**
+     * 手工设定的正面人脸级联，24x24 窗口，两眼中心约在 (7, 8.5) 和 (17, 8.5)。
+     * 只用眼睛暗于脸颊/额头、鼻梁亮于双眼、嘴暗于上唇这几条结构特征，
+     * 不是训练出来的检测器，真实画面上误检漏检都很多，不能拿来和 android.media.FaceDetector 比较精度；
+     * 只用于离线测试，以及没有训练好的级联（{@link #load}）时让级联后端能跑起来。
+     */
+    public static HaarCascade frontalFace() {
+        return new HaarCascade(24, 24)
+                // 眼部横带暗于脸颊横带；鼻梁亮于两眼
+                .addStage(1.5f)
+                .addFeature(0.25f, 0, 1, 2, 6, 20, 5, -1, 2, 12, 20, 5, 1)
+                .addFeature(0.2f, 0, 1, 10, 6, 4, 5, 1, 4, 6, 6, 5, -0.5f, 14, 6, 6, 5, -0.5f)
+                // 额头亮于眼部；左右眼分别暗于下方脸颊
+                .addStage(2.5f)
+                .addFeature(0.2f, 0, 1, 3, 1, 18, 4, 1, 3, 6, 18, 5, -1)
+                .addFeature(0.2f, 0, 1, 4, 6, 6, 5, -1, 4, 12, 6, 4, 1)
+                .addFeature(0.2f, 0, 1, 14, 6, 6, 5, -1, 14, 12, 6, 4, 1)
+                // 嘴暗于上唇
+                .addStage(0.5f)
+                .addFeature(0.15f, 0, 1, 7, 14, 10, 3, 1, 7, 17, 10, 3, -1);
+    }
+}
@@ -0,0 +1,139 @@
+package com.util;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 相机硬件人脸检测和软件检测之间的取舍：硬件结果持续到来时，软件检测只按确认间隔偶尔跑一次，
+ * 用来核对硬件结果；硬件结果中断（不支持、被关闭或超过失效时间没有更新）时，每帧都交给软件检测。
+ * <p>
+ * 软件检测的结果与同一时刻的硬件结果对比计数，用来评估设备上硬件检测是否可信。
+ * 硬件回调和相机回调可能在不同线程上，方法都加了锁。
+ */
+public class HardwareFaceArbiter {
+
+    private long mConfirmIntervalNanos = TimeUnit.SECONDS.toNanos(1);
+    private long mStaleNanos = TimeUnit.MILLISECONDS.toNanos(500);
+    private boolean mHasHardware;
+    private long mLastHardwareNanos;
+    private int mHardwareFaces;
+    private long mLastSoftwareNanos;
+    private boolean mHasSoftware;
+    private long mHardwareCount, mConfirmCount, mFallbackCount, mSkippedCount;
+    private long mAgreeCount, mHardwareMissCount, mSoftwareMissCount;
+
+    /**
+     * 硬件结果可用时，软件确认检测的间隔。
+     */
+    public synchronized void setConfirmInterval(long interval, TimeUnit unit) {
+        mConfirmIntervalNanos = unit.toNanos(interval);
+    }
+
+    /**
+     * 硬件结果超过该时间没有更新即视为不可用，回退到每帧软件检测。
+     */
+    public synchronized void setStaleTimeout(long timeout, TimeUnit unit) {
+        mStaleNanos = unit.toNanos(timeout);
+    }
+
+    /**
+     * 相机上报了一次人脸结果（包括 0 个人脸）。
+     */
+    public synchronized void onHardwareFaces(int count, long timeNanos) {
+        mHasHardware = true;
+        mLastHardwareNanos = timeNanos;
+        mHardwareFaces = count;
+        mHardwareCount++;
+    }
+
+    /**
+     * 每个候选帧调用一次，返回 true 表示这一帧要跑软件检测。
+     */
+    public synchronized boolean shouldRunSoftware(long timeNanos) {
+        if (!isHardwareFresh(timeNanos)) {
+            mFallbackCount++;
+        } else if (!mHasSoftware || timeNanos - mLastSoftwareNanos >= mConfirmIntervalNanos) {
+            mConfirmCount++;
+        } else {
+            mSkippedCount++;
+            return false;
+        }
+        mHasSoftware = true;
+        mLastSoftwareNanos = timeNanos;
+        return true;
+    }
+
+    /**
+     * 软件检测完成，硬件结果仍有效时与之对比：都有人脸或都没有算一致。
+     */
+    public synchronized void onSoftwareResult(int count, long timeNanos) {
+        if (!isHardwareFresh(timeNanos)) {
+            return;
+        }
+        if ((count > 0) == (mHardwareFaces > 0)) {
+            mAgreeCount++;
+        } else if (count > 0) {
+            mHardwareMissCount++;
+        } else {
+            mSoftwareMissCount++;
+        }
+    }
+
+    public synchronized boolean isHardwareFresh(long timeNanos) {
+        return mHasHardware && timeNanos - mLastHardwareNanos <= mStaleNanos;
+    }
+
+    /**
+     * 丢掉硬件结果，回到纯软件检测。相机重启或切换模式时调用，计数保留。
+     */
+    public synchronized void reset() {
+        mHasHardware = false;
+        mHasSoftware = false;
+        mHardwareFaces = 0;
+    }
+
+    /**
+     * 收到的硬件结果次数。
+     */
+    public synchronized long getHardwareCount() {
+        return mHardwareCount;
+    }
+
+    /**
+     * 硬件结果有效时，为核对而跑的软件检测次数。
+     */
+    public synchronized long getConfirmCount() {
+        return mConfirmCount;
+    }
+
+    /**
+     * 硬件结果无效时，回退到软件检测的次数。
+     */
+    public synchronized long getFallbackCount() {
+        return mFallbackCount;
+    }
+
+    /**
+     * 因硬件结果有效而省掉的软件检测次数。
+     */
+    public synchronized long getSkippedCount() {
+        return mSkippedCount;
+    }
+
+    public synchronized long getAgreeCount() {
+        return mAgreeCount;
+    }
+
+    /**
+     * 软件检测到人脸而硬件没有的次数。
+     */
+    public synchronized long getHardwareMissCount() {
+        return mHardwareMissCount;
+    }
+
+    /**
+     * 硬件检测到人脸而软件没有的次数。
+     */
+    public synchronized long getSoftwareMissCount() {
+        return mSoftwareMissCount;
+    }
+}
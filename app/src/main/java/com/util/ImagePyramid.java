@@ -0,0 +1,123 @@
+package com.util;
+
+/**
+ * 亮度图像金字塔：第 0 层即输入的 Y 平面（不拷贝），之后每层按 2x2 取平均缩小一半，
+ * 直到短边小于 minSize 或达到最大层数。各层缓冲跨帧复用，尺寸不变时 build 不分配。
+ */
+public class ImagePyramid {
+
+    private final byte[][] mLevels;
+    private final int[] mWidths;
+    private final int[] mHeights;
+    private int mLevelCount;
+
+    /**
+     * @param maxLevels 最大层数（含第 0 层）
+     */
+    public ImagePyramid(int maxLevels) {
+        if (maxLevels < 1) {
+            throw new IllegalArgumentException("maxLevels < 1: " + maxLevels);
+        }
+        mLevels = new byte[maxLevels][];
+        mWidths = new int[maxLevels];
+        mHeights = new int[maxLevels];
+    }
+
+    /**
+     * @param luma    第 0 层，行宽为 width；在下一次 build 之前不要修改
+     * @param minSize 最小一层的短边下限
+     * @return 层数
+     */
+    public int build(byte[] luma, int width, int height, int minSize) {
+        return build(luma, width, height, minSize, mLevels.length);
+    }
+
+    /**
+     * 同 {@link #build(byte[], int, int, int)}，但最多只建 levels 层，用不到的粗层不计算。
+     */
+    public int build(byte[] luma, int width, int height, int minSize, int levels) {
+        if (luma.length < width * height) {
+            throw new IllegalArgumentException("luma buffer too small");
+        }
+        mLevels[0] = luma;
+        mWidths[0] = width;
+        mHeights[0] = height;
+        mLevelCount = 1;
+        int maxLevels = Math.min(levels, mLevels.length);
+        while (mLevelCount < maxLevels) {
+            int srcWidth = mWidths[mLevelCount - 1];
+            int srcHeight = mHeights[mLevelCount - 1];
+            int dstWidth = srcWidth / 2;
+            int dstHeight = srcHeight / 2;
+            if (Math.min(dstWidth, dstHeight) < minSize) {
+                break;
+            }
+            byte[] dst = mLevels[mLevelCount];
+            if (dst == null || dst.length < dstWidth * dstHeight) {
+                dst = new byte[dstWidth * dstHeight];
+                mLevels[mLevelCount] = dst;
+            }
+            downsample(mLevels[mLevelCount - 1], srcWidth, dstWidth, dstHeight, dst);
+            mWidths[mLevelCount] = dstWidth;
+            mHeights[mLevelCount] = dstHeight;
+            mLevelCount++;
+        }
+        return mLevelCount;
+    }
+
+    /**
+     * 2x2 平均缩小，奇数宽高时丢掉最后一行/列。
+     */
+    static void downsample(byte[] src, int srcWidth, int dstWidth, int dstHeight, byte[] dst) {
+        for (int y = 0; y < dstHeight; y++) {
+            int row0 = 2 * y * srcWidth;
+            int row1 = row0 + srcWidth;
+            int o = y * dstWidth;
+            for (int x = 0; x < dstWidth; x++) {
+                int s = 2 * x;
+                int sum = (src[row0 + s] & 0xff) + (src[row0 + s + 1] & 0xff)
+                        + (src[row1 + s] & 0xff) + (src[row1 + s + 1] & 0xff);
+                dst[o + x] = (byte) ((sum + 2) >> 2);
+            }
+        }
+    }
+
+    public int getMaxLevels() {
+        return mLevels.length;
+    }
+
+    public int getLevelCount() {
+        return mLevelCount;
+    }
+
+    /**
+     * 第 level 层的像素，数组可能比该层尺寸大，按 getWidth(level) 作为行宽读取。
+     */
+    public byte[] getLevel(int level) {
+        checkLevel(level);
+        return mLevels[level];
+    }
+
+    public int getWidth(int level) {
+        checkLevel(level);
+        return mWidths[level];
+    }
+
+    public int getHeight(int level) {
+        checkLevel(level);
+        return mHeights[level];
+    }
+
+    /**
+     * 第 level 层相对第 0 层的缩小倍数。
+     */
+    public static int scaleOf(int level) {
+        return 1 << level;
+    }
+
+    private void checkLevel(int level) {
+        if (level < 0 || level >= mLevelCount) {
+            throw new IndexOutOfBoundsException("level " + level + " of " + mLevelCount);
+        }
+    }
+}
@@ -0,0 +1,89 @@
+package com.util;
+
+/**
+ * 积分图和平方积分图，任意矩形的像素和、平方和都能 O(1) 求出。缓冲跨帧复用，尺寸不变时不分配。
+ * <p>
+ * 积分图按 (width + 1) * (height + 1) 存储，首行首列为 0。像素和用 int 累加，超过 2^31 时会回绕，
+ * 但矩形和本身不超过 2^31（约 800 万像素）时差值仍然正确。
+ */
+public class IntegralImage {
+
+    private int[] mSum;
+    private long[] mSquared;
+    private int mWidth, mHeight;
+
+    /**
+     * @param luma 亮度平面，行宽为 width
+     */
+    public void compute(byte[] luma, int width, int height) {
+        if (luma.length < width * height) {
+            throw new IllegalArgumentException("luma buffer too small");
+        }
+        int stride = width + 1;
+        int size = stride * (height + 1);
+        if (mSum == null || mSum.length < size) {
+            mSum = new int[size];
+            mSquared = new long[size];
+        }
+        mWidth = width;
+        mHeight = height;
+        int[] sum = mSum;
+        long[] squared = mSquared;
+        for (int x = 0; x <= width; x++) {
+            sum[x] = 0;
+            squared[x] = 0;
+        }
+        for (int y = 0; y < height; y++) {
+            int src = y * width;
+            int above = y * stride;
+            int dst = above + stride;
+            sum[dst] = 0;
+            squared[dst] = 0;
+            int rowSum = 0;
+            long rowSquared = 0;
+            for (int x = 0; x < width; x++) {
+                int v = luma[src + x] & 0xff;
+                rowSum += v;
+                rowSquared += v * v;
+                sum[dst + x + 1] = sum[above + x + 1] + rowSum;
+                squared[dst + x + 1] = squared[above + x + 1] + rowSquared;
+            }
+        }
+    }
+
+    /**
+     * 矩形 [x, x + w) * [y, y + h) 的像素和。
+     */
+    public int sum(int x, int y, int w, int h) {
+        int stride = mWidth + 1;
+        int top = y * stride + x;
+        int bottom = (y + h) * stride + x;
+        return mSum[bottom + w] - mSum[bottom] - mSum[top + w] + mSum[top];
+    }
+
+    /**
+     * 矩形内像素平方和。
+     */
+    public long squaredSum(int x, int y, int w, int h) {
+        int stride = mWidth + 1;
+        int top = y * stride + x;
+        int bottom = (y + h) * stride + x;
+        return mSquared[bottom + w] - mSquared[bottom] - mSquared[top + w] + mSquared[top];
+    }
+
+    /**
+     * 释放缓冲，下次 compute 时重新分配。
+     */
+    public void release() {
+        mSum = null;
+        mSquared = null;
+    }
+
+    public int getWidth() {
+        return mWidth;
+    }
+
+    public int getHeight() {
+        return mHeight;
+    }
+}
@@ -0,0 +1,134 @@
+package com.util;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * 固定分桶的耗时直方图，无锁、记录时不分配对象，可多线程同时写入。
+ * <p>
+ * 桶上界按 2 倍递增：0.25ms, 0.5ms, 1ms ... 1024ms，最后一个桶收集超过 1024ms 的样本。
+ */
+public class LatencyHistogram {
+
+    private static final long[] BOUNDS_NANOS;
+
+    static {
+        BOUNDS_NANOS = new long[13];
+        long bound = TimeUnit.MICROSECONDS.toNanos(250);
+        for (int i = 0; i < BOUNDS_NANOS.length; i++) {
+            BOUNDS_NANOS[i] = bound;
+            bound <<= 1;
+        }
+    }
+
+    private final AtomicLongArray mBuckets = new AtomicLongArray(BOUNDS_NANOS.length + 1);
+    private final AtomicLong mCount = new AtomicLong();
+    private final AtomicLong mSumNanos = new AtomicLong();
+    private final AtomicLong mMaxNanos = new AtomicLong();
+
+    public void record(long nanos) {
+        if (nanos < 0) {
+            nanos = 0;
+        }
+        int i = 0;
+        while (i < BOUNDS_NANOS.length && nanos > BOUNDS_NANOS[i]) {
+            i++;
+        }
+        mBuckets.incrementAndGet(i);
+        mCount.incrementAndGet();
+        mSumNanos.addAndGet(nanos);
+        long max;
+        while (nanos > (max = mMaxNanos.get())) {
+            if (mMaxNanos.compareAndSet(max, nanos)) {
+                break;
+            }
+        }
+    }
+
+    /**
+     * 桶数，最后一个桶没有上界。
+     */
+    public static int bucketCount() {
+        return BOUNDS_NANOS.length + 1;
+    }
+
+    /**
+     * 第 i 个桶的上界，最后一个桶返回 Long.MAX_VALUE。
+     */
+    public static long bucketBoundNanos(int i) {
+        return i < BOUNDS_NANOS.length ? BOUNDS_NANOS[i] : Long.MAX_VALUE;
+    }
+
+    public Snapshot snapshot() {
+        long[] buckets = new long[mBuckets.length()];
+        for (int i = 0; i < buckets.length; i++) {
+            buckets[i] = mBuckets.get(i);
+        }
+        return new Snapshot(buckets, mCount.get(), mSumNanos.get(), mMaxNanos.get());
+    }
+
+    public void reset() {
+        for (int i = 0; i < mBuckets.length(); i++) {
+            mBuckets.set(i, 0);
+        }
+        mCount.set(0);
+        mSumNanos.set(0);
+        mMaxNanos.set(0);
+    }
+
+    /**
+     * 某一时刻的只读拷贝。各字段分别读取，高并发写入时彼此之间可能有一两个样本的出入。
+     */
+    public static class Snapshot {
+        private final long[] mBuckets;
+        private final long mCount, mSumNanos, mMaxNanos;
+
+        Snapshot(long[] buckets, long count, long sumNanos, long maxNanos) {
+            mBuckets = buckets;
+            mCount = count;
+            mSumNanos = sumNanos;
+            mMaxNanos = maxNanos;
+        }
+
+        public long getCount() {
+            return mCount;
+        }
+
+        public long getBucket(int i) {
+            return mBuckets[i];
+        }
+
+        public long getMeanNanos() {
+            return mCount == 0 ? 0 : mSumNanos / mCount;
+        }
+
+        public long getMaxNanos() {
+            return mMaxNanos;
+        }
+
+        /**
+         * 分位数估计，返回所在桶的上界（最后一个桶返回最大值）。
+         *
+         * @param quantile 0~1，例如 0.95
+         */
+        public long getPercentileNanos(double quantile) {
+            long total = 0;
+            for (long bucket : mBuckets) {
+                total += bucket;
+            }
+            if (total == 0) {
+                return 0;
+            }
+            long rank = (long) Math.ceil(quantile * total);
+            long seen = 0;
+            for (int i = 0; i < mBuckets.length; i++) {
+                seen += mBuckets[i];
+                if (seen >= rank) {
+                    return Math.min(bucketBoundNanos(i), mMaxNanos);
+                }
+            }
+            return mMaxNanos;
+        }
+    }
+}
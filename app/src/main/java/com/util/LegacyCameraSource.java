@@ -0,0 +1,224 @@
+package com.util;
+
+import android.graphics.SurfaceTexture;
+import android.hardware.Camera;
+
+import java.io.IOException;
+import java.util.List;
+
+/**
+ * 旧版 android.hardware.Camera 的帧来源，Camera2 不可用时的后备。
+ * 预览回调拿到的 byte[] 来自 {@link FrameBufferPool}，帧 release 时才把缓冲交还相机。
+ */
+@SuppressWarnings("deprecation")
+public class LegacyCameraSource implements CameraSource, Camera.PreviewCallback {
+
+    /**
+     * 缓冲块数：一块给检测线程，其余留给相机继续出帧。
+     */
+    private static final int BUFFER_COUNT = 3;
+
+    private Camera mCamera;
+    private int mCameraId = -1;
+    private final Camera.CameraInfo mInfo = new Camera.CameraInfo();
+    private FrameBufferPool mBufferPool;
+    private int mWidth, mHeight;
+    private FrameCallback mCallback;
+    private FaceCallback mFaceCallback;
+    private boolean mFaceDetecting;
+    private final FrameTransform mFaceTransform = new FrameTransform();
+    private float[] mFaceBounds = new float[4];
+    private float[] mFaceScores = new float[1];
+    private final float[] mRect = new float[4];
+
+    private final CameraFrame.Releaser mReleaser = new CameraFrame.Releaser() {
+        @Override
+        public void release(CameraFrame frame) {
+            ((FrameBufferPool) frame.getTag()).release(frame.nv21Array());
+        }
+    };
+
+    @Override
+    public boolean open(boolean front) {
+        int facing = front ? Camera.CameraInfo.CAMERA_FACING_FRONT : Camera.CameraInfo.CAMERA_FACING_BACK;
+        for (int i = 0; i < Camera.getNumberOfCameras(); i++) {
+            Camera.getCameraInfo(i, mInfo);
+            if (mInfo.facing == facing) {
+                try {
+                    mCamera = Camera.open(i);
+                    mCameraId = i;
+                    return true;
+                } catch (RuntimeException e) {
+                    e.printStackTrace();
+                    return false;
+                }
+            }
+        }
+        return false;
+    }
+
+    @Override
+    public int[] getPreviewSizes() {
+        if (mCamera == null) {
+            return new int[0];
+        }
+        List<Camera.Size> sizes = mCamera.getParameters().getSupportedPreviewSizes();
+        int[] out = new int[sizes.size() * 2];
+        for (int i = 0; i < sizes.size(); i++) {
+            out[i * 2] = sizes.get(i).width;
+            out[i * 2 + 1] = sizes.get(i).height;
+        }
+        return out;
+    }
+
+    @Override
+    public int getSensorOrientation() {
+        return mCameraId < 0 ? 0 : mInfo.orientation;
+    }
+
+    @Override
+    public boolean isFrontFacing() {
+        return mCameraId >= 0 && mInfo.facing == Camera.CameraInfo.CAMERA_FACING_FRONT;
+    }
+
+    @Override
+    public boolean isFaceDetectionSupported() {
+        return mCamera != null && mCamera.getParameters().getMaxNumDetectedFaces() > 0;
+    }
+
+    @Override
+    public void setFaceCallback(FaceCallback callback) {
+        mFaceCallback = callback;
+    }
+
+    /**
+     * 驱动上报的人脸坐标为 -1000~1000 的取景范围，不受显示旋转和前置镜像影响，
+     * 在打开相机的线程上回调。
+     */
+    private final Camera.FaceDetectionListener mFaceListener = new Camera.FaceDetectionListener() {
+        @Override
+        public void onFaceDetection(Camera.Face[] faces, Camera camera) {
+            FaceCallback callback = mFaceCallback;
+            if (callback == null) {
+                return;
+            }
+            int count = faces == null ? 0 : faces.length;
+            if (mFaceBounds.length < count * 4) {
+                mFaceBounds = new float[count * 4];
+                mFaceScores = new float[count];
+            }
+            for (int i = 0; i < count; i++) {
+                mRect[0] = faces[i].rect.left;
+                mRect[1] = faces[i].rect.top;
+                mRect[2] = faces[i].rect.right;
+                mRect[3] = faces[i].rect.bottom;
+                mFaceTransform.mapRect(mRect);
+                System.arraycopy(mRect, 0, mFaceBounds, i * 4, 4);
+                //score 为 1~100
+                mFaceScores[i] = faces[i].score / 100f;
+            }
+            callback.onFaces(mFaceBounds, mFaceScores, count, System.nanoTime());
+        }
+    };
+
+    @Override
+    public void setDisplayOrientation(int degrees) {
+        if (mCamera != null) {
+            mCamera.setDisplayOrientation(degrees);
+        }
+    }
+
+    @Override
+    public void startPreview(SurfaceTexture surface, int width, int height, FrameCallback callback) {
+        if (mCamera == null) {
+            return;
+        }
+        try {
+            mCamera.setPreviewTexture(surface);
+        } catch (IOException e) {
+            e.printStackTrace();
+            return;
+        }
+        Camera.Parameters parameters = mCamera.getParameters();
+        parameters.setPreviewSize(width, height);
+        mCamera.setParameters(parameters);
+        mWidth = width;
+        mHeight = height;
+        mCallback = callback;
+        //按预览尺寸分配固定缓冲，预览中不再每帧new byte[]
+        int bufferSize = FrameBufferPool.nv21BufferSize(width, height);
+        if (mBufferPool == null || mBufferPool.getBufferSize() != bufferSize) {
+            mBufferPool = new FrameBufferPool(bufferSize, BUFFER_COUNT);
+        }
+        final Camera camera = mCamera;
+        mBufferPool.attach(new FrameBufferPool.Recycler() {
+            @Override
+            public void recycle(byte[] buffer) {
+                camera.addCallbackBuffer(buffer);
+            }
+        });
+        mCamera.setPreviewCallbackWithBuffer(this);
+        mCamera.startPreview();
+        //人脸检测必须在预览开始之后启动
+        if (mFaceCallback != null && parameters.getMaxNumDetectedFaces() > 0) {
+            mFaceTransform.setRegionToSensor(-1000, -1000, 1000, 1000, width, height, false);
+            mCamera.setFaceDetectionListener(mFaceListener);
+            try {
+                mCamera.startFaceDetection();
+                mFaceDetecting = true;
+            } catch (RuntimeException e) {
+                e.printStackTrace();
+            }
+        }
+    }
+
+    @Override
+    public void onPreviewFrame(byte[] data, Camera camera) {
+        FrameBufferPool pool = mBufferPool;
+        if (data == null || pool == null || !pool.acquire(data)) {
+            return;
+        }
+        //缓冲池可能随尺寸变化而更换，帧上记下借出它的池
+        mCallback.onFrame(CameraFrame.fromNv21(data, mWidth, mHeight, System.nanoTime(),
+                pool, mReleaser));
+    }
+
+    @Override
+    public void stopPreview() {
+        if (mCamera == null) {
+            return;
+        }
+        if (mFaceDetecting) {
+            mCamera.stopFaceDetection();
+            mCamera.setFaceDetectionListener(null);
+            mFaceDetecting = false;
+        }
+        mCamera.stopPreview();
+        mCamera.setPreviewCallbackWithBuffer(null);
+        //先解绑缓冲池，避免检测线程把缓冲还给已释放的相机
+        if (mBufferPool != null) {
+            mBufferPool.detach();
+        }
+    }
+
+    @Override
+    public void close() {
+        if (mCamera == null) {
+            return;
+        }
+        stopPreview();
+        mCamera.release();
+        mCamera = null;
+        mCameraId = -1;
+    }
+
+    @Override
+    public int getInUseCount() {
+        return mBufferPool == null ? 0 : mBufferPool.getInUseCount();
+    }
+
+    @Override
+    public long getStarvationCount() {
+        return mBufferPool == null ? 0 : mBufferPool.getStarvationCount();
+    }
+}
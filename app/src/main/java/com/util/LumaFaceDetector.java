@@ -0,0 +1,22 @@
+package com.util;
+
+/**
+ * 人脸检测后端：输入亮度平面，输出人脸框。实现可以是 android.media.FaceDetector 的适配，
+ * 也可以是纯 Java 的 {@link CascadeFaceDetector}，后者能直接在 JVM 上测试和做基准测试。
+ * <p>
+ * 实现不要求线程安全，每个检测线程各持有一个。
+ */
+public interface LumaFaceDetector {
+
+    /**
+     * @param luma 亮度平面，行宽为 width
+     * @param out  结果写入其中已有的 FaceBox（元素不能为 null），按置信度从高到低排列
+     * @return 找到的人脸数，不超过 out.length
+     */
+    int detect(byte[] luma, int width, int height, FaceBox[] out);
+
+    /**
+     * 释放缓存的缓冲或 native 资源，之后不能再调用 detect。
+     */
+    void release();
+}
@@ -0,0 +1,95 @@
+package com.util;
+
+/**
+ * 亮度平面上的基础滤波：盒式模糊和直方图均衡。都写入调用方复用的数组，不分配对象，
+ * 循环里只有整数运算，便于 JIT 展开。
+ */
+public final class LumaFilters {
+
+    private LumaFilters() {
+        //no instance
+    }
+
+    /**
+     * 可分离的盒式模糊，窗口边长 2 * radius + 1，边缘按边界像素延伸。先横向写入 tmp，再纵向写入 dst。
+     *
+     * @param tmp 长度至少 width * height
+     * @param dst 长度至少 width * height，可以与 src 相同
+     */
+    public static void boxBlur(byte[] src, int width, int height, int radius, byte[] tmp, byte[] dst) {
+        int size = width * height;
+        if (src.length < size || tmp.length < size || dst.length < size) {
+            throw new IllegalArgumentException("buffer too small");
+        }
+        if (radius < 0) {
+            throw new IllegalArgumentException("radius < 0: " + radius);
+        }
+        int window = 2 * radius + 1;
+        int half = window / 2;
+        int lastX = width - 1;
+        for (int y = 0; y < height; y++) {
+            int row = y * width;
+            int sum = (src[row] & 0xff) * (radius + 1);
+            for (int i = 1; i <= radius; i++) {
+                sum += src[row + Math.min(i, lastX)] & 0xff;
+            }
+            for (int x = 0; x < width; x++) {
+                tmp[row + x] = (byte) ((sum + half) / window);
+                sum += (src[row + Math.min(x + radius + 1, lastX)] & 0xff) - (src[row + Math.max(x - radius, 0)] & 0xff);
+            }
+        }
+        int lastY = height - 1;
+        for (int x = 0; x < width; x++) {
+            int sum = (tmp[x] & 0xff) * (radius + 1);
+            for (int i = 1; i <= radius; i++) {
+                sum += tmp[Math.min(i, lastY) * width + x] & 0xff;
+            }
+            for (int y = 0; y < height; y++) {
+                dst[y * width + x] = (byte) ((sum + half) / window);
+                sum += (tmp[Math.min(y + radius + 1, lastY) * width + x] & 0xff)
+                        - (tmp[Math.max(y - radius, 0) * width + x] & 0xff);
+            }
+        }
+    }
+
+    /**
+     * 直方图均衡，把亮度分布拉满 0~255，逆光、暗光下人脸的对比度更明显。纯色图像原样拷贝。
+     *
+     * @param histogram 长度至少 256 的临时数组，先用作直方图再用作映射表
+     * @param dst       长度至少 width * height，可以与 src 相同
+     */
+    public static void equalizeHistogram(byte[] src, int width, int height, int[] histogram, byte[] dst) {
+        int size = width * height;
+        if (src.length < size || dst.length < size || histogram.length < 256) {
+            throw new IllegalArgumentException("buffer too small");
+        }
+        for (int i = 0; i < 256; i++) {
+            histogram[i] = 0;
+        }
+        for (int i = 0; i < size; i++) {
+            histogram[src[i] & 0xff]++;
+        }
+        int cdfMin = 0;
+        for (int i = 0; i < 256; i++) {
+            if (histogram[i] != 0) {
+                cdfMin = histogram[i];
+                break;
+            }
+        }
+        int range = size - cdfMin;
+        if (range == 0) {
+            if (dst != src) {
+                System.arraycopy(src, 0, dst, 0, size);
+            }
+            return;
+        }
+        int cdf = 0;
+        for (int i = 0; i < 256; i++) {
+            cdf += histogram[i];
+            histogram[i] = cdf <= cdfMin ? 0 : (int) (((long) (cdf - cdfMin) * 255 + range / 2) / range);
+        }
+        for (int i = 0; i < size; i++) {
+            dst[i] = (byte) histogram[src[i] & 0xff];
+        }
+    }
+}
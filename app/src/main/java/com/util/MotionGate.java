@@ -0,0 +1,177 @@
+package com.util;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 画面变化门限：把 Y 平面分成 16x12 个块，每块隔点采样求平均亮度，与上一次放行帧的块均值比较，
+ * 变化的块占比不到阈值就认为画面静止，跳过这一帧的检测。
+ * <p>
+ * 无人时画面不动，检测几乎全部省掉；即使一直静止，到了强制刷新间隔也会放行一帧，
+ * 避免慢速变化（如光线）被永远忽略。check 在相机回调线程上调用，reset 和计数可能来自主线程，方法都加了锁。
+ */
+public class MotionGate {
+
+    static final int BLOCKS_X = 16;
+    static final int BLOCKS_Y = 12;
+    /**
+     * 块内采样步长（像素）。
+     */
+    static final int SAMPLE_STEP = 4;
+
+    private int[] mReference = new int[BLOCKS_X * BLOCKS_Y];
+    private int[] mCurrent = new int[BLOCKS_X * BLOCKS_Y];
+    private boolean mHasReference;
+    private int mWidth, mHeight;
+    private long mLastPassNanos;
+    private int mLumaThreshold = 12;
+    private float mChangedFraction = 0.02f;
+    private long mRefreshIntervalNanos = TimeUnit.SECONDS.toNanos(2);
+    private long mPassedCount, mSkippedCount, mRefreshCount;
+
+    /**
+     * @param lumaThreshold   块平均亮度变化超过该值算作变化块
+     * @param changedFraction 变化块占全部块的比例达到该值才放行，越小越灵敏
+     */
+    public synchronized void setSensitivity(int lumaThreshold, float changedFraction) {
+        if (lumaThreshold < 0 || changedFraction < 0) {
+            throw new IllegalArgumentException("negative sensitivity");
+        }
+        mLumaThreshold = lumaThreshold;
+        mChangedFraction = changedFraction;
+    }
+
+    /**
+     * 静止时强制放行一帧的间隔。
+     */
+    public synchronized void setRefreshInterval(long interval, TimeUnit unit) {
+        mRefreshIntervalNanos = unit.toNanos(interval);
+    }
+
+    /**
+     * 判断这一帧是否需要检测；放行的帧成为新的比较基准。
+     *
+     * @param luma 预览帧，只读取前 width * height 字节的 Y 平面
+     */
+    public synchronized boolean check(byte[] luma, int width, int height, long timeNanos) {
+        sample(luma, width, height, mCurrent);
+        return compare(width, height, timeNanos);
+    }
+
+    /**
+     * 同 {@link #check(byte[], int, int, long)}，直接在相机帧的 Y 平面上采样，不拷贝。
+     */
+    public synchronized boolean check(CameraFrame frame, long timeNanos) {
+        sample(frame, mCurrent);
+        return compare(frame.getWidth(), frame.getHeight(), timeNanos);
+    }
+
+    private boolean compare(int width, int height, long timeNanos) {
+        boolean pass;
+        if (!mHasReference || width != mWidth || height != mHeight) {
+            pass = true;
+        } else if (timeNanos - mLastPassNanos >= mRefreshIntervalNanos) {
+            pass = true;
+            mRefreshCount++;
+        } else {
+            pass = changedBlocks(mReference, mCurrent) >= mChangedFraction * mCurrent.length;
+        }
+        if (!pass) {
+            mSkippedCount++;
+            return false;
+        }
+        int[] tmp = mReference;
+        mReference = mCurrent;
+        mCurrent = tmp;
+        mHasReference = true;
+        mWidth = width;
+        mHeight = height;
+        mLastPassNanos = timeNanos;
+        mPassedCount++;
+        return true;
+    }
+
+    /**
+     * 丢掉比较基准，下一帧必定放行。相机重启时调用。
+     */
+    public synchronized void reset() {
+        mHasReference = false;
+    }
+
+    private int changedBlocks(int[] reference, int[] current) {
+        int changed = 0;
+        for (int i = 0; i < current.length; i++) {
+            if (Math.abs(current[i] - reference[i]) > mLumaThreshold) {
+                changed++;
+            }
+        }
+        return changed;
+    }
+
+    /**
+     * 每块隔点采样的平均亮度。块边界按整数等分，最后一行/列的块吸收余数。
+     */
+    static void sample(byte[] luma, int width, int height, int[] out) {
+        if (luma.length < width * height) {
+            throw new IllegalArgumentException("luma buffer too small");
+        }
+        for (int by = 0; by < BLOCKS_Y; by++) {
+            int y0 = by * height / BLOCKS_Y;
+            int y1 = (by + 1) * height / BLOCKS_Y;
+            for (int bx = 0; bx < BLOCKS_X; bx++) {
+                int x0 = bx * width / BLOCKS_X;
+                int x1 = (bx + 1) * width / BLOCKS_X;
+                int sum = 0, count = 0;
+                for (int y = y0; y < y1; y += SAMPLE_STEP) {
+                    int row = y * width;
+                    for (int x = x0; x < x1; x += SAMPLE_STEP) {
+                        sum += luma[row + x] & 0xff;
+                        count++;
+                    }
+                }
+                out[by * BLOCKS_X + bx] = count == 0 ? 0 : sum / count;
+            }
+        }
+    }
+
+    /**
+     * 同 {@link #sample(byte[], int, int, int[])}，Camera2 的 Y 平面带行跨度，逐点按坐标读取。
+     */
+    static void sample(CameraFrame frame, int[] out) {
+        int width = frame.getWidth();
+        int height = frame.getHeight();
+        for (int by = 0; by < BLOCKS_Y; by++) {
+            int y0 = by * height / BLOCKS_Y;
+            int y1 = (by + 1) * height / BLOCKS_Y;
+            for (int bx = 0; bx < BLOCKS_X; bx++) {
+                int x0 = bx * width / BLOCKS_X;
+                int x1 = (bx + 1) * width / BLOCKS_X;
+                int sum = 0, count = 0;
+                for (int y = y0; y < y1; y += SAMPLE_STEP) {
+                    for (int x = x0; x < x1; x += SAMPLE_STEP) {
+                        sum += frame.getLuma(x, y);
+                        count++;
+                    }
+                }
+                out[by * BLOCKS_X + bx] = count == 0 ? 0 : sum / count;
+            }
+        }
+    }
+
+    public synchronized long getPassedCount() {
+        return mPassedCount;
+    }
+
+    /**
+     * 因画面静止跳过检测的帧数。
+     */
+    public synchronized long getSkippedCount() {
+        return mSkippedCount;
+    }
+
+    /**
+     * 画面静止但因强制刷新放行的帧数。
+     */
+    public synchronized long getRefreshCount() {
+        return mRefreshCount;
+    }
+}
@@ -0,0 +1,269 @@
+package com.util;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+
+/**
+ * 录制的 NV21 帧序列文件，用于离线复现和基准测试。
+ * <p>
+ * 格式（大端）：文件头为 magic、version 两个 int；之后每帧一个帧头 width、height、rotation（int）、
+ * timestamp（long，纳秒），紧跟 width * height * 3 / 2 字节的 NV21 数据。每帧自带尺寸，中途可以换预览尺寸。
+ */
+public final class Nv21FrameFile {
+
+    public static final int MAGIC = 0x4E563231; // "NV21"
+    public static final int VERSION = 1;
+    public static final int FILE_HEADER_SIZE = 8;
+    public static final int FRAME_HEADER_SIZE = 20;
+    /**
+     * 读取时每次映射的最大长度，大文件分段映射，避免占满 32 位进程的地址空间。
+     */
+    static final int MAP_WINDOW = 64 * 1024 * 1024;
+    /**
+     * 帧头里宽高的上限，超过即视为文件损坏，避免 frameSize 溢出或映射超大区域。
+     */
+    static final int MAX_DIMENSION = 8192;
+
+    private Nv21FrameFile() {
+        //no instance
+    }
+
+    public static int frameSize(int width, int height) {
+        return width * height * 3 / 2;
+    }
+
+    public static void putFileHeader(ByteBuffer dst) {
+        dst.putInt(MAGIC).putInt(VERSION);
+    }
+
+    public static void putFrameHeader(ByteBuffer dst, int width, int height, int rotation, long timestamp) {
+        dst.putInt(width).putInt(height).putInt(rotation).putLong(timestamp);
+    }
+
+    /**
+     * 顺序写入，每帧一次 gather write（帧头 + 数据）。不是线程安全的。
+     */
+    public static class Writer implements Closeable {
+        private final FileOutputStream mStream;
+        private final FileChannel mChannel;
+        private final ByteBuffer mHeader = ByteBuffer.allocate(FRAME_HEADER_SIZE);
+        private final ByteBuffer[] mGather = new ByteBuffer[2];
+        private long mFrameCount;
+
+        public Writer(File file) throws IOException {
+            mStream = new FileOutputStream(file);
+            mChannel = mStream.getChannel();
+            ByteBuffer header = ByteBuffer.allocate(FILE_HEADER_SIZE);
+            putFileHeader(header);
+            header.flip();
+            writeFully(new ByteBuffer[]{header});
+        }
+
+        /**
+         * @param nv21 从 position 起的 frameSize(width, height) 字节，写完后 position 前移
+         */
+        public void write(ByteBuffer nv21, int width, int height, int rotation, long timestamp) throws IOException {
+            int size = frameSize(width, height);
+            if (nv21.remaining() < size) {
+                throw new IllegalArgumentException("nv21 buffer too small");
+            }
+            mHeader.clear();
+            putFrameHeader(mHeader, width, height, rotation, timestamp);
+            mHeader.flip();
+            int limit = nv21.limit();
+            nv21.limit(nv21.position() + size);
+            mGather[0] = mHeader;
+            mGather[1] = nv21;
+            try {
+                writeFully(mGather);
+            } finally {
+                nv21.limit(limit);
+                mGather[1] = null;
+            }
+            mFrameCount++;
+        }
+
+        public void write(byte[] nv21, int width, int height, int rotation, long timestamp) throws IOException {
+            write(ByteBuffer.wrap(nv21), width, height, rotation, timestamp);
+        }
+
+        private void writeFully(ByteBuffer[] buffers) throws IOException {
+            ByteBuffer last = buffers[buffers.length - 1];
+            while (last.hasRemaining()) {
+                mChannel.write(buffers);
+            }
+        }
+
+        public long getFrameCount() {
+            return mFrameCount;
+        }
+
+        /**
+         * 已写入的字节数，用于按大小切换文件。
+         */
+        public long size() throws IOException {
+            return mChannel.position();
+        }
+
+        @Override
+        public void close() throws IOException {
+            mStream.close();
+        }
+    }
+
+    /**
+     * 通过 {@link FileChannel#map} 顺序读取，不是线程安全的。
+     * {@link #next()} 前进到下一帧并解析帧头，再用 {@link #copyLuma} / {@link #copyNv21} 取数据。
+     */
+    public static class Reader implements Closeable {
+        private final RandomAccessFile mFile;
+        private final FileChannel mChannel;
+        private final long mSize;
+        private final int mMapWindow;
+        private MappedByteBuffer mWindow;
+        // 映射窗口在文件中的起点
+        private long mWindowStart;
+        // 下一帧帧头在文件中的位置
+        private long mPosition = FILE_HEADER_SIZE;
+        private int mWidth, mHeight, mRotation;
+        private long mTimestamp;
+        private int mDataOffset = -1;
+        private long mFrameIndex = -1;
+
+        public Reader(File file) throws IOException {
+            this(file, MAP_WINDOW);
+        }
+
+        Reader(File file, int mapWindow) throws IOException {
+            mMapWindow = mapWindow;
+            mFile = new RandomAccessFile(file, "r");
+            mChannel = mFile.getChannel();
+            mSize = mChannel.size();
+            try {
+                ByteBuffer header = map(0, FILE_HEADER_SIZE);
+                if (header.getInt() != MAGIC) {
+                    throw new IOException("not an nv21 frame file: " + file);
+                }
+                int version = header.getInt();
+                if (version != VERSION) {
+                    throw new IOException("unsupported version " + version + ": " + file);
+                }
+            } catch (IOException e) {
+                mFile.close();
+                throw e;
+            }
+        }
+
+        /**
+         * @return 已到文件末尾返回 false
+         * @throws IOException 帧头非法或最后一帧不完整
+         */
+        public boolean next() throws IOException {
+            if (mPosition >= mSize) {
+                mDataOffset = -1;
+                return false;
+            }
+            ByteBuffer header = map(mPosition, FRAME_HEADER_SIZE);
+            mWidth = header.getInt();
+            mHeight = header.getInt();
+            mRotation = header.getInt();
+            mTimestamp = header.getLong();
+            if (mWidth <= 0 || mHeight <= 0 || mWidth > MAX_DIMENSION || mHeight > MAX_DIMENSION
+                    || (mWidth & 1) != 0 || (mHeight & 1) != 0
+                    || mRotation < 0 || mRotation >= 360 || mRotation % 90 != 0) {
+                throw new IOException("bad frame header at " + mPosition + ": " + mWidth + "x" + mHeight + "/" + mRotation);
+            }
+            int size = frameSize(mWidth, mHeight);
+            // 把帧头和数据一起映射进当前窗口
+            map(mPosition, FRAME_HEADER_SIZE + size);
+            mDataOffset = (int) (mPosition - mWindowStart) + FRAME_HEADER_SIZE;
+            mPosition += FRAME_HEADER_SIZE + size;
+            mFrameIndex++;
+            return true;
+        }
+
+        /**
+         * 保证 [position, position + length) 落在映射窗口内，返回定位到 position 的视图。
+         */
+        private ByteBuffer map(long position, int length) throws IOException {
+            if (position + length > mSize) {
+                throw new IOException("truncated frame at " + position);
+            }
+            if (mWindow == null || position < mWindowStart
+                    || position + length > mWindowStart + mWindow.capacity()) {
+                long size = Math.min(mSize - position, Math.max(length, mMapWindow));
+                mWindow = mChannel.map(FileChannel.MapMode.READ_ONLY, position, size);
+                mWindowStart = position;
+            }
+            ByteBuffer view = mWindow.duplicate();
+            view.position((int) (position - mWindowStart));
+            return view;
+        }
+
+        /**
+         * 只拷贝 Y 平面。
+         *
+         * @param dst 长度至少 width * height
+         */
+        public void copyLuma(byte[] dst) {
+            copy(dst, mWidth * mHeight);
+        }
+
+        /**
+         * @param dst 长度至少 width * height * 3 / 2
+         */
+        public void copyNv21(byte[] dst) {
+            copy(dst, frameSize(mWidth, mHeight));
+        }
+
+        private void copy(byte[] dst, int length) {
+            if (mDataOffset < 0) {
+                throw new IllegalStateException("no current frame");
+            }
+            if (dst.length < length) {
+                throw new IllegalArgumentException("buffer too small");
+            }
+            ByteBuffer view = mWindow.duplicate();
+            view.position(mDataOffset);
+            view.get(dst, 0, length);
+        }
+
+        /**
+         * 当前帧序号，从 0 开始。
+         */
+        public long getFrameIndex() {
+            return mFrameIndex;
+        }
+
+        public int getWidth() {
+            return mWidth;
+        }
+
+        public int getHeight() {
+            return mHeight;
+        }
+
+        /**
+         * 录制时检测用的旋转角度。
+         */
+        public int getRotation() {
+            return mRotation;
+        }
+
+        public long getTimestamp() {
+            return mTimestamp;
+        }
+
+        @Override
+        public void close() throws IOException {
+            mWindow = null;
+            mFile.close();
+        }
+    }
+}
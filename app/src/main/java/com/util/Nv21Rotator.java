@@ -0,0 +1,107 @@
+package com.util;
+
+/**
+ * 直接在 NV21 平面上做旋转+水平镜像，一次分块遍历写入复用的缓冲，
+ * 代替 Bitmap + Matrix.postRotate 再 createBitmap 的整张 ARGB 拷贝。
+ * <p>
+ * 旋转为顺时针 0/90/180/270，镜像在旋转之后对输出画面做水平翻转，
+ * 与预览控件 setScaleX(-1) 的效果一致。
+ */
+public final class Nv21Rotator {
+
+    /**
+     * 分块边长。按块读写，旋转 90/270 时源和目标都落在少量缓存行内。
+     */
+    static final int TILE = 32;
+
+    private Nv21Rotator() {
+        //no instance
+    }
+
+    /**
+     * 旋转后的宽度。
+     */
+    public static int outputWidth(int width, int height, int rotation) {
+        return YuvConverter.isTransposed(rotation) ? height : width;
+    }
+
+    /**
+     * 旋转后的高度。
+     */
+    public static int outputHeight(int width, int height, int rotation) {
+        return YuvConverter.isTransposed(rotation) ? width : height;
+    }
+
+    /**
+     * 旋转整帧 NV21（Y 平面和 VU 交错平面），宽高须为偶数。
+     *
+     * @param dst 长度至少 width * height * 3 / 2，可跨帧复用，不能与 src 相同
+     */
+    public static void rotate(byte[] src, int width, int height, int rotation, boolean mirror, byte[] dst) {
+        int frameSize = width * height;
+        if (src.length < frameSize * 3 / 2 || dst.length < frameSize * 3 / 2) {
+            throw new IllegalArgumentException("nv21 buffer too small");
+        }
+        transformPlane(src, 0, width, width, height, 1, 1, rotation, mirror, dst, 0);
+        // VU 平面按 2 字节为一个单元整体搬运
+        transformPlane(src, frameSize, width, width / 2, height / 2, 1, 2, rotation, mirror, dst, frameSize);
+    }
+
+    /**
+     * 只处理 Y 平面，同时按整数倍隔点缩小。输出尺寸与 {@link YuvConverter#outputWidth} 一致。
+     *
+     * @param dst 长度至少 outputWidth * outputHeight
+     */
+    public static void rotateLuma(byte[] src, int width, int height, int scale, int rotation, boolean mirror, byte[] dst) {
+        if (scale < 1) {
+            throw new IllegalArgumentException("scale must be >= 1: " + scale);
+        }
+        int sw = YuvConverter.scaledWidth(width, scale);
+        int sh = YuvConverter.scaledHeight(height, scale);
+        if (src.length < width * height || dst.length < sw * sh) {
+            throw new IllegalArgumentException("luma buffer too small");
+        }
+        transformPlane(src, 0, width, sw, sh, scale, 1, rotation, mirror, dst, 0);
+    }
+
+    /**
+     * @param srcStride 源平面每行字节数
+     * @param sw        参与变换的列数（以单元计，已缩放）
+     * @param sh        参与变换的行数（已缩放）
+     * @param scale     源坐标采样步长
+     * @param unit      每个单元的字节数，Y 为 1，VU 为 2
+     */
+    private static void transformPlane(byte[] src, int srcOffset, int srcStride, int sw, int sh, int scale, int unit,
+                                       int rotation, boolean mirror, byte[] dst, int dstOffset) {
+        // 与 YuvConverter 相同的映射：目标单元下标 = base + i * stepI + j * stepJ
+        int base = YuvConverter.transformBase(rotation, mirror, sw, sh);
+        int stepI = YuvConverter.transformStepI(rotation, mirror, sh);
+        int stepJ = YuvConverter.transformStepJ(rotation, mirror, sw);
+        int srcStep = scale * unit;
+        for (int tj = 0; tj < sh; tj += TILE) {
+            int jEnd = Math.min(tj + TILE, sh);
+            for (int ti = 0; ti < sw; ti += TILE) {
+                int iEnd = Math.min(ti + TILE, sw);
+                for (int j = tj; j < jEnd; j++) {
+                    int s = srcOffset + j * scale * srcStride + ti * srcStep;
+                    int d = base + ti * stepI + j * stepJ;
+                    if (unit == 1) {
+                        for (int i = ti; i < iEnd; i++) {
+                            dst[dstOffset + d] = src[s];
+                            s += srcStep;
+                            d += stepI;
+                        }
+                    } else {
+                        for (int i = ti; i < iEnd; i++) {
+                            int o = dstOffset + d * 2;
+                            dst[o] = src[s];
+                            dst[o + 1] = src[s + 1];
+                            s += srcStep;
+                            d += stepI;
+                        }
+                    }
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,165 @@
+package com.util;
+
+import java.util.Locale;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 帧处理流水线的统计：各阶段耗时直方图和收帧/丢帧/处理帧计数。
+ * 记录接口都是无锁的且不分配对象，可以直接放在热路径上；需要展示时定期取 {@link #snapshot()}。
+ */
+public class PipelineMetrics {
+
+    public static final int STAGE_DECODE = 0;
+    public static final int STAGE_ROTATE = 1;
+    public static final int STAGE_DETECT = 2;
+    public static final int STAGE_PUBLISH = 3;
+    /**
+     * 从收到相机帧到发布结果的端到端耗时。
+     */
+    public static final int STAGE_TOTAL = 4;
+    /**
+     * 两次检测之间的模板跟踪。
+     */
+    public static final int STAGE_TRACK = 5;
+    /**
+     * 从请求打开或重启相机到收到第一帧的耗时。
+     */
+    public static final int STAGE_RESTART = 6;
+    /**
+     * 为检测到的人脸生成识别用缩略图。
+     */
+    public static final int STAGE_THUMBNAIL = 7;
+
+    private static final String[] STAGE_NAMES = {"decode", "rotate", "detect", "publish", "total", "track", "restart",
+            "thumbnail"};
+
+    private final LatencyHistogram[] mStages = new LatencyHistogram[STAGE_NAMES.length];
+    private final AtomicLong mReceived = new AtomicLong();
+    private final AtomicLong mDropped = new AtomicLong();
+    private final AtomicLong mProcessed = new AtomicLong();
+
+    public PipelineMetrics() {
+        for (int i = 0; i < mStages.length; i++) {
+            mStages[i] = new LatencyHistogram();
+        }
+    }
+
+    public static String stageName(int stage) {
+        return STAGE_NAMES[stage];
+    }
+
+    public static int stageCount() {
+        return STAGE_NAMES.length;
+    }
+
+    public void recordStage(int stage, long nanos) {
+        mStages[stage].record(nanos);
+    }
+
+    public void onFrameReceived() {
+        mReceived.incrementAndGet();
+    }
+
+    /**
+     * 帧未经检测就被丢弃（限流、画面静止、被新帧覆盖或流水线已关闭）。
+     */
+    public void onFrameDropped() {
+        mDropped.incrementAndGet();
+    }
+
+    public void onFrameProcessed() {
+        mProcessed.incrementAndGet();
+    }
+
+    public long getReceivedCount() {
+        return mReceived.get();
+    }
+
+    public long getDroppedCount() {
+        return mDropped.get();
+    }
+
+    public long getProcessedCount() {
+        return mProcessed.get();
+    }
+
+    public Snapshot snapshot() {
+        LatencyHistogram.Snapshot[] stages = new LatencyHistogram.Snapshot[mStages.length];
+        for (int i = 0; i < stages.length; i++) {
+            stages[i] = mStages[i].snapshot();
+        }
+        return new Snapshot(System.nanoTime(), mReceived.get(), mDropped.get(), mProcessed.get(), stages);
+    }
+
+    public void reset() {
+        for (LatencyHistogram stage : mStages) {
+            stage.reset();
+        }
+        mReceived.set(0);
+        mDropped.set(0);
+        mProcessed.set(0);
+    }
+
+    public static class Snapshot {
+        private final long mTimeNanos;
+        private final long mReceived, mDropped, mProcessed;
+        private final LatencyHistogram.Snapshot[] mStages;
+
+        Snapshot(long timeNanos, long received, long dropped, long processed, LatencyHistogram.Snapshot[] stages) {
+            mTimeNanos = timeNanos;
+            mReceived = received;
+            mDropped = dropped;
+            mProcessed = processed;
+            mStages = stages;
+        }
+
+        public long getTimeNanos() {
+            return mTimeNanos;
+        }
+
+        public long getReceivedCount() {
+            return mReceived;
+        }
+
+        public long getDroppedCount() {
+            return mDropped;
+        }
+
+        public long getProcessedCount() {
+            return mProcessed;
+        }
+
+        public LatencyHistogram.Snapshot getStage(int stage) {
+            return mStages[stage];
+        }
+
+        /**
+         * 相对上一次快照的处理帧率。
+         */
+        public float processedPerSecond(Snapshot previous) {
+            long elapsed = mTimeNanos - previous.mTimeNanos;
+            return elapsed <= 0 ? 0 : (mProcessed - previous.mProcessed) * 1e9f / elapsed;
+        }
+
+        /**
+         * 一行一个阶段：样本数、平均、p95、最大（毫秒）。
+         */
+        @Override
+        public String toString() {
+            StringBuilder sb = new StringBuilder();
+            sb.append("received=").append(mReceived)
+                    .append(" dropped=").append(mDropped)
+                    .append(" processed=").append(mProcessed);
+            for (int i = 0; i < mStages.length; i++) {
+                LatencyHistogram.Snapshot stage = mStages[i];
+                if (stage.getCount() == 0) {
+                    continue;
+                }
+                sb.append('\n').append(String.format(Locale.US, "%s n=%d avg=%.1fms p95=%.1fms max=%.1fms",
+                        STAGE_NAMES[i], stage.getCount(),
+                        stage.getMeanNanos() / 1e6, stage.getPercentileNanos(0.95) / 1e6, stage.getMaxNanos() / 1e6));
+            }
+            return sb.toString();
+        }
+    }
+}
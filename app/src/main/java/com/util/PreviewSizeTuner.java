@@ -0,0 +1,226 @@
+package com.util;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 按检测耗时预算自动选择预览尺寸和亮度检测的缩小倍数。
+ * <p>
+ * 耗时模型为「检测耗时 = 每像素耗时 * 检测图像素数」。还没有每像素耗时时先用约 640x480、缩小 2 倍的
+ * 校准配置跑几帧，由实测耗时算出每像素耗时，再从支持的尺寸里挑：检测图上的最小人脸不小于检测器能识别的尺寸、
+ * 预计耗时不超过预算，满足两者的组合里取检测图上人脸最大的（同样大时取预览像素少的）。
+ * <p>
+ * 校准后继续用实测耗时的滑动平均跟踪每像素耗时，偏离超过 {@link #DRIFT} 时更新模型，
+ * {@link #addSample} 返回 true 提示调用方重新 {@link #select}。每像素耗时可以按机型缓存，下次直接 {@link #setCostPerPixel}。
+ * 检测线程和主线程都会调用，方法都加了锁。
+ */
+public class PreviewSizeTuner {
+
+    /**
+     * 候选的缩小倍数。
+     */
+    static final int[] SCALES = {1, 2, 4};
+    /**
+     * 校准配置的预览像素数和缩小倍数。
+     */
+    static final int CALIBRATION_PIXELS = 640 * 480;
+    static final int CALIBRATION_SCALE = 2;
+    /**
+     * 校准时先丢掉的样本数（检测器首次分配缓冲、JIT 等）。
+     */
+    static final int WARMUP_SAMPLES = 2;
+    /**
+     * 实测每像素耗时偏离模型的比例超过该值即重新调整。
+     */
+    static final float DRIFT = 0.3f;
+    private static final float SMOOTHING = 0.1f;
+
+    private final long mTargetNanos;
+    private final float mMinFaceFraction;
+    private final int mDetectorMinFace;
+    private int mCalibrationSamples = 8;
+
+    private float mCostPerPixel;
+    private boolean mCalibrated;
+    private int mSampleCount;
+    private long mSampleNanos, mSamplePixels;
+    private float mSmoothedCost;
+    private int mSinceTune;
+    private long mRetuneCount;
+
+    private int mWidth, mHeight, mScale = CALIBRATION_SCALE;
+
+    /**
+     * @param targetLatency   单帧检测耗时预算
+     * @param minFaceFraction 需要检出的最小人脸边长，占预览画面短边的比例
+     * @param detectorMinFace 检测器能识别的最小人脸边长（检测图像素）
+     */
+    public PreviewSizeTuner(long targetLatency, TimeUnit unit, float minFaceFraction, int detectorMinFace) {
+        if (targetLatency <= 0 || minFaceFraction <= 0 || detectorMinFace <= 0) {
+            throw new IllegalArgumentException("non-positive tuner parameter");
+        }
+        mTargetNanos = unit.toNanos(targetLatency);
+        mMinFaceFraction = minFaceFraction;
+        mDetectorMinFace = detectorMinFace;
+    }
+
+    /**
+     * 校准需要的有效样本数。
+     */
+    public synchronized void setCalibrationSamples(int samples) {
+        mCalibrationSamples = Math.max(1, samples);
+    }
+
+    /**
+     * 用缓存的每像素耗时跳过校准。
+     */
+    public synchronized void setCostPerPixel(float nanosPerPixel) {
+        if (nanosPerPixel <= 0) {
+            throw new IllegalArgumentException("nanosPerPixel <= 0: " + nanosPerPixel);
+        }
+        mCostPerPixel = nanosPerPixel;
+        mSmoothedCost = nanosPerPixel;
+        mCalibrated = true;
+        mSinceTune = 0;
+    }
+
+    public synchronized float getCostPerPixel() {
+        return mCostPerPixel;
+    }
+
+    public synchronized boolean isCalibrated() {
+        return mCalibrated;
+    }
+
+    /**
+     * 丢掉耗时模型，重新校准。检测后端切换时调用。
+     */
+    public synchronized void reset() {
+        mCalibrated = false;
+        mCostPerPixel = 0;
+        mSampleCount = 0;
+        mSampleNanos = 0;
+        mSamplePixels = 0;
+    }
+
+    /**
+     * 记录一次完整检测的耗时。
+     *
+     * @param pixels 检测图像素数
+     * @return 耗时模型有变化（校准完成或发生漂移），需要重新 select
+     */
+    public synchronized boolean addSample(int pixels, long nanos) {
+        if (pixels <= 0 || nanos <= 0) {
+            return false;
+        }
+        if (!mCalibrated) {
+            if (++mSampleCount <= WARMUP_SAMPLES) {
+                return false;
+            }
+            mSampleNanos += nanos;
+            mSamplePixels += pixels;
+            if (mSampleCount - WARMUP_SAMPLES < mCalibrationSamples) {
+                return false;
+            }
+            setCostPerPixel(mSampleNanos / (float) mSamplePixels);
+            return true;
+        }
+        mSmoothedCost += SMOOTHING * (nanos / (float) pixels - mSmoothedCost);
+        // 调整后至少攒够几轮样本再判断漂移，避免刚切换尺寸时来回跳
+        if (++mSinceTune < mCalibrationSamples * 4
+                || Math.abs(mSmoothedCost - mCostPerPixel) <= DRIFT * mCostPerPixel) {
+            return false;
+        }
+        mCostPerPixel = mSmoothedCost;
+        mSinceTune = 0;
+        mRetuneCount++;
+        return true;
+    }
+
+    /**
+     * 从支持的预览尺寸中选择，结果见 {@link #getWidth()} / {@link #getHeight()} / {@link #getScale()}。
+     * 未校准时选校准配置。
+     *
+     * @param sizes 依次为 width, height，见 {@link CameraSource#getPreviewSizes()}
+     * @return sizes 为空时返回 false
+     */
+    public synchronized boolean select(int[] sizes) {
+        if (sizes.length < 2) {
+            return false;
+        }
+        if (!mCalibrated) {
+            int best = 0;
+            for (int i = 2; i + 1 < sizes.length; i += 2) {
+                if (Math.abs(sizes[i] * sizes[i + 1] - CALIBRATION_PIXELS)
+                        < Math.abs(sizes[best] * sizes[best + 1] - CALIBRATION_PIXELS)) {
+                    best = i;
+                }
+            }
+            mWidth = sizes[best];
+            mHeight = sizes[best + 1];
+            mScale = CALIBRATION_SCALE;
+            return true;
+        }
+        // 依次为：都满足、只满足人脸尺寸、只满足预算、都不满足时的最佳候选
+        int[] best = new int[4];
+        float[] bestValue = new float[4];
+        long[] bestPixels = new long[4];
+        for (int k = 0; k < best.length; k++) {
+            best[k] = -1;
+        }
+        for (int i = 0; i + 1 < sizes.length; i += 2) {
+            int width = sizes[i], height = sizes[i + 1];
+            for (int s = 0; s < SCALES.length; s++) {
+                int scale = SCALES[s];
+                float face = mMinFaceFraction * Math.min(width, height) / scale;
+                float predicted = predictNanos(width, height, scale);
+                boolean faceOk = face >= mDetectorMinFace;
+                boolean budgetOk = predicted <= mTargetNanos;
+                int k = faceOk ? (budgetOk ? 0 : 1) : (budgetOk ? 2 : 3);
+                // 都满足或只满足预算时要人脸大，否则要耗时少
+                float value = k == 0 || k == 2 ? face : -predicted;
+                long pixels = (long) width * height;
+                if (best[k] < 0 || value > bestValue[k] || value == bestValue[k] && pixels < bestPixels[k]) {
+                    best[k] = i * SCALES.length + s;
+                    bestValue[k] = value;
+                    bestPixels[k] = pixels;
+                }
+            }
+        }
+        for (int k = 0; k < best.length; k++) {
+            if (best[k] >= 0) {
+                int i = best[k] / SCALES.length;
+                mWidth = sizes[i];
+                mHeight = sizes[i + 1];
+                mScale = SCALES[best[k] % SCALES.length];
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * 按当前模型预计的检测耗时（纳秒），未校准时返回 0。
+     */
+    public synchronized float predictNanos(int width, int height, int scale) {
+        return mCostPerPixel * YuvConverter.scaledWidth(width, scale) * YuvConverter.scaledHeight(height, scale);
+    }
+
+    public synchronized int getWidth() {
+        return mWidth;
+    }
+
+    public synchronized int getHeight() {
+        return mHeight;
+    }
+
+    public synchronized int getScale() {
+        return mScale;
+    }
+
+    /**
+     * 校准后因耗时漂移而重新调整的次数。
+     */
+    public synchronized long getRetuneCount() {
+        return mRetuneCount;
+    }
+}
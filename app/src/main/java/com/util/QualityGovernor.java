@@ -0,0 +1,338 @@
+package com.util;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 按负载在一组质量档位之间自动升降：长时间运行后设备发热降频，检测耗时翻倍时逐档降低检测分辨率、
+ * 处理帧率和完整检测的频率（其余帧靠跟踪），负载恢复后再逐档升回去。
+ * <p>
+ * 发布阶段每帧 {@link #addSample} 记一次端到端耗时和排队深度，调用方定期 {@link #evaluate}：
+ * 窗口内平均耗时超过目标、平均排队超过上限或温度过高算过载，耗时低于目标的 {@link #setRecoverRatio recoverRatio}
+ * 且不排队、温度正常才算空闲。连续 {@link #setHysteresis downWindows} 个窗口过载降一档，
+ * 连续 upWindows 个窗口空闲升一档，每次切换后重新计数，避免来回振荡。没有样本的窗口（例如画面静止）不计入。
+ * 温度偏高时只禁止升档。最近的切换记录在构造时分配的环里，见 {@link #getTransition}。
+ * 检测线程和主线程都会调用，方法都加了锁。
+ */
+public class QualityGovernor {
+
+    public static final int THERMAL_UNKNOWN = -1;
+    public static final int THERMAL_NONE = 0;
+    /**
+     * 温度偏高：不再升档。
+     */
+    public static final int THERMAL_WARM = 1;
+    /**
+     * 温度过高：按过载处理。
+     */
+    public static final int THERMAL_HOT = 2;
+
+    public static final int REASON_LATENCY = 0;
+    public static final int REASON_QUEUE = 1;
+    public static final int REASON_THERMAL = 2;
+    public static final int REASON_RECOVERED = 3;
+    private static final String[] REASON_NAMES = {"latency", "queue", "thermal", "recovered"};
+
+    /**
+     * 一个质量档位，档位越靠后越省。
+     */
+    public static class Level {
+        private final int mScale;
+        private final long mMinIntervalNanos;
+        private final long mRedetectIntervalNanos;
+
+        /**
+         * @param scale            检测图在原有缩小倍数上再缩小的倍数
+         * @param minInterval      帧调度的最小放行间隔，即处理速率上限
+         * @param redetectInterval 跟踪时强制完整检测的间隔
+         */
+        public Level(int scale, long minInterval, long redetectInterval, TimeUnit unit) {
+            if (scale < 1 || minInterval < 0 || redetectInterval < 0) {
+                throw new IllegalArgumentException("scale=" + scale + ",minInterval=" + minInterval
+                        + ",redetectInterval=" + redetectInterval);
+            }
+            mScale = scale;
+            mMinIntervalNanos = unit.toNanos(minInterval);
+            mRedetectIntervalNanos = unit.toNanos(redetectInterval);
+        }
+
+        public int getScale() {
+            return mScale;
+        }
+
+        public long getMinIntervalNanos() {
+            return mMinIntervalNanos;
+        }
+
+        public long getRedetectIntervalNanos() {
+            return mRedetectIntervalNanos;
+        }
+
+        @Override
+        public String toString() {
+            return "x" + mScale + "/" + mMinIntervalNanos / 1000000 + "ms/" + mRedetectIntervalNanos / 1000000 + "ms";
+        }
+    }
+
+    /**
+     * 一次档位切换，由读取方分配并复用。
+     */
+    public static class Transition {
+        private long mTimeNanos;
+        private int mFrom, mTo, mReason;
+        private long mLatencyNanos;
+        private int mThermal;
+
+        public long getTimeNanos() {
+            return mTimeNanos;
+        }
+
+        public int getFrom() {
+            return mFrom;
+        }
+
+        public int getTo() {
+            return mTo;
+        }
+
+        /**
+         * REASON_* 之一。
+         */
+        public int getReason() {
+            return mReason;
+        }
+
+        /**
+         * 触发切换的窗口平均耗时。
+         */
+        public long getLatencyNanos() {
+            return mLatencyNanos;
+        }
+
+        public int getThermal() {
+            return mThermal;
+        }
+
+        void set(Transition other) {
+            mTimeNanos = other.mTimeNanos;
+            mFrom = other.mFrom;
+            mTo = other.mTo;
+            mReason = other.mReason;
+            mLatencyNanos = other.mLatencyNanos;
+            mThermal = other.mThermal;
+        }
+
+        @Override
+        public String toString() {
+            return mFrom + "->" + mTo + "(" + reasonName(mReason) + "," + mLatencyNanos / 1000000 + "ms)";
+        }
+    }
+
+    private final Level[] mLadder;
+    private final long mTargetNanos;
+    private final Transition[] mHistory;
+    // 已记录的切换总数，最新一条在 (mTransitionCount - 1) % capacity
+    private long mTransitionCount;
+
+    private int mDownWindows = 2, mUpWindows = 5;
+    private float mRecoverRatio = 0.6f;
+    private float mQueueLimit = 0.5f;
+
+    private int mLevel;
+    private int mOverloaded, mIdle;
+    // 当前窗口
+    private long mWindowNanos;
+    private long mWindowQueue;
+    private int mWindowSamples;
+    // 上一个窗口的结果
+    private long mLastLatencyNanos;
+    private float mLastQueue;
+    private int mThermal = THERMAL_UNKNOWN;
+    private long mDownCount, mUpCount;
+
+    /**
+     * @param ladder        质量档位，第 0 档质量最高
+     * @param targetLatency 端到端耗时目标
+     * @param historySize   保留的切换记录条数
+     */
+    public QualityGovernor(Level[] ladder, long targetLatency, TimeUnit unit, int historySize) {
+        if (ladder.length == 0 || targetLatency <= 0 || historySize <= 0) {
+            throw new IllegalArgumentException("levels=" + ladder.length + ",targetLatency=" + targetLatency
+                    + ",historySize=" + historySize);
+        }
+        mLadder = ladder.clone();
+        mTargetNanos = unit.toNanos(targetLatency);
+        mHistory = new Transition[historySize];
+        for (int i = 0; i < historySize; i++) {
+            mHistory[i] = new Transition();
+        }
+    }
+
+    public static String reasonName(int reason) {
+        return REASON_NAMES[reason];
+    }
+
+    /**
+     * 连续多少个窗口过载降一档（默认 2）、空闲升一档（默认 5）。
+     */
+    public synchronized void setHysteresis(int downWindows, int upWindows) {
+        mDownWindows = Math.max(1, downWindows);
+        mUpWindows = Math.max(1, upWindows);
+    }
+
+    /**
+     * 平均耗时低于目标的多少倍才算空闲，默认 0.6。
+     */
+    public synchronized void setRecoverRatio(float ratio) {
+        if (ratio <= 0 || ratio > 1) {
+            throw new IllegalArgumentException("ratio=" + ratio);
+        }
+        mRecoverRatio = ratio;
+    }
+
+    /**
+     * 窗口内平均排队帧数超过该值算过载，默认 0.5。
+     */
+    public synchronized void setQueueLimit(float limit) {
+        mQueueLimit = limit;
+    }
+
+    /**
+     * 每处理完一帧调用一次。
+     *
+     * @param latencyNanos 从收到帧到发布结果的耗时
+     * @param queueDepth   此时等待检测线程的帧数
+     */
+    public synchronized void addSample(long latencyNanos, int queueDepth) {
+        mWindowNanos += latencyNanos;
+        mWindowQueue += queueDepth;
+        mWindowSamples++;
+    }
+
+    /**
+     * 结束当前窗口，按窗口内的样本和温度决定是否切换档位。
+     *
+     * @param thermal THERMAL_* 之一，拿不到温度时传 {@link #THERMAL_UNKNOWN}
+     * @return 档位发生了切换
+     */
+    public synchronized boolean evaluate(long nowNanos, int thermal) {
+        mThermal = thermal;
+        int samples = mWindowSamples;
+        long latency = samples > 0 ? mWindowNanos / samples : 0;
+        float queue = samples > 0 ? (float) mWindowQueue / samples : 0;
+        mWindowNanos = 0;
+        mWindowQueue = 0;
+        mWindowSamples = 0;
+        if (samples > 0) {
+            mLastLatencyNanos = latency;
+            mLastQueue = queue;
+        }
+        int reason = -1;
+        if (thermal >= THERMAL_HOT) {
+            reason = REASON_THERMAL;
+        } else if (samples > 0 && latency > mTargetNanos) {
+            reason = REASON_LATENCY;
+        } else if (samples > 0 && queue > mQueueLimit) {
+            reason = REASON_QUEUE;
+        }
+        if (reason >= 0) {
+            mIdle = 0;
+            if (++mOverloaded >= mDownWindows && mLevel < mLadder.length - 1) {
+                change(nowNanos, mLevel + 1, reason, latency, thermal);
+                mDownCount++;
+                return true;
+            }
+            return false;
+        }
+        if (samples == 0) {
+            return false;
+        }
+        mOverloaded = 0;
+        if (thermal >= THERMAL_WARM || latency >= mTargetNanos * mRecoverRatio || queue > 0) {
+            mIdle = 0;
+            return false;
+        }
+        if (++mIdle >= mUpWindows && mLevel > 0) {
+            change(nowNanos, mLevel - 1, REASON_RECOVERED, latency, thermal);
+            mUpCount++;
+            return true;
+        }
+        return false;
+    }
+
+    private void change(long nowNanos, int level, int reason, long latency, int thermal) {
+        Transition t = mHistory[(int) (mTransitionCount++ % mHistory.length)];
+        t.mTimeNanos = nowNanos;
+        t.mFrom = mLevel;
+        t.mTo = level;
+        t.mReason = reason;
+        t.mLatencyNanos = latency;
+        t.mThermal = thermal;
+        mLevel = level;
+        mOverloaded = 0;
+        mIdle = 0;
+    }
+
+    /**
+     * 回到第 0 档并清空窗口和计数，切换记录保留。
+     */
+    public synchronized void reset() {
+        mLevel = 0;
+        mOverloaded = 0;
+        mIdle = 0;
+        mWindowNanos = 0;
+        mWindowQueue = 0;
+        mWindowSamples = 0;
+    }
+
+    public synchronized int getLevelIndex() {
+        return mLevel;
+    }
+
+    public synchronized Level getLevel() {
+        return mLadder[mLevel];
+    }
+
+    public int getLevelCount() {
+        return mLadder.length;
+    }
+
+    /**
+     * 最近一个有样本的窗口的平均耗时。
+     */
+    public synchronized long getLatencyNanos() {
+        return mLastLatencyNanos;
+    }
+
+    public synchronized float getQueueDepth() {
+        return mLastQueue;
+    }
+
+    public synchronized int getThermal() {
+        return mThermal;
+    }
+
+    public synchronized long getTransitionCount() {
+        return mTransitionCount;
+    }
+
+    public synchronized long getDownCount() {
+        return mDownCount;
+    }
+
+    public synchronized long getUpCount() {
+        return mUpCount;
+    }
+
+    /**
+     * 拷贝往前数第 age 次切换，0 为最近一次。
+     *
+     * @return 该条已被覆盖或还不存在时返回 false
+     */
+    public synchronized boolean getTransition(int age, Transition dst) {
+        if (age < 0 || age >= mHistory.length || age >= mTransitionCount) {
+            return false;
+        }
+        dst.set(mHistory[(int) ((mTransitionCount - 1 - age) % mHistory.length)]);
+        return true;
+    }
+}
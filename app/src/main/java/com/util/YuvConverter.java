@@ -0,0 +1,182 @@
+package com.util;
+
+/**
+ * NV21 直接转 RGB_565，不再经过 YuvImage -> JPEG -> BitmapFactory 的来回编解码。
+ * <p>
+ * 采用 BT.601 定点运算（10 位小数），缩放、旋转和镜像在同一次遍历中完成，
+ * 结果写入调用方复用的 short[]，不产生任何临时对象。纯 Java 实现，可直接在 JVM 上测试。
+ */
+public final class YuvConverter {
+
+    /**
+     * 亮度到灰度 565 的查表，R/G/B 三个分量取同一亮度。
+     */
+    private static final short[] GRAY_565 = new short[256];
+
+    static {
+        for (int y = 0; y < 256; y++) {
+            GRAY_565[y] = (short) (((y >> 3) << 11) | ((y >> 2) << 5) | (y >> 3));
+        }
+    }
+
+    private YuvConverter() {
+        //no instance
+    }
+
+    /**
+     * 缩放后、旋转前的宽度。FaceDetector 要求宽度为偶数，这里统一向下取偶。
+     */
+    public static int scaledWidth(int width, int scale) {
+        return (width / scale) & ~1;
+    }
+
+    public static int scaledHeight(int height, int scale) {
+        return (height / scale) & ~1;
+    }
+
+    /**
+     * 输出图像宽度（已考虑旋转）。
+     */
+    public static int outputWidth(int width, int height, int scale, int rotation) {
+        return isTransposed(rotation) ? scaledHeight(height, scale) : scaledWidth(width, scale);
+    }
+
+    /**
+     * 输出图像高度（已考虑旋转）。
+     */
+    public static int outputHeight(int width, int height, int scale, int rotation) {
+        return isTransposed(rotation) ? scaledWidth(width, scale) : scaledHeight(height, scale);
+    }
+
+    static boolean isTransposed(int rotation) {
+        return rotation == 90 || rotation == 270;
+    }
+
+    /**
+     * @param nv21     相机预览数据，长度至少 width * height * 3 / 2
+     * @param width    预览宽度
+     * @param height   预览高度
+     * @param scale    整数缩小倍数，1 表示原图，2 表示宽高各取一半（隔点采样）
+     * @param rotation 顺时针旋转角度，只支持 0/90/180/270
+     * @param out      输出像素，长度至少 outputWidth * outputHeight，可跨帧复用
+     */
+    public static void nv21ToRgb565(byte[] nv21, int width, int height, int scale, int rotation, short[] out) {
+        nv21ToRgb565(nv21, width, height, scale, rotation, false, out);
+    }
+
+    /**
+     * 同上，mirror 为 true 时在旋转后再做水平镜像。
+     */
+    public static void nv21ToRgb565(byte[] nv21, int width, int height, int scale, int rotation, boolean mirror, short[] out) {
+        if (scale < 1) {
+            throw new IllegalArgumentException("scale must be >= 1: " + scale);
+        }
+        int sw = scaledWidth(width, scale);
+        int sh = scaledHeight(height, scale);
+        if (nv21.length < width * height * 3 / 2) {
+            throw new IllegalArgumentException("nv21 buffer too small");
+        }
+        if (out.length < sw * sh) {
+            throw new IllegalArgumentException("output buffer too small");
+        }
+        // 目标下标 = base + i * stepI + j * stepJ，i/j 为缩放后的源坐标
+        int base = transformBase(rotation, mirror, sw, sh);
+        int stepI = transformStepI(rotation, mirror, sh);
+        int stepJ = transformStepJ(rotation, mirror, sw);
+        int frameSize = width * height;
+        for (int j = 0; j < sh; j++) {
+            int sy = j * scale;
+            int yRow = sy * width;
+            int uvRow = frameSize + (sy >> 1) * width;
+            int dst = base + j * stepJ;
+            for (int i = 0; i < sw; i++) {
+                int sx = i * scale;
+                int y = (nv21[yRow + sx] & 0xff) - 16;
+                if (y < 0) {
+                    y = 0;
+                }
+                int uvIndex = uvRow + (sx & ~1);
+                int v = (nv21[uvIndex] & 0xff) - 128;
+                int u = (nv21[uvIndex + 1] & 0xff) - 128;
+                out[dst] = pack565(y, u, v);
+                dst += stepI;
+            }
+        }
+    }
+
+    /**
+     * 亮度平面转灰度 RGB_565，FaceDetector 只需要亮度信息，配合 {@link Nv21Rotator#rotateLuma}
+     * 先缩小旋转再转换，像素数只有原图的 1/scale²。
+     *
+     * @param out 长度至少 width * height
+     */
+    public static void lumaToRgb565(byte[] luma, int width, int height, short[] out) {
+        int size = width * height;
+        if (luma.length < size || out.length < size) {
+            throw new IllegalArgumentException("buffer too small");
+        }
+        for (int i = 0; i < size; i++) {
+            out[i] = GRAY_565[luma[i] & 0xff];
+        }
+    }
+
+    /**
+     * 旋转/镜像的下标映射：源坐标 (i, j) 写到目标下标 base + i * stepI + j * stepJ，
+     * sw/sh 为源平面的宽高。{@link Nv21Rotator} 也使用同一套映射。
+     */
+    static int transformBase(int rotation, boolean mirror, int sw, int sh) {
+        switch (rotation) {
+            case 0:
+                return mirror ? sw - 1 : 0;
+            case 90:
+                return mirror ? 0 : sh - 1;
+            case 180:
+                return mirror ? (sh - 1) * sw : sw * sh - 1;
+            case 270:
+                return mirror ? sw * sh - 1 : (sw - 1) * sh;
+            default:
+                throw new IllegalArgumentException("unsupported rotation: " + rotation);
+        }
+    }
+
+    static int transformStepI(int rotation, boolean mirror, int sh) {
+        switch (rotation) {
+            case 0:
+                return mirror ? -1 : 1;
+            case 90:
+                return sh;
+            case 180:
+                return mirror ? 1 : -1;
+            default:
+                return -sh;
+        }
+    }
+
+    static int transformStepJ(int rotation, boolean mirror, int sw) {
+        switch (rotation) {
+            case 0:
+                return sw;
+            case 90:
+                return mirror ? 1 : -1;
+            case 180:
+                return -sw;
+            default:
+                return mirror ? -1 : 1;
+        }
+    }
+
+    /**
+     * 单个像素的定点转换，y 已减去 16，u/v 已减去 128。
+     */
+    static short pack565(int y, int u, int v) {
+        int y1192 = 1192 * y;
+        int r = y1192 + 1634 * v;
+        int g = y1192 - 833 * v - 400 * u;
+        int b = y1192 + 2066 * u;
+        if (r < 0) r = 0; else if (r > 262143) r = 262143;
+        if (g < 0) g = 0; else if (g > 262143) g = 262143;
+        if (b < 0) b = 0; else if (b > 262143) b = 262143;
+        // 262143 = 255 << 10 | 0x3ff，右移 10 位得到 8 位分量，再截成 5/6/5
+        return (short) (((r >> 13) << 11) | ((g >> 12) << 5) | (b >> 13));
+    }
+}
@@ -0,0 +1,125 @@
+package com.util;
+
+import org.junit.Test;
+
+import java.nio.ByteBuffer;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.*;
+
+public class CameraFrameTest {
+
+    private static final int WIDTH = 8, HEIGHT = 4;
+
+    /**
+     * Y 为 y * 16 + x，U 为 100 + 下标，V 为 200 + 下标，方便核对布局。
+     */
+    private static ByteBuffer lumaPlane(int rowStride) {
+        // 最后一行没有填充，和 ImageReader 的实际布局一致
+        ByteBuffer y = ByteBuffer.allocateDirect(rowStride * (HEIGHT - 1) + WIDTH);
+        for (int row = 0; row < HEIGHT; row++) {
+            for (int x = 0; x < WIDTH; x++) {
+                y.put(row * rowStride + x, (byte) (row * 16 + x));
+            }
+        }
+        return y;
+    }
+
+    private static byte[] expectedNv21() {
+        byte[] nv21 = new byte[WIDTH * HEIGHT * 3 / 2];
+        for (int i = 0; i < WIDTH * HEIGHT; i++) {
+            nv21[i] = (byte) ((i / WIDTH) * 16 + i % WIDTH);
+        }
+        for (int i = 0; i < WIDTH * HEIGHT / 4; i++) {
+            nv21[WIDTH * HEIGHT + i * 2] = (byte) (200 + i);
+            nv21[WIDTH * HEIGHT + i * 2 + 1] = (byte) (100 + i);
+        }
+        return nv21;
+    }
+
+    @Test
+    public void copiesPaddedLumaRows() throws Exception {
+        ByteBuffer u = ByteBuffer.allocateDirect(WIDTH * HEIGHT / 4);
+        CameraFrame frame = CameraFrame.fromPlanes(WIDTH, HEIGHT, 0, lumaPlane(12), 12, u, u, 4, 1, null, null);
+        byte[] luma = new byte[WIDTH * HEIGHT];
+        frame.copyLuma(luma);
+        byte[] expected = expectedNv21();
+        for (int i = 0; i < luma.length; i++) {
+            assertEquals(expected[i], luma[i]);
+        }
+        assertEquals(3 * 16 + 5, frame.getLuma(5, 3));
+    }
+
+    @Test
+    public void gathersPlanarChroma() throws Exception {
+        // I420 式的独立 U、V 平面，像素跨度 1
+        ByteBuffer u = ByteBuffer.allocateDirect(WIDTH / 2 * HEIGHT / 2);
+        ByteBuffer v = ByteBuffer.allocateDirect(WIDTH / 2 * HEIGHT / 2);
+        for (int i = 0; i < u.capacity(); i++) {
+            u.put(i, (byte) (100 + i));
+            v.put(i, (byte) (200 + i));
+        }
+        CameraFrame frame = CameraFrame.fromPlanes(WIDTH, HEIGHT, 0, lumaPlane(WIDTH), WIDTH, u, v, WIDTH / 2, 1,
+                null, null);
+        byte[] nv21 = new byte[WIDTH * HEIGHT * 3 / 2];
+        frame.copyNv21(nv21);
+        assertArrayEquals(expectedNv21(), nv21);
+    }
+
+    @Test
+    public void gathersInterleavedChroma() throws Exception {
+        // 半平面布局：U、V 两个平面共享一块 UVUV... 内存，像素跨度 2，行跨度带填充
+        int rowStride = 10;
+        ByteBuffer uv = ByteBuffer.allocateDirect(rowStride * HEIGHT / 2);
+        for (int row = 0; row < HEIGHT / 2; row++) {
+            for (int col = 0; col < WIDTH / 2; col++) {
+                int i = row * WIDTH / 2 + col;
+                uv.put(row * rowStride + col * 2, (byte) (100 + i));
+                uv.put(row * rowStride + col * 2 + 1, (byte) (200 + i));
+            }
+        }
+        uv.position(1);
+        ByteBuffer v = uv.slice();
+        uv.position(0);
+        CameraFrame frame = CameraFrame.fromPlanes(WIDTH, HEIGHT, 0, lumaPlane(WIDTH), WIDTH, uv, v, rowStride, 2,
+                null, null);
+        byte[] nv21 = new byte[WIDTH * HEIGHT * 3 / 2];
+        frame.copyNv21(nv21);
+        assertArrayEquals(expectedNv21(), nv21);
+    }
+
+    @Test
+    public void wrapsNv21WithoutCopy() throws Exception {
+        byte[] data = expectedNv21();
+        CameraFrame frame = CameraFrame.fromNv21(data, WIDTH, HEIGHT, 7, null, null);
+        assertSame(data, frame.nv21Array());
+        assertEquals(7, frame.getTimestamp());
+        byte[] nv21 = new byte[data.length];
+        frame.copyNv21(nv21);
+        assertArrayEquals(data, nv21);
+    }
+
+    @Test
+    public void releasesOnce() throws Exception {
+        final AtomicInteger released = new AtomicInteger();
+        Object tag = new Object();
+        CameraFrame frame = CameraFrame.fromNv21(new byte[WIDTH * HEIGHT * 3 / 2], WIDTH, HEIGHT, 0, tag,
+                new CameraFrame.Releaser() {
+                    @Override
+                    public void release(CameraFrame frame) {
+                        released.incrementAndGet();
+                    }
+                });
+        assertSame(tag, frame.getTag());
+        assertFalse(frame.isReleased());
+        frame.release();
+        frame.release();
+        assertTrue(frame.isReleased());
+        assertEquals(1, released.get());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void rejectsShortBuffer() throws Exception {
+        CameraFrame.fromNv21(new byte[WIDTH * HEIGHT], WIDTH, HEIGHT, 0, null, null);
+    }
+}
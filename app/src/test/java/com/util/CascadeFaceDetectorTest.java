@@ -0,0 +1,94 @@
+package com.util;
+
+import org.junit.Test;
+
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+public class CascadeFaceDetectorTest {
+
+    private static final int WIDTH = 160, HEIGHT = 120;
+
+    private static byte[] noise(long seed) {
+        byte[] luma = new byte[WIDTH * HEIGHT];
+        Random random = new Random(seed);
+        for (int i = 0; i < luma.length; i++) {
+            luma[i] = (byte) (90 + random.nextInt(40));
+        }
+        return luma;
+    }
+
+    private static void fill(byte[] luma, int x, int y, int w, int h, int value) {
+        for (int j = y; j < y + h; j++) {
+            for (int i = x; i < x + w; i++) {
+                luma[j * WIDTH + i] = (byte) value;
+            }
+        }
+    }
+
+    /**
+     * 按 24x24 窗口布局放大 scale 倍画一张简化的人脸：亮色脸、暗色双眼和嘴。
+     */
+    private static void drawFace(byte[] luma, int left, int top, int scale) {
+        fill(luma, left, top, 24 * scale, 24 * scale, 190);
+        fill(luma, left + 4 * scale, top + 6 * scale, 6 * scale, 5 * scale, 50);
+        fill(luma, left + 14 * scale, top + 6 * scale, 6 * scale, 5 * scale, 50);
+        fill(luma, left + 8 * scale, top + 17 * scale, 8 * scale, 3 * scale, 70);
+    }
+
+    @Test
+    public void findsSyntheticFace() throws Exception {
+        byte[] luma = noise(1);
+        drawFace(luma, 60, 30, 2);
+        CascadeFaceDetector detector = new CascadeFaceDetector();
+        FaceBox[] out = FaceBox.newArray(4);
+        int count = detector.detect(luma, WIDTH, HEIGHT, out);
+        assertEquals(1, count);
+        // 眼睛中点 (60 + 24, 30 + 17)，眼距 20
+        assertEquals(84, out[0].getMidX(), 4);
+        assertEquals(47, out[0].getMidY(), 4);
+        assertEquals(20, out[0].getEyesDistance(), 4);
+        assertTrue(out[0].getConfidence() > 0);
+    }
+
+    @Test
+    public void rejectsNoiseAndFlatFrames() throws Exception {
+        CascadeFaceDetector detector = new CascadeFaceDetector();
+        FaceBox[] out = FaceBox.newArray(4);
+        assertEquals(0, detector.detect(noise(2), WIDTH, HEIGHT, out));
+        assertEquals(0, detector.detect(new byte[WIDTH * HEIGHT], WIDTH, HEIGHT, out));
+    }
+
+    @Test
+    public void minSizeSkipsSmallFaces() throws Exception {
+        byte[] luma = noise(3);
+        drawFace(luma, 10, 10, 1);
+        drawFace(luma, 60, 30, 3);
+        CascadeFaceDetector detector = new CascadeFaceDetector();
+        FaceBox[] out = FaceBox.newArray(4);
+        assertEquals(2, detector.detect(luma, WIDTH, HEIGHT, out));
+        detector.setMinSize(48);
+        assertEquals(1, detector.detect(luma, WIDTH, HEIGHT, out));
+        assertEquals(96, out[0].getMidX(), 6);
+    }
+
+    @Test
+    public void integralImageSumsRectangles() throws Exception {
+        byte[] luma = noise(4);
+        IntegralImage integral = new IntegralImage();
+        integral.compute(luma, WIDTH, HEIGHT);
+        int sum = 0;
+        long squared = 0;
+        for (int y = 7; y < 7 + 13; y++) {
+            for (int x = 5; x < 5 + 11; x++) {
+                int v = luma[y * WIDTH + x] & 0xff;
+                sum += v;
+                squared += v * v;
+            }
+        }
+        assertEquals(sum, integral.sum(5, 7, 11, 13));
+        assertEquals(squared, integral.squaredSum(5, 7, 11, 13));
+        assertEquals(luma[0] & 0xff, integral.sum(0, 0, 1, 1));
+    }
+}
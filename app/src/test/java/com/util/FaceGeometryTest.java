@@ -0,0 +1,72 @@
+package com.util;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class FaceGeometryTest {
+
+    @Test
+    public void faceRectIsCenteredBelowEyes() throws Exception {
+        int[] out = new int[4];
+        FaceGeometry.faceRect(100, 100, 20, 640, 480, out);
+        assertArrayEquals(new int[]{80, 90, 120, 130}, out);
+    }
+
+    @Test
+    public void faceRectIsClampedToFrame() throws Exception {
+        int[] out = new int[4];
+        FaceGeometry.faceRect(5, 470, 20, 640, 480, out);
+        assertArrayEquals(new int[]{0, 460, 25, 480}, out);
+    }
+
+    @Test
+    public void cropCopiesRows() throws Exception {
+        short[] src = new short[4 * 3];
+        for (int i = 0; i < src.length; i++) {
+            src[i] = (short) i;
+        }
+        short[] dst = new short[4];
+        FaceGeometry.crop(src, 4, 1, 1, 2, 2, dst);
+        assertArrayEquals(new short[]{5, 6, 9, 10}, dst);
+    }
+
+    @Test
+    public void roiWindowIsAlignedAndShiftedIntoFrame() throws Exception {
+        int[] out = new int[4];
+        // 20 * 6 = 120，对齐到 128
+        assertTrue(FaceGeometry.roiWindow(320, 240, 20, 6, 640, 480, out));
+        assertArrayEquals(new int[]{256, 176, 128, 128}, out);
+        assertTrue(FaceGeometry.roiWindow(10, 470, 20, 6, 640, 480, out));
+        assertArrayEquals(new int[]{0, 352, 128, 128}, out);
+    }
+
+    @Test
+    public void roiWindowRejectsLargeFaces() throws Exception {
+        int[] out = new int[4];
+        assertFalse(FaceGeometry.roiWindow(160, 120, 40, 6, 320, 240, out));
+    }
+
+    @Test
+    public void iouOfOverlappingRects() throws Exception {
+        assertEquals(1f, FaceGeometry.iou(0, 0, 10, 10, 0, 0, 10, 10), 1e-6f);
+        assertEquals(50f / 150, FaceGeometry.iou(0, 0, 10, 10, 5, 0, 15, 10), 1e-6f);
+        assertEquals(0f, FaceGeometry.iou(0, 0, 10, 10, 10, 0, 20, 10), 0f);
+    }
+
+    @Test
+    public void suppressesOverlapsKeepingMostConfident() throws Exception {
+        FaceBox[] boxes = {
+                new FaceBox().set(100, 100, 20, 0.5f),
+                new FaceBox().set(104, 102, 22, 0.9f),
+                new FaceBox().set(300, 100, 20, 0.4f),
+                new FaceBox().set(200, 100, 20, 0.7f)};
+        FaceBox weak = boxes[0];
+        assertEquals(3, FaceGeometry.suppressOverlaps(boxes, 4, 0.3f));
+        assertEquals(0.9f, boxes[0].getConfidence(), 0);
+        assertEquals(0.7f, boxes[1].getConfidence(), 0);
+        assertEquals(0.4f, boxes[2].getConfidence(), 0);
+        // 被抑制的对象留在数组后面，仍可复用
+        assertSame(weak, boxes[3]);
+    }
+}
@@ -0,0 +1,62 @@
+package com.util;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class FaceIdAssignerTest {
+
+    @Test
+    public void keepsIdsWhileFacesMove() throws Exception {
+        FaceIdAssigner assigner = new FaceIdAssigner(4);
+        int[] ids = new int[4];
+        assertEquals(2, assigner.assign(new int[]{0, 0, 100, 100, 200, 0, 300, 100}, 2, ids));
+        assertEquals(1, ids[0]);
+        assertEquals(2, ids[1]);
+        // 顺序颠倒、位置小幅移动，编号跟着人走
+        assigner.assign(new int[]{210, 5, 310, 105, 10, 5, 110, 105}, 2, ids);
+        assertEquals(2, ids[0]);
+        assertEquals(1, ids[1]);
+        // 新来一个人
+        assigner.assign(new int[]{20, 10, 120, 110, 500, 0, 600, 100, 220, 10, 320, 110}, 3, ids);
+        assertArrayEquals(new int[]{1, 3, 2}, new int[]{ids[0], ids[1], ids[2]});
+        assertEquals(3, assigner.getCreatedCount());
+        assertEquals(4, assigner.getMatchedCount());
+    }
+
+    @Test
+    public void toleratesShortMissesThenExpires() throws Exception {
+        FaceIdAssigner assigner = new FaceIdAssigner(2);
+        assigner.setMaxMissed(2);
+        int[] face = {0, 0, 100, 100};
+        int[] ids = new int[2];
+        assigner.assign(face, 1, ids);
+        assigner.assign(face, 0, ids);
+        assigner.assign(face, 0, ids);
+        assigner.assign(face, 1, ids);
+        assertEquals(1, ids[0]);
+        for (int i = 0; i < 3; i++) {
+            assigner.assign(face, 0, ids);
+        }
+        assertEquals(0, assigner.getTrackCount());
+        assertEquals(1, assigner.getExpiredCount());
+        assigner.assign(face, 1, ids);
+        assertEquals(2, ids[0]);
+    }
+
+    @Test
+    public void limitsFacesAndTracks() throws Exception {
+        FaceIdAssigner assigner = new FaceIdAssigner(1);
+        int[] ids = new int[1];
+        // 超过 maxFaces 的人脸不分配
+        assertEquals(1, assigner.assign(new int[]{0, 0, 10, 10, 50, 50, 60, 60}, 2, ids));
+        // 轨迹占满时挤掉漏检最久的
+        assigner.assign(new int[]{100, 100, 110, 110}, 1, ids);
+        assigner.assign(new int[]{200, 200, 210, 210}, 1, ids);
+        assertEquals(3, ids[0]);
+        assertEquals(2, assigner.getTrackCount());
+        assigner.reset();
+        assigner.assign(new int[]{200, 200, 210, 210}, 1, ids);
+        assertEquals(4, ids[0]);
+    }
+}
@@ -0,0 +1,82 @@
+package com.util;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class FaceResultStoreTest {
+
+    private static final int[] FACE = {10, 20, 50, 60};
+    private static final int[] NONE = new int[0];
+
+    @Test
+    public void keepsLatestResultsInRing() throws Exception {
+        FaceResultStore store = new FaceResultStore(2, 1);
+        FaceResultStore.Result result = store.newResult();
+        assertFalse(store.getLatest(result));
+
+        store.publish(1, 100, FACE, 1, 640, 480, false);
+        store.publish(2, 200, NONE, 0, 640, 480, false);
+        store.publish(-1, 300, new int[]{1, 2, 3, 4, 5, 6, 7, 8}, 2, 480, 640, true);
+        assertEquals(3, store.getPublishCount());
+
+        assertTrue(store.getLatest(result));
+        assertEquals(-1, result.getFrameIndex());
+        assertEquals(300, result.getTimeNanos());
+        assertTrue(result.isHardware());
+        // 超过 maxFaces 的人脸丢掉
+        assertEquals(1, result.getFaceCount());
+        assertArrayEquals(new int[]{1, 2, 3, 4}, result.getBounds());
+        assertEquals(480, result.getFrameWidth());
+
+        assertTrue(store.get(1, result));
+        assertEquals(2, result.getFrameIndex());
+        assertEquals(0, result.getFaceCount());
+        // 第一条已被覆盖
+        assertFalse(store.get(2, result));
+    }
+
+    @Test
+    public void debouncesPresence() throws Exception {
+        FaceResultStore store = new FaceResultStore(4, 1);
+        final StringBuilder events = new StringBuilder();
+        store.setPresenceListener(new FaceResultStore.PresenceListener() {
+            @Override
+            public void onPresenceChanged(boolean present, int faceCount, long timeNanos) {
+                events.append(present ? '+' : '-').append(timeNanos).append(' ');
+            }
+        });
+        // 单帧误检不算进入
+        store.publish(0, 0, FACE, 1, 1, 1, false);
+        store.publish(0, 1, NONE, 0, 1, 1, false);
+        assertFalse(store.isPresent());
+        assertFalse(store.publish(0, 2, FACE, 1, 1, 1, false));
+        assertTrue(store.publish(0, 3, FACE, 1, 1, 1, false));
+        assertTrue(store.isPresent());
+        // 漏检两帧不算离开
+        store.publish(0, 4, NONE, 0, 1, 1, false);
+        store.publish(0, 5, NONE, 0, 1, 1, false);
+        store.publish(0, 6, FACE, 1, 1, 1, false);
+        assertTrue(store.isPresent());
+        store.publish(0, 7, NONE, 0, 1, 1, false);
+        store.publish(0, 8, NONE, 0, 1, 1, false);
+        store.publish(0, 9, NONE, 0, 1, 1, false);
+        assertFalse(store.isPresent());
+
+        assertEquals("+3 -9 ", events.toString());
+        assertEquals(1, store.getEnterCount());
+        assertEquals(1, store.getLeaveCount());
+        assertEquals(2, store.getSuppressedCount());
+    }
+
+    @Test
+    public void resetDropsStateSilently() throws Exception {
+        FaceResultStore store = new FaceResultStore(4, 1);
+        store.setEnterFrames(1);
+        assertTrue(store.publish(0, 0, FACE, 1, 1, 1, false));
+        store.reset();
+        assertFalse(store.isPresent());
+        assertFalse(store.getLatest(store.newResult()));
+        assertEquals(0, store.getLeaveCount());
+    }
+}
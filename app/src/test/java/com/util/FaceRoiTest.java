@@ -0,0 +1,110 @@
+package com.util;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class FaceRoiTest {
+
+    private static final int SIZE = 200;
+
+    /**
+     * 把每个亮度为 255 的像素当成一个眼距 10 的人脸，记下送检图的尺寸。
+     */
+    private static class MarkerDetector implements LumaFaceDetector {
+        int lastWidth, lastHeight;
+
+        @Override
+        public int detect(byte[] luma, int width, int height, FaceBox[] out) {
+            lastWidth = width;
+            lastHeight = height;
+            int count = 0;
+            for (int i = 0; i < width * height && count < out.length; i++) {
+                if ((luma[i] & 0xff) == 255) {
+                    out[count++].set(i % width, i / width, 10, 1);
+                }
+            }
+            return count;
+        }
+
+        @Override
+        public void release() {
+        }
+    }
+
+    private static byte[] image(int... points) {
+        byte[] luma = new byte[SIZE * SIZE];
+        for (int i = 0; i < points.length; i += 2) {
+            luma[points[i + 1] * SIZE + points[i]] = (byte) 255;
+        }
+        return luma;
+    }
+
+    private static FaceRoi newRoi() {
+        FaceRoi roi = new FaceRoi(6f, 0.3f);
+        roi.setEnabled(true);
+        return roi;
+    }
+
+    @Test
+    public void usesWindowAfterSingleFaceWithLargerCapacity() throws Exception {
+        FaceRoi roi = newRoi();
+        MarkerDetector detector = new MarkerDetector();
+        // 容量 4，画面里只有一个人脸
+        FaceBox[] out = FaceBox.newArray(4);
+        assertEquals(1, roi.detect(detector, image(100, 90), SIZE, SIZE, out));
+        assertEquals(SIZE, detector.lastWidth);
+        assertEquals(1, roi.detect(detector, image(104, 92), SIZE, SIZE, out));
+        assertTrue(detector.lastWidth < SIZE && detector.lastHeight < SIZE);
+        assertEquals(1, roi.getHitCount());
+        // 坐标已换回检测图
+        assertEquals(104, out[0].getMidX(), 1e-6f);
+        assertEquals(92, out[0].getMidY(), 1e-6f);
+    }
+
+    @Test
+    public void detectsWholeFrameAfterMultipleFaces() throws Exception {
+        FaceRoi roi = newRoi();
+        MarkerDetector detector = new MarkerDetector();
+        FaceBox[] out = FaceBox.newArray(4);
+        assertEquals(2, roi.detect(detector, image(30, 30, 170, 160), SIZE, SIZE, out));
+        assertEquals(2, roi.detect(detector, image(30, 30, 170, 160), SIZE, SIZE, out));
+        assertEquals(SIZE, detector.lastWidth);
+        assertEquals(0, roi.getHitCount());
+        // 只剩一个人后恢复窗口检测
+        assertEquals(1, roi.detect(detector, image(30, 30), SIZE, SIZE, out));
+        assertEquals(1, roi.detect(detector, image(30, 30), SIZE, SIZE, out));
+        assertEquals(1, roi.getHitCount());
+    }
+
+    @Test
+    public void fallsBackToWholeFrameWhenWindowMisses() throws Exception {
+        FaceRoi roi = newRoi();
+        MarkerDetector detector = new MarkerDetector();
+        FaceBox[] out = FaceBox.newArray(2);
+        roi.detect(detector, image(40, 40), SIZE, SIZE, out);
+        assertEquals(1, roi.detect(detector, image(160, 150), SIZE, SIZE, out));
+        assertEquals(1, roi.getMissCount());
+        assertEquals(160, out[0].getMidX(), 1e-6f);
+        // 没有人脸后下一帧直接全图
+        assertEquals(0, roi.detect(detector, image(), SIZE, SIZE, out));
+        assertEquals(2, roi.getMissCount());
+        roi.detect(detector, image(), SIZE, SIZE, out);
+        assertEquals(2, roi.getMissCount());
+    }
+
+    @Test
+    public void forgetsFaceWhenSizeChangesOrDisabled() throws Exception {
+        FaceRoi roi = newRoi();
+        MarkerDetector detector = new MarkerDetector();
+        FaceBox[] out = FaceBox.newArray(2);
+        int[] bounds = new int[4];
+        roi.detect(detector, image(100, 100), SIZE, SIZE, out);
+        assertFalse(roi.window(SIZE, SIZE / 2, bounds));
+        roi.detect(detector, image(100, 100), SIZE, SIZE, out);
+        assertTrue(roi.window(SIZE, SIZE, bounds));
+        roi.setEnabled(false);
+        roi.update(1, 100, 100, 10);
+        assertFalse(roi.window(SIZE, SIZE, bounds));
+    }
+}
@@ -0,0 +1,223 @@
+package com.util;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.*;
+
+public class FaceThumbnailerTest {
+
+    private static byte[] gradient(int width, int height) {
+        byte[] luma = new byte[width * height];
+        for (int y = 0; y < height; y++) {
+            for (int x = 0; x < width; x++) {
+                luma[y * width + x] = (byte) ((x * 3 + y * 5) & 0xff);
+            }
+        }
+        return luma;
+    }
+
+    private static class Collector implements FaceThumbnailer.Consumer {
+        final List<byte[]> pixels = new ArrayList<>();
+        final List<Integer> faces = new ArrayList<>();
+        final List<byte[]> buffers = new ArrayList<>();
+
+        @Override
+        public void onThumbnail(FaceThumbnailer.Thumbnail thumbnail) {
+            pixels.add(thumbnail.getPixels().clone());
+            faces.add(thumbnail.getFaceIndex());
+            buffers.add(thumbnail.getPixels());
+        }
+    }
+
+    @Test
+    public void bilinearInterpolatesAndClamps() throws Exception {
+        byte[] luma = {0, 100, (byte) 200, (byte) 255};
+        assertEquals(50, FaceThumbnailer.bilinear(luma, 2, 2, 0.5f, 0));
+        assertEquals(100, FaceThumbnailer.bilinear(luma, 2, 2, 0, 0.5f));
+        assertEquals(139, FaceThumbnailer.bilinear(luma, 2, 2, 0.5f, 0.5f));
+        assertEquals(255, FaceThumbnailer.bilinear(luma, 2, 2, 5, 5));
+        assertEquals(0, FaceThumbnailer.bilinear(luma, 2, 2, -3, -1));
+    }
+
+    @Test
+    public void alignsEyesAtTemplatePosition() throws Exception {
+        int width = 64, height = 48;
+        byte[] luma = gradient(width, height);
+        // 边长 11、眼距占一半：缩略图 1 像素对应亮度图 2 像素，眼睛中点在 (5, 5)
+        FaceThumbnailer thumbnailer = new FaceThumbnailer(11, 1, null);
+        thumbnailer.setAlignment(0.5f, 0.5f);
+        FaceBox[] faces = {new FaceBox().set(30, 20, 11, 0.9f)};
+        Collector collector = new Collector();
+        assertEquals(1, thumbnailer.extract(luma, width, height, null, faces, 1, 7, collector));
+        byte[] thumb = collector.pixels.get(0);
+        assertEquals(luma[20 * width + 30], thumb[5 * 11 + 5]);
+        assertEquals(luma[20 * width + 32], thumb[5 * 11 + 6]);
+        assertEquals(luma[10 * width + 20], thumb[0]);
+    }
+
+    @Test
+    public void samplesThroughDetectionTransform() throws Exception {
+        int width = 64, height = 48, scale = 2, rotation = 90;
+        byte[] luma = gradient(width, height);
+        // 检测图为缩小 2 倍并旋转 90 度后的 24x32
+        int dw = YuvConverter.outputWidth(width, height, scale, rotation);
+        int dh = YuvConverter.outputHeight(width, height, scale, rotation);
+        byte[] detection = new byte[dw * dh];
+        Nv21Rotator.rotateLuma(luma, width, height, scale, rotation, false, detection);
+        // 眼距 9 占边长 9 的一半，缩略图 1 像素对应检测图 2 像素，采样点都落在整数位置
+        FaceBox[] faces = {new FaceBox().set(12, 15, 9, 1)};
+        FaceThumbnailer thumbnailer = new FaceThumbnailer(9, 1, null);
+        thumbnailer.setAlignment(0.5f, 0.5f);
+        Collector fromDetection = new Collector();
+        thumbnailer.extract(detection, dw, dh, null, faces, 1, 0, fromDetection);
+        Collector fromSensor = new Collector();
+        FrameTransform toSensor = new FrameTransform().setDetectionToSensor(width, height, scale, rotation, false);
+        thumbnailer.extract(luma, width, height, toSensor, faces, 1, 0, fromSensor);
+        // 检测图是原图隔点采样，整数位置上两者一致
+        assertArrayEquals(fromDetection.pixels.get(0), fromSensor.pixels.get(0));
+    }
+
+    @Test
+    public void samplesLargeFacesFromPyramid() throws Exception {
+        int width = 64, height = 64;
+        // 单像素棋盘格，步长 2 隔点采样只会落在同一种颜色上
+        byte[] luma = new byte[width * height];
+        for (int y = 0; y < height; y++) {
+            for (int x = 0; x < width; x++) {
+                luma[y * width + x] = (byte) ((x + y) % 2 == 0 ? 0 : 255);
+            }
+        }
+        FaceBox[] faces = {new FaceBox().set(32, 32, 11, 0.9f)};
+        FaceThumbnailer thumbnailer = new FaceThumbnailer(11, 1, null);
+        thumbnailer.setAlignment(0.5f, 0.5f);
+        Collector aliased = new Collector();
+        thumbnailer.extract(luma, width, height, null, faces, 1, 0, aliased);
+        for (byte b : aliased.pixels.get(0)) {
+            assertTrue((b & 0xff) == 0 || (b & 0xff) == 255);
+        }
+        thumbnailer.setUsePyramid(3);
+        Collector filtered = new Collector();
+        thumbnailer.extract(luma, width, height, null, faces, 1, 0, filtered);
+        for (byte b : filtered.pixels.get(0)) {
+            assertEquals(128, b & 0xff, 1);
+        }
+        // 眼距不大时仍在原图上采样，结果不变
+        faces[0].set(32, 32, 5, 0.9f);
+        Collector small = new Collector();
+        Collector smallPyramid = new Collector();
+        FaceThumbnailer plain = new FaceThumbnailer(11, 1, null);
+        plain.setAlignment(0.5f, 0.5f);
+        plain.extract(luma, width, height, null, faces, 1, 0, small);
+        thumbnailer.extract(luma, width, height, null, faces, 1, 0, smallPyramid);
+        assertArrayEquals(small.pixels.get(0), smallPyramid.pixels.get(0));
+    }
+
+    /**
+     * 每个任务在新线程上延迟 delayMs 后执行，第 rejectAt 次提交（从 0 数）抛出 RejectedExecutionException。
+     */
+    private static Executor slowExecutor(final long delayMs, final int rejectAt) {
+        return new Executor() {
+            private int mCount;
+
+            @Override
+            public void execute(final Runnable command) {
+                if (mCount++ == rejectAt) {
+                    throw new RejectedExecutionException();
+                }
+                new Thread() {
+                    @Override
+                    public void run() {
+                        try {
+                            Thread.sleep(delayMs);
+                        } catch (InterruptedException e) {
+                            return;
+                        }
+                        command.run();
+                    }
+                }.start();
+            }
+        };
+    }
+
+    @Test
+    public void waitsForSubmittedJobsWhenSubmitFails() throws Exception {
+        byte[] luma = gradient(64, 48);
+        FaceBox[] faces = {
+                new FaceBox().set(20, 20, 8, 0.9f),
+                new FaceBox().set(40, 20, 8, 0.9f),
+                new FaceBox().set(30, 30, 8, 0.9f)};
+        FaceThumbnailer thumbnailer = new FaceThumbnailer(16, 3, slowExecutor(100, 1));
+        long start = System.nanoTime();
+        try {
+            thumbnailer.extract(luma, 64, 48, null, faces, 3, 0, new Collector());
+            fail("expected RejectedExecutionException");
+        } catch (RejectedExecutionException expected) {
+            // 第一个已提交的任务结束后才抛出
+            assertTrue(System.nanoTime() - start >= TimeUnit.MILLISECONDS.toNanos(100));
+        }
+    }
+
+    @Test
+    public void waitsForSubmittedJobsWhenInterrupted() throws Exception {
+        byte[] luma = gradient(64, 48);
+        FaceBox[] faces = {new FaceBox().set(20, 20, 8, 0.9f), new FaceBox().set(40, 20, 8, 0.9f)};
+        FaceThumbnailer thumbnailer = new FaceThumbnailer(16, 2, slowExecutor(100, -1));
+        Collector collector = new Collector();
+        long start = System.nanoTime();
+        Thread.currentThread().interrupt();
+        try {
+            thumbnailer.extract(luma, 64, 48, null, faces, 2, 0, collector);
+            fail("expected InterruptedException");
+        } catch (InterruptedException expected) {
+            assertTrue(System.nanoTime() - start >= TimeUnit.MILLISECONDS.toNanos(100));
+        } finally {
+            Thread.interrupted();
+        }
+        assertTrue(collector.pixels.isEmpty());
+        // 计数已归零，下一帧正常
+        assertEquals(2, thumbnailer.extract(luma, 64, 48, null, faces, 2, 1, collector));
+    }
+
+    @Test
+    public void parallelMatchesSerialAndRecyclesBuffers() throws Exception {
+        int width = 160, height = 120;
+        byte[] luma = gradient(width, height);
+        FaceBox[] faces = {
+                new FaceBox().set(40, 40, 20, 0.9f),
+                new FaceBox().set(100, 60, 30, 0.8f),
+                new FaceBox().set(130, 90, 12, 0.7f),
+                new FaceBox().set(10, 10, 8, 0.6f)};
+        ExecutorService executor = Executors.newFixedThreadPool(3);
+        try {
+            FaceThumbnailer serial = new FaceThumbnailer(32, 3, null);
+            FaceThumbnailer parallel = new FaceThumbnailer(32, 3, executor);
+            Collector expected = new Collector();
+            Collector actual = new Collector();
+            // 超过 maxFaces 的人脸忽略
+            assertEquals(3, serial.extract(luma, width, height, null, faces, 4, 1, expected));
+            for (int round = 0; round < 20; round++) {
+                actual = new Collector();
+                assertEquals(3, parallel.extract(luma, width, height, null, faces, 4, round, actual));
+            }
+            assertEquals(expected.faces, actual.faces);
+            for (int i = 0; i < 3; i++) {
+                assertArrayEquals(expected.pixels.get(i), actual.pixels.get(i));
+            }
+            // 下一帧复用同一组缓冲
+            Collector again = new Collector();
+            parallel.extract(luma, width, height, null, faces, 2, 99, again);
+            assertSame(actual.buffers.get(0), again.buffers.get(0));
+            assertSame(actual.buffers.get(1), again.buffers.get(1));
+        } finally {
+            executor.shutdown();
+        }
+    }
+}
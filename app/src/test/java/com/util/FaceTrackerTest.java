@@ -0,0 +1,97 @@
+package com.util;
+
+import org.junit.Test;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.*;
+
+public class FaceTrackerTest {
+
+    private static final int WIDTH = 160, HEIGHT = 120;
+
+    /**
+     * 平滑背景上放一块随机纹理的"人脸"。
+     */
+    private static byte[] scene(int faceX, int faceY, int faceSize, long seed) {
+        byte[] luma = new byte[WIDTH * HEIGHT];
+        for (int y = 0; y < HEIGHT; y++) {
+            for (int x = 0; x < WIDTH; x++) {
+                luma[y * WIDTH + x] = (byte) (40 + x / 4);
+            }
+        }
+        Random random = new Random(seed);
+        for (int y = 0; y < faceSize; y++) {
+            for (int x = 0; x < faceSize; x++) {
+                luma[(faceY + y) * WIDTH + faceX + x] = (byte) (100 + random.nextInt(150));
+            }
+        }
+        return luma;
+    }
+
+    @Test
+    public void followsMovingPatch() throws Exception {
+        FaceTracker tracker = new FaceTracker();
+        assertTrue(tracker.shouldDetect(0));
+        assertTrue(tracker.start(scene(50, 40, 40, 7), WIDTH, HEIGHT, 70, 60, 32));
+        assertEquals(70, tracker.getCenterX(), 1f);
+
+        assertTrue(tracker.track(scene(57, 35, 40, 7), WIDTH, HEIGHT));
+        assertEquals(77, tracker.getCenterX(), 0.5f);
+        assertEquals(55, tracker.getCenterY(), 0.5f);
+        assertEquals(1f, tracker.getConfidence(), 1e-6f);
+        assertEquals(1, tracker.getTrackCount());
+    }
+
+    @Test
+    public void fillsStateOnSuccessfulTrack() throws Exception {
+        FaceTracker tracker = new FaceTracker();
+        tracker.shouldDetect(0);
+        tracker.start(scene(50, 40, 40, 7), WIDTH, HEIGHT, 70, 60, 32);
+        float[] state = {-1, -1, -1};
+        assertTrue(tracker.track(scene(57, 35, 40, 7), WIDTH, HEIGHT, state));
+        assertEquals(77, state[0], 0.5f);
+        assertEquals(55, state[1], 0.5f);
+        assertEquals(32, state[2], 1e-6f);
+        // 跟丢时不改动 state
+        float[] lost = {-1, -1, -1};
+        tracker.stop();
+        assertFalse(tracker.track(scene(57, 35, 40, 7), WIDTH, HEIGHT, lost));
+        assertEquals(-1, lost[0], 0f);
+    }
+
+    @Test
+    public void losesTrackWhenPatchDisappears() throws Exception {
+        FaceTracker tracker = new FaceTracker();
+        tracker.shouldDetect(0);
+        tracker.start(scene(50, 40, 40, 7), WIDTH, HEIGHT, 70, 60, 32);
+        byte[] empty = scene(0, 0, 0, 7);
+        assertFalse(tracker.track(empty, WIDTH, HEIGHT));
+        assertFalse(tracker.isTracking());
+        assertEquals(1, tracker.getLostCount());
+        assertTrue(tracker.shouldDetect(1));
+    }
+
+    @Test
+    public void redetectsOnSchedule() throws Exception {
+        FaceTracker tracker = new FaceTracker();
+        tracker.setRedetectInterval(100, TimeUnit.NANOSECONDS);
+        assertTrue(tracker.shouldDetect(0));
+        // 检测结果回来之前也按旧结果继续：未跟踪时每帧都要检测
+        assertTrue(tracker.shouldDetect(10));
+        tracker.start(scene(50, 40, 40, 7), WIDTH, HEIGHT, 70, 60, 32);
+        assertFalse(tracker.shouldDetect(50));
+        assertFalse(tracker.shouldDetect(109));
+        assertTrue(tracker.shouldDetect(110));
+        assertFalse(tracker.shouldDetect(150));
+        assertEquals(3, tracker.getDetectCount());
+    }
+
+    @Test
+    public void rejectsTemplateOutsideFrame() throws Exception {
+        FaceTracker tracker = new FaceTracker();
+        assertFalse(tracker.start(scene(0, 0, 40, 7), WIDTH, HEIGHT, 5, 5, 32));
+        assertFalse(tracker.isTracking());
+    }
+}
@@ -0,0 +1,77 @@
+package com.util;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+public class FrameBufferPoolTest {
+
+    private static class QueueRecycler implements FrameBufferPool.Recycler {
+        final List<byte[]> queue = new ArrayList<>();
+
+        @Override
+        public void recycle(byte[] buffer) {
+            queue.add(buffer);
+        }
+    }
+
+    @Test
+    public void attachQueuesAllBuffers() throws Exception {
+        FrameBufferPool pool = new FrameBufferPool(FrameBufferPool.nv21BufferSize(4, 2), 3);
+        QueueRecycler camera = new QueueRecycler();
+        pool.attach(camera);
+        assertEquals(3, camera.queue.size());
+        assertEquals(12, camera.queue.get(0).length);
+        assertEquals(3, pool.getQueuedCount());
+    }
+
+    @Test
+    public void bufferReturnsToCameraOnlyAfterRelease() throws Exception {
+        FrameBufferPool pool = new FrameBufferPool(16, 2);
+        QueueRecycler camera = new QueueRecycler();
+        pool.attach(camera);
+        byte[] frame = camera.queue.remove(0);
+        assertTrue(pool.acquire(frame));
+        assertEquals(1, pool.getInUseCount());
+        assertEquals(0, pool.getStarvationCount());
+
+        byte[] second = camera.queue.remove(0);
+        assertTrue(pool.acquire(second));
+        assertEquals(1, pool.getStarvationCount());
+
+        pool.release(frame);
+        assertEquals(1, camera.queue.size());
+        assertSame(frame, camera.queue.get(0));
+        assertEquals(1, pool.getInUseCount());
+        // 重复 release 不会把同一块缓冲交给相机两次
+        pool.release(frame);
+        assertEquals(1, camera.queue.size());
+    }
+
+    @Test
+    public void foreignBufferIsRejected() throws Exception {
+        FrameBufferPool pool = new FrameBufferPool(16, 2);
+        pool.attach(new QueueRecycler());
+        assertFalse(pool.acquire(new byte[16]));
+        assertEquals(0, pool.getInUseCount());
+    }
+
+    @Test
+    public void detachKeepsInUseBuffersUntilReleased() throws Exception {
+        FrameBufferPool pool = new FrameBufferPool(16, 2);
+        QueueRecycler first = new QueueRecycler();
+        pool.attach(first);
+        byte[] frame = first.queue.get(0);
+        pool.acquire(frame);
+        pool.detach();
+        pool.release(frame);
+        assertEquals(0, pool.getInUseCount());
+
+        QueueRecycler second = new QueueRecycler();
+        pool.attach(second);
+        assertEquals(2, second.queue.size());
+    }
+}
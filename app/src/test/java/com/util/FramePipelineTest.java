@@ -0,0 +1,96 @@
+package com.util;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.*;
+
+public class FramePipelineTest {
+
+    private static class Frame {
+        int value;
+        int result;
+        String worker;
+    }
+
+    @Test
+    public void publishesInSubmissionOrderAcrossWorkers() throws Exception {
+        final int frames = 200;
+        final List<Long> published = Collections.synchronizedList(new ArrayList<Long>());
+        final List<Integer> results = Collections.synchronizedList(new ArrayList<Integer>());
+        final CountDownLatch done = new CountDownLatch(frames);
+        final AtomicInteger released = new AtomicInteger();
+        final AtomicInteger wrongThread = new AtomicInteger();
+        FramePipeline<Integer, Frame> pipeline = new FramePipeline<>(4, 6,
+                new FramePipeline.Preparer<Integer, Frame>() {
+                    @Override
+                    public void prepare(long index, Integer input, Frame frame) {
+                        frame.value = input;
+                    }
+                },
+                new FramePipeline.Factory<Frame>() {
+                    @Override
+                    public Frame newFrame() {
+                        return new Frame();
+                    }
+
+                    @Override
+                    public FramePipeline.Detector<Frame> newDetector(int worker) {
+                        return new FramePipeline.Detector<Frame>() {
+                            final Random random = new Random();
+                            Thread owner;
+
+                            @Override
+                            public void detect(Frame frame) {
+                                if (owner == null) {
+                                    owner = Thread.currentThread();
+                                } else if (owner != Thread.currentThread()) {
+                                    wrongThread.incrementAndGet();
+                                }
+                                try {
+                                    Thread.sleep(random.nextInt(3));
+                                } catch (InterruptedException e) {
+                                    Thread.currentThread().interrupt();
+                                }
+                                frame.result = frame.value * 2;
+                            }
+
+                            @Override
+                            public void release() {
+                                released.incrementAndGet();
+                            }
+                        };
+                    }
+                },
+                new FramePipeline.Publisher<Frame>() {
+                    @Override
+                    public void publish(long index, Frame frame) {
+                        published.add(index);
+                        results.add(frame.result);
+                        done.countDown();
+                    }
+                });
+        assertEquals(4, pipeline.getWorkerCount());
+        for (int i = 0; i < frames; i++) {
+            assertTrue(pipeline.process(i + 1, i));
+        }
+        assertTrue(done.await(10, TimeUnit.SECONDS));
+        for (int i = 0; i < frames; i++) {
+            assertEquals(i + 1, (long) published.get(i));
+            assertEquals(i * 2, (int) results.get(i));
+        }
+        assertEquals(0, wrongThread.get());
+        assertEquals(frames, pipeline.getPublishedCount());
+
+        pipeline.shutdown();
+        assertEquals(4, released.get());
+        assertFalse(pipeline.process(frames + 1, 0));
+    }
+}
@@ -0,0 +1,125 @@
+package com.util;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.IOException;
+
+import static org.junit.Assert.*;
+
+public class FrameRecorderTest {
+
+    private static final int WIDTH = 8, HEIGHT = 4;
+
+    private File mDir;
+
+    @Before
+    public void setUp() throws Exception {
+        mDir = File.createTempFile("recorder", "");
+        assertTrue(mDir.delete() && mDir.mkdir());
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        File[] files = mDir.listFiles();
+        if (files != null) {
+            for (File file : files) {
+                file.delete();
+            }
+        }
+        mDir.delete();
+    }
+
+    private static CameraFrame frame(int value) {
+        byte[] nv21 = new byte[Nv21FrameFile.frameSize(WIDTH, HEIGHT)];
+        nv21[0] = (byte) value;
+        return CameraFrame.fromNv21(nv21, WIDTH, HEIGHT, value, null, null);
+    }
+
+    private static int countFrames(File file) throws IOException {
+        int count = 0;
+        try (Nv21FrameFile.Reader reader = new Nv21FrameFile.Reader(file)) {
+            while (reader.next()) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    @Test
+    public void samplesEveryNthAndForcedFrames() throws Exception {
+        FrameRecorder recorder = new FrameRecorder(mDir, "rec", 8, 1024, 1 << 20, 2);
+        recorder.setSampleInterval(3);
+        recorder.start();
+        int recorded = 0;
+        for (int i = 0; i < 7; i++) {
+            if (recorder.offer(frame(i), 90, i == 4)) {
+                recorded++;
+            }
+        }
+        recorder.stop();
+        recorder.join();
+        // 0、3、6 按间隔，4 强制
+        assertEquals(4, recorded);
+        assertEquals(4, recorder.getRecordedCount());
+        assertEquals(0, recorder.getDroppedCount());
+        assertNull(recorder.getError());
+
+        try (Nv21FrameFile.Reader reader = new Nv21FrameFile.Reader(new File(mDir, "rec-0.nv21"))) {
+            byte[] nv21 = new byte[Nv21FrameFile.frameSize(WIDTH, HEIGHT)];
+            long[] expected = {0, 3, 4, 6};
+            for (long timestamp : expected) {
+                assertTrue(reader.next());
+                assertEquals(timestamp, reader.getTimestamp());
+                assertEquals(90, reader.getRotation());
+                reader.copyNv21(nv21);
+                assertEquals(timestamp, nv21[0]);
+            }
+            assertFalse(reader.next());
+        }
+        // 停止后不再接收
+        assertFalse(recorder.offer(frame(9), 0, true));
+    }
+
+    @Test
+    public void dropsWhenWriterFallsBehind() throws Exception {
+        FrameRecorder recorder = new FrameRecorder(mDir, "rec", 2, 1024, 1 << 20, 1);
+        recorder.setSampleInterval(1);
+        // 写线程还没启动，相当于磁盘完全跟不上
+        assertTrue(recorder.offer(frame(0), 0, false));
+        assertTrue(recorder.offer(frame(1), 0, false));
+        assertFalse(recorder.offer(frame(2), 0, false));
+        assertEquals(1, recorder.getDroppedCount());
+        // 帧超过缓冲大小
+        CameraFrame big = CameraFrame.fromNv21(new byte[Nv21FrameFile.frameSize(64, 64)], 64, 64, 0, null, null);
+        assertFalse(recorder.offer(big, 0, true));
+        assertEquals(2, recorder.getDroppedCount());
+
+        recorder.start();
+        recorder.stop();
+        recorder.join();
+        assertEquals(2, recorder.getRecordedCount());
+        assertEquals(2, countFrames(new File(mDir, "rec-0.nv21")));
+    }
+
+    @Test
+    public void rotatesAndPrunesFiles() throws Exception {
+        int frameBytes = Nv21FrameFile.FRAME_HEADER_SIZE + Nv21FrameFile.frameSize(WIDTH, HEIGHT);
+        // 每个文件写满两帧后换下一个，只留最近两个
+        FrameRecorder recorder = new FrameRecorder(mDir, "rec", 16, 1024, 2 * frameBytes, 2);
+        recorder.setSampleInterval(1);
+        for (int i = 0; i < 7; i++) {
+            assertTrue(recorder.offer(frame(i), 0, false));
+        }
+        recorder.start();
+        recorder.stop();
+        recorder.join();
+        assertEquals(7, recorder.getRecordedCount());
+        assertFalse(new File(mDir, "rec-0.nv21").exists());
+        assertFalse(new File(mDir, "rec-1.nv21").exists());
+        assertEquals(2, countFrames(new File(mDir, "rec-2.nv21")));
+        assertEquals(1, countFrames(new File(mDir, "rec-3.nv21")));
+    }
+}
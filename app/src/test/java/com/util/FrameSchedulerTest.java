@@ -0,0 +1,129 @@
+package com.util;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.*;
+
+public class FrameSchedulerTest {
+
+    private static class ManualExecutor implements Executor {
+        final List<Runnable> tasks = new ArrayList<>();
+
+        @Override
+        public void execute(Runnable command) {
+            tasks.add(command);
+        }
+
+        void runAll() {
+            while (!tasks.isEmpty()) {
+                tasks.remove(0).run();
+            }
+        }
+    }
+
+    private static class RecordingCallback implements FrameScheduler.Callback<Integer> {
+        final List<Integer> processed = new ArrayList<>();
+        final List<Integer> dropped = new ArrayList<>();
+        FakeClockScheduler scheduler;
+        long costNanos;
+
+        @Override
+        public void onProcess(Integer frame) {
+            processed.add(frame);
+            if (scheduler != null) {
+                scheduler.now += costNanos;
+            }
+        }
+
+        @Override
+        public void onDrop(Integer frame) {
+            dropped.add(frame);
+        }
+    }
+
+    private static class FakeClockScheduler extends FrameScheduler<Integer> {
+        long now;
+
+        FakeClockScheduler(Executor executor, Callback<Integer> callback) {
+            super(executor, callback);
+        }
+
+        @Override
+        long nanoTime() {
+            return now;
+        }
+    }
+
+    @Test
+    public void latestFrameWinsWhileWorkerIsBusy() throws Exception {
+        ManualExecutor executor = new ManualExecutor();
+        RecordingCallback callback = new RecordingCallback();
+        FrameScheduler<Integer> scheduler = new FrameScheduler<>(executor, callback);
+        for (int i = 1; i <= 5; i++) {
+            assertTrue(scheduler.admit());
+            scheduler.submit(i);
+        }
+        // 只调度了一次，队列不会增长
+        assertEquals(1, executor.tasks.size());
+        executor.runAll();
+        assertEquals(1, callback.processed.size());
+        assertEquals(Integer.valueOf(5), callback.processed.get(0));
+        assertEquals(4, callback.dropped.size());
+        assertEquals(4, scheduler.getReplacedCount());
+        assertEquals(1, scheduler.getProcessedCount());
+    }
+
+    @Test
+    public void intervalFollowsMeasuredProcessingTime() throws Exception {
+        ManualExecutor executor = new ManualExecutor();
+        RecordingCallback callback = new RecordingCallback();
+        FakeClockScheduler scheduler = new FakeClockScheduler(executor, callback);
+        callback.scheduler = scheduler;
+        callback.costNanos = TimeUnit.MILLISECONDS.toNanos(300);
+
+        assertTrue(scheduler.admit());
+        scheduler.submit(1);
+        executor.runAll();
+        assertEquals(TimeUnit.MILLISECONDS.toNanos(300), scheduler.currentIntervalNanos());
+
+        // 处理结束时 now 已经过了 300ms，从上次放行算起刚好到期
+        assertTrue(scheduler.admit());
+        scheduler.now += TimeUnit.MILLISECONDS.toNanos(100);
+        assertFalse(scheduler.admit());
+        assertEquals(1, scheduler.getThrottledCount());
+        scheduler.now += TimeUnit.MILLISECONDS.toNanos(200);
+        assertTrue(scheduler.admit());
+    }
+
+    @Test
+    public void minIntervalCapsRate() throws Exception {
+        FakeClockScheduler scheduler = new FakeClockScheduler(new ManualExecutor(), new RecordingCallback());
+        scheduler.setMinInterval(50, TimeUnit.MILLISECONDS);
+        assertTrue(scheduler.admit());
+        scheduler.now += TimeUnit.MILLISECONDS.toNanos(49);
+        assertFalse(scheduler.admit());
+        scheduler.now += TimeUnit.MILLISECONDS.toNanos(1);
+        assertTrue(scheduler.admit());
+    }
+
+    @Test
+    public void clearHandsBackPendingFrame() throws Exception {
+        ManualExecutor executor = new ManualExecutor();
+        RecordingCallback callback = new RecordingCallback();
+        FrameScheduler<Integer> scheduler = new FrameScheduler<>(executor, callback);
+        scheduler.submit(7);
+        scheduler.clear();
+        executor.runAll();
+        assertTrue(callback.processed.isEmpty());
+        assertEquals(Integer.valueOf(7), callback.dropped.get(0));
+        // 清空后仍能继续调度
+        scheduler.submit(8);
+        executor.runAll();
+        assertEquals(Integer.valueOf(8), callback.processed.get(0));
+    }
+}
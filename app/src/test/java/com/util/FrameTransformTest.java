@@ -0,0 +1,110 @@
+package com.util;
+
+import org.junit.Test;
+
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+public class FrameTransformTest {
+
+    private static final int[] ROTATIONS = {0, 90, 180, 270};
+
+    @Test
+    public void detectionToSensorFindsSampledPixel() throws Exception {
+        int width = 80, height = 60, scale = 2;
+        byte[] luma = new byte[width * height];
+        new Random(1).nextBytes(luma);
+        FrameTransform transform = new FrameTransform();
+        for (int rotation : ROTATIONS) {
+            for (boolean mirror : new boolean[]{false, true}) {
+                int outWidth = YuvConverter.outputWidth(width, height, scale, rotation);
+                int outHeight = YuvConverter.outputHeight(width, height, scale, rotation);
+                byte[] out = new byte[outWidth * outHeight];
+                Nv21Rotator.rotateLuma(luma, width, height, scale, rotation, mirror, out);
+                transform.setDetectionToSensor(width, height, scale, rotation, mirror);
+                for (int y = 0; y < outHeight; y++) {
+                    for (int x = 0; x < outWidth; x++) {
+                        int sx = Math.round(transform.mapX(x, y));
+                        int sy = Math.round(transform.mapY(x, y));
+                        assertEquals(luma[sy * width + sx], out[y * outWidth + x]);
+                    }
+                }
+            }
+        }
+    }
+
+    @Test
+    public void sensorToOrientedMatchesRotator() throws Exception {
+        int width = 24, height = 16;
+        byte[] nv21 = new byte[width * height * 3 / 2];
+        new Random(2).nextBytes(nv21);
+        byte[] out = new byte[nv21.length];
+        FrameTransform transform = new FrameTransform();
+        for (int rotation : ROTATIONS) {
+            for (boolean mirror : new boolean[]{false, true}) {
+                Nv21Rotator.rotate(nv21, width, height, rotation, mirror, out);
+                int outWidth = Nv21Rotator.outputWidth(width, height, rotation);
+                transform.setSensorToOriented(width, height, rotation, mirror);
+                for (int y = 0; y < height; y++) {
+                    for (int x = 0; x < width; x++) {
+                        int dx = Math.round(transform.mapX(x, y));
+                        int dy = Math.round(transform.mapY(x, y));
+                        assertEquals(nv21[y * width + x], out[dy * outWidth + dx]);
+                    }
+                }
+            }
+        }
+    }
+
+    @Test
+    public void composedTransformScalesLengthAndInverts() throws Exception {
+        int width = 640, height = 480, scale = 4;
+        FrameTransform transform = new FrameTransform()
+                .setDetectionToSensor(width, height, scale, 90, true)
+                .postConcat(new FrameTransform().setSensorToOriented(width, height, 90, true));
+        // 旋转、镜像方向一致时合成结果只剩缩放
+        assertEquals(0, transform.mapX(0, 0), 1e-3f);
+        assertEquals(0, transform.mapY(0, 0), 1e-3f);
+        assertEquals(40, transform.mapX(10, 0), 1e-3f);
+        assertEquals(40, transform.mapY(0, 10), 1e-3f);
+        assertEquals(80, transform.mapLength(20), 1e-3f);
+
+        FrameTransform inverse = transform.invert(new FrameTransform());
+        float[] xy = {123, 45};
+        transform.mapPoint(xy);
+        inverse.mapPoint(xy);
+        assertEquals(123, xy[0], 1e-3f);
+        assertEquals(45, xy[1], 1e-3f);
+
+        // 窗口坐标先平移到整幅画面再做原变换
+        FrameTransform window = new FrameTransform().set(transform).preTranslate(16, 32);
+        assertEquals(transform.mapX(17, 34), window.mapX(1, 2), 1e-3f);
+        assertEquals(transform.mapY(17, 34), window.mapY(1, 2), 1e-3f);
+
+        float[] rect = {1, 2, 3, 4};
+        new FrameTransform().postMirror(10).mapRect(rect);
+        assertArrayEquals(new float[]{6, 2, 8, 4}, rect, 0);
+    }
+
+    @Test
+    public void mapsReportedRegionToFrame() throws Exception {
+        // 旧版 Camera：-1000~1000 铺满整个预览帧
+        FrameTransform legacy = new FrameTransform().setRegionToSensor(-1000, -1000, 1000, 1000, 640, 480, false);
+        float[] rect = {-1000, 0, 0, 1000};
+        legacy.mapRect(rect);
+        assertArrayEquals(new float[]{0, 240, 320, 480}, rect, 1e-3f);
+
+        // Camera2：4:3 的裁剪区域输出 16:9 的流，上下各裁掉一条
+        FrameTransform camera2 = new FrameTransform().setRegionToSensor(0, 0, 4000, 3000, 1280, 720, true);
+        float[] top = {0, 375, 4000, 2625};
+        camera2.mapRect(top);
+        assertArrayEquals(new float[]{0, 0, 1280, 720}, top, 1e-2f);
+
+        // 裁剪区域不在原点（数码变焦）时先平移
+        FrameTransform zoomed = new FrameTransform().setRegionToSensor(1000, 750, 3000, 2250, 640, 480, true);
+        assertEquals(0, zoomed.mapX(1000, 750), 1e-3f);
+        assertEquals(640, zoomed.mapX(3000, 2250), 1e-3f);
+        assertEquals(480, zoomed.mapY(3000, 2250), 1e-3f);
+    }
+}
@@ -0,0 +1,143 @@
+package com.util;
+
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+
+import static org.junit.Assert.*;
+
+public class HaarCascadeTest {
+
+    private static final String TRAINCASCADE = "<?xml version=\"1.0\"?>\n"
+            + "<opencv_storage>\n"
+            + "<cascade type_id=\"opencv-cascade-classifier\"><stageType>BOOST</stageType>\n"
+            + "  <featureType>HAAR</featureType>\n"
+            + "  <height>24</height>\n"
+            + "  <width>24</width>\n"
+            + "  <stageNum>2</stageNum>\n"
+            + "  <stages>\n"
+            + "    <!-- stage 0 -->\n"
+            + "    <_>\n"
+            + "      <maxWeakCount>2</maxWeakCount>\n"
+            + "      <stageThreshold>-1.5</stageThreshold>\n"
+            + "      <weakClassifiers>\n"
+            + "        <_><internalNodes>0 -1 0 -3.1512e-02</internalNodes><leafValues>-2.2172 2.0875</leafValues></_>\n"
+            + "        <_><internalNodes>0 -1 1 1.2e-02</internalNodes><leafValues>-1.5 1.25</leafValues></_>\n"
+            + "      </weakClassifiers></_>\n"
+            + "    <_>\n"
+            + "      <maxWeakCount>1</maxWeakCount>\n"
+            + "      <stageThreshold>0.5</stageThreshold>\n"
+            + "      <weakClassifiers>\n"
+            + "        <_><internalNodes>0 -1 0 0.1</internalNodes><leafValues>0 1</leafValues></_>\n"
+            + "      </weakClassifiers></_></stages>\n"
+            + "  <features>\n"
+            + "    <_><rects><_>6 4 12 9 -1.</_><_>6 7 12 3 3.</_></rects></_>\n"
+            + "    <_><rects><_>6 4 12 7 -1.</_><_>10 4 4 7 3.</_></rects><tilted>0</tilted></_>\n"
+            + "  </features></cascade>\n"
+            + "</opencv_storage>\n";
+
+    private static final String HAAR_CLASSIFIER = "<?xml version=\"1.0\"?>\n"
+            + "<opencv_storage>\n"
+            + "<haarcascade_frontalface_alt type_id=\"opencv-haar-classifier\">\n"
+            + "  <size>20 20</size>\n"
+            + "  <stages>\n"
+            + "    <_>\n"
+            + "      <trees>\n"
+            + "        <_>\n"
+            + "          <_>\n"
+            + "            <feature>\n"
+            + "              <rects>\n"
+            + "                <_>3 7 14 4 -1.</_>\n"
+            + "                <_>3 9 14 2 2.</_></rects>\n"
+            + "              <tilted>0</tilted></feature>\n"
+            + "            <threshold>4.0141958743333817e-03</threshold>\n"
+            + "            <left_val>0.0337941907346249</left_val>\n"
+            + "            <right_val>0.8378106951713562</right_val></_></_></trees>\n"
+            + "      <stage_threshold>0.8226894140243530</stage_threshold>\n"
+            + "      <parent>-1</parent>\n"
+            + "      <next>-1</next></_></stages></haarcascade_frontalface_alt>\n"
+            + "</opencv_storage>\n";
+
+    private static HaarCascade load(String xml) throws IOException {
+        return HaarCascade.load(new ByteArrayInputStream(xml.getBytes("UTF-8")));
+    }
+
+    @Test
+    public void loadsTraincascadeFormat() throws Exception {
+        HaarCascade cascade = load(TRAINCASCADE);
+        assertEquals(24, cascade.getWindowWidth());
+        assertEquals(24, cascade.getWindowHeight());
+        assertEquals(2, cascade.getStageCount());
+        // 第 0 个特征用了两次
+        assertEquals(6, cascade.getRectCount());
+        int[] rects = new int[cascade.getRectCount() * 4];
+        float[] weights = new float[cascade.getRectCount()];
+        cascade.scale(1, rects, weights);
+        assertArrayEquals(new int[]{6, 4, 12, 9}, java.util.Arrays.copyOf(rects, 4));
+        // 乘上矩形面积（求平均）后等于 OpenCV 权重除以去掉边框的窗口面积
+        assertEquals(-1f / (22 * 22), weights[0], 1e-7f);
+        assertEquals(3f / (22 * 22), weights[1], 1e-7f);
+    }
+
+    @Test
+    public void loadsHaarClassifierFormat() throws Exception {
+        HaarCascade cascade = load(HAAR_CLASSIFIER);
+        assertEquals(20, cascade.getWindowWidth());
+        assertEquals(1, cascade.getStageCount());
+        assertEquals(2, cascade.getRectCount());
+        int[] rects = new int[8];
+        float[] weights = new float[2];
+        cascade.scale(2, rects, weights);
+        assertEquals(28, rects[6]);
+        assertEquals(2f / (18 * 18 * 4), weights[1], 1e-7f);
+    }
+
+    @Test
+    public void evaluatesLikeOpenCv() throws Exception {
+        HaarCascade cascade = load(TRAINCASCADE);
+        // 上暗下亮的窗口：特征 0 的中间横带（y 7..9）亮
+        byte[] luma = new byte[24 * 24];
+        for (int y = 0; y < 24; y++) {
+            for (int x = 0; x < 24; x++) {
+                luma[y * 24 + x] = (byte) (y >= 7 && y < 10 ? 200 : 60);
+            }
+        }
+        IntegralImage integral = new IntegralImage();
+        integral.compute(luma, 24, 24);
+        float std = std(integral);
+        int[] rects = new int[cascade.getRectCount() * 4];
+        float[] weights = new float[cascade.getRectCount()];
+        cascade.scale(1, rects, weights);
+        // OpenCV: Σ weight * 矩形和 / (面积 * 标准差)，特征 0 为正，远大于阈值
+        float opencv = (-integral.sum(6, 4, 12, 9) + 3 * integral.sum(6, 7, 12, 3)) / (22 * 22 * std);
+        assertTrue(opencv > 0.1f);
+        assertTrue(cascade.evaluate(integral, 0, 0, 1 / std, rects, weights));
+        // 均匀亮度加噪声时特征 0 接近 0，第二级不通过
+        for (int i = 0; i < luma.length; i++) {
+            luma[i] = (byte) (100 + (i * 7919 % 13));
+        }
+        integral.compute(luma, 24, 24);
+        assertFalse(cascade.evaluate(integral, 0, 0, 1 / std(integral), rects, weights));
+    }
+
+    private static float std(IntegralImage integral) {
+        float mean = integral.sum(0, 0, 24, 24) / 576f;
+        return (float) Math.sqrt(integral.squaredSum(0, 0, 24, 24) / 576f - mean * mean);
+    }
+
+    @Test(expected = IOException.class)
+    public void rejectsTiltedFeatures() throws Exception {
+        load(TRAINCASCADE.replace("<tilted>0</tilted>", "<tilted>1</tilted>"));
+    }
+
+    @Test(expected = IOException.class)
+    public void rejectsTrees() throws Exception {
+        load(TRAINCASCADE.replace("0 -1 1 1.2e-02", "1 -1 1 1.2e-02 0 -2 0 0.5"));
+    }
+
+    @Test(expected = IOException.class)
+    public void rejectsNonXml() throws Exception {
+        load("not a cascade");
+    }
+}
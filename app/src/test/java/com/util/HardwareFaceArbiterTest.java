@@ -0,0 +1,68 @@
+package com.util;
+
+import org.junit.Test;
+
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.*;
+
+public class HardwareFaceArbiterTest {
+
+    @Test
+    public void fallsBackWithoutHardware() throws Exception {
+        HardwareFaceArbiter arbiter = new HardwareFaceArbiter();
+        assertTrue(arbiter.shouldRunSoftware(0));
+        assertTrue(arbiter.shouldRunSoftware(1));
+        assertEquals(2, arbiter.getFallbackCount());
+        assertEquals(0, arbiter.getSkippedCount());
+    }
+
+    @Test
+    public void confirmsHardwareAtInterval() throws Exception {
+        HardwareFaceArbiter arbiter = new HardwareFaceArbiter();
+        arbiter.setConfirmInterval(100, TimeUnit.NANOSECONDS);
+        arbiter.setStaleTimeout(50, TimeUnit.NANOSECONDS);
+        arbiter.onHardwareFaces(1, 0);
+        // 第一帧立即确认一次
+        assertTrue(arbiter.shouldRunSoftware(10));
+        arbiter.onHardwareFaces(1, 40);
+        assertFalse(arbiter.shouldRunSoftware(50));
+        arbiter.onHardwareFaces(1, 100);
+        assertTrue(arbiter.shouldRunSoftware(110));
+        assertEquals(2, arbiter.getConfirmCount());
+        assertEquals(1, arbiter.getSkippedCount());
+        // 硬件结果失效，每帧回退
+        assertTrue(arbiter.shouldRunSoftware(200));
+        assertTrue(arbiter.shouldRunSoftware(201));
+        assertEquals(2, arbiter.getFallbackCount());
+    }
+
+    @Test
+    public void comparesWithFreshHardwareResult() throws Exception {
+        HardwareFaceArbiter arbiter = new HardwareFaceArbiter();
+        arbiter.setStaleTimeout(50, TimeUnit.NANOSECONDS);
+        arbiter.onHardwareFaces(1, 0);
+        arbiter.onSoftwareResult(1, 10);
+        arbiter.onSoftwareResult(0, 20);
+        arbiter.onHardwareFaces(0, 30);
+        arbiter.onSoftwareResult(2, 40);
+        arbiter.onSoftwareResult(0, 50);
+        // 硬件结果已失效，不计入对比
+        arbiter.onSoftwareResult(1, 200);
+        assertEquals(2, arbiter.getAgreeCount());
+        assertEquals(1, arbiter.getHardwareMissCount());
+        assertEquals(1, arbiter.getSoftwareMissCount());
+        assertEquals(2, arbiter.getHardwareCount());
+    }
+
+    @Test
+    public void resetDropsHardware() throws Exception {
+        HardwareFaceArbiter arbiter = new HardwareFaceArbiter();
+        arbiter.onHardwareFaces(1, 0);
+        assertTrue(arbiter.isHardwareFresh(1));
+        arbiter.reset();
+        assertFalse(arbiter.isHardwareFresh(1));
+        assertTrue(arbiter.shouldRunSoftware(1));
+        assertEquals(1, arbiter.getFallbackCount());
+    }
+}
@@ -0,0 +1,52 @@
+package com.util;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class ImagePyramidTest {
+
+    @Test
+    public void halvesEachLevelUntilMinSize() throws Exception {
+        int width = 65, height = 48;
+        byte[] luma = new byte[width * height];
+        for (int i = 0; i < luma.length; i++) {
+            luma[i] = (byte) (i % 251);
+        }
+        ImagePyramid pyramid = new ImagePyramid(8);
+        assertEquals(3, pyramid.build(luma, width, height, 12));
+        assertSame(luma, pyramid.getLevel(0));
+        assertEquals(32, pyramid.getWidth(1));
+        assertEquals(24, pyramid.getHeight(1));
+        assertEquals(16, pyramid.getWidth(2));
+        assertEquals(12, pyramid.getHeight(2));
+        assertEquals(4, ImagePyramid.scaleOf(2));
+
+        byte[] level1 = pyramid.getLevel(1);
+        int x = 5, y = 7;
+        int sum = (luma[2 * y * width + 2 * x] & 0xff) + (luma[2 * y * width + 2 * x + 1] & 0xff)
+                + (luma[(2 * y + 1) * width + 2 * x] & 0xff) + (luma[(2 * y + 1) * width + 2 * x + 1] & 0xff);
+        assertEquals((sum + 2) / 4, level1[y * 32 + x] & 0xff);
+    }
+
+    @Test
+    public void reusesLevelBuffers() throws Exception {
+        byte[] luma = new byte[64 * 64];
+        ImagePyramid pyramid = new ImagePyramid(4);
+        pyramid.build(luma, 64, 64, 1);
+        byte[] level2 = pyramid.getLevel(2);
+        assertEquals(4, pyramid.build(luma, 64, 64, 1));
+        assertSame(level2, pyramid.getLevel(2));
+        // 小一些的输入同样复用
+        assertEquals(4, pyramid.build(luma, 32, 32, 1));
+        assertSame(level2, pyramid.getLevel(2));
+        assertEquals(8, pyramid.getWidth(2));
+    }
+
+    @Test(expected = IndexOutOfBoundsException.class)
+    public void rejectsMissingLevel() throws Exception {
+        ImagePyramid pyramid = new ImagePyramid(4);
+        pyramid.build(new byte[16 * 16], 16, 16, 8);
+        pyramid.getLevel(2);
+    }
+}
@@ -0,0 +1,86 @@
+package com.util;
+
+import org.junit.Test;
+
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.*;
+
+public class LatencyHistogramTest {
+
+    private static long ms(double value) {
+        return (long) (value * TimeUnit.MILLISECONDS.toNanos(1));
+    }
+
+    @Test
+    public void recordsIntoPowerOfTwoBuckets() throws Exception {
+        LatencyHistogram histogram = new LatencyHistogram();
+        histogram.record(ms(0.1));
+        histogram.record(ms(0.25));
+        histogram.record(ms(3));
+        histogram.record(ms(5000));
+        LatencyHistogram.Snapshot snapshot = histogram.snapshot();
+        assertEquals(4, snapshot.getCount());
+        assertEquals(2, snapshot.getBucket(0));
+        // 3ms 落在 (2ms, 4ms]
+        assertEquals(1, snapshot.getBucket(4));
+        assertEquals(1, snapshot.getBucket(LatencyHistogram.bucketCount() - 1));
+        assertEquals(ms(5000), snapshot.getMaxNanos());
+    }
+
+    @Test
+    public void percentileReturnsBucketUpperBound() throws Exception {
+        LatencyHistogram histogram = new LatencyHistogram();
+        for (int i = 0; i < 95; i++) {
+            histogram.record(ms(0.9));
+        }
+        for (int i = 0; i < 5; i++) {
+            histogram.record(ms(30));
+        }
+        LatencyHistogram.Snapshot snapshot = histogram.snapshot();
+        assertEquals(ms(1), snapshot.getPercentileNanos(0.95));
+        assertEquals(ms(30), snapshot.getPercentileNanos(0.99));
+    }
+
+    @Test
+    public void concurrentRecordingKeepsCount() throws Exception {
+        final LatencyHistogram histogram = new LatencyHistogram();
+        Thread[] threads = new Thread[4];
+        for (int t = 0; t < threads.length; t++) {
+            threads[t] = new Thread(new Runnable() {
+                @Override
+                public void run() {
+                    for (int i = 0; i < 10000; i++) {
+                        histogram.record(i * 1000L);
+                    }
+                }
+            });
+            threads[t].start();
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        LatencyHistogram.Snapshot snapshot = histogram.snapshot();
+        long total = 0;
+        for (int i = 0; i < LatencyHistogram.bucketCount(); i++) {
+            total += snapshot.getBucket(i);
+        }
+        assertEquals(40000, snapshot.getCount());
+        assertEquals(40000, total);
+        assertEquals(9999 * 1000L, snapshot.getMaxNanos());
+    }
+
+    @Test
+    public void metricsSnapshotFormatsRecordedStagesOnly() throws Exception {
+        PipelineMetrics metrics = new PipelineMetrics();
+        metrics.onFrameReceived();
+        metrics.onFrameReceived();
+        metrics.onFrameDropped();
+        metrics.onFrameProcessed();
+        metrics.recordStage(PipelineMetrics.STAGE_DETECT, ms(12));
+        String text = metrics.snapshot().toString();
+        assertTrue(text, text.startsWith("received=2 dropped=1 processed=1"));
+        assertTrue(text, text.contains("detect n=1"));
+        assertFalse(text, text.contains("rotate"));
+    }
+}
@@ -0,0 +1,78 @@
+package com.util;
+
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+public class LumaFiltersTest {
+
+    /**
+     * 逐点求窗口平均的参考实现，边缘按边界像素延伸。
+     */
+    private static int naiveBlur(byte[] src, int width, int height, int radius, int x, int y) {
+        int sum = 0;
+        for (int dy = -radius; dy <= radius; dy++) {
+            int sy = Math.min(Math.max(y + dy, 0), height - 1);
+            for (int dx = -radius; dx <= radius; dx++) {
+                int sx = Math.min(Math.max(x + dx, 0), width - 1);
+                sum += src[sy * width + sx] & 0xff;
+            }
+        }
+        return sum;
+    }
+
+    @Test
+    public void boxBlurMatchesWindowAverage() throws Exception {
+        int width = 23, height = 17, radius = 2;
+        byte[] src = new byte[width * height];
+        new Random(1).nextBytes(src);
+        byte[] tmp = new byte[src.length];
+        byte[] dst = new byte[src.length];
+        LumaFilters.boxBlur(src, width, height, radius, tmp, dst);
+        int window = 2 * radius + 1;
+        for (int y = 0; y < height; y++) {
+            for (int x = 0; x < width; x++) {
+                // 两次分离取整，与一次二维平均最多差 1
+                int expected = Math.round(naiveBlur(src, width, height, radius, x, y) / (float) (window * window));
+                assertEquals(expected, dst[y * width + x] & 0xff, 1);
+            }
+        }
+    }
+
+    @Test
+    public void boxBlurKeepsFlatImageAndRadiusZero() throws Exception {
+        byte[] src = new byte[8 * 6];
+        Arrays.fill(src, (byte) 200);
+        byte[] tmp = new byte[src.length];
+        byte[] dst = new byte[src.length];
+        LumaFilters.boxBlur(src, 8, 6, 3, tmp, dst);
+        assertArrayEquals(src, dst);
+
+        new Random(2).nextBytes(src);
+        LumaFilters.boxBlur(src, 8, 6, 0, tmp, dst);
+        assertArrayEquals(src, dst);
+    }
+
+    @Test
+    public void equalizeStretchesToFullRange() throws Exception {
+        byte[] src = new byte[100];
+        for (int i = 0; i < src.length; i++) {
+            src[i] = (byte) (100 + i % 4);
+        }
+        int[] histogram = new int[256];
+        byte[] dst = new byte[src.length];
+        LumaFilters.equalizeHistogram(src, 10, 10, histogram, dst);
+        assertEquals(0, dst[0] & 0xff);
+        assertEquals(85, dst[1] & 0xff);
+        assertEquals(170, dst[2] & 0xff);
+        assertEquals(255, dst[3] & 0xff);
+
+        // 纯色图像原样保留，可以原地处理
+        Arrays.fill(src, (byte) 77);
+        LumaFilters.equalizeHistogram(src, 10, 10, histogram, src);
+        assertEquals(77, src[50] & 0xff);
+    }
+}
@@ -0,0 +1,92 @@
+package com.util;
+
+import org.junit.Test;
+
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.*;
+
+public class MotionGateTest {
+
+    private static final int WIDTH = 160, HEIGHT = 120;
+
+    private static byte[] frame(int value) {
+        byte[] luma = new byte[WIDTH * HEIGHT * 3 / 2];
+        Arrays.fill(luma, (byte) value);
+        return luma;
+    }
+
+    /**
+     * 在左上角画一块亮区，覆盖若干个块。
+     */
+    private static byte[] frameWithPatch(int background, int patch, int size) {
+        byte[] luma = frame(background);
+        for (int y = 0; y < size; y++) {
+            Arrays.fill(luma, y * WIDTH, y * WIDTH + size, (byte) patch);
+        }
+        return luma;
+    }
+
+    @Test
+    public void skipsStaticScene() throws Exception {
+        MotionGate gate = new MotionGate();
+        assertTrue(gate.check(frame(80), WIDTH, HEIGHT, 0));
+        assertFalse(gate.check(frame(82), WIDTH, HEIGHT, 10));
+        assertFalse(gate.check(frame(80), WIDTH, HEIGHT, 20));
+        assertEquals(1, gate.getPassedCount());
+        assertEquals(2, gate.getSkippedCount());
+    }
+
+    @Test
+    public void passesWhenEnoughBlocksChange() throws Exception {
+        MotionGate gate = new MotionGate();
+        gate.setSensitivity(12, 0.05f);
+        gate.check(frame(80), WIDTH, HEIGHT, 0);
+        // 10x10 只盖住 1 个块，不到 5%
+        assertFalse(gate.check(frameWithPatch(80, 200, 10), WIDTH, HEIGHT, 1));
+        // 40x40 盖住 16 个块
+        assertTrue(gate.check(frameWithPatch(80, 200, 40), WIDTH, HEIGHT, 2));
+        // 放行帧成为新的基准
+        assertFalse(gate.check(frameWithPatch(80, 200, 40), WIDTH, HEIGHT, 3));
+    }
+
+    @Test
+    public void forcesRefreshAfterInterval() throws Exception {
+        MotionGate gate = new MotionGate();
+        gate.setRefreshInterval(100, TimeUnit.NANOSECONDS);
+        gate.check(frame(80), WIDTH, HEIGHT, 0);
+        assertFalse(gate.check(frame(80), WIDTH, HEIGHT, 99));
+        assertTrue(gate.check(frame(80), WIDTH, HEIGHT, 100));
+        assertEquals(1, gate.getRefreshCount());
+    }
+
+    @Test
+    public void passesAfterResetOrSizeChange() throws Exception {
+        MotionGate gate = new MotionGate();
+        gate.check(frame(80), WIDTH, HEIGHT, 0);
+        assertTrue(gate.check(frame(80), WIDTH / 2, HEIGHT / 2, 1));
+        gate.reset();
+        assertTrue(gate.check(frame(80), WIDTH / 2, HEIGHT / 2, 2));
+    }
+
+    @Test
+    public void samplesStridedPlaneLikeArray() throws Exception {
+        byte[] luma = frameWithPatch(80, 200, 40);
+        int rowStride = WIDTH + 32;
+        ByteBuffer plane = ByteBuffer.allocateDirect(rowStride * HEIGHT);
+        for (int y = 0; y < HEIGHT; y++) {
+            plane.position(y * rowStride);
+            plane.put(luma, y * WIDTH, WIDTH);
+        }
+        ByteBuffer chroma = ByteBuffer.allocateDirect(WIDTH * HEIGHT / 4);
+        CameraFrame frame = CameraFrame.fromPlanes(WIDTH, HEIGHT, 0, plane, rowStride, chroma, chroma,
+                WIDTH / 2, 1, null, null);
+        int[] expected = new int[MotionGate.BLOCKS_X * MotionGate.BLOCKS_Y];
+        int[] actual = new int[expected.length];
+        MotionGate.sample(luma, WIDTH, HEIGHT, expected);
+        MotionGate.sample(frame, actual);
+        assertArrayEquals(expected, actual);
+    }
+}
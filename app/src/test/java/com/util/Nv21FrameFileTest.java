@@ -0,0 +1,110 @@
+package com.util;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+
+import static org.junit.Assert.*;
+
+public class Nv21FrameFileTest {
+
+    private File mFile;
+
+    @Before
+    public void setUp() throws Exception {
+        mFile = File.createTempFile("frames", ".nv21");
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        mFile.delete();
+    }
+
+    private static byte[] frame(int width, int height, int seed) {
+        byte[] nv21 = new byte[Nv21FrameFile.frameSize(width, height)];
+        for (int i = 0; i < nv21.length; i++) {
+            nv21[i] = (byte) (i * 7 + seed);
+        }
+        return nv21;
+    }
+
+    @Test
+    public void roundTripsAcrossMapWindows() throws Exception {
+        try (Nv21FrameFile.Writer writer = new Nv21FrameFile.Writer(mFile)) {
+            writer.write(frame(8, 4, 1), 8, 4, 90, 100);
+            writer.write(frame(4, 2, 2), 4, 2, 0, 200);
+            writer.write(frame(8, 4, 3), 8, 4, 270, 300);
+            assertEquals(3, writer.getFrameCount());
+            assertEquals(Nv21FrameFile.FILE_HEADER_SIZE + 3 * Nv21FrameFile.FRAME_HEADER_SIZE + 48 + 12 + 48,
+                    writer.size());
+        }
+        // 窗口比一帧还小，每帧都要重新映射
+        try (Nv21FrameFile.Reader reader = new Nv21FrameFile.Reader(mFile, 16)) {
+            assertTrue(reader.next());
+            assertEquals(0, reader.getFrameIndex());
+            assertEquals(8, reader.getWidth());
+            assertEquals(4, reader.getHeight());
+            assertEquals(90, reader.getRotation());
+            assertEquals(100, reader.getTimestamp());
+            byte[] nv21 = new byte[48];
+            reader.copyNv21(nv21);
+            assertArrayEquals(frame(8, 4, 1), nv21);
+
+            assertTrue(reader.next());
+            byte[] luma = new byte[8];
+            reader.copyLuma(luma);
+            byte[] expected = new byte[8];
+            System.arraycopy(frame(4, 2, 2), 0, expected, 0, 8);
+            assertArrayEquals(expected, luma);
+
+            assertTrue(reader.next());
+            assertEquals(270, reader.getRotation());
+            reader.copyNv21(nv21);
+            assertArrayEquals(frame(8, 4, 3), nv21);
+            assertFalse(reader.next());
+        }
+    }
+
+    @Test(expected = IOException.class)
+    public void rejectsForeignFile() throws Exception {
+        try (FileOutputStream out = new FileOutputStream(mFile)) {
+            out.write(new byte[]{'R', 'I', 'F', 'F', 0, 0, 0, 1});
+        }
+        new Nv21FrameFile.Reader(mFile).close();
+    }
+
+    @Test(expected = IOException.class)
+    public void rejectsOversizedFrameHeader() throws Exception {
+        // 65536 x 65536 的 frameSize 会溢出成 0，不检查就会把后面的数据当成下一帧
+        ByteBuffer buffer = ByteBuffer.allocate(Nv21FrameFile.FILE_HEADER_SIZE + Nv21FrameFile.FRAME_HEADER_SIZE);
+        Nv21FrameFile.putFileHeader(buffer);
+        Nv21FrameFile.putFrameHeader(buffer, 65536, 65536, 0, 0);
+        try (FileOutputStream out = new FileOutputStream(mFile)) {
+            out.write(buffer.array());
+        }
+        try (Nv21FrameFile.Reader reader = new Nv21FrameFile.Reader(mFile)) {
+            reader.next();
+        }
+    }
+
+    @Test(expected = IOException.class)
+    public void reportsTruncatedFrame() throws Exception {
+        try (Nv21FrameFile.Writer writer = new Nv21FrameFile.Writer(mFile)) {
+            writer.write(frame(4, 2, 0), 4, 2, 0, 0);
+            writer.write(frame(4, 2, 0), 4, 2, 0, 0);
+        }
+        try (RandomAccessFile file = new RandomAccessFile(mFile, "rw")) {
+            file.setLength(file.length() - 1);
+        }
+        try (Nv21FrameFile.Reader reader = new Nv21FrameFile.Reader(mFile)) {
+            assertTrue(reader.next());
+            reader.next();
+        }
+    }
+}
@@ -0,0 +1,101 @@
+package com.util;
+
+import org.junit.Test;
+
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+public class Nv21RotatorTest {
+
+    private static final int[] ROTATIONS = {0, 90, 180, 270};
+
+    private static byte[] randomNv21(int width, int height, long seed) {
+        byte[] data = new byte[width * height * 3 / 2];
+        new Random(seed).nextBytes(data);
+        return data;
+    }
+
+    /**
+     * 源坐标 (x, y) 旋转、镜像后在输出画面中的坐标。
+     */
+    private static int[] map(int x, int y, int width, int height, int rotation, boolean mirror) {
+        int dx, dy;
+        switch (rotation) {
+            case 90:
+                dx = height - 1 - y;
+                dy = x;
+                break;
+            case 180:
+                dx = width - 1 - x;
+                dy = height - 1 - y;
+                break;
+            case 270:
+                dx = y;
+                dy = width - 1 - x;
+                break;
+            default:
+                dx = x;
+                dy = y;
+                break;
+        }
+        int outWidth = Nv21Rotator.outputWidth(width, height, rotation);
+        return new int[]{mirror ? outWidth - 1 - dx : dx, dy};
+    }
+
+    @Test
+    public void lumaFollowsRotationAndMirror() throws Exception {
+        // 宽高不是分块边长的整数倍，覆盖边缘块
+        int width = 70, height = 46;
+        byte[] nv21 = randomNv21(width, height, 1);
+        byte[] out = new byte[nv21.length];
+        for (int rotation : ROTATIONS) {
+            for (boolean mirror : new boolean[]{false, true}) {
+                Nv21Rotator.rotate(nv21, width, height, rotation, mirror, out);
+                int outWidth = Nv21Rotator.outputWidth(width, height, rotation);
+                for (int y = 0; y < height; y++) {
+                    for (int x = 0; x < width; x++) {
+                        int[] d = map(x, y, width, height, rotation, mirror);
+                        assertEquals(nv21[y * width + x], out[d[1] * outWidth + d[0]]);
+                    }
+                }
+            }
+        }
+    }
+
+    @Test
+    public void rotatedFrameConvertsLikeFusedConversion() throws Exception {
+        int width = 64, height = 40;
+        byte[] nv21 = randomNv21(width, height, 2);
+        byte[] rotated = new byte[nv21.length];
+        short[] fused = new short[width * height];
+        short[] twoPass = new short[width * height];
+        for (int rotation : ROTATIONS) {
+            for (boolean mirror : new boolean[]{false, true}) {
+                YuvConverter.nv21ToRgb565(nv21, width, height, 1, rotation, mirror, fused);
+                Nv21Rotator.rotate(nv21, width, height, rotation, mirror, rotated);
+                int outWidth = Nv21Rotator.outputWidth(width, height, rotation);
+                int outHeight = Nv21Rotator.outputHeight(width, height, rotation);
+                YuvConverter.nv21ToRgb565(rotated, outWidth, outHeight, 1, 0, twoPass);
+                assertArrayEquals(fused, twoPass);
+            }
+        }
+    }
+
+    @Test
+    public void downscaledLumaMatchesSampledSource() throws Exception {
+        int width = 80, height = 60, scale = 4;
+        byte[] nv21 = randomNv21(width, height, 3);
+        int sw = YuvConverter.scaledWidth(width, scale);
+        int sh = YuvConverter.scaledHeight(height, scale);
+        byte[] out = new byte[sw * sh];
+        Nv21Rotator.rotateLuma(nv21, width, height, scale, 90, true, out);
+        int outWidth = YuvConverter.outputWidth(width, height, scale, 90);
+        for (int j = 0; j < sh; j++) {
+            for (int i = 0; i < sw; i++) {
+                int[] d = map(i, j, sw, sh, 90, true);
+                assertEquals(nv21[j * scale * width + i * scale], out[d[1] * outWidth + d[0]]);
+            }
+        }
+    }
+}
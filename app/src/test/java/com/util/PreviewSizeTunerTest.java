@@ -0,0 +1,91 @@
+package com.util;
+
+import org.junit.Test;
+
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.*;
+
+public class PreviewSizeTunerTest {
+
+    private static final int[] SIZES = {1920, 1080, 1280, 720, 640, 480, 320, 240};
+
+    private static PreviewSizeTuner tuner() {
+        // 预算 20ms，人脸至少占短边 1/5，检测器至少要 24 像素
+        return new PreviewSizeTuner(20, TimeUnit.MILLISECONDS, 0.2f, 24);
+    }
+
+    @Test
+    public void startsWithCalibrationSize() throws Exception {
+        PreviewSizeTuner tuner = tuner();
+        assertTrue(tuner.select(SIZES));
+        assertEquals(640, tuner.getWidth());
+        assertEquals(480, tuner.getHeight());
+        assertEquals(PreviewSizeTuner.CALIBRATION_SCALE, tuner.getScale());
+        assertFalse(tuner.select(new int[0]));
+    }
+
+    @Test
+    public void calibratesAfterWarmup() throws Exception {
+        PreviewSizeTuner tuner = tuner();
+        tuner.setCalibrationSamples(3);
+        int pixels = 320 * 240;
+        // 预热样本不计入
+        assertFalse(tuner.addSample(pixels, 1000000000L));
+        assertFalse(tuner.addSample(pixels, 1000000000L));
+        assertFalse(tuner.addSample(pixels, pixels * 100L));
+        assertFalse(tuner.addSample(pixels, pixels * 100L));
+        assertTrue(tuner.addSample(pixels, pixels * 100L));
+        assertTrue(tuner.isCalibrated());
+        assertEquals(100f, tuner.getCostPerPixel(), 1e-3f);
+    }
+
+    @Test
+    public void picksLargestFaceWithinBudget() throws Exception {
+        PreviewSizeTuner tuner = tuner();
+        // 100ns/px，20ms 预算约 200k 检测像素
+        tuner.setCostPerPixel(100);
+        assertTrue(tuner.select(SIZES));
+        // 1280x720/4 只有 57600 像素但人脸 36px；1920x1080/4 约 130k 像素、人脸 54px，两者都在预算内
+        assertEquals(1920, tuner.getWidth());
+        assertEquals(4, tuner.getScale());
+        assertTrue(tuner.predictNanos(1920, 1080, 4) <= TimeUnit.MILLISECONDS.toNanos(20));
+
+        // 便宜的检测器可以不缩小
+        tuner.setCostPerPixel(1);
+        tuner.select(SIZES);
+        assertEquals(1920, tuner.getWidth());
+        assertEquals(1, tuner.getScale());
+    }
+
+    @Test
+    public void fallsBackToFastestWhenBudgetTooSmall() throws Exception {
+        PreviewSizeTuner tuner = tuner();
+        tuner.setCostPerPixel(10000);
+        tuner.select(SIZES);
+        // 没有组合能进预算，在人脸尺寸够的组合里取最快的：320x240 缩小 2 倍与 640x480 缩小 4 倍
+        // 都是人脸 24px、19200 像素，取预览像素少的
+        assertEquals(320, tuner.getWidth());
+        assertEquals(2, tuner.getScale());
+    }
+
+    @Test
+    public void retunesOnDrift() throws Exception {
+        PreviewSizeTuner tuner = tuner();
+        tuner.setCalibrationSamples(1);
+        tuner.setCostPerPixel(100);
+        boolean retuned = false;
+        for (int i = 0; i < 100 && !retuned; i++) {
+            retuned = tuner.addSample(1000, 200000);
+        }
+        assertTrue(retuned);
+        assertEquals(1, tuner.getRetuneCount());
+        assertTrue(tuner.getCostPerPixel() > 130);
+
+        // 耗时稳定时不再调整
+        tuner.setCostPerPixel(200);
+        for (int i = 0; i < 100; i++) {
+            assertFalse(tuner.addSample(1000, 200000));
+        }
+    }
+}
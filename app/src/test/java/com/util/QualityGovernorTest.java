@@ -0,0 +1,113 @@
+package com.util;
+
+import org.junit.Test;
+
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.*;
+
+public class QualityGovernorTest {
+
+    private static final long MS = 1000000;
+
+    private static QualityGovernor newGovernor() {
+        QualityGovernor governor = new QualityGovernor(new QualityGovernor.Level[]{
+                new QualityGovernor.Level(1, 0, 300, TimeUnit.MILLISECONDS),
+                new QualityGovernor.Level(1, 66, 500, TimeUnit.MILLISECONDS),
+                new QualityGovernor.Level(2, 100, 1000, TimeUnit.MILLISECONDS),
+        }, 100, TimeUnit.MILLISECONDS, 2);
+        governor.setHysteresis(2, 3);
+        return governor;
+    }
+
+    private static boolean window(QualityGovernor governor, long time, long latencyMs, int thermal) {
+        governor.addSample(latencyMs * MS, 0);
+        governor.addSample(latencyMs * MS, 0);
+        return governor.evaluate(time, thermal);
+    }
+
+    @Test
+    public void stepsDownAfterConsecutiveOverloadedWindows() throws Exception {
+        QualityGovernor governor = newGovernor();
+        // 单个慢窗口不降档
+        assertFalse(window(governor, 1, 150, QualityGovernor.THERMAL_NONE));
+        assertFalse(window(governor, 2, 50, QualityGovernor.THERMAL_NONE));
+        assertFalse(window(governor, 3, 150, QualityGovernor.THERMAL_NONE));
+        assertTrue(window(governor, 4, 150, QualityGovernor.THERMAL_NONE));
+        assertEquals(1, governor.getLevelIndex());
+        assertEquals(66 * MS, governor.getLevel().getMinIntervalNanos());
+        // 切换后重新计数
+        assertFalse(window(governor, 5, 150, QualityGovernor.THERMAL_NONE));
+        assertTrue(window(governor, 6, 150, QualityGovernor.THERMAL_NONE));
+        assertEquals(2, governor.getLevelIndex());
+        // 已是最低档
+        assertFalse(window(governor, 7, 150, QualityGovernor.THERMAL_NONE));
+        assertFalse(window(governor, 8, 150, QualityGovernor.THERMAL_NONE));
+        assertEquals(2, governor.getDownCount());
+    }
+
+    @Test
+    public void stepsUpOnlyWhenIdleAndCool() throws Exception {
+        QualityGovernor governor = newGovernor();
+        assertFalse(governor.evaluate(0, QualityGovernor.THERMAL_HOT));
+        assertTrue(governor.evaluate(1, QualityGovernor.THERMAL_HOT));
+        assertEquals(1, governor.getLevelIndex());
+        // 温度偏高时不升档
+        for (int i = 0; i < 5; i++) {
+            assertFalse(window(governor, 2 + i, 10, QualityGovernor.THERMAL_WARM));
+        }
+        // 介于空闲和过载之间的窗口打断计数
+        assertFalse(window(governor, 10, 10, QualityGovernor.THERMAL_NONE));
+        assertFalse(window(governor, 11, 10, QualityGovernor.THERMAL_NONE));
+        assertFalse(window(governor, 12, 80, QualityGovernor.THERMAL_NONE));
+        assertFalse(window(governor, 13, 10, QualityGovernor.THERMAL_NONE));
+        // 没有样本的窗口不计入
+        assertFalse(governor.evaluate(14, QualityGovernor.THERMAL_NONE));
+        assertFalse(window(governor, 15, 10, QualityGovernor.THERMAL_NONE));
+        assertTrue(window(governor, 16, 10, QualityGovernor.THERMAL_NONE));
+        assertEquals(0, governor.getLevelIndex());
+        assertEquals(1, governor.getUpCount());
+    }
+
+    @Test
+    public void stepsDownOnQueueBacklog() throws Exception {
+        QualityGovernor governor = newGovernor();
+        for (int i = 0; i < 2; i++) {
+            governor.addSample(10 * MS, 1);
+            governor.addSample(10 * MS, 1);
+            governor.evaluate(i, QualityGovernor.THERMAL_UNKNOWN);
+        }
+        assertEquals(1, governor.getLevelIndex());
+        assertEquals(1f, governor.getQueueDepth(), 1e-6f);
+        QualityGovernor.Transition transition = new QualityGovernor.Transition();
+        assertTrue(governor.getTransition(0, transition));
+        assertEquals(QualityGovernor.REASON_QUEUE, transition.getReason());
+    }
+
+    @Test
+    public void keepsRecentTransitionsInRing() throws Exception {
+        QualityGovernor governor = newGovernor();
+        governor.setHysteresis(1, 1);
+        window(governor, 10, 150, QualityGovernor.THERMAL_NONE);
+        window(governor, 20, 150, QualityGovernor.THERMAL_NONE);
+        window(governor, 30, 10, QualityGovernor.THERMAL_NONE);
+        assertEquals(3, governor.getTransitionCount());
+        QualityGovernor.Transition transition = new QualityGovernor.Transition();
+        assertTrue(governor.getTransition(0, transition));
+        assertEquals(30, transition.getTimeNanos());
+        assertEquals(2, transition.getFrom());
+        assertEquals(1, transition.getTo());
+        assertEquals(QualityGovernor.REASON_RECOVERED, transition.getReason());
+        assertEquals(10 * MS, transition.getLatencyNanos());
+        assertTrue(governor.getTransition(1, transition));
+        assertEquals(20, transition.getTimeNanos());
+        assertEquals(QualityGovernor.REASON_LATENCY, transition.getReason());
+        // 第一条已被覆盖
+        assertFalse(governor.getTransition(2, transition));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void rejectsEmptyLadder() throws Exception {
+        new QualityGovernor(new QualityGovernor.Level[0], 100, TimeUnit.MILLISECONDS, 4);
+    }
+}
@@ -0,0 +1,120 @@
+package com.util;
+
+import org.junit.Test;
+
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+/**
+ * {@link YuvConverter} 与浮点参考实现对比。
+ */
+public class YuvConverterTest {
+
+    private static byte[] randomNv21(int width, int height, long seed) {
+        byte[] data = new byte[width * height * 3 / 2];
+        new Random(seed).nextBytes(data);
+        return data;
+    }
+
+    /**
+     * 浮点 BT.601 参考转换。
+     */
+    private static int[] referenceRgb(byte[] nv21, int width, int height, int x, int y) {
+        int frameSize = width * height;
+        int uvIndex = frameSize + (y >> 1) * width + (x & ~1);
+        double yy = Math.max(0, (nv21[y * width + x] & 0xff) - 16);
+        double v = (nv21[uvIndex] & 0xff) - 128;
+        double u = (nv21[uvIndex + 1] & 0xff) - 128;
+        double r = 1.164 * yy + 1.596 * v;
+        double g = 1.164 * yy - 0.813 * v - 0.391 * u;
+        double b = 1.164 * yy + 2.018 * u;
+        return new int[]{clamp(r), clamp(g), clamp(b)};
+    }
+
+    private static int clamp(double value) {
+        return (int) Math.max(0, Math.min(255, value));
+    }
+
+    private static void assertPixel(int[] expected, short actual) {
+        int r = (actual >> 11) & 0x1f;
+        int g = (actual >> 5) & 0x3f;
+        int b = actual & 0x1f;
+        assertTrue("r " + expected[0] + " vs " + r, Math.abs((expected[0] >> 3) - r) <= 1);
+        assertTrue("g " + expected[1] + " vs " + g, Math.abs((expected[1] >> 2) - g) <= 1);
+        assertTrue("b " + expected[2] + " vs " + b, Math.abs((expected[2] >> 3) - b) <= 1);
+    }
+
+    @Test
+    public void matchesReferenceConversion() throws Exception {
+        int width = 64, height = 48;
+        byte[] nv21 = randomNv21(width, height, 1);
+        short[] out = new short[width * height];
+        YuvConverter.nv21ToRgb565(nv21, width, height, 1, 0, out);
+        for (int y = 0; y < height; y++) {
+            for (int x = 0; x < width; x++) {
+                assertPixel(referenceRgb(nv21, width, height, x, y), out[y * width + x]);
+            }
+        }
+    }
+
+    @Test
+    public void downscaleSamplesEveryNthPixel() throws Exception {
+        int width = 64, height = 48, scale = 4;
+        byte[] nv21 = randomNv21(width, height, 2);
+        int ow = YuvConverter.outputWidth(width, height, scale, 0);
+        int oh = YuvConverter.outputHeight(width, height, scale, 0);
+        assertEquals(16, ow);
+        assertEquals(12, oh);
+        short[] out = new short[ow * oh];
+        YuvConverter.nv21ToRgb565(nv21, width, height, scale, 0, out);
+        for (int y = 0; y < oh; y++) {
+            for (int x = 0; x < ow; x++) {
+                assertPixel(referenceRgb(nv21, width, height, x * scale, y * scale), out[y * ow + x]);
+            }
+        }
+    }
+
+    @Test
+    public void rotationMatchesRotatedReference() throws Exception {
+        int width = 32, height = 24;
+        byte[] nv21 = randomNv21(width, height, 3);
+        short[] upright = new short[width * height];
+        YuvConverter.nv21ToRgb565(nv21, width, height, 1, 0, upright);
+        int[] rotations = {90, 180, 270};
+        for (int rotation : rotations) {
+            int ow = YuvConverter.outputWidth(width, height, 1, rotation);
+            int oh = YuvConverter.outputHeight(width, height, 1, rotation);
+            short[] out = new short[ow * oh];
+            YuvConverter.nv21ToRgb565(nv21, width, height, 1, rotation, out);
+            for (int y = 0; y < height; y++) {
+                for (int x = 0; x < width; x++) {
+                    int dx, dy;
+                    if (rotation == 90) {
+                        dx = height - 1 - y;
+                        dy = x;
+                    } else if (rotation == 180) {
+                        dx = width - 1 - x;
+                        dy = height - 1 - y;
+                    } else {
+                        dx = y;
+                        dy = width - 1 - x;
+                    }
+                    assertEquals(upright[y * width + x], out[dy * ow + dx]);
+                }
+            }
+        }
+    }
+
+    @Test
+    public void outputSizeIsEven() throws Exception {
+        assertEquals(90, YuvConverter.outputWidth(720, 1080, 8, 0));
+        assertEquals(134, YuvConverter.outputHeight(720, 1080, 8, 0));
+        assertEquals(134, YuvConverter.outputWidth(720, 1080, 8, 90));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void rejectsUnsupportedRotation() throws Exception {
+        YuvConverter.nv21ToRgb565(new byte[6 * 4 * 3 / 2], 6, 4, 1, 45, new short[24]);
+    }
+}
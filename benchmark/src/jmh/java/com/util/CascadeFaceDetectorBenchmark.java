@@ -0,0 +1,48 @@
+package com.util;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 纯 Java 级联检测后端，输入尺寸对应亮度检测模式缩小 2 倍/4 倍后的检测图。
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class CascadeFaceDetectorBenchmark {
+
+    @Param({"160x120", "320x240", "640x360"})
+    public String size;
+
+    /**
+     * 最小人脸占检测图短边的比例，越大扫描的尺度越少。
+     */
+    @Param({"0.1", "0.25"})
+    public float minFace;
+
+    private int width, height;
+    private byte[] luma;
+    private final CascadeFaceDetector detector = new CascadeFaceDetector();
+    private final FaceBox[] out = FaceBox.newArray(4);
+
+    @Setup
+    public void setUp() {
+        width = SyntheticFrames.width(size);
+        height = SyntheticFrames.height(size);
+        luma = SyntheticFrames.nv21(width, height, 42);
+        detector.setMinSize((int) (Math.min(width, height) * minFace));
+    }
+
+    @Benchmark
+    public int detect() {
+        return detector.detect(luma, width, height, out);
+    }
+}
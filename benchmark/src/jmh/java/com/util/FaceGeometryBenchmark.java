@@ -0,0 +1,57 @@
+package com.util;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 人脸框计算（getFaceRect）和裁剪（faceCrop）。
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class FaceGeometryBenchmark {
+
+    @Param({"320x240", "640x480", "1280x720", "1920x1080"})
+    public String size;
+
+    private int width, height;
+    private short[] pixels;
+    private short[] cropped;
+    private final int[] bounds = new int[4];
+    private float midX, midY, offset;
+
+    @Setup
+    public void setUp() {
+        width = SyntheticFrames.width(size);
+        height = SyntheticFrames.height(size);
+        pixels = new short[width * height];
+        YuvConverter.nv21ToRgb565(SyntheticFrames.nv21(width, height, 42), width, height, 1, 0, pixels);
+        midX = width / 2f;
+        midY = height / 2f;
+        // 眼距约为画面宽度的 1/8，rectFlagOffset 与 CameraAct 一致取 2
+        offset = width / 8f * 2f;
+        FaceGeometry.faceRect(midX, midY, offset, width, height, bounds);
+        cropped = new short[(bounds[2] - bounds[0]) * (bounds[3] - bounds[1])];
+    }
+
+    @Benchmark
+    public int[] faceRect() {
+        FaceGeometry.faceRect(midX, midY, offset, width, height, bounds);
+        return bounds;
+    }
+
+    @Benchmark
+    public short[] crop() {
+        FaceGeometry.crop(pixels, width, bounds[0], bounds[1],
+                bounds[2] - bounds[0], bounds[3] - bounds[1], cropped);
+        return cropped;
+    }
+}
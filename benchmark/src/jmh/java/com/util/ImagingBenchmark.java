@@ -0,0 +1,64 @@
+package com.util;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 亮度平面上的基础图像运算：积分图、金字塔、盒式模糊、直方图均衡。
+ * 预热后 gc.alloc.rate.norm 应当为 0。
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class ImagingBenchmark {
+
+    @Param({"320x240", "640x480", "1280x720"})
+    public String size;
+
+    private int width, height;
+    private byte[] luma;
+    private byte[] tmp, dst;
+    private final int[] histogram = new int[256];
+    private final IntegralImage integral = new IntegralImage();
+    private final ImagePyramid pyramid = new ImagePyramid(6);
+
+    @Setup
+    public void setUp() {
+        width = SyntheticFrames.width(size);
+        height = SyntheticFrames.height(size);
+        luma = SyntheticFrames.nv21(width, height, 42);
+        tmp = new byte[width * height];
+        dst = new byte[width * height];
+    }
+
+    @Benchmark
+    public IntegralImage integral() {
+        integral.compute(luma, width, height);
+        return integral;
+    }
+
+    @Benchmark
+    public int pyramid() {
+        return pyramid.build(luma, width, height, 24);
+    }
+
+    @Benchmark
+    public byte[] boxBlur() {
+        LumaFilters.boxBlur(luma, width, height, 2, tmp, dst);
+        return dst;
+    }
+
+    @Benchmark
+    public byte[] equalizeHistogram() {
+        LumaFilters.equalizeHistogram(luma, width, height, histogram, dst);
+        return dst;
+    }
+}
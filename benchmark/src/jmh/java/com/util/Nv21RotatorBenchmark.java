@@ -0,0 +1,54 @@
+package com.util;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * NV21 平面上的分块旋转+镜像。
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class Nv21RotatorBenchmark {
+
+    @Param({"320x240", "640x480", "1280x720", "1920x1080"})
+    public String size;
+
+    @Param({"0", "90", "180", "270"})
+    public int rotation;
+
+    @Param({"false", "true"})
+    public boolean mirror;
+
+    private int width, height;
+    private byte[] nv21;
+    private byte[] out;
+
+    @Setup
+    public void setUp() {
+        width = SyntheticFrames.width(size);
+        height = SyntheticFrames.height(size);
+        nv21 = SyntheticFrames.nv21(width, height, 42);
+        out = new byte[nv21.length];
+    }
+
+    @Benchmark
+    public byte[] rotate() {
+        Nv21Rotator.rotate(nv21, width, height, rotation, mirror, out);
+        return out;
+    }
+
+    @Benchmark
+    public byte[] rotateLumaQuarter() {
+        Nv21Rotator.rotateLuma(nv21, width, height, 4, rotation, mirror, out);
+        return out;
+    }
+}
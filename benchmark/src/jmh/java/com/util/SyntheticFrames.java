@@ -0,0 +1,35 @@
+package com.util;
+
+import java.util.Random;
+
+/**
+ * 基准测试用的合成 NV21 帧：亮度为渐变加噪声，色度随机。
+ */
+final class SyntheticFrames {
+
+    private SyntheticFrames() {
+        //no instance
+    }
+
+    static int width(String size) {
+        return Integer.parseInt(size.substring(0, size.indexOf('x')));
+    }
+
+    static int height(String size) {
+        return Integer.parseInt(size.substring(size.indexOf('x') + 1));
+    }
+
+    static byte[] nv21(int width, int height, long seed) {
+        Random random = new Random(seed);
+        byte[] data = new byte[width * height * 3 / 2];
+        for (int y = 0; y < height; y++) {
+            for (int x = 0; x < width; x++) {
+                data[y * width + x] = (byte) ((x + y) * 255 / (width + height) + random.nextInt(16));
+            }
+        }
+        for (int i = width * height; i < data.length; i++) {
+            data[i] = (byte) (128 + random.nextInt(32) - 16);
+        }
+        return data;
+    }
+}
@@ -0,0 +1,48 @@
+package com.util;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * NV21 -> RGB_565 转换，覆盖缩放和旋转组合。
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class YuvConverterBenchmark {
+
+    @Param({"320x240", "640x480", "1280x720", "1920x1080"})
+    public String size;
+
+    @Param({"0", "90", "180", "270"})
+    public int rotation;
+
+    @Param({"1", "2", "4"})
+    public int scale;
+
+    private int width, height;
+    private byte[] nv21;
+    private short[] out;
+
+    @Setup
+    public void setUp() {
+        width = SyntheticFrames.width(size);
+        height = SyntheticFrames.height(size);
+        nv21 = SyntheticFrames.nv21(width, height, 42);
+        out = new short[width * height];
+    }
+
+    @Benchmark
+    public short[] nv21ToRgb565() {
+        YuvConverter.nv21ToRgb565(nv21, width, height, scale, rotation, out);
+        return out;
+    }
+}
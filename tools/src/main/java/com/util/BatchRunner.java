@@ -0,0 +1,229 @@
+package com.util;
+
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.util.Locale;
+
+/**
+ * 离线批处理：把 {@link Nv21FrameFile} 录制的帧按相机上同样的亮度检测路径（缩小+旋转 → 检测）
+ * 跑一遍 {@link FramePipeline}，每帧输出一行 CSV 结果和各阶段耗时。只依赖纯 Java 代码，
+ * 可以在普通 JVM 上复现现场问题或在固定数据集上测吞吐。属于 tools 模块，不打进 APK：
+ * <pre>
+ * ./gradlew :tools:run -PbatchArgs="frames.nv21 result.csv [scale] [workers] [cascade.xml]"
+ * </pre>
+ * CSV 每行依次为 index, timestamp, width, height, rotation, scale, read_ns, rotate_ns, detect_ns, faces，
+ * 之后每个人脸一组 mid_x, mid_y, eyes_distance, confidence（检测图坐标，即缩小并旋转后的亮度图）。
+ * 不给 cascade.xml（OpenCV 格式，见 {@link HaarCascade#load}）时用内置的示例级联，结果只能用来测吞吐。
+ */
+public class BatchRunner {
+
+    public interface DetectorFactory {
+        /**
+         * 每个检测线程各创建一个。
+         */
+        LumaFaceDetector newDetector();
+    }
+
+    static final String CSV_HEADER = "index,timestamp,width,height,rotation,scale,read_ns,rotate_ns,detect_ns,faces";
+    /**
+     * 每帧最多输出的人脸数。
+     */
+    static final int MAX_FACES = 8;
+
+    private final DetectorFactory mFactory;
+    private final int mWorkers;
+    private final int mScale;
+    private final PipelineMetrics mMetrics = new PipelineMetrics();
+
+    /**
+     * @param scale 检测前的整数缩小倍数，与相机上的亮度检测模式一致
+     */
+    public BatchRunner(DetectorFactory factory, int workers, int scale) {
+        if (workers < 1 || scale < 1) {
+            throw new IllegalArgumentException("workers=" + workers + ",scale=" + scale);
+        }
+        mFactory = factory;
+        mWorkers = workers;
+        mScale = scale;
+    }
+
+    public PipelineMetrics getMetrics() {
+        return mMetrics;
+    }
+
+    private static class BatchFrame {
+        byte[] luma;
+        byte[] scaled;
+        int width, height, rotation;
+        long timestamp;
+        long readNanos, rotateNanos, detectNanos;
+        final FaceBox[] boxes = FaceBox.newArray(MAX_FACES);
+        int faceCount;
+    }
+
+    /**
+     * 在调用线程上顺序读帧（准备阶段），检测分到各工作线程，结果按帧序写入 out。读完并全部写出后返回。
+     *
+     * @return 处理的帧数
+     */
+    public long run(File input, final Writer out) throws IOException, InterruptedException {
+        final Object lock = new Object();
+        // 发布线程上写入，lock 保护
+        final long[] published = new long[1];
+        final IOException[] failure = new IOException[1];
+        final StringBuilder line = new StringBuilder(128);
+        out.write(CSV_HEADER);
+        out.write('\n');
+        FramePipeline<Nv21FrameFile.Reader, BatchFrame> pipeline = new FramePipeline<>(mWorkers, mWorkers * 2,
+                new FramePipeline.Preparer<Nv21FrameFile.Reader, BatchFrame>() {
+                    @Override
+                    public void prepare(long index, Nv21FrameFile.Reader reader, BatchFrame frame) {
+                        long start = System.nanoTime();
+                        frame.width = reader.getWidth();
+                        frame.height = reader.getHeight();
+                        frame.rotation = reader.getRotation();
+                        frame.timestamp = reader.getTimestamp();
+                        frame.faceCount = 0;
+                        frame.rotateNanos = 0;
+                        frame.detectNanos = 0;
+                        int lumaSize = frame.width * frame.height;
+                        if (frame.luma == null || frame.luma.length < lumaSize) {
+                            frame.luma = new byte[lumaSize];
+                        }
+                        reader.copyLuma(frame.luma);
+                        frame.readNanos = System.nanoTime() - start;
+                        mMetrics.recordStage(PipelineMetrics.STAGE_DECODE, frame.readNanos);
+                        mMetrics.onFrameReceived();
+                    }
+                },
+                new FramePipeline.Factory<BatchFrame>() {
+                    @Override
+                    public BatchFrame newFrame() {
+                        return new BatchFrame();
+                    }
+
+                    @Override
+                    public FramePipeline.Detector<BatchFrame> newDetector(int worker) {
+                        final LumaFaceDetector detector = mFactory.newDetector();
+                        return new FramePipeline.Detector<BatchFrame>() {
+                            @Override
+                            public void detect(BatchFrame frame) {
+                                long start = System.nanoTime();
+                                int w = YuvConverter.outputWidth(frame.width, frame.height, mScale, frame.rotation);
+                                int h = YuvConverter.outputHeight(frame.width, frame.height, mScale, frame.rotation);
+                                if (frame.scaled == null || frame.scaled.length < w * h) {
+                                    frame.scaled = new byte[w * h];
+                                }
+                                Nv21Rotator.rotateLuma(frame.luma, frame.width, frame.height, mScale, frame.rotation,
+                                        false, frame.scaled);
+                                long rotated = System.nanoTime();
+                                frame.faceCount = detector.detect(frame.scaled, w, h, frame.boxes);
+                                long end = System.nanoTime();
+                                frame.rotateNanos = rotated - start;
+                                frame.detectNanos = end - rotated;
+                                mMetrics.recordStage(PipelineMetrics.STAGE_ROTATE, frame.rotateNanos);
+                                mMetrics.recordStage(PipelineMetrics.STAGE_DETECT, frame.detectNanos);
+                            }
+
+                            @Override
+                            public void release() {
+                                detector.release();
+                            }
+                        };
+                    }
+                },
+                new FramePipeline.Publisher<BatchFrame>() {
+                    @Override
+                    public void publish(long index, BatchFrame frame) {
+                        long start = System.nanoTime();
+                        line.setLength(0);
+                        line.append(index).append(',').append(frame.timestamp)
+                                .append(',').append(frame.width).append(',').append(frame.height)
+                                .append(',').append(frame.rotation).append(',').append(mScale)
+                                .append(',').append(frame.readNanos).append(',').append(frame.rotateNanos)
+                                .append(',').append(frame.detectNanos).append(',').append(frame.faceCount);
+                        for (int i = 0; i < frame.faceCount; i++) {
+                            FaceBox box = frame.boxes[i];
+                            line.append(',').append(box.getMidX()).append(',').append(box.getMidY())
+                                    .append(',').append(box.getEyesDistance()).append(',').append(box.getConfidence());
+                        }
+                        line.append('\n');
+                        synchronized (lock) {
+                            try {
+                                if (failure[0] == null) {
+                                    out.append(line);
+                                }
+                            } catch (IOException e) {
+                                failure[0] = e;
+                            }
+                            published[0]++;
+                            lock.notifyAll();
+                        }
+                        long end = System.nanoTime();
+                        mMetrics.recordStage(PipelineMetrics.STAGE_PUBLISH, end - start);
+                        mMetrics.recordStage(PipelineMetrics.STAGE_TOTAL,
+                                frame.readNanos + frame.rotateNanos + frame.detectNanos + end - start);
+                        mMetrics.onFrameProcessed();
+                    }
+                });
+        long submitted = 0;
+        try (Nv21FrameFile.Reader reader = new Nv21FrameFile.Reader(input)) {
+            while (reader.next()) {
+                if (!pipeline.process(reader.getFrameIndex(), reader)) {
+                    break;
+                }
+                submitted++;
+            }
+            synchronized (lock) {
+                while (published[0] < submitted) {
+                    lock.wait();
+                }
+                if (failure[0] != null) {
+                    throw failure[0];
+                }
+            }
+        } finally {
+            pipeline.shutdown();
+        }
+        out.flush();
+        return submitted;
+    }
+
+    public static void main(String[] args) throws Exception {
+        if (args.length < 2) {
+            System.err.println("usage: BatchRunner <frames.nv21> <result.csv> [scale] [workers] [cascade.xml]");
+            System.exit(2);
+        }
+        int scale = args.length > 2 ? Integer.parseInt(args[2]) : 2;
+        int workers = args.length > 3 ? Integer.parseInt(args[3]) : Runtime.getRuntime().availableProcessors();
+        final HaarCascade cascade;
+        if (args.length > 4) {
+            try (InputStream in = new FileInputStream(args[4])) {
+                cascade = HaarCascade.load(in);
+            }
+        } else {
+            cascade = HaarCascade.frontalFace();
+        }
+        BatchRunner runner = new BatchRunner(new DetectorFactory() {
+            @Override
+            public LumaFaceDetector newDetector() {
+                return new CascadeFaceDetector(cascade);
+            }
+        }, workers, scale);
+        long start = System.nanoTime();
+        long frames;
+        try (Writer out = new BufferedWriter(new OutputStreamWriter(new FileOutputStream(args[1]), "UTF-8"))) {
+            frames = runner.run(new File(args[0]), out);
+        }
+        double seconds = (System.nanoTime() - start) / 1e9;
+        System.out.println(String.format(Locale.US, "%d frames in %.2fs (%.1f fps, %d workers, scale %d)",
+                frames, seconds, frames / seconds, workers, scale));
+        System.out.println(runner.getMetrics().snapshot());
+    }
+}
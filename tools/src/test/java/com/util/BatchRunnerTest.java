@@ -0,0 +1,84 @@
+package com.util;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.StringWriter;
+import java.util.Arrays;
+
+import static org.junit.Assert.*;
+
+public class BatchRunnerTest {
+
+    private File mFile;
+
+    @Before
+    public void setUp() throws Exception {
+        mFile = File.createTempFile("frames", ".nv21");
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        mFile.delete();
+    }
+
+    /**
+     * 检测图亮度为 N 时报告 N 个人脸，中心为检测图的宽高，借此核对缩小和旋转。
+     */
+    private static final BatchRunner.DetectorFactory FAKE = new BatchRunner.DetectorFactory() {
+        @Override
+        public LumaFaceDetector newDetector() {
+            return new LumaFaceDetector() {
+                @Override
+                public int detect(byte[] luma, int width, int height, FaceBox[] out) {
+                    int count = Math.min(luma[0], out.length);
+                    for (int i = 0; i < count; i++) {
+                        out[i].set(width, height, i, 0.5f);
+                    }
+                    return count;
+                }
+
+                @Override
+                public void release() {
+                }
+            };
+        }
+    };
+
+    @Test
+    public void writesResultsInFrameOrder() throws Exception {
+        int frames = 20;
+        try (Nv21FrameFile.Writer writer = new Nv21FrameFile.Writer(mFile)) {
+            for (int i = 0; i < frames; i++) {
+                byte[] nv21 = new byte[Nv21FrameFile.frameSize(16, 8)];
+                Arrays.fill(nv21, 0, 16 * 8, (byte) (i % 3));
+                writer.write(nv21, 16, 8, i % 2 == 0 ? 0 : 90, i * 1000L);
+            }
+        }
+        BatchRunner runner = new BatchRunner(FAKE, 3, 2);
+        StringWriter out = new StringWriter();
+        assertEquals(frames, runner.run(mFile, out));
+
+        String[] lines = out.toString().split("\n");
+        assertEquals(frames + 1, lines.length);
+        assertEquals(BatchRunner.CSV_HEADER, lines[0]);
+        for (int i = 0; i < frames; i++) {
+            String[] cols = lines[i + 1].split(",");
+            assertEquals(String.valueOf(i), cols[0]);
+            assertEquals(String.valueOf(i * 1000L), cols[1]);
+            assertEquals("2", cols[5]);
+            int faces = i % 3;
+            assertEquals(String.valueOf(faces), cols[9]);
+            assertEquals(10 + faces * 4, cols.length);
+            if (faces > 0) {
+                // 16x8 缩小 2 倍为 8x4，旋转 90 度后为 4x8
+                assertEquals(i % 2 == 0 ? "8.0" : "4.0", cols[10]);
+                assertEquals(i % 2 == 0 ? "4.0" : "8.0", cols[11]);
+            }
+        }
+        assertEquals(frames, runner.getMetrics().getProcessedCount());
+        assertEquals(frames, runner.getMetrics().snapshot().getStage(PipelineMetrics.STAGE_DETECT).getCount());
+    }
+}